@@ -2,13 +2,21 @@ import contact.ContactController;
 import contact.ContactManager;
 import convention.ConferenceController;
 import convention.EventController;
+import convention.ImportController;
 import convention.RoomController;
 import convention.ScheduleController;
 import convention.conference.ConferenceManager;
 import gateway.CSVReader;
 import gateway.DocumentPrinter;
 import gateway.IDocumentPrinter;
+import gateway.SegmentStore;
 import gateway.Serializer;
+import gateway.ShardStore;
+import gateway.SqlDatabase;
+import gateway.journal.FileJournal;
+import gateway.journal.JournalOperation;
+import gateway.journal.JournalReplayer;
+import gateway.journal.Snapshotter;
 import gui.MainFrame;
 import messaging.ConversationController;
 import messaging.ConversationManager;
@@ -16,9 +24,13 @@ import user.UserController;
 import user.UserManager;
 import util.ControllerBundle;
 
+import javax.swing.Timer;
 import java.io.IOException;
+import java.util.List;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
 import java.util.logging.ConsoleHandler;
 import java.util.logging.Handler;
 import java.util.logging.Level;
@@ -30,6 +42,15 @@ import java.util.logging.Logger;
 public class ConventionSystem {
     private Logger LOGGER = Logger.getLogger(Logger.GLOBAL_LOGGER_NAME);
 
+    // Set by the startup pipeline once the managers have been read from disk
+    private UserManager userManager;
+    private ContactManager contactManager;
+    private ConversationManager conversationManager;
+    private ConferenceManager conferenceManager;
+    private FileJournal journal;
+    private SegmentStore messageStore;
+    private Snapshotter snapshotter;
+
     /**
      * Runs the Convention System
      */
@@ -41,63 +62,183 @@ public class ConventionSystem {
         LOGGER.setLevel(Level.ALL);
         LOGGER.setUseParentHandlers(false);
 
+        long startupStart = System.nanoTime();
+
         // Create serializers
         Serializer<UserManager> userManagerSerializer = new Serializer<>("userManager.ser");
         Serializer<ContactManager> contactManagerSerializer = new Serializer<>("contactManager.ser");
         Serializer<ConversationManager> conversationManagerSerializer = new Serializer<>("conversationManager.ser");
         Serializer<ConferenceManager> conferenceManagerSerializer = new Serializer<>("conferenceManager.ser");
 
+        // Users and conversations are kept in memory, unless a database is given with -Dstorage.url=jdbc:...
+        String storageUrl = System.getProperty("storage.url");
+        SqlDatabase database = storageUrl == null ? null : new SqlDatabase(storageUrl);
+
         // Create managers
-        // These store the entities and other important stuff
+        // These store the entities and other important stuff, and are read from disk in parallel
         System.out.println("Reading from disk...");
-        UserManager userManager = userManagerSerializer.load(new UserManager());
-        ContactManager contactManager = contactManagerSerializer.load(new ContactManager());
-        ConversationManager conversationManager = conversationManagerSerializer.load(new ConversationManager());
-        ConferenceManager conferenceManager = conferenceManagerSerializer.load(new ConferenceManager());
-
-        // Create god mode accounts
-        try {
-            Set<UUID> newGodUUIDs = userManager.loadGodUsers(new CSVReader("godUsers.csv").read());
-
-            if (newGodUUIDs.size() > 0) {
-                System.out.printf("Added %d new god users: %s\n", newGodUUIDs.size(), newGodUUIDs.toString());
-            } else {
-                System.out.println("No new god users added.");
+        ExecutorService startupExecutor = Executors.newFixedThreadPool(5);
+
+        CompletableFuture<UserManager> userManagerFuture = loadAsync("userManager.ser", () -> userManagerSerializer.load(database == null ? new UserManager() : new UserManager(database)), startupExecutor);
+        CompletableFuture<ContactManager> contactManagerFuture = loadAsync("contactManager.ser", () -> contactManagerSerializer.load(new ContactManager()), startupExecutor);
+        CompletableFuture<ConversationManager> conversationManagerFuture = loadAsync("conversationManager.ser", () -> conversationManagerSerializer.load(database == null ? new ConversationManager() : new ConversationManager(database)), startupExecutor);
+        CompletableFuture<ConferenceManager> conferenceManagerFuture = loadAsync("conferenceManager.ser", () -> conferenceManagerSerializer.load(new ConferenceManager()), startupExecutor);
+        CompletableFuture<List<String[]>> godUsersFuture = loadAsync("godUsers.csv", () -> {
+            try {
+                return new CSVReader("godUsers.csv").read();
+            } catch (IOException e) {
+                System.out.println("Unable to load god mode users" + e);
+                return null;
             }
-        } catch (IOException e) {
-            System.out.println("Unable to load god mode users" + e);
-        }
+        }, startupExecutor);
+
+        // Everything after the loads needs all of the managers, so it runs once they're done
+        CompletableFuture<ControllerBundle> controllerBundleFuture = CompletableFuture.allOf(userManagerFuture, contactManagerFuture, conversationManagerFuture, conferenceManagerFuture, godUsersFuture).thenApplyAsync(ignored -> {
+            System.out.printf("Read from disk in %d ms.\n", millisecondsSince(startupStart));
+
+            userManager = userManagerFuture.join();
+            contactManager = contactManagerFuture.join();
+            conversationManager = conversationManagerFuture.join();
+            conferenceManager = conferenceManagerFuture.join();
+
+            // Conference contents are loaded from their shards when they're first needed
+            ShardStore conferenceShardStore = new ShardStore("conferences");
+            conferenceManager.setShardStore(conferenceShardStore);
+
+            // Messages are appended to segments per conversation, and only the newest ones are kept in memory
+            messageStore = new SegmentStore("messages");
+            conversationManager.setMessageStore(messageStore);
+
+            // Replay everything that happened after the snapshots were taken
+            // Records are synced to disk in batches of 64, or every 200 ms, whichever comes first
+            long replayStart = System.nanoTime();
+            journal = new FileJournal("journal.log", 64, 200);
+            JournalReplayer journalReplayer = new JournalReplayer(userManager, contactManager, conversationManager, conferenceManager);
+            journalReplayer.setSnapshotSequence(JournalOperation.Target.USER, userManagerSerializer.getSequence());
+            journalReplayer.setSnapshotSequence(JournalOperation.Target.CONTACT, contactManagerSerializer.getSequence());
+            journalReplayer.setSnapshotSequence(JournalOperation.Target.CONVERSATION, conversationManagerSerializer.getSequence());
+            journalReplayer.setSnapshotSequence(JournalOperation.Target.CONFERENCE, conferenceManagerSerializer.getSequence());
+
+            journal.open(journalReplayer.getNewestSnapshotSequence());
+            int replayed = journalReplayer.replay(journal);
+            System.out.printf("Replayed %d journal records in %d ms.\n", replayed, millisecondsSince(replayStart));
+            conversationManager.discardUnrecordedMessages();
+
+            // From here on, every mutation is recorded
+            userManager.setJournal(journal);
+            contactManager.setJournal(journal);
+            conversationManager.setJournal(journal);
+            conferenceManager.setJournal(journal);
+
+            // Compact the journal into the snapshots in the background every 30 seconds, if there are at least 500 new records
+            snapshotter = new Snapshotter(journal, userManagerSerializer, contactManagerSerializer, conversationManagerSerializer, conferenceManagerSerializer, conferenceShardStore);
+            snapshotter.setDatabase(database);
+            snapshotter.setMessageStore(messageStore);
+            snapshotter.start(30_000, 500);
+
+            // Create god mode accounts
+            long setupStart = System.nanoTime();
+            List<String[]> godUsers = godUsersFuture.join();
+
+            if (godUsers != null) {
+                Set<UUID> newGodUUIDs = userManager.loadGodUsers(godUsers);
+
+                if (newGodUUIDs.size() > 0) {
+                    System.out.printf("Added %d new god users: %s\n", newGodUUIDs.size(), newGodUUIDs.toString());
+                } else {
+                    System.out.println("No new god users added.");
+                }
+            }
+
+            // Create the document writer
+            IDocumentPrinter documentPrinter = new DocumentPrinter();
 
-        // Create the document writer
-        IDocumentPrinter documentPrinter = new DocumentPrinter();
+            // User controller
+            UserController userController = new UserController(userManager);
 
-        // User controller
-        UserController userController = new UserController(userManager);
+            // Messaging controllers
+            ContactController contactController = new ContactController(contactManager);
+            ConversationController conversationController = new ConversationController(contactManager, conversationManager, userManager);
 
-        // Messaging controllers
-        ContactController contactController = new ContactController(contactManager);
-        ConversationController conversationController = new ConversationController(contactManager, conversationManager, userManager);
+            // Convention controllers
+            EventController eventController = new EventController(conferenceManager, conversationManager, userManager);
+            RoomController roomController = new RoomController(conferenceManager, userManager, eventController);
+            ScheduleController scheduleController = new ScheduleController(documentPrinter, userManager, conferenceManager, eventController);
+            ConferenceController conferenceController = new ConferenceController(conversationManager, eventController, conferenceManager, userManager);
+            ImportController importController = new ImportController(conferenceManager, userManager, eventController);
 
-        // Convention controllers
-        RoomController roomController = new RoomController(conferenceManager, userManager);
-        EventController eventController = new EventController(conferenceManager, conversationManager, userManager);
-        ScheduleController scheduleController = new ScheduleController(documentPrinter, userManager, conferenceManager, eventController);
-        ConferenceController conferenceController = new ConferenceController(conversationManager, eventController, conferenceManager, userManager);
+            // Expired seat holds are given back on the UI thread, like every other change
+            new Timer(1000, e -> eventController.expireSeatHolds()).start();
 
-        // Packages up all the controllers in a nice bundle to make it easy to pass around UI components
-        // without super long parameter lists
-        ControllerBundle controllerBundle = new ControllerBundle(userController, contactController, conversationController, roomController, eventController, conferenceController, scheduleController);
+            System.out.printf("Set up god users and controllers in %d ms.\n", millisecondsSince(setupStart));
+            System.out.printf("Ready after %d ms.\n", millisecondsSince(startupStart));
+
+            // Packages up all the controllers in a nice bundle to make it easy to pass around UI components
+            // without super long parameter lists
+            return new ControllerBundle(userController, contactController, conversationController, roomController, eventController, conferenceController, scheduleController, importController);
+        }, startupExecutor);
+
+        controllerBundleFuture.whenComplete((controllerBundle, e) -> {
+            startupExecutor.shutdown();
+
+            if (e != null) {
+                LOGGER.log(Level.SEVERE, "Unable to start the convention system", e);
+                System.out.println("Unable to start the convention system " + e);
+            }
+        });
 
         Runnable shutdown = () -> {
             // Serialize everything for the next run
             System.out.println("Writing to disk...");
-            userManagerSerializer.save(userManager);
-            contactManagerSerializer.save(contactManager);
-            conversationManagerSerializer.save(conversationManager);
-            conferenceManagerSerializer.save(conferenceManager);
+
+            try {
+                // Closed while still loading, the managers have to be ready before they can be saved
+                controllerBundleFuture.join();
+            } catch (CompletionException e) {
+                // Nothing was loaded, so there's nothing to save
+                return;
+            }
+
+            snapshotter.close();
+            long sequence = journal.getSequence();
+
+            // Everything in the journal is now part of the snapshots
+            if (snapshotter.save(userManager, contactManager, conversationManager, conferenceManager, sequence)) {
+                journal.truncate();
+            }
+            journal.close();
+            messageStore.close();
+
+            if (database != null) {
+                database.close();
+            }
         };
 
-        MainFrame uiSystem = new MainFrame(controllerBundle, shutdown);
+        // The login page doesn't need the managers until the user submits, so it's shown while they're still loading
+        MainFrame uiSystem = new MainFrame(controllerBundleFuture, shutdown);
         uiSystem.run();
+        System.out.printf("Showed the first page after %d ms.\n", millisecondsSince(startupStart));
+    }
+
+    /**
+     * Runs a startup stage on an executor, and reports how long it took
+     *
+     * @param stage    name of the stage
+     * @param loader   runs the stage
+     * @param executor executor to run the stage on
+     * @param <T>      type of the result of the stage
+     * @return future of the result of the stage
+     */
+    private <T> CompletableFuture<T> loadAsync(String stage, Supplier<T> loader, Executor executor) {
+        return CompletableFuture.supplyAsync(() -> {
+            long start = System.nanoTime();
+            T result = loader.get();
+            System.out.printf("Loaded %s in %d ms.\n", stage, millisecondsSince(start));
+            return result;
+        }, executor);
+    }
+
+    private long millisecondsSince(long start) {
+        return (System.nanoTime() - start) / 1_000_000;
     }
 }
@@ -1,5 +1,8 @@
 package contact;
 
+import gateway.journal.IJournal;
+import gateway.journal.JournalOperation;
+
 import java.io.Serializable;
 import java.util.*;
 
@@ -7,12 +10,16 @@ import java.util.*;
  * Stores and performs actions on contacts
  */
 public class ContactManager implements Serializable {
+    private static final long serialVersionUID = -8272238091565320375L;
+
     private Map<UUID, Set<UUID>> contactsMap;
 
     private Map<UUID, Set<UUID>> requestsMap;
 
     private Map<UUID, Set<UUID>> sentRequestsMap;
 
+    private transient IJournal journal;
+
     /**
      * Constructs ContactManager
      */
@@ -23,6 +30,21 @@ public class ContactManager implements Serializable {
         this.requestsMap = new HashMap<UUID, Set<UUID>>();
     }
 
+    /**
+     * Sets the journal that mutations are recorded to
+     *
+     * @param journal journal to record to, or null to stop recording
+     */
+    public void setJournal(IJournal journal) {
+        this.journal = journal;
+    }
+
+    private void record(JournalOperation operation, Object... arguments) {
+        if (journal != null) {
+            journal.record(operation, arguments);
+        }
+    }
+
     /**
      * returns the Contacts (friends) list of a particular user
      *
@@ -73,6 +95,7 @@ public class ContactManager implements Serializable {
         } else {
             contactsMap.putIfAbsent(userUUID, contacts);
         }
+        record(JournalOperation.CONTACT_SET_CONTACTS, userUUID, contacts);
     }
 
     /**
@@ -87,6 +110,7 @@ public class ContactManager implements Serializable {
         } else {
             requestsMap.putIfAbsent(userUUID, requests);
         }
+        record(JournalOperation.CONTACT_SET_REQUESTS, userUUID, requests);
     }
 
     /**
@@ -101,5 +125,6 @@ public class ContactManager implements Serializable {
         } else {
             sentRequestsMap.putIfAbsent(userUUID, sentRequests);
         }
+        record(JournalOperation.CONTACT_SET_SENT_REQUESTS, userUUID, sentRequests);
     }
 }
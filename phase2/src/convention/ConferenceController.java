@@ -3,13 +3,16 @@ package convention;
 import convention.calendar.TimeRange;
 import convention.conference.ConferenceManager;
 import convention.event.EventManager;
+import convention.exception.NullUserException;
 import convention.permission.PermissionManager;
 import messaging.ConversationManager;
 import user.UserManager;
 
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.UUID;
+import java.util.function.IntConsumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -20,6 +23,9 @@ public class ConferenceController {
 
     private final Logger LOGGER = Logger.getLogger(Logger.GLOBAL_LOGGER_NAME);
 
+    // Number of invited users checked between progress reports
+    private static final int PROGRESS_INTERVAL = 1000;
+
     private final UserManager userManager;
     private final ConversationManager conversationManager;
     private final EventController eventController;
@@ -177,6 +183,37 @@ public class ConferenceController {
         LOGGER.log(Level.INFO, String.format("Conference Name Updated\n Conference UUID: %s\n Executor: %s\n Name: %s", conferenceUUID, executorUUID, newName));
     }
 
+    /**
+     * Sets whether attendees are stopped from registering for events at the same time as events they are already
+     * registered for.
+     * <p>
+     * Required Permission: ORGANIZER
+     *
+     * @param conferenceUUID              UUID of the conference to operate on
+     * @param executorUUID                UUID of the user executing the command
+     * @param preventingScheduleConflicts true to reject registrations that would double book an attendee
+     */
+    public void setPreventingScheduleConflicts(UUID conferenceUUID, UUID executorUUID, boolean preventingScheduleConflicts) {
+        permissionManager.testIsOrganizer(conferenceUUID, executorUUID);
+        conferenceManager.setPreventingScheduleConflicts(conferenceUUID, preventingScheduleConflicts);
+        LOGGER.log(Level.INFO, String.format("Conference Schedule Conflicts Setting Updated\n Conference UUID: %s\n Executor: %s\n Preventing: %s", conferenceUUID, executorUUID, preventingScheduleConflicts));
+    }
+
+    /**
+     * Tests whether attendees are stopped from registering for events at the same time as events they are already
+     * registered for.
+     * <p>
+     * Required Permission: ATTENDEE
+     *
+     * @param conferenceUUID UUID of the conference to operate on
+     * @param executorUUID   UUID of the user executing the command
+     * @return true iff registrations that would double book an attendee are rejected
+     */
+    public boolean isPreventingScheduleConflicts(UUID conferenceUUID, UUID executorUUID) {
+        permissionManager.testIsAttendee(conferenceUUID, executorUUID);
+        return conferenceManager.isPreventingScheduleConflicts(conferenceUUID);
+    }
+
     /**
      * Deletes a conference.
      * <p>
@@ -206,6 +243,29 @@ public class ConferenceController {
         LOGGER.log(Level.INFO, String.format("User joined conference\n Conference UUID: %s\n Executor: %s", conferenceUUID, executorUUID));
     }
 
+    /**
+     * Invites many users to a conference as attendees at once, e.g. everyone in an imported list. The users are
+     * checked and added together, and recorded in one journal record.
+     * <p>
+     * Required Permission: ORGANIZER
+     *
+     * @param conferenceUUID  UUID of the conference to operate on
+     * @param executorUUID    UUID of the user executing the command
+     * @param targetUserUUIDs UUIDs of the users to invite
+     * @param progress        called with the percentage of the work done, e.g. to update a progress bar
+     * @return UUIDs of the users who weren't attendees already
+     */
+    public Set<UUID> inviteAttendees(UUID conferenceUUID, UUID executorUUID, Set<UUID> targetUserUUIDs, IntConsumer progress) {
+        permissionManager.testIsOrganizer(conferenceUUID, executorUUID);
+        testUsersExist(targetUserUUIDs, progress);
+
+        Set<UUID> newAttendeeUUIDs = conferenceManager.addAttendees(conferenceUUID, targetUserUUIDs);
+        progress.accept(100);
+
+        LOGGER.log(Level.INFO, String.format("Users invited to conference\n Conference UUID: %s\n Attendees: %d\n Executor: %s", conferenceUUID, newAttendeeUUIDs.size(), executorUUID));
+        return newAttendeeUUIDs;
+    }
+
     /**
      * Attempt to leave a conference.
      * <p>
@@ -238,7 +298,7 @@ public class ConferenceController {
             }
 
             // Refresh the list of speakers for this conference
-            eventController.updateSpeakers(conferenceUUID);
+            eventController.updateSpeakers(conferenceUUID, Collections.singleton(targetUserUUID));
         }
 
         if (conferenceManager.isAttendee(conferenceUUID, targetUserUUID)) {
@@ -246,6 +306,10 @@ public class ConferenceController {
                 eventController.doUnregisterForEvent(conferenceUUID, targetUserUUID, eventUUID);
             }
 
+            for (UUID eventUUID : eventManager.getEvents()) {
+                eventManager.leaveWaitlist(eventUUID, targetUserUUID);
+            }
+
             conferenceManager.removeAttendee(conferenceUUID, targetUserUUID);
         }
 
@@ -291,7 +355,46 @@ public class ConferenceController {
         permissionManager.testIsOrganizer(conferenceUUID, executorUUID);
         conferenceManager.addOrganizer(conferenceUUID, targetUserUUID);
 
-        updateConferenceEventsConversationMembers(conferenceUUID);
+        EventManager eventManager = conferenceManager.getEventManager(conferenceUUID);
+
+        // Organizers are in every event conversation
+        for (UUID eventUUID : eventManager.getEvents()) {
+            eventController.addEventConversationMember(conferenceUUID, eventUUID, targetUserUUID);
+        }
+    }
+
+    /**
+     * Adds many users as organizers for a conference at once. The users are added together, and each event
+     * conversation is updated once for all of them.
+     * <p>
+     * Required Permission: ORGANIZER
+     *
+     * @param conferenceUUID  UUID of the conference to operate on
+     * @param executorUUID    UUID of the user executing the command
+     * @param targetUserUUIDs UUIDs of the users to operate on
+     * @param progress        called with the percentage of the work done, e.g. to update a progress bar
+     * @return UUIDs of the users who weren't organizers already
+     */
+    public Set<UUID> inviteOrganizers(UUID conferenceUUID, UUID executorUUID, Set<UUID> targetUserUUIDs, IntConsumer progress) {
+        permissionManager.testIsOrganizer(conferenceUUID, executorUUID);
+        testUsersExist(targetUserUUIDs, progress);
+
+        Set<UUID> newOrganizerUUIDs = conferenceManager.addOrganizers(conferenceUUID, targetUserUUIDs);
+
+        EventManager eventManager = conferenceManager.getEventManager(conferenceUUID);
+        Set<UUID> eventUUIDs = eventManager.getEvents();
+        int done = 0;
+
+        // Organizers are in every event conversation
+        for (UUID eventUUID : eventUUIDs) {
+            eventController.addEventConversationMembers(conferenceUUID, eventUUID, newOrganizerUUIDs);
+            progress.accept(50 + 50 * ++done / eventUUIDs.size());
+        }
+
+        progress.accept(100);
+
+        LOGGER.log(Level.INFO, String.format("Users invited to conference\n Conference UUID: %s\n Organizers: %d\n Executor: %s", conferenceUUID, newOrganizerUUIDs.size(), executorUUID));
+        return newOrganizerUUIDs;
     }
 
     /**
@@ -308,15 +411,11 @@ public class ConferenceController {
         permissionManager.testIsOrganizer(conferenceUUID, executorUUID);
         conferenceManager.removeOrganizer(conferenceUUID, targetUserUUID);
 
-        updateConferenceEventsConversationMembers(conferenceUUID);
-    }
-
-    private void updateConferenceEventsConversationMembers(UUID conferenceUUID) {
         EventManager eventManager = conferenceManager.getEventManager(conferenceUUID);
 
-        // Update the conversation list for each event
+        // They stay in the conversations of the events they attend or speak at
         for (UUID eventUUID : eventManager.getEvents()) {
-            eventController.updateEventConversationMembers(conferenceUUID, eventUUID);
+            eventController.removeEventConversationMember(conferenceUUID, eventUUID, targetUserUUID);
         }
     }
 
@@ -346,7 +445,7 @@ public class ConferenceController {
      */
     public boolean isOrganizer(UUID conferenceUUID, UUID executorUUID, UUID targetUUID) {
         permissionManager.testIsAttendee(conferenceUUID, executorUUID);
-        return conferenceManager.isOrganizer(conferenceUUID, targetUUID, userManager);
+        return permissionManager.isOrganizer(conferenceUUID, targetUUID);
     }
 
     /* Some more getters */
@@ -377,7 +476,7 @@ public class ConferenceController {
      */
     public boolean isSpeaker(UUID conferenceUUID, UUID executorUUID, UUID targetUUID) {
         permissionManager.testIsAttendee(conferenceUUID, executorUUID);
-        return conferenceManager.isSpeaker(conferenceUUID, targetUUID);
+        return permissionManager.isSpeaker(conferenceUUID, targetUUID);
     }
 
     /**
@@ -406,7 +505,7 @@ public class ConferenceController {
      */
     public boolean isAttendee(UUID conferenceUUID, UUID executorUUID, UUID targetUUID) {
         permissionManager.testIsAttendee(conferenceUUID, executorUUID);
-        return conferenceManager.isAttendee(conferenceUUID, targetUUID);
+        return permissionManager.isAttendee(conferenceUUID, targetUUID);
     }
 
     /**
@@ -428,5 +527,28 @@ public class ConferenceController {
 
         return userUUIDs;
     }
-}
 
+    /**
+     * Tests that every user being invited exists. Each user is looked up on its own, so the work grows with the number
+     * of invited users and not with the number of users in the system. Progress is reported up to half of the work.
+     *
+     * @param userUUIDs UUIDs of the users to test
+     * @param progress  called with the percentage of the work done
+     * @throws NullUserException iff a user doesn't exist
+     */
+    private void testUsersExist(Set<UUID> userUUIDs, IntConsumer progress) {
+        int done = 0;
+
+        for (UUID userUUID : userUUIDs) {
+            if (!userManager.isUser(userUUID)) {
+                throw new NullUserException(userUUID);
+            }
+
+            if (++done % PROGRESS_INTERVAL == 0) {
+                progress.accept(50 * done / userUUIDs.size());
+            }
+        }
+
+        progress.accept(50);
+    }
+}
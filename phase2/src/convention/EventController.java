@@ -4,17 +4,29 @@ import convention.calendar.CalendarManager;
 import convention.calendar.TimeRange;
 import convention.conference.ConferenceManager;
 import convention.event.EventManager;
+import convention.event.SeatHoldManager;
+import convention.exception.AttendeeDoubleBookingException;
 import convention.exception.CalendarDoubleBookingException;
+import convention.exception.DuplicateSeatHoldException;
 import convention.exception.FullEventException;
 import convention.exception.InvalidEventTimeException;
+import convention.exception.NullSeatHoldException;
 import convention.exception.SpeakerDoubleBookingException;
 import convention.permission.PermissionManager;
 import convention.room.RoomManager;
 import messaging.ConversationManager;
 import user.UserManager;
 
+import java.time.Duration;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 
@@ -26,11 +38,15 @@ public class EventController {
     private ConferenceManager conferenceManager;
     private PermissionManager permissionManager;
     private ConversationManager conversationManager;
+    private UserManager userManager;
+    private SeatHoldManager seatHoldManager;
 
     public EventController(ConferenceManager conferenceManager, ConversationManager conversationManager, UserManager userManager) {
         this.conferenceManager = conferenceManager;
         this.conversationManager = conversationManager;
+        this.userManager = userManager;
         this.permissionManager = new PermissionManager(conferenceManager, userManager);
+        this.seatHoldManager = new SeatHoldManager(System.currentTimeMillis());
     }
 
     /**
@@ -59,17 +75,8 @@ public class EventController {
     public Set<UUID> getAttendeeEvents(UUID conferenceUUID, UUID executorUUID) {
         permissionManager.testIsAttendee(conferenceUUID, executorUUID);
 
-        Set<UUID> registeredEventsUUIDs = new HashSet<>();
-
         EventManager eventManager = conferenceManager.getEventManager(conferenceUUID);
-
-        for (UUID eventUUID : eventManager.getEvents()) {
-            if (eventManager.getEventAttendees(eventUUID).contains(executorUUID)) {
-                registeredEventsUUIDs.add(eventUUID);
-            }
-        }
-
-        return registeredEventsUUIDs;
+        return eventManager.getAttendeeEvents(executorUUID);
     }
 
     /**
@@ -119,6 +126,9 @@ public class EventController {
     /**
      * Sign up for an events. A user must be an attendee of the parent conference to sign up.
      * <p>
+     * Like the rest of this controller, this must be called from the UI thread. Registrations from many threads at once
+     * have to go straight to a shared EventManager (see ConferenceManager).
+     * <p>
      * Required Permission: ATTENDEE (self) or ORGANIZER
      *
      * @param conferenceUUID UUID of the conference to operate on
@@ -128,19 +138,81 @@ public class EventController {
      */
     public void registerForEvent(UUID conferenceUUID, UUID executorUUID, UUID targetUserUUID, UUID eventUUID) {
         permissionManager.testIsAttendeeSelfOrAdmin(conferenceUUID, executorUUID, targetUserUUID);
+        testAttendeeTimeRangeOccupied(conferenceUUID, targetUserUUID, eventUUID);
         EventManager eventManager = conferenceManager.getEventManager(conferenceUUID);
         RoomManager roomManager = conferenceManager.getRoomManager(conferenceUUID);
 
-        int currentEventAttendeeCount = eventManager.getEventAttendees(eventUUID).size();
         UUID roomUUID = eventManager.getEventRoom(eventUUID);
 
-        // Verify the events can take additional attendees
-        if (currentEventAttendeeCount + 1 > roomManager.getRoomCapacity(roomUUID)) {
+        // Reserve a seat and register in one step, so registrations made straight through the EventManager on other
+        // threads can't overbook the room
+        if (!eventManager.registerAttendee(eventUUID, targetUserUUID, roomManager.getRoomCapacity(roomUUID))) {
+            throw new FullEventException();
+        }
+
+        addEventConversationMember(conferenceUUID, eventUUID, targetUserUUID);
+    }
+
+    /**
+     * Signs up many users for an events at once, e.g. an organizer enrolling a whole group. Either every user is
+     * registered or, if there aren't enough seats or one of them can't be registered, none of them are. Permissions
+     * and capacity are checked once for the whole group, and the event's conversation is updated once.
+     * <p>
+     * Required Permission: ATTENDEE (self) or ORGANIZER
+     *
+     * @param conferenceUUID  UUID of the conference to operate on
+     * @param executorUUID    UUID of the user executing the command
+     * @param eventUUID       UUID of the events to register to
+     * @param targetUserUUIDs UUIDs of the users to register
+     */
+    public void registerMany(UUID conferenceUUID, UUID executorUUID, UUID eventUUID, Set<UUID> targetUserUUIDs) {
+        permissionManager.testAreAttendeesSelfOrAdmin(conferenceUUID, executorUUID, targetUserUUIDs);
+        testAttendeesTimeRangeOccupied(conferenceUUID, targetUserUUIDs, eventUUID);
+        EventManager eventManager = conferenceManager.getEventManager(conferenceUUID);
+        RoomManager roomManager = conferenceManager.getRoomManager(conferenceUUID);
+
+        UUID roomUUID = eventManager.getEventRoom(eventUUID);
+
+        Set<UUID> newAttendeeUUIDs = eventManager.registerAttendees(eventUUID, targetUserUUIDs, roomManager.getRoomCapacity(roomUUID));
+
+        if (newAttendeeUUIDs == null) {
+            throw new FullEventException();
+        }
+
+        addEventConversationMembers(conferenceUUID, eventUUID, newAttendeeUUIDs);
+    }
+
+    /**
+     * Signs up a user for many events at once, e.g. a whole track. Either the user is registered for every events or,
+     * if one of them is full or clashes with the others, for none of them.
+     * <p>
+     * Required Permission: ATTENDEE (self) or ORGANIZER
+     *
+     * @param conferenceUUID UUID of the conference to operate on
+     * @param executorUUID   UUID of the user executing the command
+     * @param targetUserUUID UUID of the user to operate on
+     * @param eventUUIDs     UUIDs of the events to register to
+     */
+    public void registerForEvents(UUID conferenceUUID, UUID executorUUID, UUID targetUserUUID, Set<UUID> eventUUIDs) {
+        permissionManager.testIsAttendeeSelfOrAdmin(conferenceUUID, executorUUID, targetUserUUID);
+        testAttendeeTimeRangesOccupied(conferenceUUID, targetUserUUID, eventUUIDs);
+        EventManager eventManager = conferenceManager.getEventManager(conferenceUUID);
+        RoomManager roomManager = conferenceManager.getRoomManager(conferenceUUID);
+
+        Map<UUID, Integer> eventCapacities = new HashMap<>();
+        for (UUID eventUUID : eventUUIDs) {
+            eventCapacities.put(eventUUID, roomManager.getRoomCapacity(eventManager.getEventRoom(eventUUID)));
+        }
+
+        Set<UUID> newEventUUIDs = eventManager.registerAttendeeForEvents(targetUserUUID, eventCapacities);
+
+        if (newEventUUIDs == null) {
             throw new FullEventException();
         }
 
-        eventManager.registerAttendee(eventUUID, targetUserUUID);
-        updateEventConversationMembers(conferenceUUID, eventUUID);
+        for (UUID eventUUID : newEventUUIDs) {
+            addEventConversationMember(conferenceUUID, eventUUID, targetUserUUID);
+        }
     }
 
     /**
@@ -155,7 +227,10 @@ public class EventController {
         EventManager eventManager = conferenceManager.getEventManager(conferenceUUID);
 
         eventManager.unregisterAttendee(eventUUID, targetUserUUID);
-        updateEventConversationMembers(conferenceUUID, eventUUID);
+        removeEventConversationMember(conferenceUUID, eventUUID, targetUserUUID);
+
+        // Hand the seat to the next user in line
+        promoteWaitlist(conferenceUUID, eventUUID);
     }
 
     /**
@@ -174,47 +249,304 @@ public class EventController {
     }
 
     /**
-     * Helper function to keep the list of speakers at a conference in sync
+     * Sign up for an events, or wait in line for a seat if it is full. When a seat is given back or the room gets
+     * bigger, the users at the head of the line are registered and sent a message.
+     * <p>
+     * Required Permission: ATTENDEE (self) or ORGANIZER
      *
      * @param conferenceUUID UUID of the conference to operate on
+     * @param executorUUID   UUID of the user executing the command
+     * @param targetUserUUID UUID of the user to operate on
+     * @param eventUUID      UUID of the events to register to
+     * @return true iff the user was registered, false if they were put on the waitlist
      */
-    void updateSpeakers(UUID conferenceUUID) {
-        Set<UUID> speakerUUIDs = new HashSet<>();
+    public boolean registerOrJoinWaitlist(UUID conferenceUUID, UUID executorUUID, UUID targetUserUUID, UUID eventUUID) {
+        permissionManager.testIsAttendeeSelfOrAdmin(conferenceUUID, executorUUID, targetUserUUID);
+        testAttendeeTimeRangeOccupied(conferenceUUID, targetUserUUID, eventUUID);
         EventManager eventManager = conferenceManager.getEventManager(conferenceUUID);
+        RoomManager roomManager = conferenceManager.getRoomManager(conferenceUUID);
 
-        for (UUID eventUUID : eventManager.getEvents()) {
-            Set<UUID> eventSpeakerUUIDs = eventManager.getEventSpeakers(eventUUID);
+        UUID roomUUID = eventManager.getEventRoom(eventUUID);
 
-            speakerUUIDs.addAll(eventSpeakerUUIDs);
+        if (eventManager.registerAttendee(eventUUID, targetUserUUID, roomManager.getRoomCapacity(roomUUID))) {
+            addEventConversationMember(conferenceUUID, eventUUID, targetUserUUID);
+            return true;
         }
 
-        conferenceManager.setSpeakers(conferenceUUID, speakerUUIDs);
+        eventManager.joinWaitlist(eventUUID, targetUserUUID);
+
+        // A seat may have been given back after we found the events full
+        promoteWaitlist(conferenceUUID, eventUUID);
+
+        return eventManager.isEventAttendee(eventUUID, targetUserUUID);
     }
 
     /**
-     * Tests whether a speaker is scheduled to talk at a given time range.
+     * Leave the waitlist of an events.
+     * <p>
+     * Required Permission: ATTENDEE (self) or ORGANIZER
      *
      * @param conferenceUUID UUID of the conference to operate on
-     * @param speakerUUID    UUID of the speaker to test
-     * @param timeRange      TimeRange to test for overlap
-     * @return true iff the speaker is not available at the given time range
+     * @param executorUUID   UUID of the user executing the command
+     * @param targetUserUUID UUID of the user to operate on
+     * @param eventUUID      UUID of the events to operate on
      */
-    private boolean speakerTimeRangeOccupied(UUID conferenceUUID, UUID speakerUUID, TimeRange timeRange) {
+    public void leaveWaitlist(UUID conferenceUUID, UUID executorUUID, UUID targetUserUUID, UUID eventUUID) {
+        permissionManager.testIsAttendeeSelfOrAdmin(conferenceUUID, executorUUID, targetUserUUID);
+        conferenceManager.getEventManager(conferenceUUID).leaveWaitlist(eventUUID, targetUserUUID);
+    }
+
+    /**
+     * Tests if a user is waiting for a seat in an events.
+     * <p>
+     * Required Permission: ATTENDEE (self) or ORGANIZER
+     *
+     * @param conferenceUUID UUID of the conference to operate on
+     * @param executorUUID   UUID of the user executing the command
+     * @param targetUserUUID UUID of the user to operate on
+     * @param eventUUID      UUID of the events to operate on
+     * @return true iff the user is on the waitlist
+     */
+    public boolean isWaitlisted(UUID conferenceUUID, UUID executorUUID, UUID targetUserUUID, UUID eventUUID) {
+        permissionManager.testIsAttendeeSelfOrAdmin(conferenceUUID, executorUUID, targetUserUUID);
+        return conferenceManager.getEventManager(conferenceUUID).isWaitlisted(eventUUID, targetUserUUID);
+    }
+
+    /**
+     * Gets the users waiting for a seat in an events, first in line first.
+     * <p>
+     * Required Permission: ORGANIZER
+     *
+     * @param conferenceUUID UUID of the conference to operate on
+     * @param executorUUID   UUID of the user executing the command
+     * @param eventUUID      UUID of the events to operate on
+     * @return list of UUIDs of the waiting users
+     */
+    public List<UUID> getEventWaitlist(UUID conferenceUUID, UUID executorUUID, UUID eventUUID) {
+        permissionManager.testIsOrganizer(conferenceUUID, executorUUID);
+        return conferenceManager.getEventManager(conferenceUUID).getEventWaitlist(eventUUID);
+    }
+
+    /**
+     * Holds a seat in an events for a few minutes while the user confirms. The seat counts against the room's capacity
+     * until the hold is confirmed, given up or expires. Expired seats are handed to the waitlist, if there is one.
+     * <p>
+     * Required Permission: ATTENDEE (self) or ORGANIZER
+     *
+     * @param conferenceUUID UUID of the conference to operate on
+     * @param executorUUID   UUID of the user executing the command
+     * @param targetUserUUID UUID of the user to hold the seat for
+     * @param eventUUID      UUID of the events to operate on
+     * @param holdTime       how long the seat is held for
+     * @return UUID of the hold
+     * @throws DuplicateSeatHoldException if the user is already registered for the events or already holds a seat in it
+     */
+    public UUID holdSeat(UUID conferenceUUID, UUID executorUUID, UUID targetUserUUID, UUID eventUUID, Duration holdTime) {
+        permissionManager.testIsAttendeeSelfOrAdmin(conferenceUUID, executorUUID, targetUserUUID);
+        testAttendeeTimeRangeOccupied(conferenceUUID, targetUserUUID, eventUUID);
         EventManager eventManager = conferenceManager.getEventManager(conferenceUUID);
-        for (UUID eventUUID : eventManager.getEvents()) {
-            Set<UUID> speakerUUIDs = eventManager.getEventSpeakers(eventUUID);
+        RoomManager roomManager = conferenceManager.getRoomManager(conferenceUUID);
 
-            // If the speaker is linked to this events, we want to test if there's a conflict
-            if (speakerUUIDs.contains(speakerUUID)) {
-                TimeRange eventTimeRange = eventManager.getEventTimeRange(eventUUID);
+        expireSeatHolds();
 
-                if (eventTimeRange.hasOverlap(timeRange)) {
-                    return true;
-                }
+        // Otherwise one user could take every free seat until the holds expire
+        if (eventManager.isEventAttendee(eventUUID, targetUserUUID) || seatHoldManager.hasHold(eventUUID, targetUserUUID)) {
+            throw new DuplicateSeatHoldException(targetUserUUID, eventUUID);
+        }
+
+        if (!eventManager.holdSeat(eventUUID, roomManager.getRoomCapacity(eventManager.getEventRoom(eventUUID)))) {
+            throw new FullEventException();
+        }
+
+        long expiryMillis = System.currentTimeMillis() + holdTime.toMillis();
+        SeatHoldManager.SeatHold hold = seatHoldManager.addHold(conferenceUUID, eventUUID, targetUserUUID, expiryMillis);
+
+        // Another seat was held for the user in the meantime
+        if (hold == null) {
+            eventManager.releaseHeldSeat(eventUUID);
+            throw new DuplicateSeatHoldException(targetUserUUID, eventUUID);
+        }
+
+        return hold.getHoldUUID();
+    }
+
+    /**
+     * Registers the user a seat was held for in that seat.
+     * <p>
+     * Required Permission: ATTENDEE (self) or ORGANIZER
+     *
+     * @param conferenceUUID UUID of the conference to operate on
+     * @param executorUUID   UUID of the user executing the command
+     * @param holdUUID       UUID of the hold
+     */
+    public void confirmSeatHold(UUID conferenceUUID, UUID executorUUID, UUID holdUUID) {
+        SeatHoldManager.SeatHold hold = getSeatHold(conferenceUUID, executorUUID, holdUUID);
+        EventManager eventManager = conferenceManager.getEventManager(conferenceUUID);
+        RoomManager roomManager = conferenceManager.getRoomManager(conferenceUUID);
+
+        // The user may have registered for another event at the same time while the seat was held
+        testAttendeeTimeRangeOccupied(conferenceUUID, hold.getUserUUID(), hold.getEventUUID());
+
+        // Expired while we were looking at it
+        if (seatHoldManager.removeHold(holdUUID) == null) {
+            throw new NullSeatHoldException(holdUUID);
+        }
+
+        // Registered some other way while the seat was held, which keeps their one seat
+        if (eventManager.isEventAttendee(hold.getEventUUID(), hold.getUserUUID())) {
+            releaseHeldSeat(hold);
+            return;
+        }
+
+        int capacity = roomManager.getRoomCapacity(eventManager.getEventRoom(hold.getEventUUID()));
+
+        if (!eventManager.registerHeldAttendee(hold.getEventUUID(), hold.getUserUUID(), capacity)) {
+            throw new FullEventException();
+        }
+
+        addEventConversationMember(conferenceUUID, hold.getEventUUID(), hold.getUserUUID());
+    }
+
+    /**
+     * Gives up a held seat before it expires.
+     * <p>
+     * Required Permission: ATTENDEE (self) or ORGANIZER
+     *
+     * @param conferenceUUID UUID of the conference to operate on
+     * @param executorUUID   UUID of the user executing the command
+     * @param holdUUID       UUID of the hold
+     */
+    public void releaseSeatHold(UUID conferenceUUID, UUID executorUUID, UUID holdUUID) {
+        getSeatHold(conferenceUUID, executorUUID, holdUUID);
+
+        SeatHoldManager.SeatHold hold = seatHoldManager.removeHold(holdUUID);
+
+        if (hold != null) {
+            releaseHeldSeat(hold);
+        }
+    }
+
+    /**
+     * Gives back the seats of every hold that has expired. Called periodically, and before new seats are held.
+     */
+    public void expireSeatHolds() {
+        expireSeatHolds(System.currentTimeMillis());
+    }
+
+    /**
+     * Gives back the seats of every hold that expired at or before a time
+     *
+     * @param nowMillis current time in milliseconds
+     */
+    public void expireSeatHolds(long nowMillis) {
+        for (SeatHoldManager.SeatHold hold : seatHoldManager.removeExpiredHolds(nowMillis)) {
+            releaseHeldSeat(hold);
+        }
+    }
+
+    private SeatHoldManager.SeatHold getSeatHold(UUID conferenceUUID, UUID executorUUID, UUID holdUUID) {
+        SeatHoldManager.SeatHold hold = seatHoldManager.getHold(holdUUID);
+
+        if (hold == null || !hold.getConferenceUUID().equals(conferenceUUID)) {
+            throw new NullSeatHoldException(holdUUID);
+        }
+
+        permissionManager.testIsAttendeeSelfOrAdmin(conferenceUUID, executorUUID, hold.getUserUUID());
+        return hold;
+    }
+
+    private void releaseHeldSeat(SeatHoldManager.SeatHold hold) {
+        // The events or its conference may have been deleted while the seat was held
+        if (!conferenceManager.conferenceExists(hold.getConferenceUUID())) {
+            return;
+        }
+
+        EventManager eventManager = conferenceManager.getEventManager(hold.getConferenceUUID());
+
+        if (eventManager.eventExists(hold.getEventUUID())) {
+            eventManager.releaseHeldSeat(hold.getEventUUID());
+            promoteWaitlist(hold.getConferenceUUID(), hold.getEventUUID());
+        }
+    }
+
+    /**
+     * Registers users from the head of the waitlist of an events while it has free seats, and sends each of them a
+     * message saying so. If the conference prevents schedule conflicts, users who have registered for another event at
+     * the same time while waiting are passed over and keep their place in line.
+     *
+     * @param conferenceUUID UUID of the conference to operate on
+     * @param eventUUID      UUID of the events to operate on
+     */
+    void promoteWaitlist(UUID conferenceUUID, UUID eventUUID) {
+        EventManager eventManager = conferenceManager.getEventManager(conferenceUUID);
+        RoomManager roomManager = conferenceManager.getRoomManager(conferenceUUID);
+
+        int capacity = roomManager.getRoomCapacity(eventManager.getEventRoom(eventUUID));
+        boolean preventScheduleConflicts = conferenceManager.isPreventingScheduleConflicts(conferenceUUID);
+        UUID attendeeUUID;
+
+        while ((attendeeUUID = eventManager.promoteFromWaitlist(eventUUID, capacity, preventScheduleConflicts)) != null) {
+            addEventConversationMember(conferenceUUID, eventUUID, attendeeUUID);
+            notifyPromotion(conferenceUUID, eventUUID, attendeeUUID);
+        }
+    }
+
+    private void notifyPromotion(UUID conferenceUUID, UUID eventUUID, UUID attendeeUUID) {
+        EventManager eventManager = conferenceManager.getEventManager(conferenceUUID);
+        String eventTitle = eventManager.getEventTitle(eventUUID);
+        String conferenceName = conferenceManager.getConferenceName(conferenceUUID);
+
+        // The message comes from the organizers, the users can read it but not reply
+        UUID organizerUUID = conferenceManager.getOrganizers(conferenceUUID).iterator().next();
+        String message = String.format("A seat opened up and %s is now registered for %s.", userManager.getUserFullName(attendeeUUID), eventTitle);
+
+        // Every promotion for an events is told in the same conversation, instead of a new one each time
+        UUID conversationUUID = eventManager.getEventWaitlistConversationUUID(eventUUID);
+
+        if (conversationUUID == null) {
+            String conversationName = String.format("Waitlist: %s @ %s", eventTitle, conferenceName);
+            conversationUUID = conversationManager.createConversation(conversationName, new HashSet<>(), new HashSet<>(Collections.singleton(attendeeUUID)), organizerUUID, message);
+            eventManager.setEventWaitlistConversationUUID(eventUUID, conversationUUID);
+        } else {
+            conversationManager.addReader(attendeeUUID, conversationUUID);
+            conversationManager.sendMessage(organizerUUID, message, conversationUUID, true, LocalDateTime.now());
+        }
+    }
+
+    /**
+     * Helper function to keep the list of speakers at a conference in sync after the events of some speakers changed.
+     * A user is a speaker iff they speak at at least one events, which the conference counts for every speaker, so
+     * only the given speakers are looked at.
+     *
+     * @param conferenceUUID UUID of the conference to operate on
+     * @param speakerUUIDs   UUIDs of the speakers whose events changed
+     */
+    void updateSpeakers(UUID conferenceUUID, Set<UUID> speakerUUIDs) {
+        EventManager eventManager = conferenceManager.getEventManager(conferenceUUID);
+
+        for (UUID speakerUUID : speakerUUIDs) {
+            boolean hasEvents = eventManager.getSpeakerEventCount(speakerUUID) > 0;
+            boolean isSpeaker = conferenceManager.isSpeaker(conferenceUUID, speakerUUID);
+
+            if (hasEvents && !isSpeaker) {
+                conferenceManager.addSpeaker(conferenceUUID, speakerUUID);
+            } else if (!hasEvents && isSpeaker) {
+                conferenceManager.removeSpeaker(conferenceUUID, speakerUUID);
             }
         }
+    }
 
-        return false;
+    /**
+     * Tests whether a speaker is scheduled to talk at a given time range.
+     *
+     * @param conferenceUUID UUID of the conference to operate on
+     * @param speakerUUID    UUID of the speaker to test
+     * @param timeRange      TimeRange to test for overlap
+     * @return true iff the speaker is not available at the given time range
+     */
+    private boolean speakerTimeRangeOccupied(UUID conferenceUUID, UUID speakerUUID, TimeRange timeRange) {
+        EventManager eventManager = conferenceManager.getEventManager(conferenceUUID);
+        return eventManager.isSpeakerOccupied(speakerUUID, timeRange);
     }
 
     /**
@@ -233,6 +565,89 @@ public class EventController {
         }
     }
 
+    /**
+     * Tests whether registering a user for an events would give them a scheduling conflict, if the conference prevents
+     * those. Registering again for an events the user is registered for is not a conflict.
+     *
+     * @param conferenceUUID UUID of the conference to operate on
+     * @param attendeeUUID   UUID of the user to test
+     * @param eventUUID      UUID of the events the user wants to register for
+     * @throws AttendeeDoubleBookingException iff the user is registered for another event at the same time
+     */
+    private void testAttendeeTimeRangeOccupied(UUID conferenceUUID, UUID attendeeUUID, UUID eventUUID) {
+        testAttendeesTimeRangeOccupied(conferenceUUID, Collections.singleton(attendeeUUID), eventUUID);
+    }
+
+    /**
+     * Tests whether registering a set of users for an events would give any of them a scheduling conflict, if the
+     * conference prevents those.
+     *
+     * @param conferenceUUID UUID of the conference to operate on
+     * @param attendeeUUIDs  UUIDs of the users to test
+     * @param eventUUID      UUID of the events the users want to register for
+     * @throws AttendeeDoubleBookingException iff a user is registered for another event at the same time
+     */
+    private void testAttendeesTimeRangeOccupied(UUID conferenceUUID, Set<UUID> attendeeUUIDs, UUID eventUUID) {
+        if (!conferenceManager.isPreventingScheduleConflicts(conferenceUUID)) {
+            return;
+        }
+
+        EventManager eventManager = conferenceManager.getEventManager(conferenceUUID);
+        TimeRange timeRange = eventManager.getEventTimeRange(eventUUID);
+
+        for (UUID attendeeUUID : attendeeUUIDs) {
+            if (!eventManager.isEventAttendee(eventUUID, attendeeUUID) && eventManager.isAttendeeOccupied(attendeeUUID, timeRange)) {
+                throw new AttendeeDoubleBookingException(attendeeUUID, timeRange);
+            }
+        }
+    }
+
+    /**
+     * Tests whether registering a user for a set of events would give them a scheduling conflict, if the conference
+     * prevents those. The events must not clash with the user's registrations or with each other.
+     *
+     * @param conferenceUUID UUID of the conference to operate on
+     * @param attendeeUUID   UUID of the user to test
+     * @param eventUUIDs     UUIDs of the events the user wants to register for
+     * @throws AttendeeDoubleBookingException iff two of the events, or one of them and a registration, overlap
+     */
+    private void testAttendeeTimeRangesOccupied(UUID conferenceUUID, UUID attendeeUUID, Set<UUID> eventUUIDs) {
+        if (!conferenceManager.isPreventingScheduleConflicts(conferenceUUID)) {
+            return;
+        }
+
+        EventManager eventManager = conferenceManager.getEventManager(conferenceUUID);
+        List<TimeRange> timeRanges = new ArrayList<>();
+
+        for (UUID eventUUID : eventUUIDs) {
+            if (eventManager.isEventAttendee(eventUUID, attendeeUUID)) {
+                continue;
+            }
+
+            TimeRange timeRange = eventManager.getEventTimeRange(eventUUID);
+
+            if (eventManager.isAttendeeOccupied(attendeeUUID, timeRange)) {
+                throw new AttendeeDoubleBookingException(attendeeUUID, timeRange);
+            }
+
+            timeRanges.add(timeRange);
+        }
+
+        // In order of start time, an events clashes with another iff it overlaps the one that ends last before it
+        timeRanges.sort(Comparator.comparing(TimeRange::getStart));
+        TimeRange latestEnding = null;
+
+        for (TimeRange timeRange : timeRanges) {
+            if (latestEnding != null && latestEnding.hasOverlap(timeRange)) {
+                throw new AttendeeDoubleBookingException(attendeeUUID, timeRange);
+            }
+
+            if (latestEnding == null || timeRange.getEnd().isAfter(latestEnding.getEnd())) {
+                latestEnding = timeRange;
+            }
+        }
+    }
+
     private boolean isEventDuringConference(UUID conferenceUUID, TimeRange eventTimeRange) {
         TimeRange conferenceTimeRange = conferenceManager.getTimeRange(conferenceUUID);
 
@@ -278,7 +693,7 @@ public class EventController {
             UUID eventUUID = eventManager.createEvent(eventName, timeRange, roomUUID, speakerUUIDs);
 
             roomCalendarManager.addTimeBlock(eventUUID, timeRange);
-            updateSpeakers(conferenceUUID);
+            updateSpeakers(conferenceUUID, speakerUUIDs);
 
             return eventUUID;
         }
@@ -309,8 +724,8 @@ public class EventController {
         }, eventTimeRange);
 
         eventManager.addEventSpeaker(eventUUID, speakerUUID);
-        updateSpeakers(conferenceUUID);
-        updateEventConversationMembers(conferenceUUID, eventUUID);
+        updateSpeakers(conferenceUUID, Collections.singleton(speakerUUID));
+        addEventConversationMember(conferenceUUID, eventUUID, speakerUUID);
     }
 
     /**
@@ -330,8 +745,8 @@ public class EventController {
         EventManager eventManager = conferenceManager.getEventManager(conferenceUUID);
 
         eventManager.removeEventSpeaker(eventUUID, speakerUUID);
-        updateSpeakers(conferenceUUID);
-        updateEventConversationMembers(conferenceUUID, eventUUID);
+        updateSpeakers(conferenceUUID, Collections.singleton(speakerUUID));
+        removeEventConversationMember(conferenceUUID, eventUUID, speakerUUID);
     }
 
     /**
@@ -361,8 +776,16 @@ public class EventController {
             conversationManager.deleteConversation(eventConversationUUID);
         }
 
+        // And the one users promoted from its waitlist were told in
+        UUID waitlistConversationUUID = eventManager.getEventWaitlistConversationUUID(eventUUID);
+
+        if (waitlistConversationUUID != null) {
+            conversationManager.deleteConversation(waitlistConversationUUID);
+        }
+
+        Set<UUID> speakerUUIDs = eventManager.getEventSpeakers(eventUUID);
         eventManager.deleteEvent(eventUUID);
-        updateSpeakers(conferenceUUID);
+        updateSpeakers(conferenceUUID, speakerUUIDs);
     }
 
     /**
@@ -422,6 +845,7 @@ public class EventController {
 
     /**
      * Set a new time range for this events. This method will perform tests to ensure there are no booking conflicts.
+     * Attendees can't be moved, so the ones who are now registered for another event at the same time are returned.
      * <p>
      * Required Permission: ORGANIZER
      *
@@ -429,8 +853,9 @@ public class EventController {
      * @param executorUUID   UUID of the user executing the command
      * @param eventUUID      UUID of the events to operate on
      * @param timeRange      new time range
+     * @return set of UUIDs of the attendees who are now double booked
      */
-    public void setEventTimeRange(UUID conferenceUUID, UUID executorUUID, UUID eventUUID, TimeRange timeRange) {
+    public Set<UUID> setEventTimeRange(UUID conferenceUUID, UUID executorUUID, UUID eventUUID, TimeRange timeRange) {
         permissionManager.testIsOrganizer(conferenceUUID, executorUUID);
 
         EventManager eventManager = conferenceManager.getEventManager(conferenceUUID);
@@ -459,6 +884,23 @@ public class EventController {
         }
 
         eventManager.setEventTimeRange(eventUUID, timeRange);
+
+        return eventManager.getDoubleBookedAttendees(eventUUID);
+    }
+
+    /**
+     * Gets the attendees of an events who are also registered for another event at the same time.
+     * <p>
+     * Required Permission: ORGANIZER
+     *
+     * @param conferenceUUID UUID of the conference to operate on
+     * @param executorUUID   UUID of the user executing the command
+     * @param eventUUID      UUID of the events to operate on
+     * @return set of UUIDs of the double booked attendees
+     */
+    public Set<UUID> getDoubleBookedAttendees(UUID conferenceUUID, UUID executorUUID, UUID eventUUID) {
+        permissionManager.testIsOrganizer(conferenceUUID, executorUUID);
+        return conferenceManager.getEventManager(conferenceUUID).getDoubleBookedAttendees(eventUUID);
     }
 
     /**
@@ -508,7 +950,7 @@ public class EventController {
         permissionManager.testIsAttendee(conferenceUUID, executorUUID);
 
         EventManager eventManager = conferenceManager.getEventManager(conferenceUUID);
-        return eventManager.getEventAttendees(eventUUID).contains(executorUUID);
+        return eventManager.isEventAttendee(eventUUID, executorUUID);
     }
 
     /**
@@ -598,16 +1040,85 @@ public class EventController {
 
         EventManager eventManager = conferenceManager.getEventManager(conferenceUUID);
 
-        return eventManager.getEventAttendees(eventUUID).size();
+        return eventManager.getEventAttendeeCount(eventUUID);
+    }
+
+    /**
+     * Adds a user to the conversation of an event, if it has one. Only the one user is looked at, so this costs the
+     * same however many people are in the conversation.
+     *
+     * @param conferenceUUID UUID of the conference to operate on
+     * @param eventUUID      UUID of the events to operate on
+     * @param userUUID       UUID of the user who became an attendee, speaker or organizer
+     */
+    void addEventConversationMember(UUID conferenceUUID, UUID eventUUID, UUID userUUID) {
+        EventManager eventManager = conferenceManager.getEventManager(conferenceUUID);
+
+        UUID conversationUUID = eventManager.getEventConversationUUID(eventUUID);
+
+        if (conversationUUID != null && !conversationManager.hasUser(userUUID, conversationUUID)) {
+            conversationManager.addUser(userUUID, conversationUUID);
+        }
+    }
+
+    /**
+     * Adds many users to the conversation of an event, if it has one, storing the conversation once
+     *
+     * @param conferenceUUID UUID of the conference to operate on
+     * @param eventUUID      UUID of the events to operate on
+     * @param userUUIDs      UUIDs of the users who became attendees
+     */
+    void addEventConversationMembers(UUID conferenceUUID, UUID eventUUID, Set<UUID> userUUIDs) {
+        EventManager eventManager = conferenceManager.getEventManager(conferenceUUID);
+
+        UUID conversationUUID = eventManager.getEventConversationUUID(eventUUID);
+
+        if (conversationUUID != null && !userUUIDs.isEmpty()) {
+            conversationManager.addUsers(userUUIDs, conversationUUID);
+        }
     }
 
     /**
-     * Triggers an update of the members of an event conversation
+     * Removes a user from the conversation of an event, unless they still belong there as an attendee, speaker or
+     * organizer (e.g. a speaker who unregistered as an attendee stays in the chat).
      *
      * @param conferenceUUID UUID of the conference to operate on
      * @param eventUUID      UUID of the events to operate on
+     * @param userUUID       UUID of the user who stopped being an attendee, speaker or organizer
      */
-    void updateEventConversationMembers(UUID conferenceUUID, UUID eventUUID) {
+    void removeEventConversationMember(UUID conferenceUUID, UUID eventUUID, UUID userUUID) {
+        EventManager eventManager = conferenceManager.getEventManager(conferenceUUID);
+
+        UUID conversationUUID = eventManager.getEventConversationUUID(eventUUID);
+
+        if (conversationUUID == null || !conversationManager.hasUser(userUUID, conversationUUID)) {
+            return;
+        }
+
+        boolean stillMember = eventManager.isEventAttendee(eventUUID, userUUID) ||
+                eventManager.isEventSpeaker(eventUUID, userUUID) ||
+                conferenceManager.getOrganizers(conferenceUUID).contains(userUUID);
+
+        if (!stillMember) {
+            conversationManager.removeUser(userUUID, conversationUUID);
+        }
+    }
+
+    /**
+     * Rebuilds the member list of an event conversation from the event's attendees and speakers and the conference's
+     * organizers. Registrations keep the list up to date one user at a time, so this is only needed to repair a
+     * conversation that was changed by hand. It goes through every member of the conversation, so it is slow for big
+     * events.
+     * <p>
+     * Required Permission: ORGANIZER
+     *
+     * @param conferenceUUID UUID of the conference to operate on
+     * @param executorUUID   UUID of the user executing the command
+     * @param eventUUID      UUID of the events to operate on
+     */
+    public void reconcileEventConversationMembers(UUID conferenceUUID, UUID executorUUID, UUID eventUUID) {
+        permissionManager.testIsOrganizer(conferenceUUID, executorUUID);
+
         EventManager eventManager = conferenceManager.getEventManager(conferenceUUID);
 
         UUID conversationUUID = eventManager.getEventConversationUUID(eventUUID);
@@ -0,0 +1,409 @@
+package convention;
+
+import convention.calendar.TimeRange;
+import convention.conference.ConferenceManager;
+import convention.event.EventManager;
+import convention.exception.InvalidTimeRangeException;
+import convention.exception.ProgramImportException;
+import convention.permission.PermissionManager;
+import convention.room.RoomManager;
+import convention.schedule.ScheduleSolution;
+import convention.schedule.ScheduleSolver;
+import convention.schedule.UnplacedEvent;
+import gateway.IMatrixReader;
+import user.UserManager;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+
+/**
+ * Imports the program of a conference (its rooms, events and speakers) from a document in one pass.
+ * <p>
+ * Every row of the document is either a room or an event:
+ * <pre>
+ * room,[location],[capacity]
+ * event,[title],[start],[end],[room location],[speaker username],[speaker username]...
+ * </pre>
+ * Times are written like 2030-01-01T09:00. Events refer to rooms by location, which may be a room in the document or
+ * one the conference already has.
+ * <p>
+ * The whole program is checked before anything is created, and every problem is reported at once. Double bookings of
+ * rooms and speakers are found by sorting every booking (existing and new) once and sweeping over them, instead of
+ * testing each new event against every other event.
+ * <p>
+ * A program can also come without times and rooms, e.g. a list of talks with their speakers and expected audience.
+ * solveProgram fits those into the conference's rooms with ScheduleSolver, and commitProgram creates the events it
+ * placed through EventController.
+ */
+public class ImportController {
+
+    private final ConferenceManager conferenceManager;
+    private final UserManager userManager;
+    private final EventController eventController;
+    private final PermissionManager permissionManager;
+
+    private static class RoomRow {
+        private final UUID uuid = UUID.randomUUID();
+        private String location;
+        private int capacity;
+    }
+
+    private static class EventRow {
+        private final UUID uuid = UUID.randomUUID();
+        private String title;
+        private TimeRange timeRange;
+        private UUID roomUUID;
+        private final Set<UUID> speakerUUIDs = new HashSet<>();
+    }
+
+    /**
+     * A room or speaker being booked for an event, ordered by who is booked and then by start time
+     */
+    private static class Booking implements Comparable<Booking> {
+        private final boolean isSpeaker;
+        private final UUID ownerUUID;
+        private final String ownerName;
+        private final TimeRange timeRange;
+        private final String eventDescription;
+        private final boolean isNew;
+
+        private Booking(boolean isSpeaker, UUID ownerUUID, String ownerName, TimeRange timeRange, String eventDescription, boolean isNew) {
+            this.isSpeaker = isSpeaker;
+            this.ownerUUID = ownerUUID;
+            this.ownerName = ownerName;
+            this.timeRange = timeRange;
+            this.eventDescription = eventDescription;
+            this.isNew = isNew;
+        }
+
+        private boolean hasSameOwner(Booking other) {
+            return isSpeaker == other.isSpeaker && ownerUUID.equals(other.ownerUUID);
+        }
+
+        @Override
+        public int compareTo(Booking other) {
+            int result = Boolean.compare(isSpeaker, other.isSpeaker);
+
+            if (result == 0) {
+                result = ownerUUID.compareTo(other.ownerUUID);
+            }
+            if (result == 0) {
+                result = timeRange.getStart().compareTo(other.timeRange.getStart());
+            }
+
+            return result;
+        }
+    }
+
+    /**
+     * Constructs ImportController
+     *
+     * @param conferenceManager instance of conference manager
+     * @param userManager       instance of user manager, to look up speakers
+     * @param eventController   instance of event controller, to keep the conference's speakers in sync
+     */
+    public ImportController(ConferenceManager conferenceManager, UserManager userManager, EventController eventController) {
+        this.conferenceManager = conferenceManager;
+        this.userManager = userManager;
+        this.eventController = eventController;
+        this.permissionManager = new PermissionManager(conferenceManager, userManager);
+    }
+
+    /**
+     * Imports rooms and events into a conference. Either the whole program is imported, or nothing is.
+     * <p>
+     * Required Permission: ORGANIZER
+     *
+     * @param conferenceUUID UUID of the conference to operate on
+     * @param executorUUID   UUID of the user executing the command
+     * @param reader         reader of the program document
+     * @return set of UUIDs of the new events
+     * @throws IOException            if the document can't be read
+     * @throws ProgramImportException if the program has problems, such as unknown speakers or double bookings
+     */
+    public Set<UUID> importProgram(UUID conferenceUUID, UUID executorUUID, IMatrixReader reader) throws IOException {
+        permissionManager.testIsOrganizer(conferenceUUID, executorUUID);
+
+        RoomManager roomManager = conferenceManager.getRoomManager(conferenceUUID);
+        EventManager eventManager = conferenceManager.getEventManager(conferenceUUID);
+
+        List<String> problems = new ArrayList<>();
+        List<RoomRow> roomRows = new ArrayList<>();
+        List<String[]> eventEntries = new ArrayList<>();
+        List<Integer> eventRowNumbers = new ArrayList<>();
+
+        // Rooms may come after the events that use them, so events are only parsed once every room is known
+        int[] rowNumber = {0};
+        reader.readRows(entry -> {
+            rowNumber[0]++;
+
+            switch (entry[0].trim().toLowerCase()) {
+                case "room":
+                    RoomRow roomRow = parseRoom(rowNumber[0], entry, problems);
+                    if (roomRow != null) {
+                        roomRows.add(roomRow);
+                    }
+                    break;
+                case "event":
+                    eventEntries.add(entry);
+                    eventRowNumbers.add(rowNumber[0]);
+                    break;
+                default:
+                    problems.add(String.format("Row %d: unknown row type \"%s\", expected room or event", rowNumber[0], entry[0]));
+            }
+        });
+
+        Map<String, UUID> roomUUIDs = new HashMap<>();
+        Map<UUID, String> roomNames = new HashMap<>();
+        for (UUID roomUUID : roomManager.getRooms()) {
+            String location = roomManager.getRoomLocation(roomUUID);
+            roomUUIDs.put(location, roomUUID);
+            roomNames.put(roomUUID, location);
+        }
+
+        for (RoomRow roomRow : roomRows) {
+            if (roomUUIDs.containsKey(roomRow.location)) {
+                problems.add(String.format("Room %s already exists", roomRow.location));
+            } else {
+                roomUUIDs.put(roomRow.location, roomRow.uuid);
+                roomNames.put(roomRow.uuid, roomRow.location);
+            }
+        }
+
+        TimeRange conferenceTimeRange = conferenceManager.getTimeRange(conferenceUUID);
+        Map<String, UUID> speakerUUIDs = new HashMap<>();
+        List<EventRow> eventRows = new ArrayList<>();
+        List<Booking> bookings = new ArrayList<>();
+
+        for (int i = 0; i < eventEntries.size(); i++) {
+            EventRow eventRow = parseEvent(eventRowNumbers.get(i), eventEntries.get(i), conferenceTimeRange, roomUUIDs, speakerUUIDs, problems);
+
+            if (eventRow != null) {
+                eventRows.add(eventRow);
+                addBookings(bookings, eventRow.roomUUID, eventRow.speakerUUIDs, eventRow.timeRange, String.format("\"%s\" (row %d)", eventRow.title, eventRowNumbers.get(i)), true, roomNames);
+            }
+        }
+
+        for (UUID eventUUID : eventManager.getEvents()) {
+            String description = String.format("\"%s\" (existing)", eventManager.getEventTitle(eventUUID));
+            addBookings(bookings, eventManager.getEventRoom(eventUUID), eventManager.getEventSpeakers(eventUUID), eventManager.getEventTimeRange(eventUUID), description, false, roomNames);
+        }
+
+        findDoubleBookings(bookings, problems);
+
+        if (!problems.isEmpty()) {
+            throw new ProgramImportException(problems);
+        }
+
+        for (RoomRow roomRow : roomRows) {
+            roomManager.createRoom(roomRow.uuid, roomRow.location, roomRow.capacity);
+        }
+
+        Set<UUID> newEventUUIDs = new HashSet<>();
+
+        for (EventRow eventRow : eventRows) {
+            eventManager.createEvent(eventRow.uuid, eventRow.title, eventRow.timeRange, eventRow.roomUUID, eventRow.speakerUUIDs);
+            roomManager.getCalendarManager(eventRow.roomUUID).addTimeBlock(eventRow.uuid, eventRow.timeRange);
+            newEventUUIDs.add(eventRow.uuid);
+        }
+
+        eventController.updateSpeakers(conferenceUUID, new HashSet<>(speakerUUIDs.values()));
+
+        return newEventUUIDs;
+    }
+
+    /**
+     * Finds rooms and times for events that don't have any yet, without double booking rooms or speakers (including
+     * the events the conference already has) and only using rooms big enough for each event's audience. Nothing is
+     * created, the solution can be looked at first and then created with commitProgram.
+     * <p>
+     * Required Permission: ORGANIZER
+     *
+     * @param conferenceUUID UUID of the conference to operate on
+     * @param executorUUID   UUID of the user executing the command
+     * @param events         events to place
+     * @param timeBudget     how long to search for a better solution
+     * @return best solution found, which may leave some events unplaced
+     */
+    public ScheduleSolution solveProgram(UUID conferenceUUID, UUID executorUUID, List<UnplacedEvent> events, Duration timeBudget) {
+        permissionManager.testIsOrganizer(conferenceUUID, executorUUID);
+
+        RoomManager roomManager = conferenceManager.getRoomManager(conferenceUUID);
+        EventManager eventManager = conferenceManager.getEventManager(conferenceUUID);
+        ScheduleSolver solver = new ScheduleSolver(conferenceManager.getTimeRange(conferenceUUID));
+
+        for (UUID roomUUID : roomManager.getRooms()) {
+            solver.addRoom(roomUUID, roomManager.getRoomCapacity(roomUUID));
+
+            for (TimeRange timeRange : roomManager.getCalendarManager(roomUUID).getUUIDtoTimeRanges().values()) {
+                solver.addRoomBooking(roomUUID, timeRange);
+            }
+        }
+
+        for (UUID eventUUID : eventManager.getEvents()) {
+            TimeRange timeRange = eventManager.getEventTimeRange(eventUUID);
+
+            for (UUID speakerUUID : eventManager.getEventSpeakers(eventUUID)) {
+                solver.addSpeakerBooking(speakerUUID, timeRange);
+            }
+        }
+
+        return solver.solve(events, timeBudget);
+    }
+
+    /**
+     * Creates the events placed by solveProgram. Either every placed event is created, or none is (e.g. if a room was
+     * booked since the program was solved).
+     * <p>
+     * Required Permission: ORGANIZER
+     *
+     * @param conferenceUUID UUID of the conference to operate on
+     * @param executorUUID   UUID of the user executing the command
+     * @param solution       solution from solveProgram
+     * @return set of UUIDs of the new events
+     */
+    public Set<UUID> commitProgram(UUID conferenceUUID, UUID executorUUID, ScheduleSolution solution) {
+        permissionManager.testIsOrganizer(conferenceUUID, executorUUID);
+
+        List<UUID> newEventUUIDs = new ArrayList<>();
+
+        try {
+            for (ScheduleSolution.Placement placement : solution.getPlacements()) {
+                UnplacedEvent event = placement.getEvent();
+                newEventUUIDs.add(eventController.createEvent(conferenceUUID, executorUUID, event.getTitle(), placement.getTimeRange(), placement.getRoomUUID(), new HashSet<>(event.getSpeakerUUIDs())));
+            }
+        } catch (RuntimeException e) {
+            for (UUID eventUUID : newEventUUIDs) {
+                eventController.deleteEvent(conferenceUUID, executorUUID, eventUUID);
+            }
+            throw e;
+        }
+
+        return new HashSet<>(newEventUUIDs);
+    }
+
+    private RoomRow parseRoom(int rowNumber, String[] entry, List<String> problems) {
+        if (entry.length < 3) {
+            problems.add(String.format("Row %d: a room needs a location and a capacity", rowNumber));
+            return null;
+        }
+
+        RoomRow roomRow = new RoomRow();
+        roomRow.location = entry[1].trim();
+
+        if (roomRow.location.isEmpty()) {
+            problems.add(String.format("Row %d: room location can't be empty", rowNumber));
+            return null;
+        }
+
+        try {
+            roomRow.capacity = Integer.parseInt(entry[2].trim());
+        } catch (NumberFormatException e) {
+            roomRow.capacity = 0;
+        }
+
+        if (roomRow.capacity <= 0) {
+            problems.add(String.format("Row %d: room capacity \"%s\" must be a number greater than zero", rowNumber, entry[2]));
+            return null;
+        }
+
+        return roomRow;
+    }
+
+    private EventRow parseEvent(int rowNumber, String[] entry, TimeRange conferenceTimeRange, Map<String, UUID> roomUUIDs, Map<String, UUID> speakerUUIDs, List<String> problems) {
+        if (entry.length < 5) {
+            problems.add(String.format("Row %d: an event needs a title, start, end and room", rowNumber));
+            return null;
+        }
+
+        EventRow eventRow = new EventRow();
+        boolean valid = true;
+
+        eventRow.title = entry[1].trim();
+        if (eventRow.title.isEmpty()) {
+            problems.add(String.format("Row %d: event title can't be empty", rowNumber));
+            valid = false;
+        }
+
+        try {
+            eventRow.timeRange = new TimeRange(LocalDateTime.parse(entry[2].trim()), LocalDateTime.parse(entry[3].trim()));
+
+            if (eventRow.timeRange.getStart().isBefore(conferenceTimeRange.getStart()) || eventRow.timeRange.getEnd().isAfter(conferenceTimeRange.getEnd())) {
+                problems.add(String.format("Row %d: event time %s is outside of the conference (%s)", rowNumber, eventRow.timeRange, conferenceTimeRange));
+                valid = false;
+            }
+        } catch (DateTimeParseException | InvalidTimeRangeException e) {
+            problems.add(String.format("Row %d: invalid event time \"%s\" to \"%s\"", rowNumber, entry[2], entry[3]));
+            valid = false;
+        }
+
+        eventRow.roomUUID = roomUUIDs.get(entry[4].trim());
+        if (eventRow.roomUUID == null) {
+            problems.add(String.format("Row %d: unknown room \"%s\"", rowNumber, entry[4]));
+            valid = false;
+        }
+
+        for (int i = 5; i < entry.length; i++) {
+            String username = entry[i].trim();
+
+            if (username.isEmpty()) {
+                continue;
+            }
+
+            UUID speakerUUID = speakerUUIDs.computeIfAbsent(username, userManager::getUserUUIDByUsername);
+            if (speakerUUID == null) {
+                problems.add(String.format("Row %d: unknown speaker \"%s\"", rowNumber, username));
+                valid = false;
+            } else {
+                eventRow.speakerUUIDs.add(speakerUUID);
+            }
+        }
+
+        return valid ? eventRow : null;
+    }
+
+    private void addBookings(List<Booking> bookings, UUID roomUUID, Set<UUID> speakerUUIDs, TimeRange timeRange, String eventDescription, boolean isNew, Map<UUID, String> roomNames) {
+        bookings.add(new Booking(false, roomUUID, roomNames.get(roomUUID), timeRange, eventDescription, isNew));
+
+        for (UUID speakerUUID : speakerUUIDs) {
+            bookings.add(new Booking(true, speakerUUID, null, timeRange, eventDescription, isNew));
+        }
+    }
+
+    /**
+     * Sorts the bookings by who is booked and when, then sweeps over them. A booking overlaps an earlier one of the
+     * same room or speaker iff it starts before the latest end seen so far, so every overlapping booking is found
+     * without comparing every pair. Conflicts between two existing events are left alone.
+     */
+    private void findDoubleBookings(List<Booking> bookings, List<String> problems) {
+        Collections.sort(bookings);
+
+        Booking latest = null;
+
+        for (Booking booking : bookings) {
+            if (latest != null && latest.hasSameOwner(booking)) {
+                // Bookings that touch also overlap, like TimeRange.hasOverlap
+                if (!booking.timeRange.getStart().isAfter(latest.timeRange.getEnd()) && (booking.isNew || latest.isNew)) {
+                    problems.add(String.format("%s is double booked by %s and %s", describeOwner(booking), latest.eventDescription, booking.eventDescription));
+                }
+
+                if (booking.timeRange.getEnd().isAfter(latest.timeRange.getEnd())) {
+                    latest = booking;
+                }
+            } else {
+                latest = booking;
+            }
+        }
+    }
+
+    private String describeOwner(Booking booking) {
+        if (booking.isSpeaker) {
+            return "Speaker " + userManager.getUserUsername(booking.ownerUUID);
+        }
+
+        return "Room " + booking.ownerName;
+    }
+}
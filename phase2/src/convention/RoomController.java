@@ -8,6 +8,8 @@ import convention.permission.PermissionManager;
 import convention.room.RoomManager;
 import user.UserManager;
 
+import java.time.Duration;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
@@ -19,16 +21,19 @@ public class RoomController {
 
     private ConferenceManager conferenceManager;
     private PermissionManager permissionManager;
+    private EventController eventController;
 
     /**
      * Constructs RoomController
      *
      * @param conferenceManager instance of conference manager
      * @param userManager       instance of user manager
+     * @param eventController   instance of event controller, to fill seats from waitlists when rooms get bigger
      */
-    public RoomController(ConferenceManager conferenceManager, UserManager userManager) {
+    public RoomController(ConferenceManager conferenceManager, UserManager userManager, EventController eventController) {
         this.conferenceManager = conferenceManager;
         this.permissionManager = new PermissionManager(conferenceManager, userManager);
+        this.eventController = eventController;
     }
 
     /**
@@ -98,6 +103,15 @@ public class RoomController {
         RoomManager roomManager = conferenceManager.getRoomManager(conferenceUUID);
 
         roomManager.setRoomCapacity(roomUUID, roomCapacity);
+
+        // Users waiting for the events in this room may fit now
+        EventManager eventManager = conferenceManager.getEventManager(conferenceUUID);
+
+        for (UUID eventUUID : eventManager.getEvents()) {
+            if (eventManager.getEventRoom(eventUUID).equals(roomUUID)) {
+                eventController.promoteWaitlist(conferenceUUID, eventUUID);
+            }
+        }
     }
 
     /**
@@ -178,4 +192,41 @@ public class RoomController {
 
         return roomManager.getCalendarManager(roomUUID).getUUIDtoTimeRanges();
     }
+
+    /**
+     * Finds the earliest times a room is free for an event of some length, within the conference.
+     * <p>
+     * Required Permission: ATTENDEE
+     *
+     * @param conferenceUUID UUID of the conference to operate on
+     * @param executorUUID   UUID of the user executing the command
+     * @param roomUUID       UUID of the room to operate on
+     * @param duration       length of the event
+     * @param count          maximum number of time ranges to find
+     * @return list of at most count free time ranges, earliest first
+     */
+    public List<TimeRange> getFreeTimeRanges(UUID conferenceUUID, UUID executorUUID, UUID roomUUID, Duration duration, int count) {
+        permissionManager.testIsAttendee(conferenceUUID, executorUUID);
+
+        RoomManager roomManager = conferenceManager.getRoomManager(conferenceUUID);
+
+        return roomManager.getCalendarManager(roomUUID).findFreeSlots(conferenceManager.getTimeRange(conferenceUUID), duration, count);
+    }
+
+    /**
+     * Finds the rooms of this conference that have enough capacity and are free during a time window.
+     * <p>
+     * Required Permission: ATTENDEE
+     *
+     * @param conferenceUUID  UUID of the conference to operate on
+     * @param executorUUID    UUID of the user executing the command
+     * @param window          time window the rooms must be free for
+     * @param minimumCapacity smallest capacity a room may have
+     * @return set of UUIDs of the matching rooms
+     */
+    public Set<UUID> getAvailableRooms(UUID conferenceUUID, UUID executorUUID, TimeRange window, int minimumCapacity) {
+        permissionManager.testIsAttendee(conferenceUUID, executorUUID);
+
+        return conferenceManager.getRoomManager(conferenceUUID).getAvailableRooms(window, minimumCapacity);
+    }
 }
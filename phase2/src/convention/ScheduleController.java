@@ -1,14 +1,16 @@
 package convention;
 
 import convention.conference.ConferenceManager;
+import convention.event.Event;
 import convention.exception.InvalidSortMethodException;
 import convention.schedule.ScheduleConstants;
 import gateway.IDocumentPrinter;
 import user.UserManager;
 import util.Pair;
-import util.TableTools;
+import util.TableWriter;
 
 import java.io.IOException;
+import java.io.Writer;
 import java.time.LocalDate;
 import java.util.*;
 
@@ -26,26 +28,36 @@ public class ScheduleController {
         this.eventController = eventController;
     }
 
-    private String compileSchedule(List<Pair<UUID, UUID>> listOfPairs) {
-        List<List<String>> table = new ArrayList<>();
+    /**
+     * Writes the schedule one row at a time, so rendering doesn't need memory for the whole table
+     */
+    private void writeSchedule(Writer out, String title, List<Pair<UUID, UUID>> listOfPairs) throws IOException {
+        if (listOfPairs.isEmpty()) {
+            return;
+        }
+
+        TableWriter tableWriter = new TableWriter(out, 4);
+        tableWriter.writeTitle(title);
+
         for (Pair<UUID, UUID> pair : listOfPairs) {
+            UUID eventUUID = pair.getKey();
+            UUID conferenceUUID = pair.getValue();
+            Event event = conferenceManager.getEventManager(conferenceUUID).getEvent(eventUUID);
+
             List<String> speakerNames = new ArrayList<>();
-            for (UUID speakerUUID : conferenceManager.getEventManager(pair.getValue()).getEvent(pair.getKey()).getSpeakers()) {
+            for (UUID speakerUUID : event.getSpeakers()) {
                 speakerNames.add(userManager.getUserUsername(speakerUUID));
             }
-            String speakers = String.join(",", speakerNames);
-            List<String> eventInfoStrings = new ArrayList<>(
-                    Arrays.asList(
-                            conferenceManager.getConferenceName(pair.getValue()),
-                            conferenceManager.getEventManager(pair.getValue()).getEventTitle(pair.getKey()),
-                            speakers,
-                            conferenceManager.getRoomManager(pair.getValue()).getRoomLocation(conferenceManager.getEventManager(pair.getValue()).getEvent(pair.getKey()).getRoomUUID())
-                    )
-            );
-            table.add(eventInfoStrings);
+
+            tableWriter.writeRow(Arrays.asList(
+                    conferenceManager.getConferenceName(conferenceUUID),
+                    event.getTitle(),
+                    String.join(",", speakerNames),
+                    conferenceManager.getRoomManager(conferenceUUID).getRoomLocation(event.getRoomUUID())
+            ));
         }
-        TableTools tableTools = new TableTools(table);
-        return tableTools.stringifyTable(this.title);
+
+        tableWriter.writeBottom();
     }
 
     public void printSchedule(ScheduleConstants.sortByMethods sortByMethod, Map<String, Object> arguments) throws IOException {
@@ -109,8 +121,8 @@ public class ScheduleController {
                 throw new InvalidSortMethodException();
         }
 
-        String scheduleString = compileSchedule(listOfPairs);
-        documentPrinter.print(scheduleString, "schedule");
+        String scheduleTitle = this.title;
+        documentPrinter.print(out -> writeSchedule(out, scheduleTitle, listOfPairs), "schedule");
     }
 }
 
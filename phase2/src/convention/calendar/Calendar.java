@@ -1,75 +1,168 @@
 package convention.calendar;
 
-import java.io.Serializable;
+import util.BinaryIO;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.*;
 
 /**
  * Calendar object - stores mappings from events UUID to timeRange and prevents conflicts
+ * <p>
+ * Bookings are also kept sorted by start time. Bookings never overlap (CalendarManager rejects ones that would), so
+ * their ends are in the same order as their starts, and only the last booking starting before a time range ends can
+ * overlap it. That makes a conflict check two lookups in the sorted map, without copying anything.
+ * <p>
+ * The slots used by the bookings are also marked in a bitmap, so many calendars can be tested against the same time
+ * window with a few word operations each (see RoomManager.getAvailableRooms).
  */
-public class Calendar implements Serializable {
-    // Look at the LocalDateTime library
-    // You can probably just store pairs of LocalDateTime (for start and end), in a set (Maybe make another class for the pair?)
-    // To check if a time slot is going to conflict, compare the new pair with the previous pairs
-    // We'll probably also want to be able to store the events UUID in the pair
-    //
-    // Edit: The TimeRange class will actually handle the pair of times for you
+public class Calendar implements Externalizable {
+    private static final long serialVersionUID = 1L;
+    private static final int VERSION = 1;
+
     private final Map<UUID, TimeRange> uuidToTimeRange = new HashMap<>();
+    // Start time -> UUID of the booking that starts then
+    private final TreeMap<LocalDateTime, UUID> startToUUID = new TreeMap<>();
+    // Slots used by the bookings, rebuilt from the bookings when the calendar is read
+    private final SlotBitmap slots = new SlotBitmap();
 
     /**
-     * Gets the full mapping from UUID to Time range
-     *
-     * @return a map of UUIDs to timeRange
+     * @return copy of the mapping from events UUID to time range
      */
     Map<UUID, TimeRange> getUUIDToTimeRange() {
         return new HashMap<>(uuidToTimeRange);
     }
 
     /**
-     * @return get a Set of TimeRanges booked on this calendar
-     */
-    private Set<TimeRange> getUUIDtoTimeRanges() {
-        return new HashSet<>(uuidToTimeRange.values());
-    }
-
-    /**
-     * @param t the TimeRange that is being compared to existing TimeRange objects on this calendar
-     * @return true iff t conflicts with an existing TimeRange object
+     * @param t time range to test
+     * @return true iff t overlaps with a booking in this calendar
      */
     boolean hasConflict(TimeRange t) {
-        Set<TimeRange> timeRangeSet = this.getUUIDtoTimeRanges();
-        for (TimeRange tr : timeRangeSet) {
-            if (t.hasOverlap(tr)) {
-                return true;
-            }
+        LocalDateTime lastStart = startToUUID.floorKey(t.getEnd());
+
+        if (lastStart == null) {
+            return false;
         }
-        return false;
+
+        return uuidToTimeRange.get(startToUUID.get(lastStart)).hasOverlap(t);
     }
 
     /**
-     * Books a time slot for an events in this calendar
-     *
-     * @param eventUUID UUID of the events
-     * @param timeRange Time range of the events
+     * @param window      time range to test
+     * @param windowSlots slots of the time range, which can be shared between many calendars
+     * @return true iff window overlaps with a booking in this calendar
      */
+    boolean hasConflict(TimeRange window, SlotBitmap windowSlots) {
+        // The bitmap can only tell that there is no overlap, bookings may just share a slot with the window
+        return slots.intersects(windowSlots) && hasConflict(window);
+    }
+
     void addTimeBlock(UUID eventUUID, TimeRange timeRange) {
+        removeTimeBlock(eventUUID);
+
         this.uuidToTimeRange.put(eventUUID, timeRange);
+        this.startToUUID.put(timeRange.getStart(), eventUUID);
+        this.slots.set(timeRange);
     }
 
-    /**
-     * Frees a time slot for an events in this calendar
-     *
-     * @param eventUUID UUID of the event
-     */
     void removeTimeBlock(UUID eventUUID) {
-        this.uuidToTimeRange.remove(eventUUID);
+        TimeRange timeRange = this.uuidToTimeRange.remove(eventUUID);
+
+        if (timeRange != null) {
+            this.startToUUID.remove(timeRange.getStart(), eventUUID);
+            this.slots.clear(timeRange);
+
+            // Other bookings may share the first or last slot of the removed one, so those are marked again
+            LocalDateTime from = SlotBitmap.getSlotStart(SlotBitmap.getSlot(timeRange.getStart()));
+            LocalDateTime to = SlotBitmap.getSlotStart(SlotBitmap.getSlot(timeRange.getEnd()) + 1);
+            LocalDateTime first = startToUUID.floorKey(from);
+
+            for (UUID otherUUID : startToUUID.subMap(first == null ? from : first, true, to, false).values()) {
+                this.slots.set(uuidToTimeRange.get(otherUUID));
+            }
+        }
     }
 
     /**
-     * Gets a time range for a booking
+     * Finds the earliest gaps between bookings that fit a time range of some duration. Only the earliest slot of each
+     * gap is returned. Slots start on a whole minute, and (like all bookings) must not touch another booking.
+     * <p>
+     * Walks the bookings in order of start time once, starting from the last one that begins before the window.
      *
-     * @param eventUUID UUID of the events
+     * @param window   time range the slots must be in
+     * @param duration length of the slots
+     * @param count    maximum number of slots to find
+     * @return list of at most count free time ranges, earliest first
      */
+    List<TimeRange> findFreeSlots(TimeRange window, Duration duration, int count) {
+        List<TimeRange> slots = new ArrayList<>();
+        LocalDateTime candidate = window.getStart().truncatedTo(ChronoUnit.MINUTES);
+
+        if (candidate.isBefore(window.getStart())) {
+            candidate = candidate.plusMinutes(1);
+        }
+
+        // A booking that starts before the window may still run into it
+        LocalDateTime firstStart = startToUUID.floorKey(candidate);
+        Collection<UUID> bookings = firstStart == null ? startToUUID.values() : startToUUID.tailMap(firstStart, true).values();
+
+        for (UUID eventUUID : bookings) {
+            LocalDateTime candidateEnd = candidate.plus(duration);
+
+            if (slots.size() >= count || candidateEnd.isAfter(window.getEnd())) {
+                return slots;
+            }
+
+            TimeRange booking = uuidToTimeRange.get(eventUUID);
+
+            if (candidateEnd.isBefore(booking.getStart())) {
+                slots.add(new TimeRange(candidate, candidateEnd));
+            }
+
+            // The next slot can start on the first minute after this booking
+            if (!booking.getEnd().isBefore(candidate)) {
+                candidate = booking.getEnd().truncatedTo(ChronoUnit.MINUTES).plusMinutes(1);
+            }
+        }
+
+        // The time after the last booking is free
+        if (slots.size() < count && !candidate.plus(duration).isAfter(window.getEnd())) {
+            slots.add(new TimeRange(candidate, candidate.plus(duration)));
+        }
+
+        return slots;
+    }
+
     TimeRange getBooking(UUID eventUUID) {
         return this.uuidToTimeRange.get(eventUUID);
     }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        out.writeByte(VERSION);
+        out.writeInt(uuidToTimeRange.size());
+
+        for (Map.Entry<UUID, TimeRange> entry : uuidToTimeRange.entrySet()) {
+            BinaryIO.writeUUID(out, entry.getKey());
+            entry.getValue().writeExternal(out);
+        }
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException {
+        BinaryIO.readVersion(in, VERSION, Calendar.class);
+        int size = in.readInt();
+
+        for (int i = 0; i < size; i++) {
+            UUID eventUUID = BinaryIO.readUUID(in);
+            TimeRange timeRange = new TimeRange();
+            timeRange.readExternal(in);
+            addTimeBlock(eventUUID, timeRange);
+        }
+    }
 }
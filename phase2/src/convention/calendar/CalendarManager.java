@@ -1,8 +1,13 @@
 package convention.calendar;
 
 import convention.exception.CalendarDoubleBookingException;
+import convention.exception.InvalidTimeRangeException;
 import convention.exception.NullBookingException;
+import gateway.journal.IJournal;
+import gateway.journal.JournalOperation;
 
+import java.time.Duration;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
@@ -13,6 +18,10 @@ public class CalendarManager {
 
     private Calendar calendar;
 
+    private UUID conferenceUUID;
+    private UUID roomUUID;
+    private IJournal journal;
+
     /**
      * Creates calendar manager for a calendar
      *
@@ -22,6 +31,27 @@ public class CalendarManager {
         this.calendar = calendar;
     }
 
+    /**
+     * Creates calendar manager for a room calendar that records its mutations to a journal
+     *
+     * @param calendar       calendar object to operate on
+     * @param conferenceUUID UUID of the conference the room belongs to
+     * @param roomUUID       UUID of the room the calendar belongs to
+     * @param journal        journal to record to, or null to not record
+     */
+    public CalendarManager(Calendar calendar, UUID conferenceUUID, UUID roomUUID, IJournal journal) {
+        this.calendar = calendar;
+        this.conferenceUUID = conferenceUUID;
+        this.roomUUID = roomUUID;
+        this.journal = journal;
+    }
+
+    private void record(JournalOperation operation, Object... arguments) {
+        if (journal != null) {
+            journal.record(operation, arguments);
+        }
+    }
+
     /**
      * Gets the full mapping from UUID to Time range
      *
@@ -39,6 +69,36 @@ public class CalendarManager {
         return calendar.hasConflict(t);
     }
 
+    /**
+     * Tests a time range against this calendar, using the slots of the time range to skip the test when the calendar
+     * has nothing near it. The same slots can be used for every calendar a time range is tested against.
+     *
+     * @param t     TimeRange that is compared with existing TimeRange objects on this calendar
+     * @param slots slots of t, from SlotBitmap.of(t)
+     * @return true iff t conflicts with an existing TimeRange in c
+     */
+    public boolean timeRangeOccupied(TimeRange t, SlotBitmap slots) {
+        return calendar.hasConflict(t, slots);
+    }
+
+    /**
+     * Finds the earliest free slots of some length in this calendar, e.g. to suggest a time for a new event. Each slot
+     * is the start of a different gap between bookings.
+     *
+     * @param window   time range the slots must be in (e.g. the conference's time range)
+     * @param duration length of the slots
+     * @param count    maximum number of slots to find
+     * @return list of at most count free time ranges, earliest first
+     * @throws InvalidTimeRangeException if the duration isn't positive
+     */
+    public List<TimeRange> findFreeSlots(TimeRange window, Duration duration, int count) {
+        if (duration.isNegative() || duration.isZero()) {
+            throw new InvalidTimeRangeException();
+        }
+
+        return calendar.findFreeSlots(window, duration, count);
+    }
+
     /**
      * adds the UUID and TimeRange of a events object to Calendar
      *
@@ -50,6 +110,7 @@ public class CalendarManager {
             throw new CalendarDoubleBookingException();
         } else {
             calendar.addTimeBlock(eventUUID, timeRange);
+            record(JournalOperation.CALENDAR_ADD_TIME_BLOCK, conferenceUUID, roomUUID, eventUUID, timeRange.getStart(), timeRange.getEnd());
         }
     }
 
@@ -64,5 +125,6 @@ public class CalendarManager {
         }
 
         calendar.removeTimeBlock(eventUUID);
+        record(JournalOperation.CALENDAR_REMOVE_TIME_BLOCK, conferenceUUID, roomUUID, eventUUID);
     }
 }
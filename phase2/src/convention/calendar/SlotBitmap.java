@@ -0,0 +1,160 @@
+package convention.calendar;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+
+/**
+ * Marks which fixed-length slots of time are (at least partly) used. Time is split into slots of SLOT_MINUTES, and
+ * the bits of the slots are stored in pages of 64-bit words, so only the parts of the timeline that are used take up
+ * memory. The pages are kept sorted in arrays, so two bitmaps are compared without any lookups or allocations.
+ * <p>
+ * A time range marks every slot it overlaps, including the slot it ends in, since touching time ranges overlap. Two
+ * bitmaps that don't intersect can't have overlapping time ranges. Bitmaps that do intersect may just share a slot,
+ * so the time ranges themselves have to be checked to be sure.
+ */
+public class SlotBitmap {
+    public static final int SLOT_MINUTES = 15;
+
+    private static final int PAGE_WORDS = 16;
+    private static final int PAGE_SLOTS = PAGE_WORDS * Long.SIZE;
+
+    // Numbers of the pages that have marked slots, sorted, and the words of each page
+    private long[] pageNumbers = new long[1];
+    private long[][] pages = new long[1][];
+    private int pageCount;
+
+    /**
+     * Creates a bitmap with the slots of a time range marked, e.g. to test a time window against room calendars
+     *
+     * @param timeRange time range to mark
+     * @return a new bitmap
+     */
+    public static SlotBitmap of(TimeRange timeRange) {
+        SlotBitmap slotBitmap = new SlotBitmap();
+        slotBitmap.set(timeRange);
+        return slotBitmap;
+    }
+
+    /**
+     * Gets the slot a time is in
+     */
+    static long getSlot(LocalDateTime time) {
+        return Math.floorDiv(Math.floorDiv(time.toEpochSecond(ZoneOffset.UTC), 60), SLOT_MINUTES);
+    }
+
+    /**
+     * Gets the time a slot starts at
+     */
+    static LocalDateTime getSlotStart(long slot) {
+        return LocalDateTime.ofEpochSecond(slot * SLOT_MINUTES * 60, 0, ZoneOffset.UTC);
+    }
+
+    /**
+     * Marks the slots of a time range
+     */
+    void set(TimeRange timeRange) {
+        update(getSlot(timeRange.getStart()), getSlot(timeRange.getEnd()), true);
+    }
+
+    /**
+     * Unmarks the slots of a time range. Other time ranges that share its first or last slot have to be set again.
+     */
+    void clear(TimeRange timeRange) {
+        update(getSlot(timeRange.getStart()), getSlot(timeRange.getEnd()), false);
+    }
+
+    private void update(long first, long last, boolean value) {
+        long slot = first;
+
+        while (slot <= last) {
+            long pageNumber = Math.floorDiv(slot, PAGE_SLOTS);
+            int offset = (int) (slot - pageNumber * PAGE_SLOTS);
+            int bit = offset % Long.SIZE;
+            int bitCount = (int) Math.min(Long.SIZE - bit, last - slot + 1);
+            long mask = (bitCount == Long.SIZE ? -1L : (1L << bitCount) - 1) << bit;
+
+            int index = Arrays.binarySearch(pageNumbers, 0, pageCount, pageNumber);
+
+            if (value) {
+                if (index < 0) {
+                    index = insertPage(-index - 1, pageNumber);
+                }
+
+                pages[index][offset / Long.SIZE] |= mask;
+            } else if (index >= 0) {
+                long[] words = pages[index];
+                words[offset / Long.SIZE] &= ~mask;
+
+                if (isEmpty(words)) {
+                    removePage(index);
+                }
+            }
+
+            slot += bitCount;
+        }
+    }
+
+    private int insertPage(int index, long pageNumber) {
+        if (pageCount == pageNumbers.length) {
+            pageNumbers = Arrays.copyOf(pageNumbers, pageCount * 2);
+            pages = Arrays.copyOf(pages, pageCount * 2);
+        }
+
+        System.arraycopy(pageNumbers, index, pageNumbers, index + 1, pageCount - index);
+        System.arraycopy(pages, index, pages, index + 1, pageCount - index);
+        pageNumbers[index] = pageNumber;
+        pages[index] = new long[PAGE_WORDS];
+        pageCount++;
+
+        return index;
+    }
+
+    private void removePage(int index) {
+        System.arraycopy(pageNumbers, index + 1, pageNumbers, index, pageCount - index - 1);
+        System.arraycopy(pages, index + 1, pages, index, pageCount - index - 1);
+        pageCount--;
+        pages[pageCount] = null;
+    }
+
+    private static boolean isEmpty(long[] words) {
+        for (long word : words) {
+            if (word != 0) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Tests if any slot is marked in both bitmaps
+     *
+     * @param other bitmap to test against
+     * @return true iff both bitmaps mark at least one of the same slots
+     */
+    public boolean intersects(SlotBitmap other) {
+        int i = 0;
+        int j = 0;
+
+        // Both page lists are sorted, so they are merged like sorted lists
+        while (i < pageCount && j < other.pageCount) {
+            if (pageNumbers[i] < other.pageNumbers[j]) {
+                i++;
+            } else if (pageNumbers[i] > other.pageNumbers[j]) {
+                j++;
+            } else {
+                long[] words = pages[i++];
+                long[] otherWords = other.pages[j++];
+
+                for (int k = 0; k < PAGE_WORDS; k++) {
+                    if ((words[k] & otherWords[k]) != 0) {
+                        return true;
+                    }
+                }
+            }
+        }
+
+        return false;
+    }
+}
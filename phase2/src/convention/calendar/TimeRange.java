@@ -2,17 +2,31 @@ package convention.calendar;
 
 import convention.exception.InvalidTimeRangeException;
 
-import java.io.Serializable;
+import util.BinaryIO;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 /**
  * Object with a start end time date pair. Ensures the start time is always before the end time.
  */
-public class TimeRange implements Serializable {
+public class TimeRange implements Externalizable {
+    private static final long serialVersionUID = 1L;
+    private static final int VERSION = 1;
+
     private LocalDateTime start;
     private LocalDateTime end;
 
+    /**
+     * Empty constructor, only for deserialization
+     */
+    public TimeRange() {
+    }
+
     /**
      * Constructor for Time range
      *
@@ -95,4 +109,18 @@ public class TimeRange implements Serializable {
     public String toString() {
         return String.format("[%s → %s]", getStart(), getEnd());
     }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        out.writeByte(VERSION);
+        BinaryIO.writeDateTime(out, start);
+        BinaryIO.writeDateTime(out, end);
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException {
+        BinaryIO.readVersion(in, VERSION, TimeRange.class);
+        start = BinaryIO.readDateTime(in);
+        end = BinaryIO.readDateTime(in);
+    }
 }
@@ -2,28 +2,48 @@ package convention.conference;
 
 import convention.calendar.TimeRange;
 import convention.event.Event;
+import convention.event.EventIndex;
 import convention.room.Room;
+import util.BinaryIO;
 
-import java.io.Serializable;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
 import java.util.*;
 
 /**
  * Conference object containing all the details about a specific conference. Includes events, rooms, and data about
  * the roles of users.
  */
-class Conference implements Serializable {
+class Conference implements Externalizable {
+    private static final long serialVersionUID = 1L;
+    private static final int VERSION = 3;
+
     private Set<UUID> organizerUUIDs = new HashSet<>();
     private Set<UUID> speakerUUIDs = new HashSet<>();
     private Set<UUID> attendeeUUIDs = new HashSet<>();
 
+    // Contents of the conference, null while they are not loaded
     private Map<UUID, Event> events = new HashMap<>();
     private Map<UUID, Room> rooms = new HashMap<>();
+    // Indexes of the events, rebuilt whenever the events are read
+    private EventIndex eventIndex = new EventIndex(events);
 
     private String conferenceName;
     private UUID uuid;
 
     private TimeRange timeRange;
 
+    // Whether attendees may register for events at the same time as ones they are registered for
+    private boolean preventingScheduleConflicts;
+
+    /**
+     * Empty constructor, only for deserialization
+     */
+    public Conference() {
+    }
+
     /**
      * Conference constructor.
      *
@@ -32,12 +52,42 @@ class Conference implements Serializable {
      * @param organizerUUID  UUID of the initial organizer
      */
     Conference(String conferenceName, TimeRange timeRange, UUID organizerUUID) {
+        this(UUID.randomUUID(), conferenceName, timeRange, organizerUUID);
+    }
+
+    /**
+     * Conference constructor with a known UUID (e.g. when replaying the journal)
+     *
+     * @param uuid           UUID of the convention
+     * @param conferenceName name of new convention
+     * @param timeRange      TimeRange of the convention
+     * @param organizerUUID  UUID of the initial organizer
+     */
+    Conference(UUID uuid, String conferenceName, TimeRange timeRange, UUID organizerUUID) {
         this.conferenceName = conferenceName;
-        this.uuid = UUID.randomUUID();
+        this.uuid = uuid;
         this.timeRange = timeRange;
         this.organizerUUIDs.add(organizerUUID);
     }
 
+    /**
+     * Tests if the events and rooms of this conference are in memory
+     *
+     * @return true iff the contents are loaded
+     */
+    boolean isLoaded() {
+        return events != null;
+    }
+
+    /**
+     * Drops the events and rooms of this conference from memory. They must be saved first.
+     */
+    void unload() {
+        events = null;
+        rooms = null;
+        eventIndex = null;
+    }
+
     /**
      * Gets events associated with this convention
      *
@@ -47,6 +97,15 @@ class Conference implements Serializable {
         return events;
     }
 
+    /**
+     * Gets the indexes of the events of this convention
+     *
+     * @return indexes matching getEvents
+     */
+    public EventIndex getEventIndex() {
+        return eventIndex;
+    }
+
     /**
      * Gets rooms associated with this convention
      *
@@ -83,6 +142,24 @@ class Conference implements Serializable {
         this.timeRange = timeRange;
     }
 
+    /**
+     * Tests if attendees are stopped from registering for events that overlap ones they are registered for
+     *
+     * @return true iff schedule conflicts are prevented
+     */
+    public boolean isPreventingScheduleConflicts() {
+        return preventingScheduleConflicts;
+    }
+
+    /**
+     * Sets whether attendees are stopped from registering for events that overlap ones they are registered for
+     *
+     * @param preventingScheduleConflicts true to prevent schedule conflicts
+     */
+    public void setPreventingScheduleConflicts(boolean preventingScheduleConflicts) {
+        this.preventingScheduleConflicts = preventingScheduleConflicts;
+    }
+
     /**
      * Sets the new name for the convention
      *
@@ -217,4 +294,108 @@ class Conference implements Serializable {
     public boolean removeAttendee(UUID attendeeUUID) {
         return attendeeUUIDs.remove(attendeeUUID);
     }
+
+    /**
+     * Writes the metadata of the conference (name, time range and roles). The events and rooms are written separately
+     * with writeContents.
+     */
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        out.writeByte(VERSION);
+        BinaryIO.writeUUID(out, uuid);
+        BinaryIO.writeString(out, conferenceName);
+        timeRange.writeExternal(out);
+        BinaryIO.writeUUIDSet(out, organizerUUIDs);
+        BinaryIO.writeUUIDSet(out, speakerUUIDs);
+        BinaryIO.writeUUIDSet(out, attendeeUUIDs);
+        out.writeBoolean(preventingScheduleConflicts);
+    }
+
+    /**
+     * Reads the metadata of the conference. The contents are not loaded until readContents is called, except for
+     * conferences written by version 1, which wrote their contents along with the metadata.
+     */
+    @Override
+    public void readExternal(ObjectInput in) throws IOException {
+        int version = BinaryIO.readVersion(in, VERSION, Conference.class);
+        uuid = BinaryIO.readUUID(in);
+        conferenceName = BinaryIO.readString(in);
+        timeRange = new TimeRange();
+        timeRange.readExternal(in);
+        organizerUUIDs = BinaryIO.readUUIDSet(in);
+        speakerUUIDs = BinaryIO.readUUIDSet(in);
+        attendeeUUIDs = BinaryIO.readUUIDSet(in);
+        // Version 3 added preventing schedule conflicts, which used to be off for every conference
+        preventingScheduleConflicts = version >= 3 && in.readBoolean();
+
+        if (version == 1) {
+            readEventsAndRooms(in);
+        } else {
+            unload();
+        }
+    }
+
+    /**
+     * Writes the events and rooms of the conference
+     *
+     * @param out stream to write to
+     * @throws IOException if the stream can't be written to
+     */
+    void writeContents(ObjectOutput out) throws IOException {
+        out.writeByte(VERSION);
+
+        // Entities are written inline, their UUIDs double as the map keys
+        out.writeInt(events.size());
+        for (Event event : events.values()) {
+            event.writeExternal(out);
+        }
+
+        out.writeInt(rooms.size());
+        for (Room room : rooms.values()) {
+            room.writeExternal(out);
+        }
+    }
+
+    /**
+     * Reads the events and rooms of the conference, replacing whatever is loaded
+     *
+     * @param in stream to read from
+     * @throws IOException if the stream can't be read from
+     */
+    void readContents(ObjectInput in) throws IOException {
+        BinaryIO.readVersion(in, VERSION, Conference.class);
+        readEventsAndRooms(in);
+    }
+
+    private void readEventsAndRooms(ObjectInput in) throws IOException {
+        Map<UUID, Event> events = new HashMap<>();
+        Map<UUID, Room> rooms = new HashMap<>();
+
+        int eventCount = in.readInt();
+        for (int i = 0; i < eventCount; i++) {
+            Event event = new Event();
+            event.readExternal(in);
+            events.put(event.getUUID(), event);
+        }
+
+        int roomCount = in.readInt();
+        for (int i = 0; i < roomCount; i++) {
+            Room room = new Room();
+            room.readExternal(in);
+            rooms.put(room.getUUID(), room);
+        }
+
+        this.events = events;
+        this.rooms = rooms;
+        this.eventIndex = new EventIndex(events);
+    }
+
+    /**
+     * Starts the conference with no events or rooms, e.g. when its contents can't be read
+     */
+    void clearContents() {
+        events = new HashMap<>();
+        rooms = new HashMap<>();
+        eventIndex = new EventIndex(events);
+    }
 }
@@ -2,7 +2,6 @@ package convention.conference;
 
 import convention.calendar.CalendarManager;
 import convention.calendar.TimeRange;
-import convention.event.Event;
 import convention.event.EventManager;
 import convention.exception.InvalidNameException;
 import convention.exception.LoneOrganizerException;
@@ -10,17 +9,340 @@ import convention.exception.NullConferenceException;
 import convention.exception.NullUserException;
 import convention.room.Room;
 import convention.room.RoomManager;
+import gateway.ShardStore;
+import gateway.exceptions.ShardException;
+import gateway.journal.IJournal;
+import gateway.journal.JournalOperation;
 import user.UserManager;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * Manages conferences
+ * <p>
+ * The metadata of every conference (name, time range and roles) is always in memory and is serialized with this
+ * manager, which acts as an index. The events, rooms and calendars of a conference are stored in their own shard once
+ * a shard store is set, loaded the first time they're needed, and unloaded again when they haven't been used in a while.
+ * Only conferences whose changes are already part of a snapshot are unloaded; the others stay in memory until the next
+ * snapshot.
+ * <p>
+ * This manager is not thread-safe, and must only be used from one thread (the UI thread). Loading a conference reorders
+ * and unloads the conferences in memory, so an EventManager should be taken from it on that thread before it is shared.
+ * Seat reservations through that EventManager may then come from many threads at once, since the only state here they
+ * touch is the record of which conferences changed.
  */
 public class ConferenceManager implements Serializable {
+    private static final long serialVersionUID = 251711203015939676L;
+    private static final int DEFAULT_MAXIMUM_LOADED = 16;
+    private static final Logger LOGGER = Logger.getLogger(Logger.GLOBAL_LOGGER_NAME);
+
     private final Map<UUID, Conference> conferences = new HashMap<>();
 
+    private transient IJournal journal;
+    private transient ShardStore shardStore;
+    private transient int maximumLoaded;
+
+    // Conferences with their contents in memory, least recently used first
+    private transient LinkedHashMap<UUID, Conference> loaded;
+    // Sequence numbers of the shards that loaded conferences were read from
+    private transient Map<UUID, Long> shardSequences;
+    // Conferences with changes to their contents that aren't in a shard yet, and the sequence number of the newest one
+    // Concurrent, because seat reservations mark their conference as changed from whichever thread they run on
+    private transient Map<UUID, Long> mutationSequences;
+    // Conferences deleted since this manager was last saved, whose shards are still in the shard store
+    private transient Set<UUID> deletedConferences;
+    // Bumped whenever the organizers, speakers or attendees of a conference change (or one is created or deleted), so
+    // roles cached from them can be told apart from current ones
+    private transient AtomicLong roleVersion;
+
+    /**
+     * Creates an empty conference manager
+     */
+    public ConferenceManager() {
+        initializeShards();
+    }
+
+    private void initializeShards() {
+        maximumLoaded = DEFAULT_MAXIMUM_LOADED;
+        loaded = new LinkedHashMap<>(16, .75f, true);
+        shardSequences = new HashMap<>();
+        mutationSequences = new ConcurrentHashMap<>();
+        deletedConferences = new HashSet<>();
+        roleVersion = new AtomicLong();
+    }
+
+    /**
+     * Sets the journal that mutations are recorded to. Event, room and calendar managers created by this manager
+     * record to the same journal.
+     *
+     * @param journal journal to record to, or null to stop recording
+     */
+    public void setJournal(IJournal journal) {
+        this.journal = journal;
+
+        // Changes made before there was a journal will be part of the next snapshot
+        if (journal != null) {
+            mutationSequences.replaceAll((conferenceUUID, sequence) -> Math.min(sequence, journal.getSequence()));
+        }
+    }
+
+    /**
+     * Sets where the contents of conferences are stored. Until this is set, every conference is kept in memory and is
+     * serialized along with this manager.
+     *
+     * @param shardStore store for the contents of conferences
+     */
+    public void setShardStore(ShardStore shardStore) {
+        this.shardStore = shardStore;
+    }
+
+    /**
+     * Sets how many conferences may have their contents in memory before idle ones are unloaded
+     *
+     * @param maximumLoaded maximum number of loaded conferences
+     */
+    public void setMaximumLoadedConferences(int maximumLoaded) {
+        this.maximumLoaded = maximumLoaded;
+        evict();
+    }
+
+    /**
+     * Gets the number of conferences that have their contents in memory
+     *
+     * @return number of loaded conferences
+     */
+    public int getLoadedConferenceCount() {
+        return loaded.size();
+    }
+
+    /**
+     * Gets the journal sequence number of the shard a conference's contents were read from. Journal records for the
+     * conference's contents up to and including this number are already applied.
+     *
+     * @param conferenceUUID UUID of the conference
+     * @return shard sequence number, or 0 if the contents weren't read from a shard
+     */
+    public long getShardSequence(UUID conferenceUUID) {
+        if (!conferenceExists(conferenceUUID)) {
+            return 0;
+        }
+
+        getLoadedConference(conferenceUUID);
+        return shardSequences.getOrDefault(conferenceUUID, 0L);
+    }
+
+    /**
+     * Writes the contents of every conference that changed since it was last written to its shard
+     *
+     * @param sequence newest journal sequence number included in the shards
+     * @return true iff every shard was written
+     */
+    public boolean saveShards(long sequence) {
+        if (shardStore == null) {
+            return true;
+        }
+
+        boolean saved = true;
+
+        for (UUID conferenceUUID : new ArrayList<>(mutationSequences.keySet())) {
+            Conference conference = conferences.get(conferenceUUID);
+
+            try {
+                shardStore.save(conferenceUUID, sequence, conference::writeContents);
+                mutationSequences.remove(conferenceUUID);
+                shardSequences.put(conferenceUUID, sequence);
+            } catch (IOException e) {
+                // The conference stays dirty, so its contents are written to the index instead
+                LOGGER.log(Level.SEVERE, "Unable to write shard of conference " + conferenceUUID, e);
+                saved = false;
+            }
+        }
+
+        evict();
+        return saved;
+    }
+
+    /**
+     * Deletes the shards of conferences that were deleted since this manager was last saved. Must only be called after
+     * this manager has been saved, otherwise a crash could leave an index that refers to deleted shards.
+     * <p>
+     * Only conferences deleted through this manager are touched, so a manager rebuilt from an older snapshot never
+     * deletes the shards of conferences that were created after it.
+     */
+    public void removeDeletedShards() {
+        if (shardStore == null) {
+            deletedConferences.clear();
+            return;
+        }
+
+        for (Iterator<UUID> iterator = deletedConferences.iterator(); iterator.hasNext(); ) {
+            UUID conferenceUUID = iterator.next();
+
+            try {
+                shardStore.delete(conferenceUUID);
+                iterator.remove();
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Unable to remove shard of deleted conference " + conferenceUUID, e);
+            }
+        }
+    }
+
+    /**
+     * Gets a conference and makes sure its contents are loaded
+     *
+     * @param conferenceUUID UUID of the conference to operate on
+     * @return Conference object with its contents loaded
+     */
+    private Conference getLoadedConference(UUID conferenceUUID) {
+        Conference conference = getConference(conferenceUUID);
+
+        if (loaded.get(conferenceUUID) != null) {
+            return conference;
+        }
+
+        if (shardStore == null) {
+            throw new ShardException("No shard store to load conference " + conferenceUUID + " from", null);
+        }
+
+        try {
+            shardSequences.put(conferenceUUID, shardStore.load(conferenceUUID, conference::readContents));
+        } catch (IOException e) {
+            throw new ShardException("Unable to load conference " + conferenceUUID, e);
+        }
+
+        loaded.put(conferenceUUID, conference);
+        evict();
+
+        return conference;
+    }
+
+    /**
+     * Unloads the least recently used conferences until there are at most maximumLoaded left, skipping ones with
+     * changes that aren't in a shard on disk yet
+     */
+    private void evict() {
+        if (shardStore == null) {
+            return;
+        }
+
+        Iterator<Map.Entry<UUID, Conference>> iterator = loaded.entrySet().iterator();
+
+        // The most recently used conference is the last entry, and is never unloaded
+        for (int remaining = loaded.size() - 1; loaded.size() > maximumLoaded && remaining > 0; remaining--) {
+            Map.Entry<UUID, Conference> entry = iterator.next();
+
+            if (isSaved(entry.getKey())) {
+                entry.getValue().unload();
+                shardSequences.remove(entry.getKey());
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Tests if every change to a conference's contents is in its shard
+     *
+     * @param conferenceUUID UUID of the conference
+     * @return true iff the conference can be unloaded without losing anything
+     */
+    private boolean isSaved(UUID conferenceUUID) {
+        Long mutationSequence = mutationSequences.get(conferenceUUID);
+
+        if (mutationSequence == null) {
+            return true;
+        }
+
+        // A snapshot taken after the change has written the shard
+        if (journal != null && mutationSequence <= journal.getSnapshotSequence()) {
+            mutationSequences.remove(conferenceUUID);
+            return true;
+        }
+
+        return false;
+    }
+
+    private void markMutated(UUID conferenceUUID) {
+        mutationSequences.put(conferenceUUID, journal == null ? Long.MAX_VALUE : journal.getSequence());
+    }
+
+    /**
+     * Records changes made by event, room and calendar managers, and remembers that the conference they belong to has
+     * changed
+     */
+    private class ContentsJournal implements IJournal {
+        private final UUID conferenceUUID;
+
+        private ContentsJournal(UUID conferenceUUID) {
+            this.conferenceUUID = conferenceUUID;
+        }
+
+        @Override
+        public void record(JournalOperation operation, Object... arguments) {
+            if (journal != null) {
+                journal.record(operation, arguments);
+            }
+
+            markMutated(conferenceUUID);
+        }
+
+        @Override
+        public long getSequence() {
+            return journal == null ? 0 : journal.getSequence();
+        }
+
+        @Override
+        public long getSnapshotSequence() {
+            return journal == null ? 0 : journal.getSnapshotSequence();
+        }
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+
+        // Contents that aren't in a shard are written here, so nothing is lost if the shards weren't saved first
+        List<UUID> inline = new ArrayList<>();
+        for (UUID conferenceUUID : loaded.keySet()) {
+            if (shardStore == null || mutationSequences.containsKey(conferenceUUID)) {
+                inline.add(conferenceUUID);
+            }
+        }
+
+        out.writeInt(inline.size());
+        for (UUID conferenceUUID : inline) {
+            out.writeObject(conferenceUUID);
+            conferences.get(conferenceUUID).writeContents(out);
+        }
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        initializeShards();
+
+        int inlineCount = in.readInt();
+        for (int i = 0; i < inlineCount; i++) {
+            UUID conferenceUUID = (UUID) in.readObject();
+            Conference conference = conferences.get(conferenceUUID);
+
+            conference.readContents(in);
+            loaded.put(conferenceUUID, conference);
+            markMutated(conferenceUUID);
+        }
+    }
+
+    private void record(JournalOperation operation, Object... arguments) {
+        if (journal != null) {
+            journal.record(operation, arguments);
+        }
+    }
+
     /**
      * Conference names must be non-empty; this method tests for that condition
      *
@@ -57,15 +379,15 @@ public class ConferenceManager implements Serializable {
      * @return the events manager object
      */
     public EventManager getEventManager(UUID conferenceUUID) {
-        Map<UUID, Event> events = getConference(conferenceUUID).getEvents();
+        Conference conference = getLoadedConference(conferenceUUID);
 
-        return new EventManager(events);
+        return new EventManager(conference.getEvents(), conference.getEventIndex(), conferenceUUID, new ContentsJournal(conferenceUUID));
     }
 
     public RoomManager getRoomManager(UUID conferenceUUID) {
-        Map<UUID, Room> rooms = getConference(conferenceUUID).getRooms();
+        Map<UUID, Room> rooms = getLoadedConference(conferenceUUID).getRooms();
 
-        return new RoomManager(rooms);
+        return new RoomManager(rooms, conferenceUUID, new ContentsJournal(conferenceUUID));
     }
 
     /**
@@ -77,12 +399,30 @@ public class ConferenceManager implements Serializable {
      * @return UUID of the new conference
      */
     public UUID createConference(String conferenceName, TimeRange timeRange, UUID organizerUUID) {
+        return createConference(UUID.randomUUID(), conferenceName, timeRange, organizerUUID);
+    }
+
+    /**
+     * Creates a conference with a known UUID (e.g. when replaying the journal)
+     *
+     * @param conferenceUUID UUID of the new conference
+     * @param conferenceName the desired conference name (Must be non-empty)
+     * @param timeRange      time range of the conference
+     * @param organizerUUID  UUID of the initial organizer user
+     * @return UUID of the new conference
+     */
+    public UUID createConference(UUID conferenceUUID, String conferenceName, TimeRange timeRange, UUID organizerUUID) {
         if (validateConferenceName(conferenceName)) {
             throw new InvalidNameException();
         }
 
-        Conference newConference = new Conference(conferenceName, timeRange, organizerUUID);
+        Conference newConference = new Conference(conferenceUUID, conferenceName, timeRange, organizerUUID);
         conferences.put(newConference.getUUID(), newConference);
+        loaded.put(newConference.getUUID(), newConference);
+        record(JournalOperation.CONFERENCE_CREATE, conferenceUUID, conferenceName, timeRange.getStart(), timeRange.getEnd(), organizerUUID);
+        rolesChanged();
+        markMutated(newConference.getUUID());
+        evict();
 
         return newConference.getUUID();
     }
@@ -112,6 +452,26 @@ public class ConferenceManager implements Serializable {
         }
 
         conferences.remove(conferenceUUID);
+        loaded.remove(conferenceUUID);
+        shardSequences.remove(conferenceUUID);
+        mutationSequences.remove(conferenceUUID);
+        deletedConferences.add(conferenceUUID);
+        record(JournalOperation.CONFERENCE_DELETE, conferenceUUID);
+        rolesChanged();
+    }
+
+    /**
+     * Gets the version of the roles of the conferences. It changes whenever an organizer, speaker or attendee of any
+     * conference is added or removed, so roles looked up at one version can be reused until it changes.
+     *
+     * @return version of the roles
+     */
+    public long getRoleVersion() {
+        return roleVersion.get();
+    }
+
+    private void rolesChanged() {
+        roleVersion.incrementAndGet();
     }
 
     /**
@@ -166,6 +526,7 @@ public class ConferenceManager implements Serializable {
      */
     public void setTimeRange(UUID conferenceUUID, TimeRange timeRange) {
         getConference(conferenceUUID).setTimeRange(timeRange);
+        record(JournalOperation.CONFERENCE_SET_TIME_RANGE, conferenceUUID, timeRange.getStart(), timeRange.getEnd());
     }
 
     /**
@@ -180,6 +541,30 @@ public class ConferenceManager implements Serializable {
         }
 
         getConference(conferenceUUID).setConferenceName(newName);
+        record(JournalOperation.CONFERENCE_SET_NAME, conferenceUUID, newName);
+    }
+
+    /**
+     * Tests if attendees of a conference are stopped from registering for events that overlap ones they are
+     * registered for
+     *
+     * @param conferenceUUID UUID of the conference to operate on
+     * @return true iff schedule conflicts are prevented
+     */
+    public boolean isPreventingScheduleConflicts(UUID conferenceUUID) {
+        return getConference(conferenceUUID).isPreventingScheduleConflicts();
+    }
+
+    /**
+     * Sets whether attendees of a conference are stopped from registering for events that overlap ones they are
+     * registered for
+     *
+     * @param conferenceUUID              UUID of the conference to operate on
+     * @param preventingScheduleConflicts true to prevent schedule conflicts
+     */
+    public void setPreventingScheduleConflicts(UUID conferenceUUID, boolean preventingScheduleConflicts) {
+        getConference(conferenceUUID).setPreventingScheduleConflicts(preventingScheduleConflicts);
+        record(JournalOperation.CONFERENCE_SET_PREVENTING_SCHEDULE_CONFLICTS, conferenceUUID, preventingScheduleConflicts);
     }
 
     /**
@@ -252,6 +637,31 @@ public class ConferenceManager implements Serializable {
      */
     public void addOrganizer(UUID conferenceUUID, UUID userUUID) {
         getConference(conferenceUUID).addOrganizer(userUUID);
+        rolesChanged();
+        record(JournalOperation.CONFERENCE_ADD_ORGANIZER, conferenceUUID, userUUID);
+    }
+
+    /**
+     * Adds many organizers to a convention at once, recorded together.
+     * <p>
+     * Throws NullConferenceException if the conferenceUUID does not correspond to a valid convention.
+     *
+     * @param conferenceUUID UUID of the conference to operate on
+     * @param userUUIDs      UUIDs of the users to add
+     * @return UUIDs of the users who weren't organizers already
+     */
+    public Set<UUID> addOrganizers(UUID conferenceUUID, Set<UUID> userUUIDs) {
+        Conference conference = getConference(conferenceUUID);
+        Set<UUID> newUserUUIDs = new HashSet<>(userUUIDs);
+        newUserUUIDs.removeAll(conference.getOrganizerUUIDs());
+
+        if (!newUserUUIDs.isEmpty()) {
+            conference.getOrganizerUUIDs().addAll(newUserUUIDs);
+            rolesChanged();
+            record(JournalOperation.CONFERENCE_ADD_ORGANIZERS, conferenceUUID, newUserUUIDs);
+        }
+
+        return newUserUUIDs;
     }
 
     /**
@@ -272,6 +682,8 @@ public class ConferenceManager implements Serializable {
             throw new LoneOrganizerException();
         } else {
             conference.removeOrganizer(userUUID);
+            rolesChanged();
+            record(JournalOperation.CONFERENCE_REMOVE_ORGANIZER, conferenceUUID, userUUID);
         }
     }
 
@@ -297,6 +709,31 @@ public class ConferenceManager implements Serializable {
      */
     public void addAttendee(UUID conferenceUUID, UUID userUUID) {
         getConference(conferenceUUID).addAttendee(userUUID);
+        rolesChanged();
+        record(JournalOperation.CONFERENCE_ADD_ATTENDEE, conferenceUUID, userUUID);
+    }
+
+    /**
+     * Adds many attendees to a convention at once, recorded together.
+     * <p>
+     * Throws NullConferenceException if the conferenceUUID does not correspond to a valid convention.
+     *
+     * @param conferenceUUID UUID of the conference to operate on
+     * @param userUUIDs      UUIDs of the users to add
+     * @return UUIDs of the users who weren't attendees already
+     */
+    public Set<UUID> addAttendees(UUID conferenceUUID, Set<UUID> userUUIDs) {
+        Conference conference = getConference(conferenceUUID);
+        Set<UUID> newUserUUIDs = new HashSet<>(userUUIDs);
+        newUserUUIDs.removeAll(conference.getAttendeeUUIDs());
+
+        if (!newUserUUIDs.isEmpty()) {
+            conference.getAttendeeUUIDs().addAll(newUserUUIDs);
+            rolesChanged();
+            record(JournalOperation.CONFERENCE_ADD_ATTENDEES, conferenceUUID, newUserUUIDs);
+        }
+
+        return newUserUUIDs;
     }
 
     /**
@@ -315,6 +752,8 @@ public class ConferenceManager implements Serializable {
             throw new NullUserException(userUUID);
         } else {
             conference.removeAttendee(userUUID);
+            rolesChanged();
+            record(JournalOperation.CONFERENCE_REMOVE_ATTENDEE, conferenceUUID, userUUID);
         }
     }
 
@@ -339,6 +778,8 @@ public class ConferenceManager implements Serializable {
      */
     public void setSpeakers(UUID conferenceUUID, Set<UUID> speakers) {
         getConference(conferenceUUID).setSpeakerUUIDs(speakers);
+        rolesChanged();
+        record(JournalOperation.CONFERENCE_SET_SPEAKERS, conferenceUUID, speakers);
     }
 
     /**
@@ -351,6 +792,8 @@ public class ConferenceManager implements Serializable {
      */
     public void addSpeaker(UUID conferenceUUID, UUID userUUID) {
         getConference(conferenceUUID).addSpeaker(userUUID);
+        rolesChanged();
+        record(JournalOperation.CONFERENCE_ADD_SPEAKER, conferenceUUID, userUUID);
     }
 
     /**
@@ -369,6 +812,8 @@ public class ConferenceManager implements Serializable {
             throw new NullUserException(userUUID);
         } else {
             conference.removeSpeaker(userUUID);
+            rolesChanged();
+            record(JournalOperation.CONFERENCE_REMOVE_SPEAKER, conferenceUUID, userUUID);
         }
     }
 }
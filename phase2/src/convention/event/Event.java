@@ -1,26 +1,55 @@
 package convention.event;
 
 import convention.calendar.TimeRange;
+import util.BinaryIO;
 
-import java.io.Serializable;
-import java.util.HashSet;
-import java.util.Set;
-import java.util.UUID;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
 
 /**
  * Event object. Stores details about the room, attendees, speakers, etc.
+ * <p>
+ * Registrations may come from many threads at once (e.g. when registration for a keynote opens), so the attendees are
+ * kept in a concurrent set and seats are taken from a counter with compare-and-set, instead of counting the attendees
+ * and then registering, which could sell the same last seat twice.
+ * <p>
+ * Users who find the events full can wait in line for a seat. The waitlist is first in, first out, and a seat given
+ * back is handed to the user at its head.
  */
-public class Event implements Serializable {
+public class Event implements Externalizable {
+    private static final long serialVersionUID = 1L;
+    private static final int VERSION = 3;
+
     private UUID uuid;
     private String title;
     private Set<UUID> speakerUUIDs;
-    private Set<UUID> attendeeUUIDs = new HashSet<>();
+    private Set<UUID> attendeeUUIDs = ConcurrentHashMap.newKeySet();
+    // Seats taken in the room, kept next to the attendees so it can be reserved atomically
+    private transient AtomicInteger takenSeats = new AtomicInteger();
+    // Seats among the taken ones that are held for users who haven't confirmed yet. Holds are never written to disk.
+    private transient AtomicInteger heldSeats = new AtomicInteger();
+    // Users waiting for a seat, in the order they joined. Guarded by itself.
+    private LinkedHashSet<UUID> waitlistUUIDs = new LinkedHashSet<>();
 
     private TimeRange timeRange;
 
     private UUID conversationUUID;
+    // Conversation that users promoted from the waitlist are told in, created with the first promotion
+    private UUID waitlistConversationUUID;
     private UUID roomUUID;
 
+    /**
+     * Empty constructor, only for deserialization
+     */
+    public Event() {
+    }
+
     /**
      * Event constructor.
      *
@@ -30,8 +59,21 @@ public class Event implements Serializable {
      * @param speakerUUIDs set of speakers for this events
      */
     public Event(String title, TimeRange timeRange, UUID roomUUID, Set<UUID> speakerUUIDs) {
+        this(UUID.randomUUID(), title, timeRange, roomUUID, speakerUUIDs);
+    }
+
+    /**
+     * Event constructor with a known UUID (e.g. when replaying the journal)
+     *
+     * @param uuid         UUID of the events
+     * @param title        name of new events
+     * @param timeRange    TimeRange of the events
+     * @param roomUUID     UUID of the room in which events is held
+     * @param speakerUUIDs set of speakers for this events
+     */
+    public Event(UUID uuid, String title, TimeRange timeRange, UUID roomUUID, Set<UUID> speakerUUIDs) {
         this.title = title;
-        this.uuid = UUID.randomUUID();
+        this.uuid = uuid;
         this.speakerUUIDs = speakerUUIDs;
         this.timeRange = timeRange;
         this.roomUUID = roomUUID;
@@ -111,21 +153,215 @@ public class Event implements Serializable {
     }
 
     /**
-     * Registers a user for this events
+     * Registers a user for this events, taking a seat for them
+     *
+     * @param attendeeUUID user being registered
+     * @return true iff the user wasn't registered already
+     */
+    public boolean addAttendee(UUID attendeeUUID) {
+        if (attendeeUUIDs.add(attendeeUUID)) {
+            takenSeats.incrementAndGet();
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Registers a user for this events if a seat is left. The seat is reserved with compare-and-set before the user is
+     * added, so concurrent registrations never take more seats than the capacity.
+     *
+     * @param attendeeUUID user being registered
+     * @param capacity     number of seats in the room
+     * @return false iff the events is full (including when the user is already registered and the events is full)
+     */
+    public boolean addAttendee(UUID attendeeUUID, int capacity) {
+        if (!reserveSeat(capacity)) {
+            return false;
+        }
+
+        addReservedAttendee(attendeeUUID);
+        return true;
+    }
+
+    /**
+     * Registers many users for this events if there are seats for all of them, or none of them. The seats are reserved
+     * with a single compare-and-set.
+     *
+     * @param attendeeUUIDs users being registered, the ones registered already are skipped
+     * @param capacity      number of seats in the room
+     * @return the users that were registered, or null iff there aren't enough seats
+     */
+    public Set<UUID> addAttendees(Set<UUID> attendeeUUIDs, int capacity) {
+        Set<UUID> newAttendeeUUIDs = new HashSet<>();
+
+        for (UUID attendeeUUID : attendeeUUIDs) {
+            if (!this.attendeeUUIDs.contains(attendeeUUID)) {
+                newAttendeeUUIDs.add(attendeeUUID);
+            }
+        }
+
+        if (!reserveSeats(newAttendeeUUIDs.size(), capacity)) {
+            return null;
+        }
+
+        // Users registered by another thread in the meantime keep their own seat
+        newAttendeeUUIDs.removeIf(attendeeUUID -> !addReservedAttendee(attendeeUUID));
+
+        return newAttendeeUUIDs;
+    }
+
+    /**
+     * Registers a user in a seat taken by reserveSeat. Registering twice keeps the one seat.
      *
      * @param attendeeUUID user being registered
+     * @return true iff the user wasn't registered already
      */
-    public void addAttendee(UUID attendeeUUID) {
-        attendeeUUIDs.add(attendeeUUID);
+    boolean addReservedAttendee(UUID attendeeUUID) {
+        if (attendeeUUIDs.add(attendeeUUID)) {
+            return true;
+        }
+
+        releaseSeat();
+        return false;
     }
 
     /**
-     * removes a user from this events
+     * removes a user from this events, giving their seat back
      *
      * @param attendeeUUID user being removed
+     * @return true iff the user was registered
+     */
+    public boolean removeAttendee(UUID attendeeUUID) {
+        if (attendeeUUIDs.remove(attendeeUUID)) {
+            releaseSeat();
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Takes a seat if fewer than the capacity are taken
+     *
+     * @param capacity number of seats in the room
+     * @return true iff a seat was taken
+     */
+    boolean reserveSeat(int capacity) {
+        return reserveSeats(1, capacity);
+    }
+
+    /**
+     * Takes a number of seats if there are that many left, or none
+     *
+     * @param count    number of seats to take
+     * @param capacity number of seats in the room
+     * @return true iff the seats were taken
+     */
+    boolean reserveSeats(int count, int capacity) {
+        // Taking nothing never fails, even if the room was made smaller than the seats taken
+        if (count == 0) {
+            return true;
+        }
+
+        while (true) {
+            int seats = takenSeats.get();
+
+            if (seats + count > capacity) {
+                return false;
+            }
+
+            if (takenSeats.compareAndSet(seats, seats + count)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Gives back a seat taken by reserveSeat
+     */
+    void releaseSeat() {
+        takenSeats.decrementAndGet();
+    }
+
+    /**
+     * Holds a seat for a user who hasn't confirmed yet
+     *
+     * @param capacity number of seats in the room
+     * @return true iff a seat was free
+     */
+    public boolean holdSeat(int capacity) {
+        if (!reserveSeat(capacity)) {
+            return false;
+        }
+
+        heldSeats.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Gives back a held seat. Does nothing if there are no held seats, e.g. because the events was read from disk
+     * after the seat was held.
+     *
+     * @return true iff a held seat was given back
+     */
+    public boolean releaseHeldSeat() {
+        if (takeHeldSeat()) {
+            releaseSeat();
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Registers a user in a held seat. If the hold was lost (e.g. the events was read from disk after the seat was
+     * held), the user gets a free seat if there is one.
+     *
+     * @param attendeeUUID user being registered
+     * @param capacity     number of seats in the room
+     * @return false iff the hold was lost and the events is full
+     */
+    public boolean addHeldAttendee(UUID attendeeUUID, int capacity) {
+        if (!takeHeldSeat()) {
+            return addAttendee(attendeeUUID, capacity);
+        }
+
+        // The seat stays taken, now by an attendee
+        addReservedAttendee(attendeeUUID);
+        return true;
+    }
+
+    private boolean takeHeldSeat() {
+        while (true) {
+            int held = heldSeats.get();
+
+            if (held == 0) {
+                return false;
+            }
+
+            if (heldSeats.compareAndSet(held, held - 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Gets the number of seats held for users who haven't confirmed yet
+     *
+     * @return number of held seats
+     */
+    public int getHeldSeats() {
+        return heldSeats.get();
+    }
+
+    /**
+     * Gets the number of seats taken in this events
+     *
+     * @return number of seats taken
      */
-    public void removeAttendee(UUID attendeeUUID) {
-        attendeeUUIDs.remove(attendeeUUID);
+    public int getTakenSeats() {
+        return takenSeats.get();
     }
 
     /**
@@ -138,6 +374,90 @@ public class Event implements Serializable {
         return attendeeUUIDs.contains(attendeeUUID);
     }
 
+    /**
+     * Puts a user at the end of the waitlist of this events
+     *
+     * @param userUUID UUID of the user
+     * @return true iff the user wasn't registered or waiting already
+     */
+    public boolean addToWaitlist(UUID userUUID) {
+        synchronized (waitlistUUIDs) {
+            return !attendeeUUIDs.contains(userUUID) && waitlistUUIDs.add(userUUID);
+        }
+    }
+
+    /**
+     * Takes a user off the waitlist of this events
+     *
+     * @param userUUID UUID of the user
+     * @return true iff the user was waiting
+     */
+    public boolean removeFromWaitlist(UUID userUUID) {
+        synchronized (waitlistUUIDs) {
+            return waitlistUUIDs.remove(userUUID);
+        }
+    }
+
+    /**
+     * Checks if a user is on the waitlist of this events
+     *
+     * @param userUUID UUID of the user
+     * @return true iff the user is waiting for a seat
+     */
+    public boolean isWaitlisted(UUID userUUID) {
+        synchronized (waitlistUUIDs) {
+            return waitlistUUIDs.contains(userUUID);
+        }
+    }
+
+    /**
+     * Gets the users waiting for a seat
+     *
+     * @return copy of the waitlist, first in line first
+     */
+    public List<UUID> getWaitlist() {
+        synchronized (waitlistUUIDs) {
+            return new ArrayList<>(waitlistUUIDs);
+        }
+    }
+
+    /**
+     * Registers the first user on the waitlist who can take a seat, if a seat is free. Users who can't (e.g. because
+     * it would double book them) keep their place in line.
+     *
+     * @param capacity    number of seats in the room
+     * @param canRegister tests if a waiting user can take a seat now
+     * @return UUID of the registered user, or null if the events is full or nobody who can take a seat is waiting
+     */
+    public UUID promoteFromWaitlist(int capacity, Predicate<UUID> canRegister) {
+        synchronized (waitlistUUIDs) {
+            Iterator<UUID> waiting = waitlistUUIDs.iterator();
+
+            while (waiting.hasNext()) {
+                UUID userUUID = waiting.next();
+
+                if (!canRegister.test(userUUID)) {
+                    continue;
+                }
+
+                if (!reserveSeat(capacity)) {
+                    return null;
+                }
+
+                waiting.remove();
+
+                if (attendeeUUIDs.add(userUUID)) {
+                    return userUUID;
+                }
+
+                // They registered some other way while waiting
+                releaseSeat();
+            }
+
+            return null;
+        }
+    }
+
     /**
      * Gets the TimeRange of this events
      *
@@ -191,4 +511,59 @@ public class Event implements Serializable {
     public void setConversationUUID(UUID conversationUUID) {
         this.conversationUUID = conversationUUID;
     }
-}
\ No newline at end of file
+
+    /**
+     * Gets the UUID of the conversation that users promoted from the waitlist are told in
+     *
+     * @return the UUID of the waitlist conversation, or null if nobody has been promoted yet
+     */
+    public UUID getWaitlistConversationUUID() {
+        return waitlistConversationUUID;
+    }
+
+    /**
+     * Change the conversation that users promoted from the waitlist are told in
+     *
+     * @param waitlistConversationUUID the UUID of the new waitlist conversation
+     */
+    public void setWaitlistConversationUUID(UUID waitlistConversationUUID) {
+        this.waitlistConversationUUID = waitlistConversationUUID;
+    }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        out.writeByte(VERSION);
+        BinaryIO.writeUUID(out, uuid);
+        BinaryIO.writeString(out, title);
+        BinaryIO.writeUUIDSet(out, speakerUUIDs);
+        BinaryIO.writeUUIDSet(out, attendeeUUIDs);
+        timeRange.writeExternal(out);
+        BinaryIO.writeUUID(out, conversationUUID);
+        BinaryIO.writeUUID(out, roomUUID);
+        synchronized (waitlistUUIDs) {
+            BinaryIO.writeUUIDSet(out, waitlistUUIDs);
+        }
+        BinaryIO.writeUUID(out, waitlistConversationUUID);
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException {
+        int version = BinaryIO.readVersion(in, VERSION, Event.class);
+        uuid = BinaryIO.readUUID(in);
+        title = BinaryIO.readString(in);
+        speakerUUIDs = BinaryIO.readUUIDSet(in);
+        attendeeUUIDs = ConcurrentHashMap.newKeySet();
+        attendeeUUIDs.addAll(BinaryIO.readUUIDSet(in));
+        takenSeats = new AtomicInteger(attendeeUUIDs.size());
+        heldSeats = new AtomicInteger();
+        timeRange = new TimeRange();
+        timeRange.readExternal(in);
+        conversationUUID = BinaryIO.readUUID(in);
+        roomUUID = BinaryIO.readUUID(in);
+
+        // Version 1 had no waitlists
+        waitlistUUIDs = version >= 2 ? BinaryIO.readOrderedUUIDSet(in) : new LinkedHashSet<>();
+        // Version 2 had no waitlist conversation
+        waitlistConversationUUID = version >= 3 ? BinaryIO.readUUID(in) : null;
+    }
+}
@@ -0,0 +1,263 @@
+package convention.event;
+
+import convention.calendar.TimeRange;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Indexes of the events of a conference, so a user's events are found without going through every event. The indexes
+ * are kept up to date by EventManager, and rebuilt from the events when the conference is read, so they are never
+ * written to disk.
+ * <p>
+ * The events of each speaker are kept sorted by start time. A speaker's events never overlap (EventController rejects
+ * ones that would), so, like in a room's Calendar, only the last one starting before a time range ends can overlap it.
+ * <p>
+ * The events each user is registered for are kept too, so finding them costs as much as the user has registrations,
+ * along with the time they are busy with them, so testing if a user is free is logarithmic in their registrations.
+ * All the events of the conference are kept on a timeline as well, to find the events overlapping a time range.
+ * So is the number of events each speaker speaks at, so the conference's speakers can be kept up to date one speaker
+ * at a time.
+ * <p>
+ * Registrations can come from many threads at once, so the registration index is a concurrent map whose entries are
+ * only added and removed inside compute, and each user's entry is synchronized. The other indexes are changed by
+ * organizers, one change at a time.
+ */
+public class EventIndex {
+    // Speaker UUID -> start time -> the speaker's event that starts then
+    private final Map<UUID, TreeMap<LocalDateTime, Event>> speakerEvents = new HashMap<>();
+    // Speaker UUID -> number of events they speak at, only for speakers with at least one
+    private final Map<UUID, Integer> speakerEventCounts = new HashMap<>();
+    // Attendee UUID -> the events they are registered for
+    private final Map<UUID, AttendeeSchedule> attendeeEvents = new ConcurrentHashMap<>();
+    // Every event of the conference
+    private final Timeline timeline = new Timeline();
+
+    /**
+     * The events a user is registered for, by UUID and by time
+     */
+    private static class AttendeeSchedule {
+        private final Set<UUID> eventUUIDs = new HashSet<>();
+        private final Timeline timeline = new Timeline();
+
+        synchronized void add(Event event) {
+            if (eventUUIDs.add(event.getUUID())) {
+                timeline.add(event);
+            }
+        }
+
+        synchronized void remove(Event event) {
+            if (eventUUIDs.remove(event.getUUID())) {
+                timeline.remove(event);
+            }
+        }
+
+        synchronized void addTime(Event event) {
+            timeline.add(event);
+        }
+
+        synchronized void removeTime(Event event) {
+            timeline.remove(event);
+        }
+
+        synchronized boolean isEmpty() {
+            return eventUUIDs.isEmpty();
+        }
+
+        synchronized Set<UUID> getEventUUIDs() {
+            return new HashSet<>(eventUUIDs);
+        }
+
+        synchronized boolean overlaps(TimeRange timeRange) {
+            return timeline.overlaps(timeRange);
+        }
+    }
+
+    /**
+     * Builds the indexes of a conference's events
+     *
+     * @param events map of UUIDs for all events in the conference
+     */
+    public EventIndex(Map<UUID, Event> events) {
+        for (Event event : events.values()) {
+            addEvent(event);
+        }
+    }
+
+    void addEvent(Event event) {
+        timeline.add(event);
+
+        for (UUID speakerUUID : event.getSpeakers()) {
+            addSpeaker(event, speakerUUID);
+        }
+
+        for (UUID attendeeUUID : event.getAttendeeUUIDs()) {
+            addAttendee(event, attendeeUUID);
+        }
+    }
+
+    void removeEvent(Event event) {
+        timeline.remove(event);
+
+        for (UUID speakerUUID : event.getSpeakers()) {
+            removeSpeaker(event, speakerUUID);
+        }
+
+        for (UUID attendeeUUID : event.getAttendeeUUIDs()) {
+            removeAttendee(event, attendeeUUID);
+        }
+    }
+
+    /**
+     * Adds an event to the indexes that are sorted by time, e.g. after its time changed
+     */
+    void addTimes(Event event) {
+        timeline.add(event);
+
+        for (UUID speakerUUID : event.getSpeakers()) {
+            speakerEvents.computeIfAbsent(speakerUUID, k -> new TreeMap<>()).put(event.getTimeRange().getStart(), event);
+        }
+
+        for (UUID attendeeUUID : event.getAttendeeUUIDs()) {
+            AttendeeSchedule schedule = attendeeEvents.get(attendeeUUID);
+
+            if (schedule != null) {
+                schedule.addTime(event);
+            }
+        }
+    }
+
+    /**
+     * Removes an event from the indexes that are sorted by time, e.g. before its time changes
+     */
+    void removeTimes(Event event) {
+        timeline.remove(event);
+
+        for (UUID speakerUUID : event.getSpeakers()) {
+            removeSpeakerTime(event, speakerUUID);
+        }
+
+        for (UUID attendeeUUID : event.getAttendeeUUIDs()) {
+            AttendeeSchedule schedule = attendeeEvents.get(attendeeUUID);
+
+            if (schedule != null) {
+                schedule.removeTime(event);
+            }
+        }
+    }
+
+    void addSpeaker(Event event, UUID speakerUUID) {
+        speakerEvents.computeIfAbsent(speakerUUID, k -> new TreeMap<>()).put(event.getTimeRange().getStart(), event);
+        speakerEventCounts.merge(speakerUUID, 1, Integer::sum);
+    }
+
+    void removeSpeaker(Event event, UUID speakerUUID) {
+        removeSpeakerTime(event, speakerUUID);
+        speakerEventCounts.computeIfPresent(speakerUUID, (k, count) -> count > 1 ? count - 1 : null);
+    }
+
+    private void removeSpeakerTime(Event event, UUID speakerUUID) {
+        TreeMap<LocalDateTime, Event> events = speakerEvents.get(speakerUUID);
+
+        if (events != null) {
+            events.remove(event.getTimeRange().getStart(), event);
+
+            if (events.isEmpty()) {
+                speakerEvents.remove(speakerUUID);
+            }
+        }
+    }
+
+    /**
+     * @param speakerUUID UUID of the speaker
+     * @return number of events the speaker speaks at
+     */
+    int getSpeakerEventCount(UUID speakerUUID) {
+        return speakerEventCounts.getOrDefault(speakerUUID, 0);
+    }
+
+    /**
+     * @param speakerUUID UUID of the speaker
+     * @param timeRange   time range to test
+     * @return true iff one of the speaker's events overlaps the time range
+     */
+    boolean isSpeakerOccupied(UUID speakerUUID, TimeRange timeRange) {
+        TreeMap<LocalDateTime, Event> events = speakerEvents.get(speakerUUID);
+
+        if (events == null) {
+            return false;
+        }
+
+        // Touching time ranges overlap, so an event starting right at the end counts
+        Map.Entry<LocalDateTime, Event> last = events.floorEntry(timeRange.getEnd());
+        return last != null && last.getValue().getTimeRange().hasOverlap(timeRange);
+    }
+
+    void addAttendee(Event event, UUID attendeeUUID) {
+        attendeeEvents.compute(attendeeUUID, (k, schedule) -> {
+            AttendeeSchedule updated = schedule == null ? new AttendeeSchedule() : schedule;
+            updated.add(event);
+            return updated;
+        });
+    }
+
+    void removeAttendee(Event event, UUID attendeeUUID) {
+        attendeeEvents.computeIfPresent(attendeeUUID, (k, schedule) -> {
+            schedule.remove(event);
+            return schedule.isEmpty() ? null : schedule;
+        });
+    }
+
+    /**
+     * @param attendeeUUID UUID of the user
+     * @return copy of the set of UUIDs of the events the user is registered for
+     */
+    Set<UUID> getAttendeeEvents(UUID attendeeUUID) {
+        AttendeeSchedule schedule = attendeeEvents.get(attendeeUUID);
+        return schedule == null ? new HashSet<>() : schedule.getEventUUIDs();
+    }
+
+    /**
+     * @param attendeeUUID UUID of the user
+     * @param timeRange    time range to test
+     * @return true iff one of the events the user is registered for overlaps the time range
+     */
+    boolean isAttendeeOccupied(UUID attendeeUUID, TimeRange timeRange) {
+        AttendeeSchedule schedule = attendeeEvents.get(attendeeUUID);
+        return schedule != null && schedule.overlaps(timeRange);
+    }
+
+    /**
+     * Finds the attendees of an event who are registered for another event at the same time. Sweeps over the events
+     * overlapping it in order of their start time and intersects their attendees with the event's, instead of looking
+     * at every attendee's registrations.
+     *
+     * @param event event to test
+     * @return UUIDs of the double booked attendees
+     */
+    Set<UUID> getDoubleBookedAttendees(Event event) {
+        Set<UUID> doubleBooked = new HashSet<>();
+        Set<UUID> attendees = event.getAttendeeUUIDs();
+
+        for (Event other : timeline.getOverlapping(event.getTimeRange())) {
+            if (other == event) {
+                continue;
+            }
+
+            Set<UUID> otherAttendees = other.getAttendeeUUIDs();
+
+            // Go through the smaller set
+            Set<UUID> smaller = otherAttendees.size() < attendees.size() ? otherAttendees : attendees;
+            Set<UUID> larger = smaller == attendees ? otherAttendees : attendees;
+
+            for (UUID attendeeUUID : smaller) {
+                if (larger.contains(attendeeUUID)) {
+                    doubleBooked.add(attendeeUUID);
+                }
+            }
+        }
+
+        return doubleBooked;
+    }
+}
@@ -3,9 +3,13 @@ package convention.event;
 import convention.calendar.TimeRange;
 import convention.exception.InvalidNameException;
 import convention.exception.NullEventException;
+import gateway.journal.IJournal;
+import gateway.journal.JournalOperation;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
@@ -15,6 +19,10 @@ import java.util.UUID;
  */
 public class EventManager implements Serializable {
     private Map<UUID, Event> events;
+    private EventIndex eventIndex;
+
+    private UUID conferenceUUID;
+    private transient IJournal journal;
 
     /**
      * Event Manager constructor
@@ -25,6 +33,40 @@ public class EventManager implements Serializable {
      */
     public EventManager(Map<UUID, Event> events) {
         this.events = events;
+        this.eventIndex = new EventIndex(events);
+    }
+
+    /**
+     * Creates an event manager for the events of a conference that records its mutations to a journal
+     *
+     * @param events         map of UUIDs for all events in this conference
+     * @param conferenceUUID UUID of the conference the events belong to
+     * @param journal        journal to record to, or null to not record
+     */
+    public EventManager(Map<UUID, Event> events, UUID conferenceUUID, IJournal journal) {
+        this(events, new EventIndex(events), conferenceUUID, journal);
+    }
+
+    /**
+     * Creates an event manager for the events of a conference that keeps the conference's indexes up to date and
+     * records its mutations to a journal
+     *
+     * @param events         map of UUIDs for all events in this conference
+     * @param eventIndex     indexes of the events, which must match them
+     * @param conferenceUUID UUID of the conference the events belong to
+     * @param journal        journal to record to, or null to not record
+     */
+    public EventManager(Map<UUID, Event> events, EventIndex eventIndex, UUID conferenceUUID, IJournal journal) {
+        this.events = events;
+        this.eventIndex = eventIndex;
+        this.conferenceUUID = conferenceUUID;
+        this.journal = journal;
+    }
+
+    private void record(JournalOperation operation, Object... arguments) {
+        if (journal != null) {
+            journal.record(operation, arguments);
+        }
     }
 
     /**
@@ -79,12 +121,29 @@ public class EventManager implements Serializable {
      * @return the UUID of this events
      */
     public UUID createEvent(String title, TimeRange timeRange, UUID roomUUID, Set<UUID> speakerUUIDs) {
+        return createEvent(UUID.randomUUID(), title, timeRange, roomUUID, speakerUUIDs);
+    }
+
+    /**
+     * Creates a new events with a known UUID (e.g. when replaying the journal)
+     *
+     * @param eventUUID    UUID of this events
+     * @param title        title of this events
+     * @param timeRange    TimeRange of this events
+     * @param roomUUID     room hosting this events
+     * @param speakerUUIDs speakers of this events
+     * @return the UUID of this events
+     */
+    public UUID createEvent(UUID eventUUID, String title, TimeRange timeRange, UUID roomUUID, Set<UUID> speakerUUIDs) {
         if (!validateEventTitle(title)) {
             throw new InvalidNameException();
         }
 
-        Event event = new Event(title, timeRange, roomUUID, speakerUUIDs);
+        // The speakers are copied, so the index can't be changed behind its back
+        Event event = new Event(eventUUID, title, timeRange, roomUUID, new HashSet<>(speakerUUIDs));
         events.put(event.getUUID(), event);
+        eventIndex.addEvent(event);
+        record(JournalOperation.EVENT_CREATE, conferenceUUID, eventUUID, title, timeRange.getStart(), timeRange.getEnd(), roomUUID, speakerUUIDs);
 
         return event.getUUID();
     }
@@ -99,7 +158,8 @@ public class EventManager implements Serializable {
             throw new NullEventException(eventUUID);
         }
 
-        events.remove(eventUUID);
+        eventIndex.removeEvent(events.remove(eventUUID));
+        record(JournalOperation.EVENT_DELETE, conferenceUUID, eventUUID);
     }
 
     /**
@@ -112,6 +172,60 @@ public class EventManager implements Serializable {
         return new HashSet<>(getEvent(eventUUID).getSpeakers());
     }
 
+    /**
+     * Tests if a user speaks at an events, without copying the speakers
+     *
+     * @param eventUUID   UUID of events
+     * @param speakerUUID UUID of the user
+     * @return true iff the user is a speaker of this events
+     */
+    public boolean isEventSpeaker(UUID eventUUID, UUID speakerUUID) {
+        return getEvent(eventUUID).isSpeaker(speakerUUID);
+    }
+
+    /**
+     * Tests if a speaker has an event at a time, using the speaker's events sorted by time
+     *
+     * @param speakerUUID UUID of the speaker
+     * @param timeRange   time range to test
+     * @return true iff one of the speaker's events overlaps the time range
+     */
+    public boolean isSpeakerOccupied(UUID speakerUUID, TimeRange timeRange) {
+        return eventIndex.isSpeakerOccupied(speakerUUID, timeRange);
+    }
+
+    /**
+     * Tests if a user is registered for an event at a time, using the time the user is busy with their registrations
+     *
+     * @param attendeeUUID UUID of the user
+     * @param timeRange    time range to test
+     * @return true iff one of the events the user is registered for overlaps the time range
+     */
+    public boolean isAttendeeOccupied(UUID attendeeUUID, TimeRange timeRange) {
+        return eventIndex.isAttendeeOccupied(attendeeUUID, timeRange);
+    }
+
+    /**
+     * Gets the attendees of an events who are also registered for another event at the same time (e.g. after the
+     * events was moved)
+     *
+     * @param eventUUID UUID of the events
+     * @return set of UUIDs of the double booked attendees
+     */
+    public Set<UUID> getDoubleBookedAttendees(UUID eventUUID) {
+        return eventIndex.getDoubleBookedAttendees(getEvent(eventUUID));
+    }
+
+    /**
+     * Gets the number of events a speaker speaks at, without going through the events
+     *
+     * @param speakerUUID UUID of the speaker
+     * @return number of events the speaker speaks at
+     */
+    public int getSpeakerEventCount(UUID speakerUUID) {
+        return eventIndex.getSpeakerEventCount(speakerUUID);
+    }
+
     /**
      * adds a speaker to an events
      *
@@ -119,8 +233,12 @@ public class EventManager implements Serializable {
      * @param speakerUUID UUID of speaker being added
      */
     public void addEventSpeaker(UUID eventUUID, UUID speakerUUID) {
-        if (!getEvent(eventUUID).isSpeaker(speakerUUID)) {
-            getEvent(eventUUID).addSpeaker(speakerUUID);
+        Event event = getEvent(eventUUID);
+
+        if (!event.isSpeaker(speakerUUID)) {
+            event.addSpeaker(speakerUUID);
+            eventIndex.addSpeaker(event, speakerUUID);
+            record(JournalOperation.EVENT_ADD_SPEAKER, conferenceUUID, eventUUID, speakerUUID);
         }
     }
 
@@ -131,8 +249,12 @@ public class EventManager implements Serializable {
      * @param speakerUUID UUID of speaker being removed
      */
     public void removeEventSpeaker(UUID eventUUID, UUID speakerUUID) {
-        if (getEvent(eventUUID).isSpeaker(speakerUUID)) {
-            getEvent(eventUUID).removeSpeaker(speakerUUID);
+        Event event = getEvent(eventUUID);
+
+        if (event.isSpeaker(speakerUUID)) {
+            eventIndex.removeSpeaker(event, speakerUUID);
+            event.removeSpeaker(speakerUUID);
+            record(JournalOperation.EVENT_REMOVE_SPEAKER, conferenceUUID, eventUUID, speakerUUID);
         }
     }
 
@@ -147,6 +269,7 @@ public class EventManager implements Serializable {
             throw new InvalidNameException();
         }
         getEvent(eventUUID).setTitle(eventTitle);
+        record(JournalOperation.EVENT_SET_TITLE, conferenceUUID, eventUUID, eventTitle);
     }
 
     /**
@@ -157,6 +280,7 @@ public class EventManager implements Serializable {
      */
     public void setEventRoom(UUID eventUUID, UUID roomUUID) {
         getEvent(eventUUID).setRoomUUID(roomUUID);
+        record(JournalOperation.EVENT_SET_ROOM, conferenceUUID, eventUUID, roomUUID);
     }
 
     /**
@@ -166,7 +290,12 @@ public class EventManager implements Serializable {
      * @param timeRange new TimeRange of this events
      */
     public void setEventTimeRange(UUID eventUUID, TimeRange timeRange) {
-        getEvent(eventUUID).setTimeRange(timeRange);
+        Event event = getEvent(eventUUID);
+
+        eventIndex.removeTimes(event);
+        event.setTimeRange(timeRange);
+        eventIndex.addTimes(event);
+        record(JournalOperation.EVENT_SET_TIME_RANGE, conferenceUUID, eventUUID, timeRange.getStart(), timeRange.getEnd());
     }
 
     /**
@@ -218,6 +347,28 @@ public class EventManager implements Serializable {
      */
     public void setEventConversationUUID(UUID eventUUID, UUID conversationUUID) {
         getEvent(eventUUID).setConversationUUID(conversationUUID);
+        record(JournalOperation.EVENT_SET_CONVERSATION, conferenceUUID, eventUUID, conversationUUID);
+    }
+
+    /**
+     * Gets the conversation that users promoted from the waitlist of an events are told in
+     *
+     * @param eventUUID UUID of events in question
+     * @return UUID of this event's waitlist conversation, or null if there isn't one yet
+     */
+    public UUID getEventWaitlistConversationUUID(UUID eventUUID) {
+        return getEvent(eventUUID).getWaitlistConversationUUID();
+    }
+
+    /**
+     * Change the conversation that users promoted from the waitlist of an events are told in
+     *
+     * @param eventUUID        UUID of this events
+     * @param conversationUUID UUID of new waitlist conversation
+     */
+    public void setEventWaitlistConversationUUID(UUID eventUUID, UUID conversationUUID) {
+        getEvent(eventUUID).setWaitlistConversationUUID(conversationUUID);
+        record(JournalOperation.EVENT_SET_WAITLIST_CONVERSATION, conferenceUUID, eventUUID, conversationUUID);
     }
 
     /**
@@ -230,6 +381,47 @@ public class EventManager implements Serializable {
         return new HashSet<>(getEvent(eventUUID).getAttendeeUUIDs());
     }
 
+    /**
+     * Gets the number of users registered for an events, without copying them
+     *
+     * @param eventUUID UUID of this events
+     * @return number of users registered for this events
+     */
+    public int getEventAttendeeCount(UUID eventUUID) {
+        return getEvent(eventUUID).getAttendeeUUIDs().size();
+    }
+
+    /**
+     * Gets the number of seats taken in an events
+     *
+     * @param eventUUID UUID of this events
+     * @return number of seats taken
+     */
+    public int getEventTakenSeats(UUID eventUUID) {
+        return getEvent(eventUUID).getTakenSeats();
+    }
+
+    /**
+     * Tests if a user is registered for an events, without copying the attendees
+     *
+     * @param eventUUID    UUID of this events
+     * @param attendeeUUID UUID of the user
+     * @return true iff the user is registered for this events
+     */
+    public boolean isEventAttendee(UUID eventUUID, UUID attendeeUUID) {
+        return getEvent(eventUUID).isAttendee(attendeeUUID);
+    }
+
+    /**
+     * Gets the events a user is registered for, from the index of registrations
+     *
+     * @param attendeeUUID UUID of the user
+     * @return set of UUIDs of the events the user is registered for
+     */
+    public Set<UUID> getAttendeeEvents(UUID attendeeUUID) {
+        return eventIndex.getAttendeeEvents(attendeeUUID);
+    }
+
     /**
      * registers a new attendee for this events
      *
@@ -237,7 +429,231 @@ public class EventManager implements Serializable {
      * @param attendeeUUID UUID of the user being registered
      */
     public void registerAttendee(UUID eventUUID, UUID attendeeUUID) {
-        getEvent(eventUUID).addAttendee(attendeeUUID);
+        Event event = getEvent(eventUUID);
+
+        event.addAttendee(attendeeUUID);
+        event.removeFromWaitlist(attendeeUUID);
+        eventIndex.addAttendee(event, attendeeUUID);
+        record(JournalOperation.EVENT_REGISTER_ATTENDEE, conferenceUUID, eventUUID, attendeeUUID);
+    }
+
+    /**
+     * registers a new attendee for an events if it isn't full. The seat is reserved atomically, so this can be called
+     * from many threads at once (on the same EventManager) without registering more attendees than the capacity.
+     *
+     * @param eventUUID    UUID of this events
+     * @param attendeeUUID UUID of the user being registered
+     * @param capacity     capacity of the events' room
+     * @return false iff the events is full
+     */
+    public boolean registerAttendee(UUID eventUUID, UUID attendeeUUID, int capacity) {
+        Event event = getEvent(eventUUID);
+
+        if (!event.reserveSeat(capacity)) {
+            return false;
+        }
+
+        // Registering again keeps the one seat, and there is nothing new to record
+        if (event.addReservedAttendee(attendeeUUID)) {
+            event.removeFromWaitlist(attendeeUUID);
+            eventIndex.addAttendee(event, attendeeUUID);
+            record(JournalOperation.EVENT_REGISTER_ATTENDEE, conferenceUUID, eventUUID, attendeeUUID);
+        }
+
+        return true;
+    }
+
+    /**
+     * Registers many users for an events if there are seats for all of them, or none of them. The seats are reserved
+     * in one step, so this can run alongside single registrations without overbooking.
+     *
+     * @param eventUUID     UUID of this events
+     * @param attendeeUUIDs UUIDs of the users being registered
+     * @param capacity      capacity of the events' room
+     * @return UUIDs of the users that weren't registered already, or null iff there aren't enough seats
+     */
+    public Set<UUID> registerAttendees(UUID eventUUID, Set<UUID> attendeeUUIDs, int capacity) {
+        Event event = getEvent(eventUUID);
+        Set<UUID> newAttendeeUUIDs = event.addAttendees(attendeeUUIDs, capacity);
+
+        if (newAttendeeUUIDs == null) {
+            return null;
+        }
+
+        for (UUID attendeeUUID : newAttendeeUUIDs) {
+            event.removeFromWaitlist(attendeeUUID);
+            eventIndex.addAttendee(event, attendeeUUID);
+            record(JournalOperation.EVENT_REGISTER_ATTENDEE, conferenceUUID, eventUUID, attendeeUUID);
+        }
+
+        return newAttendeeUUIDs;
+    }
+
+    /**
+     * Registers a user for many events if each of them has a seat left, or for none of them. A seat is reserved in
+     * every events before the user is added to any, and given back if one of them is full.
+     *
+     * @param attendeeUUID    UUID of the user being registered
+     * @param eventCapacities UUIDs of the events mapped to the capacities of their rooms
+     * @return UUIDs of the events the user wasn't registered for already, or null iff one of them is full
+     */
+    public Set<UUID> registerAttendeeForEvents(UUID attendeeUUID, Map<UUID, Integer> eventCapacities) {
+        List<Event> reserved = new ArrayList<>();
+
+        for (Map.Entry<UUID, Integer> entry : eventCapacities.entrySet()) {
+            Event event = getEvent(entry.getKey());
+
+            if (event.isAttendee(attendeeUUID)) {
+                continue;
+            }
+
+            if (!event.reserveSeat(entry.getValue())) {
+                for (Event reservedEvent : reserved) {
+                    reservedEvent.releaseSeat();
+                }
+
+                return null;
+            }
+
+            reserved.add(event);
+        }
+
+        Set<UUID> newEventUUIDs = new HashSet<>();
+
+        for (Event event : reserved) {
+            if (event.addReservedAttendee(attendeeUUID)) {
+                event.removeFromWaitlist(attendeeUUID);
+                eventIndex.addAttendee(event, attendeeUUID);
+                record(JournalOperation.EVENT_REGISTER_ATTENDEE, conferenceUUID, event.getUUID(), attendeeUUID);
+                newEventUUIDs.add(event.getUUID());
+            }
+        }
+
+        return newEventUUIDs;
+    }
+
+    /**
+     * Holds a seat in an events for a user who hasn't confirmed yet. Holds are not recorded, they only last until the
+     * program stops.
+     *
+     * @param eventUUID UUID of this events
+     * @param capacity  capacity of the events' room
+     * @return false iff the events is full
+     */
+    public boolean holdSeat(UUID eventUUID, int capacity) {
+        return getEvent(eventUUID).holdSeat(capacity);
+    }
+
+    /**
+     * Gives back a seat held in an events
+     *
+     * @param eventUUID UUID of this events
+     */
+    public void releaseHeldSeat(UUID eventUUID) {
+        getEvent(eventUUID).releaseHeldSeat();
+    }
+
+    /**
+     * Registers a user in a seat that was held for them
+     *
+     * @param eventUUID    UUID of this events
+     * @param attendeeUUID UUID of the user being registered
+     * @param capacity     capacity of the events' room, used if the hold was lost
+     * @return false iff the hold was lost and the events is full
+     */
+    public boolean registerHeldAttendee(UUID eventUUID, UUID attendeeUUID, int capacity) {
+        Event event = getEvent(eventUUID);
+
+        if (!event.addHeldAttendee(attendeeUUID, capacity)) {
+            return false;
+        }
+
+        event.removeFromWaitlist(attendeeUUID);
+        eventIndex.addAttendee(event, attendeeUUID);
+        record(JournalOperation.EVENT_REGISTER_ATTENDEE, conferenceUUID, eventUUID, attendeeUUID);
+        return true;
+    }
+
+    /**
+     * Gets the number of seats held in an events for users who haven't confirmed yet
+     *
+     * @param eventUUID UUID of this events
+     * @return number of held seats
+     */
+    public int getEventHeldSeats(UUID eventUUID) {
+        return getEvent(eventUUID).getHeldSeats();
+    }
+
+    /**
+     * Puts a user at the end of the waitlist of an events
+     *
+     * @param eventUUID UUID of this events
+     * @param userUUID  UUID of the user
+     * @return true iff the user wasn't registered or waiting already
+     */
+    public boolean joinWaitlist(UUID eventUUID, UUID userUUID) {
+        if (!getEvent(eventUUID).addToWaitlist(userUUID)) {
+            return false;
+        }
+
+        record(JournalOperation.EVENT_JOIN_WAITLIST, conferenceUUID, eventUUID, userUUID);
+        return true;
+    }
+
+    /**
+     * Takes a user off the waitlist of an events
+     *
+     * @param eventUUID UUID of this events
+     * @param userUUID  UUID of the user
+     */
+    public void leaveWaitlist(UUID eventUUID, UUID userUUID) {
+        if (getEvent(eventUUID).removeFromWaitlist(userUUID)) {
+            record(JournalOperation.EVENT_LEAVE_WAITLIST, conferenceUUID, eventUUID, userUUID);
+        }
+    }
+
+    /**
+     * Checks if a user is waiting for a seat in an events
+     *
+     * @param eventUUID UUID of this events
+     * @param userUUID  UUID of the user
+     * @return true iff the user is on the waitlist
+     */
+    public boolean isWaitlisted(UUID eventUUID, UUID userUUID) {
+        return getEvent(eventUUID).isWaitlisted(userUUID);
+    }
+
+    /**
+     * Gets the users waiting for a seat in an events
+     *
+     * @param eventUUID UUID of this events
+     * @return UUIDs of the waiting users, first in line first
+     */
+    public List<UUID> getEventWaitlist(UUID eventUUID) {
+        return getEvent(eventUUID).getWaitlist();
+    }
+
+    /**
+     * Registers the first user on the waitlist of an events if a seat is free. It is recorded as a normal
+     * registration, which also takes the user off the waitlist when it is replayed.
+     *
+     * @param eventUUID                UUID of this events
+     * @param capacity                 capacity of the events' room
+     * @param preventScheduleConflicts if true, users registered for another event at the same time are passed over
+     *                                 and keep their place in line
+     * @return UUID of the registered user, or null if the events is full or nobody who can be registered is waiting
+     */
+    public UUID promoteFromWaitlist(UUID eventUUID, int capacity, boolean preventScheduleConflicts) {
+        Event event = getEvent(eventUUID);
+        TimeRange timeRange = event.getTimeRange();
+        UUID attendeeUUID = event.promoteFromWaitlist(capacity, userUUID -> !preventScheduleConflicts || !eventIndex.isAttendeeOccupied(userUUID, timeRange));
+
+        if (attendeeUUID != null) {
+            eventIndex.addAttendee(event, attendeeUUID);
+            record(JournalOperation.EVENT_REGISTER_ATTENDEE, conferenceUUID, eventUUID, attendeeUUID);
+        }
+
+        return attendeeUUID;
     }
 
     /**
@@ -247,7 +663,11 @@ public class EventManager implements Serializable {
      * @param attendeeUUID UUID of user being removed
      */
     public void unregisterAttendee(UUID eventUUID, UUID attendeeUUID) {
-        getEvent(eventUUID).removeAttendee(attendeeUUID);
+        Event event = getEvent(eventUUID);
+
+        event.removeAttendee(attendeeUUID);
+        eventIndex.removeAttendee(event, attendeeUUID);
+        record(JournalOperation.EVENT_UNREGISTER_ATTENDEE, conferenceUUID, eventUUID, attendeeUUID);
     }
 
 }
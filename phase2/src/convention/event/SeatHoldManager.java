@@ -0,0 +1,160 @@
+package convention.event;
+
+import util.TimerWheel;
+
+import java.util.*;
+
+/**
+ * Keeps track of seats held in events for users who haven't confirmed yet, and when the holds expire. Expiry times are
+ * kept in a hashed timer wheel, so tracking a hold costs a map entry and a wheel node, and finding the expired holds
+ * only looks at the holds that expire in the ticks that passed, not at every hold or event.
+ * <p>
+ * Holds only last minutes, so they are kept in memory and never written to disk. The seats themselves are taken from
+ * the events (see EventManager.holdSeat).
+ */
+public class SeatHoldManager {
+    /**
+     * A seat held in an events for a user
+     */
+    public static class SeatHold {
+        private final UUID holdUUID = UUID.randomUUID();
+        private final UUID conferenceUUID;
+        private final UUID eventUUID;
+        private final UUID userUUID;
+        private TimerWheel.Timeout<SeatHold> timeout;
+
+        private SeatHold(UUID conferenceUUID, UUID eventUUID, UUID userUUID) {
+            this.conferenceUUID = conferenceUUID;
+            this.eventUUID = eventUUID;
+            this.userUUID = userUUID;
+        }
+
+        public UUID getHoldUUID() {
+            return holdUUID;
+        }
+
+        public UUID getConferenceUUID() {
+            return conferenceUUID;
+        }
+
+        public UUID getEventUUID() {
+            return eventUUID;
+        }
+
+        public UUID getUserUUID() {
+            return userUUID;
+        }
+    }
+
+    // One second ticks, a turn of the wheel is a little over 17 minutes
+    private static final long TICK_MILLIS = 1000;
+    private static final int WHEEL_SIZE = 1024;
+
+    private final Map<UUID, SeatHold> holds = new HashMap<>();
+    // Event UUID -> users holding a seat in it, so a user can only hold one seat per events
+    private final Map<UUID, Set<UUID>> eventHolders = new HashMap<>();
+    private final TimerWheel<SeatHold> timerWheel;
+
+    /**
+     * Creates an empty seat hold manager
+     *
+     * @param nowMillis current time in milliseconds
+     */
+    public SeatHoldManager(long nowMillis) {
+        timerWheel = new TimerWheel<>(TICK_MILLIS, WHEEL_SIZE, nowMillis);
+    }
+
+    /**
+     * Starts tracking a held seat. The seat must already be taken from the events.
+     *
+     * @param conferenceUUID UUID of the conference of the events
+     * @param eventUUID      UUID of the events
+     * @param userUUID       UUID of the user the seat is held for
+     * @param expiryMillis   time the hold expires at in milliseconds
+     * @return the new hold, or null if the user already holds a seat in the events
+     */
+    public synchronized SeatHold addHold(UUID conferenceUUID, UUID eventUUID, UUID userUUID, long expiryMillis) {
+        if (!eventHolders.computeIfAbsent(eventUUID, k -> new HashSet<>()).add(userUUID)) {
+            return null;
+        }
+
+        SeatHold hold = new SeatHold(conferenceUUID, eventUUID, userUUID);
+        hold.timeout = timerWheel.schedule(hold, expiryMillis);
+        holds.put(hold.holdUUID, hold);
+
+        return hold;
+    }
+
+    /**
+     * Stops tracking a hold, e.g. because it was confirmed or given up
+     *
+     * @param holdUUID UUID of the hold
+     * @return the hold, or null if it doesn't exist (e.g. because it expired)
+     */
+    public synchronized SeatHold removeHold(UUID holdUUID) {
+        SeatHold hold = holds.remove(holdUUID);
+
+        if (hold != null) {
+            timerWheel.cancel(hold.timeout);
+            removeHolder(hold);
+        }
+
+        return hold;
+    }
+
+    /**
+     * Tests if a user holds a seat in an events
+     *
+     * @param eventUUID UUID of the events
+     * @param userUUID  UUID of the user
+     * @return true iff the user holds a seat that hasn't expired yet
+     */
+    public synchronized boolean hasHold(UUID eventUUID, UUID userUUID) {
+        Set<UUID> holders = eventHolders.get(eventUUID);
+        return holders != null && holders.contains(userUUID);
+    }
+
+    /**
+     * Gets a hold
+     *
+     * @param holdUUID UUID of the hold
+     * @return the hold, or null if it doesn't exist (e.g. because it expired)
+     */
+    public synchronized SeatHold getHold(UUID holdUUID) {
+        return holds.get(holdUUID);
+    }
+
+    /**
+     * Stops tracking every hold that has expired. Their seats must be given back to the events by the caller.
+     *
+     * @param nowMillis current time in milliseconds
+     * @return the expired holds, in no particular order
+     */
+    public synchronized List<SeatHold> removeExpiredHolds(long nowMillis) {
+        List<SeatHold> expired = new ArrayList<>();
+
+        timerWheel.advance(nowMillis, hold -> {
+            holds.remove(hold.holdUUID);
+            removeHolder(hold);
+            expired.add(hold);
+        });
+
+        return expired;
+    }
+
+    private void removeHolder(SeatHold hold) {
+        Set<UUID> holders = eventHolders.get(hold.eventUUID);
+        holders.remove(hold.userUUID);
+
+        if (holders.isEmpty()) {
+            eventHolders.remove(hold.eventUUID);
+        }
+    }
+
+    /**
+     * @return number of holds that haven't expired yet
+     */
+    public synchronized int getHoldCount() {
+        return holds.size();
+    }
+}
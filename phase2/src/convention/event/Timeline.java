@@ -0,0 +1,129 @@
+package convention.event;
+
+import convention.calendar.TimeRange;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Events sorted by start time, which may overlap each other. Next to the events, the time they cover is kept as
+ * disjoint busy blocks (overlapping or touching events are merged into one block), so testing if a time range is free
+ * only looks at the last block starting before it ends.
+ * <p>
+ * Like TimeRange.hasOverlap, touching time ranges count as overlapping.
+ */
+class Timeline {
+    // Start time -> events starting then
+    private final TreeMap<LocalDateTime, List<Event>> starts = new TreeMap<>();
+    // Start -> end of the busy blocks, which never overlap or touch each other
+    private final TreeMap<LocalDateTime, LocalDateTime> blocks = new TreeMap<>();
+    // Longest event ever added, bounds how far back an event overlapping a time range can start
+    private Duration longest = Duration.ZERO;
+
+    void add(Event event) {
+        TimeRange timeRange = event.getTimeRange();
+        starts.computeIfAbsent(timeRange.getStart(), k -> new ArrayList<>(1)).add(event);
+
+        Duration duration = Duration.between(timeRange.getStart(), timeRange.getEnd());
+        if (duration.compareTo(longest) > 0) {
+            longest = duration;
+        }
+
+        // Merge the blocks the event overlaps into one
+        LocalDateTime start = timeRange.getStart();
+        LocalDateTime end = timeRange.getEnd();
+        Map.Entry<LocalDateTime, LocalDateTime> block = blocks.floorEntry(end);
+
+        while (block != null && !block.getValue().isBefore(start)) {
+            if (block.getKey().isBefore(start)) {
+                start = block.getKey();
+            }
+
+            if (block.getValue().isAfter(end)) {
+                end = block.getValue();
+            }
+
+            blocks.remove(block.getKey());
+            block = blocks.floorEntry(end);
+        }
+
+        blocks.put(start, end);
+    }
+
+    void remove(Event event) {
+        TimeRange timeRange = event.getTimeRange();
+        List<Event> events = starts.get(timeRange.getStart());
+
+        if (events == null || !events.remove(event)) {
+            return;
+        }
+
+        if (events.isEmpty()) {
+            starts.remove(timeRange.getStart());
+        }
+
+        // Rebuild the block the event was in from the events left in it
+        Map.Entry<LocalDateTime, LocalDateTime> block = blocks.floorEntry(timeRange.getStart());
+        blocks.remove(block.getKey());
+
+        LocalDateTime start = null;
+        LocalDateTime end = null;
+
+        for (List<Event> startingEvents : starts.subMap(block.getKey(), true, block.getValue(), true).values()) {
+            for (Event other : startingEvents) {
+                TimeRange otherTimeRange = other.getTimeRange();
+
+                if (start != null && otherTimeRange.getStart().isAfter(end)) {
+                    blocks.put(start, end);
+                    start = null;
+                }
+
+                if (start == null) {
+                    start = otherTimeRange.getStart();
+                    end = otherTimeRange.getEnd();
+                } else if (otherTimeRange.getEnd().isAfter(end)) {
+                    end = otherTimeRange.getEnd();
+                }
+            }
+        }
+
+        if (start != null) {
+            blocks.put(start, end);
+        }
+    }
+
+    /**
+     * @param timeRange time range to test
+     * @return true iff an event overlaps the time range
+     */
+    boolean overlaps(TimeRange timeRange) {
+        Map.Entry<LocalDateTime, LocalDateTime> block = blocks.floorEntry(timeRange.getEnd());
+        return block != null && !block.getValue().isBefore(timeRange.getStart());
+    }
+
+    /**
+     * Goes through the events that could overlap a time range in order of their start time
+     *
+     * @param timeRange time range to test
+     * @return events overlapping the time range
+     */
+    List<Event> getOverlapping(TimeRange timeRange) {
+        List<Event> overlapping = new ArrayList<>();
+        LocalDateTime from = timeRange.getStart().minus(longest);
+
+        for (List<Event> events : starts.subMap(from, true, timeRange.getEnd(), true).values()) {
+            for (Event event : events) {
+                if (event.getTimeRange().hasOverlap(timeRange)) {
+                    overlapping.add(event);
+                }
+            }
+        }
+
+        return overlapping;
+    }
+
+    boolean isEmpty() {
+        return starts.isEmpty();
+    }
+}
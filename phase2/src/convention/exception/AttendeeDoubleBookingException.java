@@ -0,0 +1,14 @@
+package convention.exception;
+
+import convention.calendar.TimeRange;
+
+import java.util.UUID;
+
+/**
+ * Thrown when an attendee registers for an event at the same time as another event they are registered for
+ */
+public class AttendeeDoubleBookingException extends RuntimeException {
+    public AttendeeDoubleBookingException(UUID attendeeUUID, TimeRange timeRange) {
+        super(String.format("Attendee %s is already registered for another event at the given time (%s).", attendeeUUID, timeRange));
+    }
+}
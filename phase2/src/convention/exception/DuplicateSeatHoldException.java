@@ -0,0 +1,12 @@
+package convention.exception;
+
+import java.util.UUID;
+
+/**
+ * Thrown when a seat is held for a user who is already registered for the events or already holds a seat in it
+ */
+public class DuplicateSeatHoldException extends RuntimeException {
+    public DuplicateSeatHoldException(UUID userUUID, UUID eventUUID) {
+        super(String.format("User %s is already registered for or holding a seat in events %s", userUUID, eventUUID));
+    }
+}
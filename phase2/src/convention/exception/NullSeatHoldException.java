@@ -0,0 +1,12 @@
+package convention.exception;
+
+import java.util.UUID;
+
+/**
+ * Thrown when a seat hold doesn't exist, e.g. because it expired
+ */
+public class NullSeatHoldException extends RuntimeException {
+    public NullSeatHoldException(UUID holdUUID) {
+        super(String.format("Seat hold %s does not exist or has expired", holdUUID));
+    }
+}
@@ -0,0 +1,25 @@
+package convention.exception;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Thrown when a conference program can't be imported. Lists every problem in the program, not just the first one.
+ */
+public class ProgramImportException extends RuntimeException {
+    private final List<String> problems;
+
+    public ProgramImportException(List<String> problems) {
+        super(String.format("The program has %d problem(s):\n%s", problems.size(), String.join("\n", problems)));
+        this.problems = new ArrayList<>(problems);
+    }
+
+    /**
+     * Gets every problem in the program
+     *
+     * @return list of problem descriptions, in the order they were found
+     */
+    public List<String> getProblems() {
+        return new ArrayList<>(problems);
+    }
+}
@@ -4,17 +4,67 @@ import convention.conference.ConferenceManager;
 import convention.exception.PermissionException;
 import user.UserManager;
 
-import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * Provides tests for conferences to determine the role of a particular user. Denies execution of an operation
  * if the user has insufficient permissions.
+ * <p>
+ * Roles are cached as a bitmask per conference and user, so each test is answered by one lookup instead of testing
+ * every role (and god mode) again. The cache is thrown away when the organizers, speakers or attendees of a conference
+ * change, or when a god user is added.
  */
 public class PermissionManager {
+    /**
+     * Conference and user a bitmask of roles is cached for
+     */
+    private static final class RoleKey {
+        private final UUID conferenceUUID;
+        private final UUID userUUID;
+
+        private RoleKey(UUID conferenceUUID, UUID userUUID) {
+            this.conferenceUUID = conferenceUUID;
+            this.userUUID = userUUID;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof RoleKey)) {
+                return false;
+            }
+
+            RoleKey otherKey = (RoleKey) other;
+            return conferenceUUID.equals(otherKey.conferenceUUID) && userUUID.equals(otherKey.userUUID);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * conferenceUUID.hashCode() + userUUID.hashCode();
+        }
+    }
+
+    /**
+     * Roles looked up at one version of the conferences' roles and of god mode
+     */
+    private static final class RoleCache {
+        private final long roleVersion;
+        private final long godVersion;
+        private final Map<RoleKey, Integer> roles = new ConcurrentHashMap<>();
+
+        private RoleCache(long roleVersion, long godVersion) {
+            this.roleVersion = roleVersion;
+            this.godVersion = godVersion;
+        }
+    }
+
+    private static final int ATTENDEE_ROLE = 1;
+    private static final int SPEAKER_ROLE = 1 << 1;
+    private static final int ORGANIZER_ROLE = 1 << 2;
 
     Logger LOGGER = Logger.getLogger(Logger.GLOBAL_LOGGER_NAME);
     ConferenceManager conferenceManager;
@@ -25,6 +75,8 @@ public class PermissionManager {
     private final String ATTENDEE = "ATTENDEE";
     private final String SELF_OR_ORGANIZER = "ATTENDEE (SELF) OR ORGANIZER";
 
+    private volatile RoleCache roleCache = new RoleCache(-1, -1);
+
     /**
      * Constructor for the PermissionManager
      *
@@ -68,7 +120,7 @@ public class PermissionManager {
      * @param executorUUID   UUID of the user running the command
      */
     public void testIsOrganizer(UUID conferenceUUID, UUID executorUUID) {
-        if (!conferenceManager.isOrganizer(conferenceUUID, executorUUID, userManager)) {
+        if (!hasRole(conferenceUUID, executorUUID, ORGANIZER_ROLE)) {
             String errorMessage = generateExecutorAccessDeniedError(conferenceUUID, executorUUID, ORGANIZER);
 
             LOGGER.log(Level.SEVERE, errorMessage);
@@ -84,7 +136,7 @@ public class PermissionManager {
      */
     public void testIsSpeaker(UUID conferenceUUID, UUID executorUUID) {
         // Organizers can perform speaker actions too
-        if (!conferenceManager.isSpeaker(conferenceUUID, executorUUID) && !conferenceManager.isOrganizer(conferenceUUID, executorUUID, userManager)) {
+        if (!hasRole(conferenceUUID, executorUUID, SPEAKER_ROLE | ORGANIZER_ROLE)) {
             String errorMessage = generateExecutorAccessDeniedError(conferenceUUID, executorUUID, SPEAKER);
 
             LOGGER.log(Level.SEVERE, errorMessage);
@@ -100,7 +152,7 @@ public class PermissionManager {
      */
     public void testIsAttendee(UUID conferenceUUID, UUID executorUUID) {
         // Organizers can perform speaker actions too
-        if (!conferenceManager.isAttendee(conferenceUUID, executorUUID) && !conferenceManager.isSpeaker(conferenceUUID, executorUUID) && !conferenceManager.isOrganizer(conferenceUUID, executorUUID, userManager)) {
+        if (!hasRole(conferenceUUID, executorUUID, ATTENDEE_ROLE | SPEAKER_ROLE | ORGANIZER_ROLE)) {
             String errorMessage = generateExecutorAccessDeniedError(conferenceUUID, executorUUID, ATTENDEE);
 
             LOGGER.log(Level.SEVERE, errorMessage);
@@ -116,11 +168,14 @@ public class PermissionManager {
      * @param targetUserUUID UUID of the user the command is operating on
      */
     public void testTargetIsAttendee(UUID conferenceUUID, UUID executorUUID, UUID targetUserUUID) {
-        testTargetsAreAttendee(conferenceUUID, executorUUID, new HashSet<UUID>() {
-            {
-                add(targetUserUUID);
-            }
-        });
+        try {
+            testIsAttendee(conferenceUUID, targetUserUUID);
+        } catch (PermissionException e) {
+            String errorMessage = generateTargetAccessDeniedError(conferenceUUID, executorUUID, targetUserUUID, ATTENDEE);
+
+            LOGGER.log(Level.SEVERE, errorMessage);
+            throw new PermissionException(errorMessage);
+        }
     }
 
     /**
@@ -135,10 +190,21 @@ public class PermissionManager {
      * @param targetUserUUIDs set of UUIDs of the user the command is operating on
      */
     public void testTargetsAreAttendee(UUID conferenceUUID, UUID executorUUID, Set<UUID> targetUserUUIDs) {
+        if (targetUserUUIDs.size() == 1) {
+            testTargetIsAttendee(conferenceUUID, executorUUID, targetUserUUIDs.iterator().next());
+            return;
+        }
+
+        // Look up the roles of the conference once, instead of once per target
+        Set<UUID> attendeeUUIDs = conferenceManager.getAttendees(conferenceUUID);
+        Set<UUID> speakerUUIDs = conferenceManager.getSpeakers(conferenceUUID);
+        Set<UUID> organizerUUIDs = conferenceManager.getOrganizers(conferenceUUID);
+
         for (UUID targetUserUUID : targetUserUUIDs) {
-            try {
-                testIsAttendee(conferenceUUID, targetUserUUID);
-            } catch (PermissionException e) {
+            boolean affiliated = attendeeUUIDs.contains(targetUserUUID) || speakerUUIDs.contains(targetUserUUID) ||
+                    organizerUUIDs.contains(targetUserUUID) || (userManager.isUser(targetUserUUID) && userManager.getUserIsGod(targetUserUUID));
+
+            if (!affiliated) {
                 String errorMessage = generateTargetAccessDeniedError(conferenceUUID, executorUUID, targetUserUUID, ATTENDEE);
 
                 LOGGER.log(Level.SEVERE, errorMessage);
@@ -163,7 +229,7 @@ public class PermissionManager {
         if (executorUUID.equals(targetUserUUID)) {
             // If the executor is the target, then we can treat this as a normal attendee operation
             testIsAttendee(conferenceUUID, targetUserUUID);
-        } else if (conferenceManager.isOrganizer(conferenceUUID, executorUUID, userManager)) {
+        } else if (hasRole(conferenceUUID, executorUUID, ORGANIZER_ROLE)) {
             // If the executor is an organizer, still need to check that the target is actually an attendee
             testTargetIsAttendee(conferenceUUID, executorUUID, targetUserUUID);
         } else {
@@ -174,4 +240,108 @@ public class PermissionManager {
             throw new PermissionException(errorMessage);
         }
     }
+
+    /**
+     * Validates that a set of users are executing operations on themselves, or an admin is executing those commands on
+     * their behalf. The same as testIsAttendeeSelfOrAdmin on each user, but the executor is only tested once.
+     *
+     * @param conferenceUUID  UUID of the conference to operate on
+     * @param executorUUID    UUID of the user running the command
+     * @param targetUserUUIDs set of UUIDs of the users the command is operating on
+     */
+    public void testAreAttendeesSelfOrAdmin(UUID conferenceUUID, UUID executorUUID, Set<UUID> targetUserUUIDs) {
+        if (targetUserUUIDs.size() == 1) {
+            testIsAttendeeSelfOrAdmin(conferenceUUID, executorUUID, targetUserUUIDs.iterator().next());
+        } else if (hasRole(conferenceUUID, executorUUID, ORGANIZER_ROLE)) {
+            testTargetsAreAttendee(conferenceUUID, executorUUID, targetUserUUIDs);
+        } else if (!targetUserUUIDs.isEmpty()) {
+            String errorMessage = generateExecutorAccessDeniedError(conferenceUUID, executorUUID, SELF_OR_ORGANIZER);
+
+            LOGGER.log(Level.SEVERE, errorMessage);
+            throw new PermissionException(errorMessage);
+        }
+    }
+
+    /**
+     * Tests if a user is an organizer of a conference (or has god mode), from the cached roles
+     *
+     * @param conferenceUUID UUID of the conference to operate on
+     * @param userUUID       UUID of the user to test
+     * @return true iff the user is an organizer
+     */
+    public boolean isOrganizer(UUID conferenceUUID, UUID userUUID) {
+        return hasRole(conferenceUUID, userUUID, ORGANIZER_ROLE);
+    }
+
+    /**
+     * Tests if a user is a speaker of a conference, from the cached roles
+     *
+     * @param conferenceUUID UUID of the conference to operate on
+     * @param userUUID       UUID of the user to test
+     * @return true iff the user is a speaker
+     */
+    public boolean isSpeaker(UUID conferenceUUID, UUID userUUID) {
+        return hasRole(conferenceUUID, userUUID, SPEAKER_ROLE);
+    }
+
+    /**
+     * Tests if a user is an attendee of a conference, from the cached roles
+     *
+     * @param conferenceUUID UUID of the conference to operate on
+     * @param userUUID       UUID of the user to test
+     * @return true iff the user is an attendee
+     */
+    public boolean isAttendee(UUID conferenceUUID, UUID userUUID) {
+        return hasRole(conferenceUUID, userUUID, ATTENDEE_ROLE);
+    }
+
+    /**
+     * Tests if a user has at least one of a set of roles in a conference, from the cache if the roles haven't changed
+     * since they were looked up
+     *
+     * @param conferenceUUID UUID of the conference to operate on
+     * @param userUUID       UUID of the user to test
+     * @param roles          bitmask of the roles to test for
+     * @return true iff the user has one of the roles
+     */
+    private boolean hasRole(UUID conferenceUUID, UUID userUUID, int roles) {
+        // Read the versions before the roles, so roles that change while they are looked up are never kept as current
+        long roleVersion = conferenceManager.getRoleVersion();
+        long godVersion = userManager.getGodVersion();
+
+        RoleCache cache = roleCache;
+
+        if (cache.roleVersion != roleVersion || cache.godVersion != godVersion) {
+            cache = new RoleCache(roleVersion, godVersion);
+            roleCache = cache;
+        }
+
+        RoleKey key = new RoleKey(conferenceUUID, userUUID);
+        Integer userRoles = cache.roles.get(key);
+
+        if (userRoles == null) {
+            userRoles = lookUpRoles(conferenceUUID, userUUID);
+            cache.roles.put(key, userRoles);
+        }
+
+        return (userRoles & roles) != 0;
+    }
+
+    private int lookUpRoles(UUID conferenceUUID, UUID userUUID) {
+        int roles = 0;
+
+        if (conferenceManager.isAttendee(conferenceUUID, userUUID)) {
+            roles |= ATTENDEE_ROLE;
+        }
+
+        if (conferenceManager.isSpeaker(conferenceUUID, userUUID)) {
+            roles |= SPEAKER_ROLE;
+        }
+
+        if (conferenceManager.isOrganizer(conferenceUUID, userUUID, userManager)) {
+            roles |= ORGANIZER_ROLE;
+        }
+
+        return roles;
+    }
 }
@@ -1,14 +1,20 @@
 package convention.room;
 
 import convention.calendar.Calendar;
+import util.BinaryIO;
 
-import java.io.Serializable;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
 import java.util.UUID;
 
 /**
  * Room entity
  */
-public class Room implements Serializable {
+public class Room implements Externalizable {
+    private static final long serialVersionUID = 1L;
+    private static final int VERSION = 1;
 
     //unique ID for the room
     private UUID roomUUID;
@@ -19,6 +25,12 @@ public class Room implements Serializable {
     //location as a string
     private String roomLocation;
 
+    /**
+     * Empty constructor, only for deserialization
+     */
+    public Room() {
+    }
+
     /**
      * Room constructor.
      *
@@ -26,7 +38,18 @@ public class Room implements Serializable {
      * @param capacity     capacity of this room
      */
     public Room(String roomLocation, int capacity) {
-        this.roomUUID = UUID.randomUUID();
+        this(UUID.randomUUID(), roomLocation, capacity);
+    }
+
+    /**
+     * Room constructor with a known UUID (e.g. when replaying the journal)
+     *
+     * @param roomUUID     UUID of the room
+     * @param roomLocation Location of the room in predefined format
+     * @param capacity     capacity of this room
+     */
+    public Room(UUID roomUUID, String roomLocation, int capacity) {
+        this.roomUUID = roomUUID;
         this.capacity = capacity;
         this.roomLocation = roomLocation;
         this.calendar = new Calendar();
@@ -85,4 +108,23 @@ public class Room implements Serializable {
     public void setRoomLocation(String newLocation) {
         this.roomLocation = newLocation;
     }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        out.writeByte(VERSION);
+        BinaryIO.writeUUID(out, roomUUID);
+        out.writeInt(capacity);
+        BinaryIO.writeString(out, roomLocation);
+        calendar.writeExternal(out);
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException {
+        BinaryIO.readVersion(in, VERSION, Room.class);
+        roomUUID = BinaryIO.readUUID(in);
+        capacity = in.readInt();
+        roomLocation = BinaryIO.readString(in);
+        calendar = new Calendar();
+        calendar.readExternal(in);
+    }
 }
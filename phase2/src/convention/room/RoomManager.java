@@ -1,9 +1,13 @@
 package convention.room;
 
 import convention.calendar.CalendarManager;
+import convention.calendar.SlotBitmap;
+import convention.calendar.TimeRange;
 import convention.exception.InvalidCapacityException;
 import convention.exception.InvalidNameException;
 import convention.exception.NullRoomException;
+import gateway.journal.IJournal;
+import gateway.journal.JournalOperation;
 
 import java.io.Serializable;
 import java.util.HashSet;
@@ -18,6 +22,9 @@ public class RoomManager implements Serializable {
 
     private Map<UUID, Room> rooms;
 
+    private UUID conferenceUUID;
+    private transient IJournal journal;
+
     /**
      * Room Locations must be non-empty; this method tests for that condition
      *
@@ -42,6 +49,25 @@ public class RoomManager implements Serializable {
         this.rooms = rooms;
     }
 
+    /**
+     * Creates a room manager for the rooms of a conference that records its mutations to a journal
+     *
+     * @param rooms          map of UUIDs for all rooms in this conference
+     * @param conferenceUUID UUID of the conference the rooms belong to
+     * @param journal        journal to record to, or null to not record
+     */
+    public RoomManager(Map<UUID, Room> rooms, UUID conferenceUUID, IJournal journal) {
+        this.rooms = rooms;
+        this.conferenceUUID = conferenceUUID;
+        this.journal = journal;
+    }
+
+    private void record(JournalOperation operation, Object... arguments) {
+        if (journal != null) {
+            journal.record(operation, arguments);
+        }
+    }
+
     /**
      * Gets a set of all the Room UUIDs in the system.
      *
@@ -58,7 +84,28 @@ public class RoomManager implements Serializable {
      * @return the CalendarManager associated with this room
      */
     public CalendarManager getCalendarManager(UUID roomUUID) {
-        return new CalendarManager(getRoom(roomUUID).getCalendar());
+        return new CalendarManager(getRoom(roomUUID).getCalendar(), conferenceUUID, roomUUID, journal);
+    }
+
+    /**
+     * Finds the rooms that are big enough and free during a time window. The window's slots are computed once, so each
+     * room is mostly tested with a few word operations on its calendar's slot bitmap.
+     *
+     * @param window          time window the rooms must be free for
+     * @param minimumCapacity smallest capacity a room may have
+     * @return set of UUIDs of the matching rooms
+     */
+    public Set<UUID> getAvailableRooms(TimeRange window, int minimumCapacity) {
+        SlotBitmap windowSlots = SlotBitmap.of(window);
+        Set<UUID> availableRoomUUIDs = new HashSet<>();
+
+        for (Room room : rooms.values()) {
+            if (room.getCapacity() >= minimumCapacity && !new CalendarManager(room.getCalendar()).timeRangeOccupied(window, windowSlots)) {
+                availableRoomUUIDs.add(room.getUUID());
+            }
+        }
+
+        return availableRoomUUIDs;
     }
 
     /**
@@ -86,14 +133,27 @@ public class RoomManager implements Serializable {
      * @return the UUID of the newly created Room
      */
     public UUID createRoom(String roomLocation, int roomCapacity) {
+        return createRoom(UUID.randomUUID(), roomLocation, roomCapacity);
+    }
+
+    /**
+     * Creates a Room with a known UUID (e.g. when replaying the journal)
+     *
+     * @param roomUUID     the UUID of the new Room
+     * @param roomLocation the provided location for the new Room
+     * @param roomCapacity the provided capacity for the new Room
+     * @return the UUID of the newly created Room
+     */
+    public UUID createRoom(UUID roomUUID, String roomLocation, int roomCapacity) {
         if (!validateRoomLocation(roomLocation)) {
             throw new InvalidNameException();
         }
         if (!validateRoomCapacity(roomCapacity)) {
             throw new InvalidCapacityException();
         }
-        Room room = new Room(roomLocation, roomCapacity);// make the room here and stuff
+        Room room = new Room(roomUUID, roomLocation, roomCapacity);// make the room here and stuff
         rooms.put(room.getUUID(), room);
+        record(JournalOperation.ROOM_CREATE, conferenceUUID, roomUUID, roomLocation, roomCapacity);
 
         return room.getUUID();
     }
@@ -113,6 +173,7 @@ public class RoomManager implements Serializable {
         }
 
         getRoom(roomUUID).setRoomLocation(roomLocation);
+        record(JournalOperation.ROOM_SET_LOCATION, conferenceUUID, roomUUID, roomLocation);
     }
 
     /**
@@ -130,6 +191,7 @@ public class RoomManager implements Serializable {
         }
 
         getRoom(roomUUID).setCapacity(capacity);
+        record(JournalOperation.ROOM_SET_CAPACITY, conferenceUUID, roomUUID, capacity);
     }
 
     /**
@@ -143,6 +205,7 @@ public class RoomManager implements Serializable {
         }
 
         rooms.remove(roomUUID);
+        record(JournalOperation.ROOM_DELETE, conferenceUUID, roomUUID);
     }
 
     /**
@@ -0,0 +1,68 @@
+package convention.schedule;
+
+import convention.calendar.TimeRange;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Rooms and times found by the schedule solver. Events that couldn't be placed anywhere are listed separately.
+ */
+public class ScheduleSolution {
+    /**
+     * An event placed in a room at a time
+     */
+    public static class Placement {
+        private final UnplacedEvent event;
+        private final UUID roomUUID;
+        private final TimeRange timeRange;
+
+        Placement(UnplacedEvent event, UUID roomUUID, TimeRange timeRange) {
+            this.event = event;
+            this.roomUUID = roomUUID;
+            this.timeRange = timeRange;
+        }
+
+        public UnplacedEvent getEvent() {
+            return event;
+        }
+
+        public UUID getRoomUUID() {
+            return roomUUID;
+        }
+
+        public TimeRange getTimeRange() {
+            return timeRange;
+        }
+    }
+
+    private final List<Placement> placements;
+    private final List<UnplacedEvent> unplacedEvents;
+
+    ScheduleSolution(List<Placement> placements, List<UnplacedEvent> unplacedEvents) {
+        this.placements = Collections.unmodifiableList(placements);
+        this.unplacedEvents = Collections.unmodifiableList(unplacedEvents);
+    }
+
+    /**
+     * @return placed events, in the order they were given to the solver
+     */
+    public List<Placement> getPlacements() {
+        return placements;
+    }
+
+    /**
+     * @return events that couldn't be placed, in the order they were given to the solver
+     */
+    public List<UnplacedEvent> getUnplacedEvents() {
+        return unplacedEvents;
+    }
+
+    /**
+     * @return true iff every event was placed
+     */
+    public boolean isComplete() {
+        return unplacedEvents.isEmpty();
+    }
+}
@@ -0,0 +1,585 @@
+package convention.schedule;
+
+import convention.calendar.TimeRange;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Places the events of a program in rooms, so that no room or speaker is double booked and every event fits in its
+ * room. Rooms and speakers may already have bookings (e.g. events that are already scheduled), which are left alone.
+ * <p>
+ * Time is split into slots starting at the beginning of the window, and events start at the beginning of a slot. An
+ * event uses every slot it overlaps, including the one it ends in, so events sharing a room or a speaker are always
+ * apart (touching time ranges overlap), which also leaves time to change rooms. The slots used by each room and
+ * speaker are kept in bitsets, so testing a start time is a few word operations.
+ * <p>
+ * Each thread builds a schedule greedily (hardest events first, each at the earliest time any room that fits it is
+ * free, in the smallest such room), then improves it with a large neighbourhood search: it takes some events out,
+ * puts them and the events that are still unplaced back in a shuffled order, and keeps the result unless it is worse.
+ * The threads use different random orders, and the best schedule any of them found when the time budget runs out is
+ * returned. A schedule is better if it places more events, or as many events but earlier.
+ */
+public class ScheduleSolver {
+    public static final Duration DEFAULT_SLOT_LENGTH = Duration.ofMinutes(15);
+
+    private final TimeRange window;
+    private final long slotSeconds;
+    private final int slotCount;
+
+    // Room UUID -> capacity, in the order the rooms were added
+    private final Map<UUID, Integer> roomCapacities = new LinkedHashMap<>();
+    private final Map<UUID, List<TimeRange>> roomBookings = new HashMap<>();
+    private final Map<UUID, List<TimeRange>> speakerBookings = new HashMap<>();
+
+    /**
+     * Constructs a schedule solver with slots of DEFAULT_SLOT_LENGTH
+     *
+     * @param window time range every event must be in (e.g. the conference's time range)
+     */
+    public ScheduleSolver(TimeRange window) {
+        this(window, DEFAULT_SLOT_LENGTH);
+    }
+
+    /**
+     * Constructs a schedule solver
+     *
+     * @param window     time range every event must be in (e.g. the conference's time range)
+     * @param slotLength time between possible start times, and the shortest break between events
+     */
+    public ScheduleSolver(TimeRange window, Duration slotLength) {
+        this.window = window;
+        this.slotSeconds = slotLength.getSeconds();
+        this.slotCount = Math.toIntExact(Duration.between(window.getStart(), window.getEnd()).getSeconds() / slotSeconds + 1);
+    }
+
+    /**
+     * Adds a room events may be placed in
+     *
+     * @param roomUUID UUID of the room
+     * @param capacity capacity of the room
+     */
+    public void addRoom(UUID roomUUID, int capacity) {
+        roomCapacities.put(roomUUID, capacity);
+    }
+
+    /**
+     * Adds a booking of a room that events can't be placed over
+     *
+     * @param roomUUID  UUID of the room
+     * @param timeRange time range of the booking
+     */
+    public void addRoomBooking(UUID roomUUID, TimeRange timeRange) {
+        roomBookings.computeIfAbsent(roomUUID, k -> new ArrayList<>()).add(timeRange);
+    }
+
+    /**
+     * Adds a booking of a speaker (e.g. an event they already speak at) that events with the speaker can't overlap
+     *
+     * @param speakerUUID UUID of the speaker
+     * @param timeRange   time range of the booking
+     */
+    public void addSpeakerBooking(UUID speakerUUID, TimeRange timeRange) {
+        speakerBookings.computeIfAbsent(speakerUUID, k -> new ArrayList<>()).add(timeRange);
+    }
+
+    /**
+     * Places events using one thread per processor
+     *
+     * @param events     events to place
+     * @param timeBudget how long to search for
+     * @return best schedule found
+     */
+    public ScheduleSolution solve(List<UnplacedEvent> events, Duration timeBudget) {
+        return solve(events, timeBudget, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Places events
+     *
+     * @param events      events to place
+     * @param timeBudget  how long to search for
+     * @param threadCount number of threads to search with
+     * @return best schedule found
+     */
+    public ScheduleSolution solve(List<UnplacedEvent> events, Duration timeBudget, int threadCount) {
+        Problem problem = new Problem(events);
+        long deadline = System.nanoTime() + timeBudget.toNanos();
+
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount, runnable -> {
+            Thread thread = new Thread(runnable, "schedule-solver");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try {
+            List<CompletableFuture<Search>> searches = new ArrayList<>();
+            for (int i = 0; i < threadCount; i++) {
+                Search search = new Search(problem, i);
+                searches.add(CompletableFuture.supplyAsync(() -> search.run(deadline), executor));
+            }
+
+            Search best = null;
+            for (CompletableFuture<Search> search : searches) {
+                Search result = search.join();
+
+                if (best == null || isBetter(result.bestPlacedCount, result.bestStartSum, best.bestPlacedCount, best.bestStartSum)) {
+                    best = result;
+                }
+            }
+
+            return toSolution(problem, best);
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private ScheduleSolution toSolution(Problem problem, Search search) {
+        List<ScheduleSolution.Placement> placements = new ArrayList<>();
+        List<UnplacedEvent> unplacedEvents = new ArrayList<>();
+
+        for (int e = 0; e < problem.events.size(); e++) {
+            UnplacedEvent event = problem.events.get(e);
+
+            if (search.bestRooms[e] < 0) {
+                unplacedEvents.add(event);
+            } else {
+                LocalDateTime start = window.getStart().plusSeconds(search.bestStarts[e] * slotSeconds);
+                placements.add(new ScheduleSolution.Placement(event, problem.roomUUIDs[search.bestRooms[e]], new TimeRange(start, start.plus(event.getDuration()))));
+            }
+        }
+
+        return new ScheduleSolution(placements, unplacedEvents);
+    }
+
+    private static boolean isBetter(int placedCount, long startSum, int otherPlacedCount, long otherStartSum) {
+        return placedCount > otherPlacedCount || (placedCount == otherPlacedCount && startSum < otherStartSum);
+    }
+
+    /**
+     * Gets the slot a time is in, which may be outside of the window
+     */
+    private long getSlot(LocalDateTime time) {
+        return Math.floorDiv(Duration.between(window.getStart(), time).getSeconds(), slotSeconds);
+    }
+
+    /**
+     * Everything the searches share, which is never changed once it is built
+     */
+    private class Problem {
+        private final List<UnplacedEvent> events;
+        private final int wordCount = (slotCount + Long.SIZE - 1) / Long.SIZE;
+
+        private final UUID[] roomUUIDs;
+        private final long[][] roomBase;
+        private final long[][] speakerBase;
+
+        // Number of slots used by each event, the latest slot it can start in, and the indices of its speakers
+        private final int[] lengths;
+        private final int[] latestStarts;
+        private final int[][] eventSpeakers;
+        // Indices of the rooms each event fits in, smallest first
+        private final int[][] eventRooms;
+        // Events that can be placed at all, hardest first
+        private final int[] order;
+        private final double[] difficulties;
+
+        // Sum of the earliest start of every event if it were the only one, no schedule can start earlier than that
+        private long startSumBound;
+
+        private Problem(List<UnplacedEvent> events) {
+            this.events = new ArrayList<>(events);
+
+            List<UUID> rooms = new ArrayList<>(roomCapacities.keySet());
+            rooms.sort(Comparator.comparing(roomCapacities::get));
+            roomUUIDs = rooms.toArray(new UUID[0]);
+            roomBase = new long[roomUUIDs.length][];
+            for (int r = 0; r < roomUUIDs.length; r++) {
+                roomBase[r] = toBitset(roomBookings.getOrDefault(roomUUIDs[r], Collections.emptyList()));
+            }
+
+            Map<UUID, Integer> speakerIndices = new HashMap<>();
+            for (UnplacedEvent event : events) {
+                for (UUID speakerUUID : event.getSpeakerUUIDs()) {
+                    speakerIndices.putIfAbsent(speakerUUID, speakerIndices.size());
+                }
+            }
+            speakerBase = new long[speakerIndices.size()][];
+            for (Map.Entry<UUID, Integer> entry : speakerIndices.entrySet()) {
+                speakerBase[entry.getValue()] = toBitset(speakerBookings.getOrDefault(entry.getKey(), Collections.emptyList()));
+            }
+
+            int eventCount = events.size();
+            lengths = new int[eventCount];
+            latestStarts = new int[eventCount];
+            eventSpeakers = new int[eventCount][];
+            eventRooms = new int[eventCount][];
+            difficulties = new double[eventCount];
+            long windowSeconds = Duration.between(window.getStart(), window.getEnd()).getSeconds();
+            List<Integer> placeable = new ArrayList<>();
+
+            for (int e = 0; e < eventCount; e++) {
+                UnplacedEvent event = events.get(e);
+                long durationSeconds = event.getDuration().getSeconds();
+
+                lengths[e] = (int) Math.min(slotCount, durationSeconds / slotSeconds + 1);
+                latestStarts[e] = durationSeconds > windowSeconds ? -1 : (int) ((windowSeconds - durationSeconds) / slotSeconds);
+                eventSpeakers[e] = event.getSpeakerUUIDs().stream().mapToInt(speakerIndices::get).toArray();
+
+                List<Integer> fittingRooms = new ArrayList<>();
+                for (int r = 0; r < roomUUIDs.length; r++) {
+                    if (roomCapacities.get(roomUUIDs[r]) >= event.getAudience()) {
+                        fittingRooms.add(r);
+                    }
+                }
+                eventRooms[e] = fittingRooms.stream().mapToInt(Integer::intValue).toArray();
+
+                int earliest = findEarliestStart(roomBase, speakerBase, e, latestStarts[e]);
+                if (earliest >= 0) {
+                    placeable.add(e);
+                    startSumBound += earliest;
+                    difficulties[e] = (double) lengths[e] * (1 + eventSpeakers[e].length) / eventRooms[e].length;
+                }
+            }
+
+            placeable.sort(Comparator.comparingDouble((Integer e) -> -difficulties[e]));
+            order = placeable.stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        private long[] toBitset(List<TimeRange> bookings) {
+            long[] words = new long[wordCount];
+
+            for (TimeRange booking : bookings) {
+                long first = Math.max(0, getSlot(booking.getStart()));
+                long last = Math.min(slotCount - 1, getSlot(booking.getEnd()));
+
+                if (first <= last) {
+                    setRange(words, (int) first, (int) last + 1, true);
+                }
+            }
+
+            return words;
+        }
+
+        /**
+         * Finds the earliest slot an event can start in, in any room it fits in
+         *
+         * @return the start slot, or -1 if there is none up to the limit
+         */
+        private int findEarliestStart(long[][] roomBits, long[][] speakerBits, int e, int limit) {
+            int earliest = -1;
+
+            for (int r : eventRooms[e]) {
+                int start = findStart(roomBits, speakerBits, e, r, earliest < 0 ? limit : earliest - 1);
+
+                if (start >= 0) {
+                    earliest = start;
+                }
+            }
+
+            return earliest;
+        }
+
+        /**
+         * Finds the earliest slot an event can start in, in a room
+         *
+         * @return the start slot, or -1 if there is none up to the limit
+         */
+        private int findStart(long[][] roomBits, long[][] speakerBits, int e, int r, int limit) {
+            int length = lengths[e];
+            int start = 0;
+
+            while (start <= limit) {
+                // Every start up to a used slot overlaps it, so the search continues after the last one found
+                int used = firstSet(roomBits[r], start, start + length);
+                for (int s : eventSpeakers[e]) {
+                    used = Math.max(used, firstSet(speakerBits[s], start, start + length));
+                }
+
+                if (used < 0) {
+                    return start;
+                }
+                start = used + 1;
+            }
+
+            return -1;
+        }
+    }
+
+    /**
+     * One thread's search. Each event is either placed in a room at a start slot, or has room -1.
+     */
+    private static class Search {
+        private final Problem problem;
+        private final boolean isFirst;
+        private final Random random;
+        private final long[][] roomBits;
+        private final long[][] speakerBits;
+        private final int[] rooms;
+        private final int[] starts;
+        private int placedCount;
+        private long startSum;
+
+        private int[] bestRooms;
+        private int[] bestStarts;
+        private int bestPlacedCount = -1;
+        private long bestStartSum;
+
+        private Search(Problem problem, int seed) {
+            this.problem = problem;
+            this.isFirst = seed == 0;
+            this.random = new Random(seed);
+            this.roomBits = copy(problem.roomBase);
+            this.speakerBits = copy(problem.speakerBase);
+            this.rooms = new int[problem.events.size()];
+            this.starts = new int[problem.events.size()];
+            Arrays.fill(rooms, -1);
+        }
+
+        private static long[][] copy(long[][] bitsets) {
+            long[][] copy = new long[bitsets.length][];
+            for (int i = 0; i < bitsets.length; i++) {
+                copy[i] = bitsets[i].clone();
+            }
+            return copy;
+        }
+
+        private Search run(long deadline) {
+            int[] order = problem.order.clone();
+
+            // The first search keeps the plain hardest-first order, the others shuffle it a little
+            if (!isFirst) {
+                shuffleByDifficulty(order);
+            }
+            for (int e : order) {
+                insert(e);
+            }
+            saveBest();
+
+            while (System.nanoTime() < deadline && (placedCount < problem.order.length || startSum > problem.startSumBound)) {
+                improve();
+            }
+
+            return this;
+        }
+
+        private void improve() {
+            List<Integer> removed = chooseNeighbourhood();
+            int oldPlacedCount = placedCount;
+            long oldStartSum = startSum;
+            int[] oldRooms = new int[removed.size()];
+            int[] oldStarts = new int[removed.size()];
+
+            for (int i = 0; i < removed.size(); i++) {
+                int e = removed.get(i);
+                oldRooms[i] = rooms[e];
+                oldStarts[i] = starts[e];
+                remove(e);
+            }
+
+            int[] order = Arrays.stream(problem.order).filter(e -> rooms[e] < 0).toArray();
+            shuffleByDifficulty(order);
+
+            List<Integer> inserted = new ArrayList<>();
+            for (int e : order) {
+                if (insert(e)) {
+                    inserted.add(e);
+                }
+            }
+
+            if (isBetter(oldPlacedCount, oldStartSum, placedCount, startSum)) {
+                for (int e : inserted) {
+                    remove(e);
+                }
+                for (int i = 0; i < removed.size(); i++) {
+                    place(removed.get(i), oldRooms[i], oldStarts[i]);
+                }
+            } else if (isBetter(placedCount, startSum, bestPlacedCount, bestStartSum)) {
+                saveBest();
+            }
+        }
+
+        /**
+         * Picks placed events to take out, either at random, or the ones in the way of an event around a random time
+         */
+        private List<Integer> chooseNeighbourhood() {
+            List<Integer> placed = new ArrayList<>();
+            List<Integer> unplaced = new ArrayList<>();
+
+            for (int e : problem.order) {
+                (rooms[e] < 0 ? unplaced : placed).add(e);
+            }
+
+            List<Integer> removed = new ArrayList<>();
+
+            if (placed.isEmpty()) {
+                return removed;
+            }
+
+            if (random.nextBoolean()) {
+                int count = 1 + random.nextInt(Math.max(1, Math.min(placed.size(), problem.order.length / 10)));
+                Collections.shuffle(placed, random);
+                removed.addAll(placed.subList(0, count));
+            } else {
+                List<Integer> targets = unplaced.isEmpty() ? placed : unplaced;
+                int target = targets.get(random.nextInt(targets.size()));
+                int room = problem.eventRooms[target][random.nextInt(problem.eventRooms[target].length)];
+                int from = random.nextInt(problem.latestStarts[target] + 1);
+                int to = from + problem.lengths[target];
+
+                for (int e : placed) {
+                    boolean overlaps = starts[e] < to && from < starts[e] + problem.lengths[e];
+
+                    if (overlaps && (rooms[e] == room || sharesSpeaker(e, target))) {
+                        removed.add(e);
+                    }
+                }
+            }
+
+            return removed;
+        }
+
+        private boolean sharesSpeaker(int e, int other) {
+            for (int s : problem.eventSpeakers[e]) {
+                for (int otherSpeaker : problem.eventSpeakers[other]) {
+                    if (s == otherSpeaker) {
+                        return true;
+                    }
+                }
+            }
+
+            return false;
+        }
+
+        /**
+         * Sorts events hardest first, with some noise so every search tries a different order
+         */
+        private void shuffleByDifficulty(int[] order) {
+            double[] keys = new double[problem.events.size()];
+            for (int e : order) {
+                keys[e] = problem.difficulties[e] * (0.7 + 0.6 * random.nextDouble());
+            }
+
+            Integer[] boxed = Arrays.stream(order).boxed().toArray(Integer[]::new);
+            Arrays.sort(boxed, Comparator.comparingDouble((Integer e) -> -keys[e]));
+            for (int i = 0; i < order.length; i++) {
+                order[i] = boxed[i];
+            }
+        }
+
+        /**
+         * Places an event at the earliest start of any room it fits in, choosing the smallest room on ties
+         *
+         * @return true iff the event was placed
+         */
+        private boolean insert(int e) {
+            int bestRoom = -1;
+            int bestStart = problem.latestStarts[e] + 1;
+
+            for (int r : problem.eventRooms[e]) {
+                int start = problem.findStart(roomBits, speakerBits, e, r, bestStart - 1);
+
+                if (start >= 0) {
+                    bestRoom = r;
+                    bestStart = start;
+                }
+            }
+
+            if (bestRoom < 0) {
+                return false;
+            }
+
+            place(e, bestRoom, bestStart);
+            return true;
+        }
+
+        private void place(int e, int room, int start) {
+            int end = start + problem.lengths[e];
+
+            setRange(roomBits[room], start, end, true);
+            for (int s : problem.eventSpeakers[e]) {
+                setRange(speakerBits[s], start, end, true);
+            }
+
+            rooms[e] = room;
+            starts[e] = start;
+            placedCount++;
+            startSum += start;
+        }
+
+        private void remove(int e) {
+            int start = starts[e];
+            int end = start + problem.lengths[e];
+
+            // Placed events never overlap anything, so their slots are only theirs
+            setRange(roomBits[rooms[e]], start, end, false);
+            for (int s : problem.eventSpeakers[e]) {
+                setRange(speakerBits[s], start, end, false);
+            }
+
+            rooms[e] = -1;
+            placedCount--;
+            startSum -= start;
+        }
+
+        private void saveBest() {
+            bestRooms = rooms.clone();
+            bestStarts = starts.clone();
+            bestPlacedCount = placedCount;
+            bestStartSum = startSum;
+        }
+    }
+
+    /**
+     * Finds the first set bit from (inclusive) to (exclusive)
+     *
+     * @return index of the bit, or -1 if none is set
+     */
+    private static int firstSet(long[] words, int from, int to) {
+        int index = from / Long.SIZE;
+        long word = words[index] & (-1L << from);
+
+        while (true) {
+            if (word != 0) {
+                int bit = index * Long.SIZE + Long.numberOfTrailingZeros(word);
+                return bit < to ? bit : -1;
+            }
+
+            index++;
+            if (index * Long.SIZE >= to) {
+                return -1;
+            }
+            word = words[index];
+        }
+    }
+
+    /**
+     * Sets or clears the bits from (inclusive) to (exclusive)
+     */
+    private static void setRange(long[] words, int from, int to, boolean value) {
+        for (int bit = from; bit < to; ) {
+            int index = bit / Long.SIZE;
+            int offset = bit % Long.SIZE;
+            int count = Math.min(Long.SIZE - offset, to - bit);
+            long mask = (count == Long.SIZE ? -1L : (1L << count) - 1) << offset;
+
+            if (value) {
+                words[index] |= mask;
+            } else {
+                words[index] &= ~mask;
+            }
+
+            bit += count;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package convention.schedule;
+
+import convention.exception.InvalidTimeRangeException;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * An event of a program that doesn't have a time or a room yet, only what the schedule solver needs to place it
+ */
+public class UnplacedEvent {
+    private final String title;
+    private final Duration duration;
+    private final Set<UUID> speakerUUIDs;
+    private final int audience;
+
+    /**
+     * Constructs an unplaced event
+     *
+     * @param title        title of the event
+     * @param duration     length of the event
+     * @param speakerUUIDs UUIDs of the speakers of the event
+     * @param audience     number of people expected, the smallest room capacity the event fits in
+     * @throws InvalidTimeRangeException if the duration isn't positive
+     */
+    public UnplacedEvent(String title, Duration duration, Set<UUID> speakerUUIDs, int audience) {
+        if (duration.isNegative() || duration.isZero()) {
+            throw new InvalidTimeRangeException();
+        }
+
+        this.title = title;
+        this.duration = duration;
+        this.speakerUUIDs = Collections.unmodifiableSet(new HashSet<>(speakerUUIDs));
+        this.audience = audience;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public Duration getDuration() {
+        return duration;
+    }
+
+    public Set<UUID> getSpeakerUUIDs() {
+        return speakerUUIDs;
+    }
+
+    public int getAudience() {
+        return audience;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s (%d min, %d people)", title, duration.toMinutes(), audience);
+    }
+}
@@ -1,15 +1,30 @@
 package gateway;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Class to read and parse CSV objects into a 2D array
+ * <p>
+ * Follows RFC 4180: fields may be quoted, quoted fields may contain commas, line breaks and quotes (written as two
+ * quotes), and lines may end with CRLF, LF or CR. Blank lines are skipped. The file is decoded as UTF-8 and read
+ * through a small buffer, so files of any size can be streamed with readRows.
  */
 public class CSVReader implements IMatrixReader {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final char BYTE_ORDER_MARK = '\uFEFF';
+
     private String path;
 
     /**
@@ -25,19 +40,165 @@ public class CSVReader implements IMatrixReader {
      * Reads the CSV
      *
      * @return a list of string arrays, with each entry in the list corresponding to a row in the CSV
-     * @throws IOException
+     * @throws IOException if the file can't be read
      */
     @Override
     public List<String[]> read() throws IOException {
         List<String[]> out = new ArrayList<>();
-        BufferedReader br = new BufferedReader(new FileReader(path));
+        readRows(out::add);
+        return out;
+    }
+
+    /**
+     * Reads the CSV one row at a time
+     *
+     * @param consumer called with every row, in order
+     * @throws IOException if the file can't be read
+     */
+    @Override
+    public void readRows(Consumer<String[]> consumer) throws IOException {
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        ByteBuffer bytes = ByteBuffer.allocate(BUFFER_SIZE);
+        CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE);
+        Parser parser = new Parser(consumer);
+
+        try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+            boolean endOfInput = false;
+
+            while (!endOfInput) {
+                endOfInput = channel.read(bytes) == -1;
+                bytes.flip();
 
-        String line;
+                CoderResult result = decoder.decode(bytes, chars, endOfInput);
+                if (result.isError()) {
+                    result.throwException();
+                }
+                bytes.compact();
 
-        while ((line = br.readLine()) != null) {
-            out.add(line.split(","));
+                chars.flip();
+                parser.parse(chars);
+                chars.clear();
+            }
+
+            decoder.flush(chars);
+            chars.flip();
+            parser.parse(chars);
+            parser.finish();
         }
+    }
 
-        return out;
+    /**
+     * State machine that turns characters into rows, across buffer boundaries
+     */
+    private static class Parser {
+        private final Consumer<String[]> consumer;
+
+        private final List<String> fields = new ArrayList<>();
+        private final StringBuilder field = new StringBuilder();
+
+        private boolean started;
+        private boolean quoted;
+        private boolean quoteInQuoted;
+        private boolean fieldWasQuoted;
+        private boolean afterCarriageReturn;
+
+        private Parser(Consumer<String[]> consumer) {
+            this.consumer = consumer;
+        }
+
+        private void parse(CharBuffer chars) {
+            while (chars.hasRemaining()) {
+                char c = chars.get();
+
+                if (!started) {
+                    started = true;
+
+                    if (c == BYTE_ORDER_MARK) {
+                        continue;
+                    }
+                }
+
+                // CRLF is a single line break
+                if (afterCarriageReturn) {
+                    afterCarriageReturn = false;
+
+                    if (c == '\n') {
+                        continue;
+                    }
+                }
+
+                if (quoted) {
+                    if (quoteInQuoted) {
+                        quoteInQuoted = false;
+
+                        if (c == '"') {
+                            // Two quotes are one escaped quote
+                            field.append('"');
+                            continue;
+                        }
+
+                        // The quote closed the field, so this character is handled as if it were unquoted
+                        quoted = false;
+                    } else if (c == '"') {
+                        quoteInQuoted = true;
+                        continue;
+                    } else {
+                        field.append(c);
+                        continue;
+                    }
+                }
+
+                switch (c) {
+                    case ',':
+                        endField();
+                        break;
+                    case '\r':
+                        afterCarriageReturn = true;
+                        endRow();
+                        break;
+                    case '\n':
+                        endRow();
+                        break;
+                    case '"':
+                        if (field.length() == 0 && !fieldWasQuoted) {
+                            quoted = true;
+                            fieldWasQuoted = true;
+                        } else {
+                            // Stray quote in an unquoted field, keep it rather than failing the whole file
+                            field.append(c);
+                        }
+                        break;
+                    default:
+                        field.append(c);
+                }
+            }
+        }
+
+        private void endField() {
+            fields.add(field.toString());
+            field.setLength(0);
+            fieldWasQuoted = false;
+        }
+
+        private void endRow() {
+            // A blank line is a single empty unquoted field
+            boolean blank = fields.isEmpty() && field.length() == 0 && !fieldWasQuoted;
+            endField();
+
+            if (!blank) {
+                consumer.accept(fields.toArray(new String[0]));
+            }
+
+            fields.clear();
+        }
+
+        private void finish() {
+            // The last row doesn't need a line break, and an unterminated quote runs to the end of the file
+            quoted = false;
+            quoteInQuoted = false;
+            endRow();
+        }
     }
 }
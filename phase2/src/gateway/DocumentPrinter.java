@@ -4,12 +4,21 @@ import gateway.exceptions.PrinterException;
 
 import java.awt.*;
 import java.io.*;
-import java.util.Scanner;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 
 /**
  * Class to trigger the system print dialog on a string
+ * <p>
+ * The HTML header and footer templates are read the first time a document is printed, and reused after that.
  */
 public class DocumentPrinter implements IDocumentPrinter {
+    private static final String HEADER_PATH = "header.html";
+    private static final String FOOTER_PATH = "footer.html";
+
+    private String htmlHeader;
+    private String htmlFooter;
 
     /**
      * Performs the print operation
@@ -20,23 +29,60 @@ public class DocumentPrinter implements IDocumentPrinter {
      */
     @Override
     public void print(String document, String fileName) throws IOException {
+        print(out -> out.write(document), fileName);
+    }
 
-        String htmlHeader = (new Scanner(new FileReader("header.html"))).useDelimiter("\\Z").next();
-        String htmlFooter = (new Scanner(new FileReader("footer.html"))).useDelimiter("\\Z").next();
-
-        fileName = fileName.concat(".html");
-
-        BufferedWriter table = new BufferedWriter(new FileWriter(fileName));
-        table.write(htmlHeader);
-        table.write(document);
-        table.write(htmlFooter);
-        table.flush();
-        table.close();
+    /**
+     * Performs the print operation on a document that is written as it is generated
+     *
+     * @param body     writes the body of the document
+     * @param fileName path to save the document temporarily
+     * @throws IOException
+     */
+    @Override
+    public void print(Body body, String fileName) throws IOException {
+        File file = write(body, fileName);
 
         if (Desktop.isDesktopSupported() && Desktop.getDesktop().isSupported(Desktop.Action.BROWSE)) {
-            Desktop.getDesktop().browse(new File(fileName).toURI());
+            Desktop.getDesktop().browse(file.toURI());
         } else {
             throw new PrinterException();
         }
     }
+
+    /**
+     * Writes a document between the HTML header and footer, without printing it
+     *
+     * @param body     writes the body of the document
+     * @param fileName path to save the document to, without the extension
+     * @return the HTML file that was written
+     * @throws IOException if the templates can't be read or the document can't be written
+     */
+    public File write(Body body, String fileName) throws IOException {
+        loadTemplates();
+
+        File file = new File(fileName.concat(".html"));
+
+        try (BufferedWriter out = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            out.write(htmlHeader);
+            body.write(out);
+            out.write(htmlFooter);
+        }
+
+        return file;
+    }
+
+    private synchronized void loadTemplates() throws IOException {
+        if (htmlHeader == null) {
+            htmlHeader = readTemplate(HEADER_PATH);
+            htmlFooter = readTemplate(FOOTER_PATH);
+        }
+    }
+
+    private String readTemplate(String path) throws IOException {
+        String template = new String(Files.readAllBytes(Paths.get(path)), StandardCharsets.UTF_8);
+
+        // Drop the final line break, like the Scanner that used to read the templates did
+        return template.replaceFirst("\\R\\z", "");
+    }
 }
@@ -1,10 +1,28 @@
 package gateway;
 
 import java.io.IOException;
+import java.io.Writer;
 
 /**
  * Interface for printing a string
  */
 public interface IDocumentPrinter {
+    /**
+     * Writes the body of a document
+     */
+    interface Body {
+        void write(Writer out) throws IOException;
+    }
+
     void print(String document, String fileName) throws IOException;
+
+    /**
+     * Prints a document that is written straight to the output as it is generated, instead of being built as a string
+     * first
+     *
+     * @param body     writes the body of the document
+     * @param fileName path to save the document temporarily
+     * @throws IOException if the document can't be written
+     */
+    void print(Body body, String fileName) throws IOException;
 }
@@ -2,10 +2,19 @@ package gateway;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Class to read a document that parses into a matrix of strings
  */
 public interface IMatrixReader {
     List<String[]> read() throws IOException;
+
+    /**
+     * Reads the document one row at a time, without keeping the rows that were already handled in memory
+     *
+     * @param consumer called with every row, in order
+     * @throws IOException if the document can't be read
+     */
+    void readRows(Consumer<String[]> consumer) throws IOException;
 }
@@ -0,0 +1,379 @@
+package gateway;
+
+import gateway.exceptions.SegmentException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Stores an append-only list of records per object (e.g. the messages of a conversation), in a directory named after
+ * the object's UUID. The records are split into segment files of a fixed number of records each, so a record is found
+ * without reading the ones before it.
+ * <p>
+ * Records are only ever appended at the end, or cut off from the end by truncate. Segments are read with memory-mapped
+ * I/O, and only a few are mapped at a time, so the amount of memory used doesn't depend on how many records there are.
+ * <p>
+ * Appends aren't synced to disk until sync is called, so anything that refers to records (e.g. a snapshot) must call
+ * sync before it is written.
+ */
+public class SegmentStore {
+    private static final String EXTENSION = ".seg";
+    private static final int DEFAULT_RECORDS_PER_SEGMENT = 4096;
+    private static final int MAXIMUM_MAPPED = 8;
+    private static final int MAXIMUM_OPEN = 16;
+
+    private final Path directory;
+    private final int recordsPerSegment;
+
+    // Number of records of each object that has been used since the store was opened
+    private final Map<UUID, Long> counts = new HashMap<>();
+    // Segments being appended to, least recently used first
+    private final LinkedHashMap<UUID, FileChannel> open = new LinkedHashMap<>(16, .75f, true);
+    // Objects with appends that aren't synced yet
+    private final Set<UUID> unsynced = new HashSet<>();
+    // Mapped segments and the offsets of their records, least recently used first
+    private final LinkedHashMap<Path, MappedSegment> mapped = new LinkedHashMap<>(16, .75f, true);
+
+    private static class MappedSegment {
+        private final MappedByteBuffer buffer;
+        private final int[] offsets;
+        private final int count;
+
+        private MappedSegment(MappedByteBuffer buffer, int[] offsets, int count) {
+            this.buffer = buffer;
+            this.offsets = offsets;
+            this.count = count;
+        }
+    }
+
+    /**
+     * Creates a segment store in a directory. The directory is created if it doesn't exist.
+     *
+     * @param directoryName name of the directory to store the segments in
+     */
+    public SegmentStore(String directoryName) {
+        this(directoryName, DEFAULT_RECORDS_PER_SEGMENT);
+    }
+
+    /**
+     * Creates a segment store in a directory. The directory is created if it doesn't exist.
+     *
+     * @param directoryName     name of the directory to store the segments in
+     * @param recordsPerSegment number of records in each segment
+     */
+    public SegmentStore(String directoryName, int recordsPerSegment) {
+        this.directory = Paths.get(directoryName);
+        this.recordsPerSegment = recordsPerSegment;
+        this.directory.toFile().mkdirs();
+    }
+
+    private Path getDirectory(UUID uuid) {
+        return directory.resolve(uuid.toString());
+    }
+
+    private Path getSegmentPath(UUID uuid, long segment) {
+        return getDirectory(uuid).resolve(String.format("%08d%s", segment, EXTENSION));
+    }
+
+    /**
+     * Gets the number of records of an object
+     *
+     * @param uuid UUID of the object
+     * @return number of records
+     */
+    public synchronized long count(UUID uuid) {
+        Long count = counts.get(uuid);
+
+        if (count == null) {
+            count = scan(uuid);
+            counts.put(uuid, count);
+        }
+
+        return count;
+    }
+
+    /**
+     * Counts the records on disk, and cuts off a record that was only partly written
+     */
+    private long scan(UUID uuid) {
+        long segment = 0;
+
+        while (Files.exists(getSegmentPath(uuid, segment + 1))) {
+            segment++;
+        }
+
+        Path path = getSegmentPath(uuid, segment);
+        if (!Files.exists(path)) {
+            return 0;
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer lengthBuffer = ByteBuffer.allocate(Integer.BYTES);
+            long size = channel.size();
+            long position = 0;
+            int records = 0;
+
+            while (position + Integer.BYTES <= size) {
+                lengthBuffer.clear();
+                channel.read(lengthBuffer, position);
+                int length = lengthBuffer.getInt(0);
+
+                if (length < 0 || position + Integer.BYTES + length > size) {
+                    break;
+                }
+
+                position += Integer.BYTES + length;
+                records++;
+            }
+
+            if (position < size) {
+                channel.truncate(position);
+            }
+
+            return segment * recordsPerSegment + records;
+        } catch (IOException e) {
+            throw new SegmentException("Unable to read segment " + path, e);
+        }
+    }
+
+    /**
+     * Appends a record. Appending a record that is already stored (e.g. when the journal is replayed) does nothing.
+     *
+     * @param uuid   UUID of the object
+     * @param index  index of the record, which must be at most the number of records
+     * @param record contents of the record
+     */
+    public synchronized void append(UUID uuid, long index, byte[] record) {
+        long count = count(uuid);
+
+        if (index < count) {
+            return;
+        }
+
+        if (index > count) {
+            throw new SegmentException(String.format("Record %d of %s is missing, can't append record %d", count, uuid, index), null);
+        }
+
+        try {
+            FileChannel channel = getAppendChannel(uuid, index);
+            ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES + record.length);
+            buffer.putInt(record.length).put(record).flip();
+
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            throw new SegmentException("Unable to append to " + uuid, e);
+        }
+
+        counts.put(uuid, count + 1);
+        unsynced.add(uuid);
+    }
+
+    private FileChannel getAppendChannel(UUID uuid, long index) throws IOException {
+        FileChannel channel = open.get(uuid);
+
+        // A new segment starts with the first record that doesn't fit in the previous one
+        if (channel != null && index % recordsPerSegment == 0) {
+            channel.force(false);
+            channel.close();
+            open.remove(uuid);
+            channel = null;
+        }
+
+        if (channel == null) {
+            Files.createDirectories(getDirectory(uuid));
+            channel = FileChannel.open(getSegmentPath(uuid, index / recordsPerSegment), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            open.put(uuid, channel);
+
+            if (open.size() > MAXIMUM_OPEN) {
+                Map.Entry<UUID, FileChannel> eldest = open.entrySet().iterator().next();
+                eldest.getValue().force(false);
+                eldest.getValue().close();
+                open.remove(eldest.getKey());
+            }
+        }
+
+        return channel;
+    }
+
+    /**
+     * Reads a record
+     *
+     * @param uuid  UUID of the object
+     * @param index index of the record
+     * @return contents of the record
+     */
+    public synchronized byte[] read(UUID uuid, long index) {
+        if (index < 0 || index >= count(uuid)) {
+            throw new SegmentException(String.format("Record %d of %s doesn't exist", index, uuid), null);
+        }
+
+        Path path = getSegmentPath(uuid, index / recordsPerSegment);
+        int record = (int) (index % recordsPerSegment);
+        MappedSegment segment = mapped.get(path);
+
+        // The last segment may have grown since it was mapped
+        if (segment == null || record >= segment.count) {
+            segment = map(path);
+        }
+
+        ByteBuffer buffer = segment.buffer.duplicate();
+        buffer.position(segment.offsets[record]);
+        byte[] contents = new byte[buffer.getInt()];
+        buffer.get(contents);
+
+        return contents;
+    }
+
+    private MappedSegment map(Path path) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            int[] offsets = new int[recordsPerSegment];
+            int count = 0;
+
+            while (count < recordsPerSegment && buffer.position() + Integer.BYTES <= buffer.limit()) {
+                offsets[count++] = buffer.position();
+                buffer.position(buffer.position() + Integer.BYTES + buffer.getInt(buffer.position()));
+            }
+
+            MappedSegment segment = new MappedSegment(buffer, offsets, count);
+            mapped.put(path, segment);
+
+            if (mapped.size() > MAXIMUM_MAPPED) {
+                mapped.remove(mapped.keySet().iterator().next());
+            }
+
+            return segment;
+        } catch (IOException e) {
+            throw new SegmentException("Unable to map segment " + path, e);
+        }
+    }
+
+    /**
+     * Cuts off every record after a number of records, e.g. ones that were appended but never made it into the journal
+     *
+     * @param uuid  UUID of the object
+     * @param count number of records to keep
+     */
+    public synchronized void truncate(UUID uuid, long count) {
+        if (count >= count(uuid)) {
+            return;
+        }
+
+        try {
+            closeChannel(uuid);
+            unmap(uuid);
+
+            long lastSegment = count / recordsPerSegment;
+            long segment = lastSegment + 1;
+            while (Files.deleteIfExists(getSegmentPath(uuid, segment))) {
+                segment++;
+            }
+
+            Path path = getSegmentPath(uuid, lastSegment);
+            if (Files.exists(path)) {
+                try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                    ByteBuffer lengthBuffer = ByteBuffer.allocate(Integer.BYTES);
+                    long position = 0;
+
+                    for (long i = 0; i < count % recordsPerSegment; i++) {
+                        lengthBuffer.clear();
+                        channel.read(lengthBuffer, position);
+                        position += Integer.BYTES + lengthBuffer.getInt(0);
+                    }
+
+                    channel.truncate(position);
+                    channel.force(false);
+                }
+            }
+        } catch (IOException e) {
+            throw new SegmentException("Unable to truncate " + uuid, e);
+        }
+
+        counts.put(uuid, count);
+    }
+
+    /**
+     * Syncs every append to disk
+     *
+     * @return true iff everything was synced
+     */
+    public synchronized boolean sync() {
+        boolean synced = true;
+
+        for (UUID uuid : new ArrayList<>(unsynced)) {
+            FileChannel channel = open.get(uuid);
+
+            try {
+                if (channel != null) {
+                    channel.force(false);
+                }
+                unsynced.remove(uuid);
+            } catch (IOException e) {
+                synced = false;
+            }
+        }
+
+        return synced;
+    }
+
+    /**
+     * Deletes the records of an object (e.g. one that was deleted)
+     *
+     * @param uuid UUID of the object
+     * @throws IOException if the records can't be deleted
+     */
+    public synchronized void delete(UUID uuid) throws IOException {
+        closeChannel(uuid);
+        unmap(uuid);
+        counts.remove(uuid);
+        unsynced.remove(uuid);
+
+        Path object = getDirectory(uuid);
+        if (!Files.isDirectory(object)) {
+            return;
+        }
+
+        try (DirectoryStream<Path> segments = Files.newDirectoryStream(object)) {
+            for (Path segment : segments) {
+                Files.deleteIfExists(segment);
+            }
+        }
+        Files.deleteIfExists(object);
+    }
+
+    /**
+     * Syncs and closes every open segment
+     */
+    public synchronized void close() {
+        sync();
+
+        for (UUID uuid : new ArrayList<>(open.keySet())) {
+            try {
+                closeChannel(uuid);
+            } catch (IOException e) {
+                throw new SegmentException("Unable to close the segments of " + uuid, e);
+            }
+        }
+
+        mapped.clear();
+    }
+
+    private void closeChannel(UUID uuid) throws IOException {
+        FileChannel channel = open.remove(uuid);
+
+        if (channel != null) {
+            channel.force(false);
+            channel.close();
+        }
+    }
+
+    private void unmap(UUID uuid) {
+        mapped.keySet().removeIf(path -> path.getParent().equals(getDirectory(uuid)));
+    }
+}
@@ -1,14 +1,28 @@
 package gateway;
 
+import gateway.exceptions.SerializerException;
+
 import java.io.*;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 
 /**
  * Serializes an object and writes it to a file. Loads the file into memory if possible, or initialize new object.
+ * <p>
+ * Each file also stores the journal sequence number the object was saved at, so that journal records which are already
+ * part of the file are not applied a second time.
+ * <p>
+ * Files are written to a temporary file first and then renamed into place, so a crash part way through a save leaves
+ * the previous file intact.
  *
  * @param <T> type of object being serialized
  */
 public class Serializer<T> {
     private String fileName;
+    private long sequence;
 
     /**
      * Creates a serializer that serializes an object to a file name
@@ -20,37 +34,90 @@ public class Serializer<T> {
     }
 
     /**
-     * Loads a serialized object from file. If that fails, then return the fall back object (which should be a new instance)
+     * Loads a serialized object from file. If there is no file yet, return the fall back object (which should be a new
+     * instance).
+     * <p>
+     * A file that exists but can't be read (e.g. one written by an older version of the program) is left untouched and
+     * a SerializerException is thrown, since carrying on with the fall back would overwrite it the next time the object
+     * is saved. Files written before the entities had their own format can be converted with scripts.MigrateSnapshots.
      *
-     * @param fallback object to return if unable to read from file
+     * @param fallback object to return if there is no file
      * @return object deserialized from file, or fallback if applicable
      */
+    @SuppressWarnings("unchecked")
     public T load(T fallback) {
-        try {
-            InputStream fileInputStream = new FileInputStream(fileName);
-            ObjectInputStream objectInputStream = new ObjectInputStream(fileInputStream);
+        sequence = 0;
 
-            return (T) objectInputStream.readObject();
-        } catch (IOException | ClassNotFoundException e) {
+        if (!Files.exists(Paths.get(fileName))) {
             return fallback;
         }
+
+        try (ObjectInputStream objectInputStream = new ObjectInputStream(new FileInputStream(fileName))) {
+            T object = (T) objectInputStream.readObject();
+
+            try {
+                sequence = objectInputStream.readLong();
+            } catch (EOFException e) {
+                // Saved before journaling existed
+                sequence = 0;
+            }
+
+            return object;
+        } catch (IOException | ClassNotFoundException e) {
+            throw new SerializerException("Unable to read " + fileName + ", it was left as it is", e);
+        }
+    }
+
+    /**
+     * Gets the journal sequence number of the object that was last loaded
+     *
+     * @return sequence number, or 0 if the file did not have one
+     */
+    public long getSequence() {
+        return sequence;
     }
 
     /**
      * Write the object to file
      *
      * @param object object to serialize
+     * @return true iff the object was written
+     */
+    public boolean save(T object) {
+        return save(object, 0);
+    }
+
+    /**
+     * Write the object to file, along with the newest journal sequence number that is part of the object
+     *
+     * @param object   object to serialize
+     * @param sequence newest journal sequence number included in the object
+     * @return true iff the object was written
      */
-    public void save(T object) {
+    public boolean save(T object, long sequence) {
+        Path target = Paths.get(fileName);
+        Path temporary = Paths.get(fileName + ".tmp");
+
         try {
-            OutputStream fileOutputStream = new FileOutputStream(fileName);
-            ObjectOutputStream objectOutputStream = new ObjectOutputStream(fileOutputStream);
+            FileOutputStream fileOutputStream = new FileOutputStream(temporary.toFile());
+            ObjectOutputStream objectOutputStream = new ObjectOutputStream(new BufferedOutputStream(fileOutputStream));
 
             objectOutputStream.writeObject(object);
-            fileOutputStream.close();
+            objectOutputStream.writeLong(sequence);
+            objectOutputStream.flush();
+            fileOutputStream.getFD().sync();
+            objectOutputStream.close();
+
+            try {
+                Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+            }
 
+            return true;
         } catch (IOException e) {
             e.printStackTrace();
+            return false;
         }
     }
 }
@@ -0,0 +1,108 @@
+package gateway;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.UUID;
+
+/**
+ * Stores one file (shard) per object in a directory, named after the object's UUID. Each shard starts with the journal
+ * sequence number it was written at, followed by whatever the object writes.
+ * <p>
+ * Like Serializer, shards are written to a temporary file first and then renamed into place.
+ */
+public class ShardStore {
+    /**
+     * Writes the contents of a shard
+     */
+    public interface Writer {
+        void write(ObjectOutput out) throws IOException;
+    }
+
+    /**
+     * Reads the contents of a shard
+     */
+    public interface Reader {
+        void read(ObjectInput in) throws IOException;
+    }
+
+    private static final String EXTENSION = ".shard";
+
+    private final Path directory;
+
+    /**
+     * Creates a shard store in a directory. The directory is created if it doesn't exist.
+     *
+     * @param directoryName name of the directory to store the shards in
+     */
+    public ShardStore(String directoryName) {
+        this.directory = Paths.get(directoryName);
+        this.directory.toFile().mkdirs();
+    }
+
+    private Path getPath(UUID uuid) {
+        return directory.resolve(uuid + EXTENSION);
+    }
+
+    /**
+     * Tests if a shard exists
+     *
+     * @param uuid UUID of the shard
+     * @return true iff the shard exists
+     */
+    public boolean exists(UUID uuid) {
+        return Files.exists(getPath(uuid));
+    }
+
+    /**
+     * Reads a shard
+     *
+     * @param uuid   UUID of the shard
+     * @param reader reads the contents of the shard
+     * @return sequence number the shard was written at
+     * @throws IOException if the shard doesn't exist or can't be read
+     */
+    public long load(UUID uuid, Reader reader) throws IOException {
+        try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(new FileInputStream(getPath(uuid).toFile())))) {
+            long sequence = in.readLong();
+            reader.read(in);
+            return sequence;
+        }
+    }
+
+    /**
+     * Writes a shard, replacing the previous version if there is one
+     *
+     * @param uuid     UUID of the shard
+     * @param sequence newest journal sequence number included in the shard
+     * @param writer   writes the contents of the shard
+     * @throws IOException if the shard can't be written
+     */
+    public void save(UUID uuid, long sequence, Writer writer) throws IOException {
+        Path target = getPath(uuid);
+        Path temporary = directory.resolve(uuid + EXTENSION + ".tmp");
+
+        FileOutputStream fileOutputStream = new FileOutputStream(temporary.toFile());
+        try (ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(fileOutputStream))) {
+            out.writeLong(sequence);
+            writer.write(out);
+            out.flush();
+            fileOutputStream.getFD().sync();
+        }
+
+        try {
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Deletes a shard (e.g. one that belonged to a deleted object)
+     *
+     * @param uuid UUID of the shard
+     * @throws IOException if the shard can't be deleted
+     */
+    public void delete(UUID uuid) throws IOException {
+        Files.deleteIfExists(getPath(uuid));
+    }
+}
@@ -0,0 +1,90 @@
+package gateway;
+
+import gateway.exceptions.RepositoryException;
+
+import java.io.Serializable;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Connection to an embedded, file-based SQL database (e.g. "jdbc:h2:./conference" or "jdbc:sqlite:conference.db") that
+ * runs in the same process. The JDBC driver of the database must be on the classpath.
+ * <p>
+ * Only the URL is serialized, so a manager that is backed by the database can still be saved and loaded by a
+ * Serializer; the connection is opened again the first time it's needed.
+ */
+public class SqlDatabase implements Serializable {
+    private static final long serialVersionUID = -6057802156458773434L;
+
+    private final String url;
+
+    private transient Connection connection;
+
+    /**
+     * Creates a database. Nothing is opened until the first query.
+     *
+     * @param url JDBC URL of the database
+     */
+    public SqlDatabase(String url) {
+        this.url = url;
+    }
+
+    /**
+     * Gets the JDBC URL of the database
+     *
+     * @return JDBC URL of the database
+     */
+    public String getUrl() {
+        return url;
+    }
+
+    /**
+     * Gets the connection to the database, opening it if necessary. Changes are committed as soon as they're made.
+     *
+     * @return connection to the database
+     */
+    public synchronized Connection getConnection() {
+        try {
+            if (connection == null || connection.isClosed()) {
+                connection = DriverManager.getConnection(url);
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw new RepositoryException("Unable to open database " + url, e);
+        }
+
+        return connection;
+    }
+
+    /**
+     * Runs statements that don't return anything, such as the ones creating tables and indexes
+     *
+     * @param statements SQL statements to run
+     */
+    public void execute(String... statements) {
+        try (Statement statement = getConnection().createStatement()) {
+            for (String sql : statements) {
+                statement.execute(sql);
+            }
+        } catch (SQLException e) {
+            throw new RepositoryException("Unable to update the schema of " + url, e);
+        }
+    }
+
+    /**
+     * Closes the connection to the database
+     */
+    public synchronized void close() {
+        if (connection != null) {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                throw new RepositoryException("Unable to close database " + url, e);
+            }
+
+            connection = null;
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package gateway.exceptions;
+
+/**
+ * Thrown when the journal can not be written to or read from
+ */
+public class JournalException extends RuntimeException {
+    public JournalException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
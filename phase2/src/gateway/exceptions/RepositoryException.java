@@ -0,0 +1,10 @@
+package gateway.exceptions;
+
+/**
+ * Thrown when a repository can not read from or write to its database
+ */
+public class RepositoryException extends RuntimeException {
+    public RepositoryException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
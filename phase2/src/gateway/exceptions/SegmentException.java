@@ -0,0 +1,10 @@
+package gateway.exceptions;
+
+/**
+ * Thrown when a segment can not be read or written
+ */
+public class SegmentException extends RuntimeException {
+    public SegmentException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
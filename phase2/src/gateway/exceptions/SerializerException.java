@@ -0,0 +1,10 @@
+package gateway.exceptions;
+
+/**
+ * Thrown when a serialized file exists but can not be read
+ */
+public class SerializerException extends RuntimeException {
+    public SerializerException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
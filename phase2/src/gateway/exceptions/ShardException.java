@@ -0,0 +1,10 @@
+package gateway.exceptions;
+
+/**
+ * Thrown when a shard can not be read
+ */
+public class ShardException extends RuntimeException {
+    public ShardException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,476 @@
+package gateway.journal;
+
+import gateway.exceptions.JournalException;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal stored in a single file. Each record is written as a compact binary frame:
+ * <p>
+ * [int payload length][long sequence][byte operation][arguments...][int CRC32 of the payload]
+ * <p>
+ * Records are handed to the operating system as soon as they are recorded, but the (expensive) fsync is batched: it
+ * runs once every batchSize records, and at least every syncInterval milliseconds on a background thread. A record
+ * that was only partially written when the program died fails its checksum and is dropped the next time the journal
+ * is opened.
+ * <p>
+ * If a background fsync fails, the failure is kept and the sync is retried by the next record or close, which throw
+ * if it still fails, so records are never silently left unsynced.
+ */
+public class FileJournal implements IJournal {
+    private static final byte NULL = 0;
+    private static final byte UUID_TYPE = 1;
+    private static final byte STRING = 2;
+    private static final byte INT = 3;
+    private static final byte LONG = 4;
+    private static final byte BOOLEAN = 5;
+    private static final byte DATE_TIME = 6;
+    private static final byte UUID_SET = 7;
+
+    // Anything longer than this is a corrupt length field, not a real record
+    private static final int MAX_RECORD_LENGTH = 16 * 1024 * 1024;
+
+    private final Logger LOGGER = Logger.getLogger(Logger.GLOBAL_LOGGER_NAME);
+
+    private final Path path;
+    private final int batchSize;
+    private final long syncInterval;
+
+    private FileChannel channel;
+    private ScheduledExecutorService syncExecutor;
+
+    private long lastSequence;
+    private long snapshotSequence;
+    private int unsyncedRecords;
+    // Set when the background sync failed, until a sync succeeds again
+    private RuntimeException syncFailure;
+
+    /**
+     * Creates a journal that writes to a file
+     *
+     * @param fileName     name of the journal file
+     * @param batchSize    maximum number of records written between two fsync calls
+     * @param syncInterval maximum number of milliseconds a record may wait before it is synced to disk
+     */
+    public FileJournal(String fileName, int batchSize, long syncInterval) {
+        this.path = Paths.get(fileName);
+        this.batchSize = batchSize;
+        this.syncInterval = syncInterval;
+    }
+
+    /**
+     * Opens the journal for writing. Any partially written record at the end of the file is discarded.
+     *
+     * @param minimumSequence sequence numbers of new records will be greater than this value (i.e. the newest snapshot)
+     */
+    public synchronized void open(long minimumSequence) {
+        try {
+            long[] lastValid = scan(null);
+
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            channel.truncate(lastValid[0]);
+            channel.position(lastValid[0]);
+
+            lastSequence = Math.max(lastValid[1], minimumSequence);
+        } catch (IOException e) {
+            throw new JournalException("Unable to open journal " + path, e);
+        }
+
+        syncExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "journal-sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+        syncExecutor.scheduleWithFixedDelay(this::backgroundSync, syncInterval, syncInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Appends a record to the journal
+     *
+     * @param operation the operation that was applied
+     * @param arguments arguments needed to apply the operation again
+     */
+    @Override
+    public synchronized void record(JournalOperation operation, Object... arguments) {
+        retryFailedSync();
+
+        try {
+            ByteArrayOutputStream payloadBytes = new ByteArrayOutputStream(64);
+            DataOutputStream payload = new DataOutputStream(payloadBytes);
+
+            payload.writeLong(lastSequence + 1);
+            payload.writeByte(operation.ordinal());
+            for (Object argument : arguments) {
+                writeArgument(payload, argument);
+            }
+
+            byte[] bytes = payloadBytes.toByteArray();
+            CRC32 crc = new CRC32();
+            crc.update(bytes);
+
+            ByteBuffer frame = ByteBuffer.allocate(bytes.length + 8);
+            frame.putInt(bytes.length);
+            frame.put(bytes);
+            frame.putInt((int) crc.getValue());
+            frame.flip();
+
+            while (frame.hasRemaining()) {
+                channel.write(frame);
+            }
+
+            lastSequence++;
+            if (++unsyncedRecords >= batchSize) {
+                sync();
+            }
+        } catch (IOException e) {
+            throw new JournalException("Unable to write to journal " + path, e);
+        }
+    }
+
+    /**
+     * Forces all records written so far to disk
+     */
+    public synchronized void sync() {
+        if (channel == null || unsyncedRecords == 0) {
+            return;
+        }
+
+        try {
+            channel.force(false);
+            unsyncedRecords = 0;
+        } catch (IOException e) {
+            throw new JournalException("Unable to sync journal " + path, e);
+        }
+    }
+
+    /**
+     * Syncs the journal from the background thread. An exception escaping the task would cancel it without a trace, so
+     * failures are logged and kept for the next record or close to retry instead.
+     */
+    private synchronized void backgroundSync() {
+        try {
+            sync();
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.SEVERE, String.format("Unable to sync journal %s in the background", path), e);
+            syncFailure = e;
+        }
+    }
+
+    /**
+     * Syncs the records the background thread failed to sync, if any
+     *
+     * @throws JournalException if they still can't be synced
+     */
+    private void retryFailedSync() {
+        if (syncFailure == null) {
+            return;
+        }
+
+        try {
+            sync();
+        } catch (RuntimeException e) {
+            e.addSuppressed(syncFailure);
+            throw new JournalException("Unable to sync journal " + path + ", records written since the last sync may be lost", e);
+        }
+
+        syncFailure = null;
+    }
+
+    /**
+     * Gets the sequence number of the newest record
+     *
+     * @return sequence number of the newest record
+     */
+    @Override
+    public synchronized long getSequence() {
+        return lastSequence;
+    }
+
+    /**
+     * Gets the sequence number the journal was last truncated at, i.e. the newest snapshot. This is 0 until the journal
+     * has been truncated at least once since it was opened.
+     *
+     * @return sequence number of the newest snapshot
+     */
+    @Override
+    public synchronized long getSnapshotSequence() {
+        return snapshotSequence;
+    }
+
+    /**
+     * Reads every valid record in the journal, oldest first. This does not block new records from being written; records
+     * written while the journal is being read may or may not be seen.
+     *
+     * @param consumer called once for every record
+     */
+    public void forEach(Consumer<JournalRecord> consumer) {
+        try {
+            scan(consumer);
+        } catch (IOException e) {
+            throw new JournalException("Unable to read journal " + path, e);
+        }
+    }
+
+    /**
+     * Removes every record from the journal. Should only be called once all the records are part of a snapshot.
+     * Sequence numbers keep increasing after a truncate.
+     */
+    public synchronized void truncate() {
+        try {
+            channel.truncate(0);
+            channel.position(0);
+            channel.force(true);
+            unsyncedRecords = 0;
+            snapshotSequence = lastSequence;
+        } catch (IOException e) {
+            throw new JournalException("Unable to truncate journal " + path, e);
+        }
+    }
+
+    /**
+     * Removes every record up to and including a sequence number from the journal. Records after it (e.g. ones written
+     * while a snapshot was being taken) are kept. The remaining records are copied to a temporary file which is then
+     * renamed over the journal, so the journal is never left half truncated.
+     *
+     * @param sequence sequence number of the newest record that is part of a snapshot
+     */
+    public synchronized void truncate(long sequence) {
+        Path temporary = Paths.get(path + ".tmp");
+
+        try {
+            sync();
+
+            try (FileChannel temporaryChannel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                scanFrames((recordSequence, frame) -> {
+                    if (recordSequence > sequence) {
+                        try {
+                            ByteBuffer buffer = ByteBuffer.wrap(frame);
+                            while (buffer.hasRemaining()) {
+                                temporaryChannel.write(buffer);
+                            }
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }
+                });
+                temporaryChannel.force(true);
+            }
+
+            channel.close();
+            try {
+                Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+
+            channel = FileChannel.open(path, StandardOpenOption.WRITE);
+            channel.position(channel.size());
+            snapshotSequence = Math.max(snapshotSequence, sequence);
+        } catch (IOException | UncheckedIOException e) {
+            throw new JournalException("Unable to truncate journal " + path, e);
+        }
+    }
+
+    /**
+     * Syncs and closes the journal
+     */
+    public synchronized void close() {
+        if (syncExecutor != null) {
+            syncExecutor.shutdown();
+        }
+
+        retryFailedSync();
+
+        try {
+            sync();
+            channel.close();
+        } catch (IOException e) {
+            throw new JournalException("Unable to close journal " + path, e);
+        }
+    }
+
+    /**
+     * Reads records from the journal file until the end of the file or the first corrupt record
+     *
+     * @param consumer called once for every valid record, may be null
+     * @return {length of the valid part of the file, sequence number of the last valid record}
+     * @throws IOException if the file exists but can not be read
+     */
+    private long[] scan(Consumer<JournalRecord> consumer) throws IOException {
+        if (consumer == null) {
+            return scanFrames(null);
+        }
+
+        try {
+            return scanFrames((sequence, frame) -> {
+                try {
+                    consumer.accept(readRecord(Arrays.copyOfRange(frame, 4, frame.length - 4)));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Reads raw frames from the journal file until the end of the file or the first corrupt frame
+     *
+     * @param consumer called with the sequence number and the complete frame of every valid record, may be null
+     * @return {length of the valid part of the file, sequence number of the last valid record}
+     * @throws IOException if the file exists but can not be read
+     */
+    private long[] scanFrames(BiConsumer<Long, byte[]> consumer) throws IOException {
+        long validLength = 0;
+        long sequence = 0;
+
+        if (!path.toFile().exists()) {
+            return new long[]{validLength, sequence};
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(path.toFile())))) {
+            while (true) {
+                byte[] bytes;
+                int checksum;
+
+                try {
+                    int length = in.readInt();
+                    if (length < 9 || length > MAX_RECORD_LENGTH) {
+                        break;
+                    }
+
+                    bytes = new byte[length];
+                    in.readFully(bytes);
+                    checksum = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+
+                CRC32 crc = new CRC32();
+                crc.update(bytes);
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+
+                sequence = ByteBuffer.wrap(bytes).getLong();
+                if (consumer != null) {
+                    consumer.accept(sequence, ByteBuffer.allocate(bytes.length + 8).putInt(bytes.length).put(bytes).putInt(checksum).array());
+                }
+
+                validLength += bytes.length + 8;
+            }
+        }
+
+        return new long[]{validLength, sequence};
+    }
+
+    private JournalRecord readRecord(byte[] bytes) throws IOException {
+        DataInputStream payload = new DataInputStream(new ByteArrayInputStream(bytes));
+
+        long sequence = payload.readLong();
+        JournalOperation operation = JournalOperation.values()[payload.readUnsignedByte()];
+
+        List<Object> arguments = new ArrayList<>();
+        while (payload.available() > 0) {
+            arguments.add(readArgument(payload));
+        }
+
+        return new JournalRecord(sequence, operation, arguments);
+    }
+
+    private void writeArgument(DataOutputStream out, Object argument) throws IOException {
+        if (argument == null) {
+            out.writeByte(NULL);
+        } else if (argument instanceof UUID) {
+            out.writeByte(UUID_TYPE);
+            writeUUID(out, (UUID) argument);
+        } else if (argument instanceof String) {
+            byte[] bytes = ((String) argument).getBytes(StandardCharsets.UTF_8);
+            out.writeByte(STRING);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        } else if (argument instanceof Integer) {
+            out.writeByte(INT);
+            out.writeInt((Integer) argument);
+        } else if (argument instanceof Long) {
+            out.writeByte(LONG);
+            out.writeLong((Long) argument);
+        } else if (argument instanceof Boolean) {
+            out.writeByte(BOOLEAN);
+            out.writeBoolean((Boolean) argument);
+        } else if (argument instanceof LocalDateTime) {
+            LocalDateTime dateTime = (LocalDateTime) argument;
+            out.writeByte(DATE_TIME);
+            out.writeLong(dateTime.toEpochSecond(ZoneOffset.UTC));
+            out.writeInt(dateTime.getNano());
+        } else if (argument instanceof Set) {
+            Set<?> set = (Set<?>) argument;
+            out.writeByte(UUID_SET);
+            out.writeInt(set.size());
+            for (Object uuid : set) {
+                writeUUID(out, (UUID) uuid);
+            }
+        } else {
+            throw new IllegalArgumentException("Unsupported journal argument type: " + argument.getClass());
+        }
+    }
+
+    private Object readArgument(DataInputStream in) throws IOException {
+        byte type = in.readByte();
+
+        switch (type) {
+            case NULL:
+                return null;
+            case UUID_TYPE:
+                return readUUID(in);
+            case STRING:
+                byte[] bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                return new String(bytes, StandardCharsets.UTF_8);
+            case INT:
+                return in.readInt();
+            case LONG:
+                return in.readLong();
+            case BOOLEAN:
+                return in.readBoolean();
+            case DATE_TIME:
+                long epochSecond = in.readLong();
+                return LocalDateTime.ofEpochSecond(epochSecond, in.readInt(), ZoneOffset.UTC);
+            case UUID_SET:
+                int size = in.readInt();
+                Set<UUID> set = new HashSet<>();
+                for (int i = 0; i < size; i++) {
+                    set.add(readUUID(in));
+                }
+                return set;
+            default:
+                throw new IOException("Unknown journal argument type: " + type);
+        }
+    }
+
+    private void writeUUID(DataOutputStream out, UUID uuid) throws IOException {
+        out.writeLong(uuid.getMostSignificantBits());
+        out.writeLong(uuid.getLeastSignificantBits());
+    }
+
+    private UUID readUUID(DataInputStream in) throws IOException {
+        long mostSignificantBits = in.readLong();
+        return new UUID(mostSignificantBits, in.readLong());
+    }
+}
@@ -0,0 +1,29 @@
+package gateway.journal;
+
+/**
+ * Interface for recording mutations so they can be replayed after a crash
+ */
+public interface IJournal {
+    /**
+     * Records a mutation that has just been applied
+     *
+     * @param operation the operation that was applied
+     * @param arguments arguments needed to apply the operation again (UUID, String, Integer, Long, Boolean,
+     *                  LocalDateTime, Set of UUIDs, or null)
+     */
+    void record(JournalOperation operation, Object... arguments);
+
+    /**
+     * Gets the sequence number of the newest record
+     *
+     * @return sequence number of the newest record
+     */
+    long getSequence();
+
+    /**
+     * Gets the sequence number up to which every record is part of a snapshot on disk
+     *
+     * @return sequence number of the newest snapshot
+     */
+    long getSnapshotSequence();
+}
@@ -0,0 +1,125 @@
+package gateway.journal;
+
+/**
+ * Every mutation that can be recorded in the journal. Each operation belongs to exactly one of the serialized managers
+ * so that replay can skip operations which are already part of that manager's snapshot.
+ * <p>
+ * Operations are written to disk using their ordinal, so new operations must only ever be added to the end of the list.
+ */
+public enum JournalOperation {
+    // UserManager
+    USER_REGISTER(Target.USER),
+    USER_SET_FIRST_NAME(Target.USER),
+    USER_SET_LAST_NAME(Target.USER),
+    USER_SET_USERNAME(Target.USER),
+    USER_SET_PASSWORD(Target.USER),
+    USER_SET_SIGNED_IN(Target.USER),
+
+    // ContactManager
+    CONTACT_SET_CONTACTS(Target.CONTACT),
+    CONTACT_SET_REQUESTS(Target.CONTACT),
+    CONTACT_SET_SENT_REQUESTS(Target.CONTACT),
+
+    // ConversationManager
+    CONVERSATION_CREATE(Target.CONVERSATION),
+    CONVERSATION_DELETE(Target.CONVERSATION),
+    CONVERSATION_ADD_USER(Target.CONVERSATION),
+    CONVERSATION_REMOVE_USER(Target.CONVERSATION),
+    CONVERSATION_SEND_MESSAGE(Target.CONVERSATION),
+    CONVERSATION_DELETE_MESSAGE(Target.CONVERSATION),
+    CONVERSATION_READ(Target.CONVERSATION),
+    CONVERSATION_UNREAD(Target.CONVERSATION),
+    CONVERSATION_ARCHIVE(Target.CONVERSATION),
+
+    // ConferenceManager
+    CONFERENCE_CREATE(Target.CONFERENCE),
+    CONFERENCE_DELETE(Target.CONFERENCE),
+    CONFERENCE_SET_NAME(Target.CONFERENCE),
+    CONFERENCE_SET_TIME_RANGE(Target.CONFERENCE),
+    CONFERENCE_ADD_ORGANIZER(Target.CONFERENCE),
+    CONFERENCE_REMOVE_ORGANIZER(Target.CONFERENCE),
+    CONFERENCE_ADD_ATTENDEE(Target.CONFERENCE),
+    CONFERENCE_REMOVE_ATTENDEE(Target.CONFERENCE),
+    CONFERENCE_ADD_SPEAKER(Target.CONFERENCE),
+    CONFERENCE_REMOVE_SPEAKER(Target.CONFERENCE),
+    CONFERENCE_SET_SPEAKERS(Target.CONFERENCE),
+
+    // EventManager
+    EVENT_CREATE(Target.CONFERENCE, true),
+    EVENT_DELETE(Target.CONFERENCE, true),
+    EVENT_SET_TITLE(Target.CONFERENCE, true),
+    EVENT_SET_ROOM(Target.CONFERENCE, true),
+    EVENT_SET_TIME_RANGE(Target.CONFERENCE, true),
+    EVENT_SET_CONVERSATION(Target.CONFERENCE, true),
+    EVENT_ADD_SPEAKER(Target.CONFERENCE, true),
+    EVENT_REMOVE_SPEAKER(Target.CONFERENCE, true),
+    EVENT_REGISTER_ATTENDEE(Target.CONFERENCE, true),
+    EVENT_UNREGISTER_ATTENDEE(Target.CONFERENCE, true),
+
+    // RoomManager
+    ROOM_CREATE(Target.CONFERENCE, true),
+    ROOM_DELETE(Target.CONFERENCE, true),
+    ROOM_SET_LOCATION(Target.CONFERENCE, true),
+    ROOM_SET_CAPACITY(Target.CONFERENCE, true),
+
+    // CalendarManager
+    CALENDAR_ADD_TIME_BLOCK(Target.CONFERENCE, true),
+    CALENDAR_REMOVE_TIME_BLOCK(Target.CONFERENCE, true),
+
+    // UserManager, one record for a whole batch of imported users
+    USER_IMPORT(Target.USER),
+
+    // EventManager, waitlists
+    EVENT_JOIN_WAITLIST(Target.CONFERENCE, true),
+    EVENT_LEAVE_WAITLIST(Target.CONFERENCE, true),
+
+    // ConferenceManager, schedule conflicts setting
+    CONFERENCE_SET_PREVENTING_SCHEDULE_CONFLICTS(Target.CONFERENCE),
+
+    // ConferenceManager, bulk invitations
+    CONFERENCE_ADD_ATTENDEES(Target.CONFERENCE),
+    CONFERENCE_ADD_ORGANIZERS(Target.CONFERENCE),
+
+    // Waitlist promotion messages
+    EVENT_SET_WAITLIST_CONVERSATION(Target.CONFERENCE, true),
+    CONVERSATION_ADD_READER(Target.CONVERSATION);
+
+    /**
+     * The serialized manager an operation is applied to
+     */
+    public enum Target {
+        USER, CONTACT, CONVERSATION, CONFERENCE
+    }
+
+    private final Target target;
+    private final boolean conferenceContents;
+
+    JournalOperation(Target target) {
+        this(target, false);
+    }
+
+    JournalOperation(Target target, boolean conferenceContents) {
+        this.target = target;
+        this.conferenceContents = conferenceContents;
+    }
+
+    /**
+     * Gets the manager this operation is applied to
+     *
+     * @return target manager
+     */
+    public Target getTarget() {
+        return target;
+    }
+
+    /**
+     * Checks if this operation changes the events, rooms or calendars of a conference. Those are stored in the
+     * conference's own shard file instead of the conference manager's snapshot. The first argument of these operations
+     * is always the UUID of the conference.
+     *
+     * @return true iff the operation changes the contents of a conference
+     */
+    public boolean isConferenceContents() {
+        return conferenceContents;
+    }
+}
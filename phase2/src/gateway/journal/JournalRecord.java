@@ -0,0 +1,114 @@
+package gateway.journal;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * A single entry in the journal. Stores the operation, its sequence number, and the arguments needed to replay it.
+ */
+public class JournalRecord {
+    private final long sequence;
+    private final JournalOperation operation;
+    private final List<Object> arguments;
+
+    /**
+     * Constructs a journal record
+     *
+     * @param sequence  position of this record in the journal
+     * @param operation operation that was applied
+     * @param arguments arguments of the operation
+     */
+    public JournalRecord(long sequence, JournalOperation operation, List<Object> arguments) {
+        this.sequence = sequence;
+        this.operation = operation;
+        this.arguments = arguments;
+    }
+
+    /**
+     * @return position of this record in the journal
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * @return operation that was applied
+     */
+    public JournalOperation getOperation() {
+        return operation;
+    }
+
+    /**
+     * @return number of arguments
+     */
+    public int size() {
+        return arguments.size();
+    }
+
+    /**
+     * @param index index of the argument
+     * @return argument as a UUID
+     */
+    public UUID getUUID(int index) {
+        return (UUID) arguments.get(index);
+    }
+
+    /**
+     * @param index index of the argument
+     * @return argument as a String
+     */
+    public String getString(int index) {
+        return (String) arguments.get(index);
+    }
+
+    /**
+     * @param index index of the argument
+     * @return argument as an int
+     */
+    public int getInt(int index) {
+        return (Integer) arguments.get(index);
+    }
+
+    /**
+     * @param index index of the argument
+     * @return argument as a long
+     */
+    public long getLong(int index) {
+        return (Long) arguments.get(index);
+    }
+
+    /**
+     * @param index index of the argument
+     * @return argument as a boolean
+     */
+    public boolean getBoolean(int index) {
+        return (Boolean) arguments.get(index);
+    }
+
+    /**
+     * @param index index of the argument
+     * @return argument as a LocalDateTime
+     */
+    public LocalDateTime getDateTime(int index) {
+        return (LocalDateTime) arguments.get(index);
+    }
+
+    /**
+     * @param index index of the argument
+     * @return argument as a set of UUIDs
+     */
+    @SuppressWarnings("unchecked")
+    public Set<UUID> getUUIDSet(int index) {
+        return (Set<UUID>) arguments.get(index);
+    }
+
+    /**
+     * @return string representation of this record, for debugging
+     */
+    @Override
+    public String toString() {
+        return String.format("#%d %s %s", sequence, operation, arguments);
+    }
+}
@@ -0,0 +1,364 @@
+package gateway.journal;
+
+import contact.ContactManager;
+import convention.calendar.TimeRange;
+import convention.conference.ConferenceManager;
+import messaging.ConversationManager;
+import user.UserManager;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Applies journal records to the managers, on top of the snapshots they were loaded from. Records which are already
+ * part of a manager's snapshot (or a conference's shard, or a manager's database) are skipped.
+ * <p>
+ * The managers must not be recording to a journal while records are replayed, otherwise every record would be written
+ * a second time.
+ */
+public class JournalReplayer {
+    private final Logger LOGGER = Logger.getLogger(Logger.GLOBAL_LOGGER_NAME);
+
+    private final UserManager userManager;
+    private final ContactManager contactManager;
+    private final ConversationManager conversationManager;
+    private final ConferenceManager conferenceManager;
+
+    private final Map<JournalOperation.Target, Long> snapshotSequences = new EnumMap<>(JournalOperation.Target.class);
+
+    /**
+     * Creates a replayer for a set of managers
+     *
+     * @param userManager         user manager to apply records to
+     * @param contactManager      contact manager to apply records to
+     * @param conversationManager conversation manager to apply records to
+     * @param conferenceManager   conference manager to apply records to
+     */
+    public JournalReplayer(UserManager userManager, ContactManager contactManager, ConversationManager conversationManager, ConferenceManager conferenceManager) {
+        this.userManager = userManager;
+        this.contactManager = contactManager;
+        this.conversationManager = conversationManager;
+        this.conferenceManager = conferenceManager;
+
+        for (JournalOperation.Target target : JournalOperation.Target.values()) {
+            snapshotSequences.put(target, 0L);
+        }
+    }
+
+    /**
+     * Sets the sequence number a manager's snapshot was saved at. Records up to and including this number are skipped.
+     *
+     * @param target   manager the snapshot belongs to
+     * @param sequence sequence number of the snapshot
+     */
+    public void setSnapshotSequence(JournalOperation.Target target, long sequence) {
+        snapshotSequences.put(target, sequence);
+    }
+
+    /**
+     * Gets the smallest sequence number out of all the snapshots
+     *
+     * @return smallest snapshot sequence number
+     */
+    public long getOldestSnapshotSequence() {
+        long oldest = Long.MAX_VALUE;
+
+        for (long sequence : snapshotSequences.values()) {
+            oldest = Math.min(oldest, sequence);
+        }
+
+        return oldest;
+    }
+
+    /**
+     * Gets the largest sequence number out of all the snapshots
+     *
+     * @return largest snapshot sequence number
+     */
+    public long getNewestSnapshotSequence() {
+        long newest = 0;
+
+        for (long sequence : snapshotSequences.values()) {
+            newest = Math.max(newest, sequence);
+        }
+
+        return newest;
+    }
+
+    /**
+     * Replays every record in a journal
+     *
+     * @param journal journal to read from
+     * @return number of records that were applied
+     */
+    public int replay(FileJournal journal) {
+        return replay(journal, Long.MAX_VALUE);
+    }
+
+    /**
+     * Replays every record in a journal up to and including a sequence number
+     *
+     * @param journal  journal to read from
+     * @param sequence sequence number of the newest record to apply
+     * @return number of records that were applied
+     */
+    public int replay(FileJournal journal, long sequence) {
+        int[] applied = {0};
+
+        journal.forEach(record -> {
+            if (record.getSequence() <= sequence && apply(record)) {
+                applied[0]++;
+            }
+        });
+
+        return applied[0];
+    }
+
+    /**
+     * Applies a single record, unless it is already part of the snapshot of the manager it belongs to
+     *
+     * @param record record to apply
+     * @return true iff the record was applied
+     */
+    public boolean apply(JournalRecord record) {
+        if (record.getSequence() <= snapshotSequences.get(record.getOperation().getTarget()) || isStored(record.getOperation())) {
+            return false;
+        }
+
+        try {
+            // Conference contents have their own shards, which may be newer than the conference manager's snapshot
+            if (record.getOperation().isConferenceContents() && record.getSequence() <= conferenceManager.getShardSequence(record.getUUID(0))) {
+                return false;
+            }
+
+            applyOperation(record);
+        } catch (RuntimeException e) {
+            // A record that can't be applied means the snapshot and journal disagree; skip it rather than losing
+            // everything that comes after it
+            LOGGER.log(Level.SEVERE, String.format("Unable to replay journal record %s", record), e);
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Tests if a manager's database already has the effect of an operation. The signed in user isn't part of the
+     * database, so it's always replayed.
+     */
+    private boolean isStored(JournalOperation operation) {
+        switch (operation.getTarget()) {
+            case USER:
+                return operation != JournalOperation.USER_SET_SIGNED_IN && userManager.isDurable();
+            case CONVERSATION:
+                return conversationManager.isDurable();
+            default:
+                return false;
+        }
+    }
+
+    private TimeRange getTimeRange(JournalRecord record, int index) {
+        return new TimeRange(record.getDateTime(index), record.getDateTime(index + 1));
+    }
+
+    /**
+     * USER_IMPORT records start with whether the users are gods, followed by UUID, first name, last name, username and
+     * password of every user in the batch
+     */
+    private void replayUserImport(JournalRecord record) {
+        List<UUID> userUUIDs = new ArrayList<>();
+        List<String[]> entries = new ArrayList<>();
+
+        for (int i = 1; i + 4 < record.size(); i += 5) {
+            userUUIDs.add(record.getUUID(i));
+            entries.add(new String[]{record.getString(i + 1), record.getString(i + 2), record.getString(i + 3), record.getString(i + 4)});
+        }
+
+        userManager.registerUsers(userUUIDs, entries, record.getBoolean(0));
+    }
+
+    private void applyOperation(JournalRecord record) {
+        switch (record.getOperation()) {
+            // UserManager
+            case USER_REGISTER:
+                userManager.registerUser(record.getUUID(0), record.getString(1), record.getString(2), record.getString(3), record.getString(4), record.getBoolean(5), false);
+                break;
+            case USER_IMPORT:
+                replayUserImport(record);
+                break;
+            case USER_SET_FIRST_NAME:
+                userManager.setUserFirstName(record.getUUID(0), record.getString(1));
+                break;
+            case USER_SET_LAST_NAME:
+                userManager.setUserLastName(record.getUUID(0), record.getString(1));
+                break;
+            case USER_SET_USERNAME:
+                userManager.setUserUsername(record.getUUID(0), record.getString(1));
+                break;
+            case USER_SET_PASSWORD:
+                userManager.setUserPassword(record.getUUID(0), record.getString(1));
+                break;
+            case USER_SET_SIGNED_IN:
+                userManager.setSignedInUserUUID(record.getUUID(0));
+                break;
+
+            // ContactManager
+            case CONTACT_SET_CONTACTS:
+                contactManager.setContacts(record.getUUID(0), record.getUUIDSet(1));
+                break;
+            case CONTACT_SET_REQUESTS:
+                contactManager.setRequests(record.getUUID(0), record.getUUIDSet(1));
+                break;
+            case CONTACT_SET_SENT_REQUESTS:
+                contactManager.setSentRequests(record.getUUID(0), record.getUUIDSet(1));
+                break;
+
+            // ConversationManager
+            case CONVERSATION_CREATE:
+                conversationManager.createConversation(record.getUUID(0), record.getString(1), record.getUUIDSet(2), record.getUUIDSet(3), record.getUUID(4), record.getString(5), record.getDateTime(6));
+                break;
+            case CONVERSATION_DELETE:
+                conversationManager.deleteConversation(record.getUUID(0));
+                break;
+            case CONVERSATION_ADD_USER:
+                conversationManager.addUser(record.getUUID(0), record.getUUID(1));
+                break;
+            case CONVERSATION_ADD_READER:
+                conversationManager.addReader(record.getUUID(0), record.getUUID(1));
+                break;
+            case CONVERSATION_REMOVE_USER:
+                conversationManager.removeUser(record.getUUID(0), record.getUUID(1));
+                break;
+            case CONVERSATION_SEND_MESSAGE:
+                conversationManager.sendMessage(record.getUUID(0), record.getString(1), record.getUUID(2), record.getBoolean(3), record.getDateTime(4));
+                break;
+            case CONVERSATION_DELETE_MESSAGE:
+                conversationManager.userDeleteMessage(record.getUUID(0), record.getInt(1));
+                break;
+            case CONVERSATION_READ:
+                conversationManager.userReadConversation(record.getUUID(0), record.getUUID(1));
+                break;
+            case CONVERSATION_UNREAD:
+                conversationManager.userUnreadConversation(record.getUUID(0), record.getUUID(1));
+                break;
+            case CONVERSATION_ARCHIVE:
+                conversationManager.userArchiveConversation(record.getUUID(0), record.getUUID(1));
+                break;
+
+            // ConferenceManager
+            case CONFERENCE_CREATE:
+                conferenceManager.createConference(record.getUUID(0), record.getString(1), getTimeRange(record, 2), record.getUUID(4));
+                break;
+            case CONFERENCE_DELETE:
+                conferenceManager.deleteConference(record.getUUID(0));
+                break;
+            case CONFERENCE_SET_NAME:
+                conferenceManager.setConferenceName(record.getUUID(0), record.getString(1));
+                break;
+            case CONFERENCE_SET_PREVENTING_SCHEDULE_CONFLICTS:
+                conferenceManager.setPreventingScheduleConflicts(record.getUUID(0), record.getBoolean(1));
+                break;
+            case CONFERENCE_SET_TIME_RANGE:
+                conferenceManager.setTimeRange(record.getUUID(0), getTimeRange(record, 1));
+                break;
+            case CONFERENCE_ADD_ORGANIZER:
+                conferenceManager.addOrganizer(record.getUUID(0), record.getUUID(1));
+                break;
+            case CONFERENCE_REMOVE_ORGANIZER:
+                conferenceManager.removeOrganizer(record.getUUID(0), record.getUUID(1));
+                break;
+            case CONFERENCE_ADD_ATTENDEE:
+                conferenceManager.addAttendee(record.getUUID(0), record.getUUID(1));
+                break;
+            case CONFERENCE_REMOVE_ATTENDEE:
+                conferenceManager.removeAttendee(record.getUUID(0), record.getUUID(1));
+                break;
+            case CONFERENCE_ADD_SPEAKER:
+                conferenceManager.addSpeaker(record.getUUID(0), record.getUUID(1));
+                break;
+            case CONFERENCE_REMOVE_SPEAKER:
+                conferenceManager.removeSpeaker(record.getUUID(0), record.getUUID(1));
+                break;
+            case CONFERENCE_SET_SPEAKERS:
+                conferenceManager.setSpeakers(record.getUUID(0), record.getUUIDSet(1));
+                break;
+            case CONFERENCE_ADD_ATTENDEES:
+                conferenceManager.addAttendees(record.getUUID(0), record.getUUIDSet(1));
+                break;
+            case CONFERENCE_ADD_ORGANIZERS:
+                conferenceManager.addOrganizers(record.getUUID(0), record.getUUIDSet(1));
+                break;
+
+            // EventManager
+            case EVENT_CREATE:
+                conferenceManager.getEventManager(record.getUUID(0)).createEvent(record.getUUID(1), record.getString(2), getTimeRange(record, 3), record.getUUID(5), record.getUUIDSet(6));
+                break;
+            case EVENT_DELETE:
+                conferenceManager.getEventManager(record.getUUID(0)).deleteEvent(record.getUUID(1));
+                break;
+            case EVENT_SET_TITLE:
+                conferenceManager.getEventManager(record.getUUID(0)).setEventTitle(record.getUUID(1), record.getString(2));
+                break;
+            case EVENT_SET_ROOM:
+                conferenceManager.getEventManager(record.getUUID(0)).setEventRoom(record.getUUID(1), record.getUUID(2));
+                break;
+            case EVENT_SET_TIME_RANGE:
+                conferenceManager.getEventManager(record.getUUID(0)).setEventTimeRange(record.getUUID(1), getTimeRange(record, 2));
+                break;
+            case EVENT_SET_CONVERSATION:
+                conferenceManager.getEventManager(record.getUUID(0)).setEventConversationUUID(record.getUUID(1), record.getUUID(2));
+                break;
+            case EVENT_SET_WAITLIST_CONVERSATION:
+                conferenceManager.getEventManager(record.getUUID(0)).setEventWaitlistConversationUUID(record.getUUID(1), record.getUUID(2));
+                break;
+            case EVENT_ADD_SPEAKER:
+                conferenceManager.getEventManager(record.getUUID(0)).addEventSpeaker(record.getUUID(1), record.getUUID(2));
+                break;
+            case EVENT_REMOVE_SPEAKER:
+                conferenceManager.getEventManager(record.getUUID(0)).removeEventSpeaker(record.getUUID(1), record.getUUID(2));
+                break;
+            case EVENT_REGISTER_ATTENDEE:
+                conferenceManager.getEventManager(record.getUUID(0)).registerAttendee(record.getUUID(1), record.getUUID(2));
+                break;
+            case EVENT_UNREGISTER_ATTENDEE:
+                conferenceManager.getEventManager(record.getUUID(0)).unregisterAttendee(record.getUUID(1), record.getUUID(2));
+                break;
+            case EVENT_JOIN_WAITLIST:
+                conferenceManager.getEventManager(record.getUUID(0)).joinWaitlist(record.getUUID(1), record.getUUID(2));
+                break;
+            case EVENT_LEAVE_WAITLIST:
+                conferenceManager.getEventManager(record.getUUID(0)).leaveWaitlist(record.getUUID(1), record.getUUID(2));
+                break;
+
+            // RoomManager
+            case ROOM_CREATE:
+                conferenceManager.getRoomManager(record.getUUID(0)).createRoom(record.getUUID(1), record.getString(2), record.getInt(3));
+                break;
+            case ROOM_DELETE:
+                conferenceManager.getRoomManager(record.getUUID(0)).deleteRoom(record.getUUID(1));
+                break;
+            case ROOM_SET_LOCATION:
+                conferenceManager.getRoomManager(record.getUUID(0)).setRoomLocation(record.getUUID(1), record.getString(2));
+                break;
+            case ROOM_SET_CAPACITY:
+                conferenceManager.getRoomManager(record.getUUID(0)).setRoomCapacity(record.getUUID(1), record.getInt(2));
+                break;
+
+            // CalendarManager
+            case CALENDAR_ADD_TIME_BLOCK:
+                conferenceManager.getRoomManager(record.getUUID(0)).getCalendarManager(record.getUUID(1)).addTimeBlock(record.getUUID(2), getTimeRange(record, 3));
+                break;
+            case CALENDAR_REMOVE_TIME_BLOCK:
+                conferenceManager.getRoomManager(record.getUUID(0)).getCalendarManager(record.getUUID(1)).removeTimeBlock(record.getUUID(2));
+                break;
+
+            default:
+                throw new IllegalArgumentException("Unknown journal operation " + record.getOperation());
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package gateway.journal;
+
+import contact.ContactManager;
+import convention.conference.ConferenceManager;
+import gateway.SegmentStore;
+import gateway.Serializer;
+import gateway.ShardStore;
+import gateway.SqlDatabase;
+import messaging.ConversationManager;
+import user.UserManager;
+
+import java.util.concurrent.*;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Takes snapshots of the managers in the background, so the journal doesn't grow forever and the UI never has to wait
+ * for the whole object graph to be written.
+ * <p>
+ * A snapshot is captured by remembering the current journal sequence number, which is all the calling thread has to
+ * do. The live managers are never touched by the background thread: it loads the previous snapshot into a separate set
+ * of managers, replays the journal up to the captured sequence number on top of them, and writes the result. The
+ * journal prefix acts as the copy-on-write capture, so the UI can keep mutating the live managers (and appending to the
+ * journal) while the snapshot streams to disk. Once the new snapshot is renamed into place, the journal is truncated up
+ * to the captured sequence number.
+ */
+public class Snapshotter {
+    private final Logger LOGGER = Logger.getLogger(Logger.GLOBAL_LOGGER_NAME);
+
+    private final FileJournal journal;
+    private final Serializer<UserManager> userManagerSerializer;
+    private final Serializer<ContactManager> contactManagerSerializer;
+    private final Serializer<ConversationManager> conversationManagerSerializer;
+    private final Serializer<ConferenceManager> conferenceManagerSerializer;
+    private final ShardStore conferenceShardStore;
+    private SqlDatabase database;
+    private SegmentStore messageStore;
+
+    private final ScheduledExecutorService executor;
+    private volatile long snapshotSequence;
+
+    /**
+     * Creates a snapshotter
+     *
+     * @param journal                       journal the live managers are recording to
+     * @param userManagerSerializer         serializer the user manager is snapshotted with
+     * @param contactManagerSerializer      serializer the contact manager is snapshotted with
+     * @param conversationManagerSerializer serializer the conversation manager is snapshotted with
+     * @param conferenceManagerSerializer   serializer the conference manager is snapshotted with
+     * @param conferenceShardStore          store for the contents of conferences
+     */
+    public Snapshotter(FileJournal journal, Serializer<UserManager> userManagerSerializer, Serializer<ContactManager> contactManagerSerializer, Serializer<ConversationManager> conversationManagerSerializer, Serializer<ConferenceManager> conferenceManagerSerializer, ShardStore conferenceShardStore) {
+        this.journal = journal;
+        this.userManagerSerializer = userManagerSerializer;
+        this.contactManagerSerializer = contactManagerSerializer;
+        this.conversationManagerSerializer = conversationManagerSerializer;
+        this.conferenceManagerSerializer = conferenceManagerSerializer;
+        this.conferenceShardStore = conferenceShardStore;
+
+        // Everything up to the oldest of the snapshots that were loaded is already on disk
+        this.snapshotSequence = Math.min(Math.min(userManagerSerializer.getSequence(), contactManagerSerializer.getSequence()), Math.min(conversationManagerSerializer.getSequence(), conferenceManagerSerializer.getSequence()));
+
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "snapshotter");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+    }
+
+    /**
+     * Sets the database the user and conversation managers store their entities in, so managers created when there is
+     * no previous snapshot use it too
+     *
+     * @param database database the managers are backed by, or null if they keep everything in memory
+     */
+    public void setDatabase(SqlDatabase database) {
+        this.database = database;
+    }
+
+    /**
+     * Sets where the conversation manager stores messages
+     *
+     * @param messageStore store for the messages of every conversation, or null if they're kept in memory
+     */
+    public void setMessageStore(SegmentStore messageStore) {
+        this.messageStore = messageStore;
+    }
+
+    /**
+     * Periodically takes a snapshot, as long as enough records have been written since the last one
+     *
+     * @param interval       number of milliseconds between checks
+     * @param minimumRecords minimum number of new journal records needed to take a snapshot
+     */
+    public void start(long interval, int minimumRecords) {
+        executor.scheduleWithFixedDelay(() -> {
+            long sequence = journal.getSequence();
+
+            if (sequence - snapshotSequence >= minimumRecords) {
+                write(sequence);
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Captures the current state of the managers and writes it to disk in the background. The calling thread only
+     * reads the journal sequence number, so this returns almost immediately regardless of how much data there is.
+     *
+     * @return future that completes with the sequence number of the snapshot once it is on disk
+     */
+    public Future<Long> snapshot() {
+        long sequence = journal.getSequence();
+
+        return executor.submit(() -> {
+            write(sequence);
+            return sequence;
+        });
+    }
+
+    /**
+     * Stops taking snapshots and waits for the one in progress (if any) to finish
+     */
+    public void close() {
+        // Not shutdownNow, interrupting a write would close the journal's file channel
+        executor.shutdown();
+
+        try {
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Writes every manager to disk at a sequence number. Conference shards are written before the conference index, and
+     * messages are synced before the conversation manager, so the snapshots never refer to anything that isn't on disk. The managers must not be modified while they are written.
+     *
+     * @param userManager         user manager to write
+     * @param contactManager      contact manager to write
+     * @param conversationManager conversation manager to write
+     * @param conferenceManager   conference manager to write
+     * @param sequence            newest journal sequence number included in the managers
+     * @return true iff everything was written, i.e. the journal can be truncated up to the sequence number
+     */
+    public boolean save(UserManager userManager, ContactManager contactManager, ConversationManager conversationManager, ConferenceManager conferenceManager, long sequence) {
+        boolean saved = userManagerSerializer.save(userManager, sequence);
+        saved &= contactManagerSerializer.save(contactManager, sequence);
+        saved &= conversationManager.syncMessages() && conversationManagerSerializer.save(conversationManager, sequence);
+        saved &= conferenceManager.saveShards(sequence);
+        saved &= conferenceManagerSerializer.save(conferenceManager, sequence);
+
+        if (saved) {
+            conferenceManager.removeDeletedShards();
+            conversationManager.removeDeletedMessages();
+        }
+
+        return saved;
+    }
+
+    /**
+     * Rebuilds the state at a sequence number from the previous snapshot and the journal, and writes it to disk
+     *
+     * @param sequence sequence number to take the snapshot at
+     */
+    private void write(long sequence) {
+        if (sequence <= snapshotSequence) {
+            return;
+        }
+
+        long start = System.nanoTime();
+
+        try {
+            UserManager userManager = userManagerSerializer.load(database == null ? new UserManager() : new UserManager(database));
+            ContactManager contactManager = contactManagerSerializer.load(new ContactManager());
+            ConversationManager conversationManager = conversationManagerSerializer.load(database == null ? new ConversationManager() : new ConversationManager(database));
+            ConferenceManager conferenceManager = conferenceManagerSerializer.load(new ConferenceManager());
+            conferenceManager.setShardStore(conferenceShardStore);
+
+            // The live manager already appended every message being replayed, so the store only has to be read
+            if (messageStore != null) {
+                conversationManager.setMessageStore(messageStore);
+            }
+
+            JournalReplayer journalReplayer = new JournalReplayer(userManager, contactManager, conversationManager, conferenceManager);
+            journalReplayer.setSnapshotSequence(JournalOperation.Target.USER, userManagerSerializer.getSequence());
+            journalReplayer.setSnapshotSequence(JournalOperation.Target.CONTACT, contactManagerSerializer.getSequence());
+            journalReplayer.setSnapshotSequence(JournalOperation.Target.CONVERSATION, conversationManagerSerializer.getSequence());
+            journalReplayer.setSnapshotSequence(JournalOperation.Target.CONFERENCE, conferenceManagerSerializer.getSequence());
+            int replayed = journalReplayer.replay(journal, sequence);
+
+            // Records are only dropped once every snapshot that needs them is safely on disk
+            if (!save(userManager, contactManager, conversationManager, conferenceManager, sequence)) {
+                LOGGER.log(Level.SEVERE, String.format("Unable to write snapshot at sequence %d, keeping the journal", sequence));
+                return;
+            }
+
+            journal.truncate(sequence);
+            snapshotSequence = sequence;
+
+            LOGGER.log(Level.INFO, String.format("Snapshot at sequence %d (%d records) took %d ms", sequence, replayed, (System.nanoTime() - start) / 1_000_000));
+        } catch (RuntimeException e) {
+            // The previous snapshot and the journal are still intact, so the next snapshot can try again
+            LOGGER.log(Level.SEVERE, "Unable to take snapshot", e);
+        }
+    }
+}
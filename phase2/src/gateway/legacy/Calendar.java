@@ -0,0 +1,14 @@
+package gateway.legacy;
+
+import java.io.Serializable;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Calendar as it was serialized before entities had their own format
+ */
+class Calendar implements Serializable {
+    private static final long serialVersionUID = -5368907910893175018L;
+
+    Map<UUID, TimeRange> uuidToTimeRange;
+}
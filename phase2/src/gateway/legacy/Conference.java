@@ -0,0 +1,22 @@
+package gateway.legacy;
+
+import java.io.Serializable;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Conference as it was serialized before entities had their own format
+ */
+class Conference implements Serializable {
+    private static final long serialVersionUID = -251882308033553694L;
+
+    Set<UUID> organizerUUIDs;
+    Set<UUID> speakerUUIDs;
+    Set<UUID> attendeeUUIDs;
+    Map<UUID, Event> events;
+    Map<UUID, Room> rooms;
+    String conferenceName;
+    UUID uuid;
+    TimeRange timeRange;
+}
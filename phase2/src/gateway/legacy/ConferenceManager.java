@@ -0,0 +1,53 @@
+package gateway.legacy;
+
+import convention.event.EventManager;
+import convention.room.RoomManager;
+
+import java.io.Serializable;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * ConferenceManager as it was serialized before conferences were split into shards
+ */
+class ConferenceManager implements Serializable {
+    private static final long serialVersionUID = 4718881216905206343L;
+
+    Map<UUID, Conference> conferences;
+
+    convention.conference.ConferenceManager migrate() {
+        convention.conference.ConferenceManager conferenceManager = new convention.conference.ConferenceManager();
+
+        for (Conference conference : conferences.values()) {
+            UUID conferenceUUID = conference.uuid;
+
+            conferenceManager.createConference(conferenceUUID, conference.conferenceName, conference.timeRange.migrate(), conference.organizerUUIDs.iterator().next());
+            conferenceManager.addOrganizers(conferenceUUID, conference.organizerUUIDs);
+            conferenceManager.setSpeakers(conferenceUUID, conference.speakerUUIDs);
+            conferenceManager.addAttendees(conferenceUUID, conference.attendeeUUIDs);
+
+            RoomManager roomManager = conferenceManager.getRoomManager(conferenceUUID);
+            for (Room room : conference.rooms.values()) {
+                roomManager.createRoom(room.roomUUID, room.roomLocation, room.capacity);
+
+                for (Map.Entry<UUID, TimeRange> booking : room.calendar.uuidToTimeRange.entrySet()) {
+                    roomManager.getCalendarManager(room.roomUUID).addTimeBlock(booking.getKey(), booking.getValue().migrate());
+                }
+            }
+
+            EventManager eventManager = conferenceManager.getEventManager(conferenceUUID);
+            for (Event event : conference.events.values()) {
+                eventManager.createEvent(event.uuid, event.title, event.timeRange.migrate(), event.roomUUID, event.speakerUUIDs);
+
+                for (UUID attendeeUUID : event.attendeeUUIDs) {
+                    eventManager.registerAttendee(event.uuid, attendeeUUID);
+                }
+                if (event.conversationUUID != null) {
+                    eventManager.setEventConversationUUID(event.uuid, event.conversationUUID);
+                }
+            }
+        }
+
+        return conferenceManager;
+    }
+}
@@ -0,0 +1,21 @@
+package gateway.legacy;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Conversation as it was serialized before entities had their own format
+ */
+class Conversation implements Serializable {
+    private static final long serialVersionUID = 5775743741307259450L;
+
+    String conversationName;
+    List<Message> conversationMessages;
+    Set<UUID> writeAccessUsers;
+    Set<UUID> readAccessUsers;
+    UUID conversationUUID;
+    Set<UUID> usersHaveRead;
+    Set<UUID> userArchivedUUIDs;
+}
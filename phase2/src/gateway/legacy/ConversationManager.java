@@ -0,0 +1,48 @@
+package gateway.legacy;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * ConversationManager as it was serialized before conversations were kept in a repository
+ */
+class ConversationManager implements Serializable {
+    private static final long serialVersionUID = -3201268868022236467L;
+
+    Map<UUID, Set<UUID>> userUUIDtoConversationUUIDs;
+    Map<UUID, Conversation> conversationUUIDsToEntity;
+
+    messaging.ConversationManager migrate() {
+        messaging.ConversationManager conversationManager = new messaging.ConversationManager();
+
+        for (Conversation conversation : conversationUUIDsToEntity.values()) {
+            UUID conversationUUID = conversation.conversationUUID;
+
+            // Conversations can't be created without a message, so one that had all of its messages deleted gets a
+            // placeholder that is deleted straight away
+            if (conversation.conversationMessages.isEmpty()) {
+                conversationManager.createConversation(conversationUUID, conversation.conversationName, conversation.writeAccessUsers, conversation.readAccessUsers, new UUID(0, 0), "", LocalDateTime.now());
+                conversationManager.userDeleteMessage(conversationUUID, 0);
+            } else {
+                Message first = conversation.conversationMessages.get(0);
+                conversationManager.createConversation(conversationUUID, conversation.conversationName, conversation.writeAccessUsers, conversation.readAccessUsers, first.senderUUID, first.content, first.timestamp);
+
+                for (Message message : conversation.conversationMessages.subList(1, conversation.conversationMessages.size())) {
+                    conversationManager.sendMessage(message.senderUUID, message.content, conversationUUID, true, message.timestamp);
+                }
+            }
+
+            for (UUID userUUID : conversation.usersHaveRead) {
+                conversationManager.userReadConversation(userUUID, conversationUUID);
+            }
+            for (UUID userUUID : conversation.userArchivedUUIDs) {
+                conversationManager.userArchiveConversation(userUUID, conversationUUID);
+            }
+        }
+
+        return conversationManager;
+    }
+}
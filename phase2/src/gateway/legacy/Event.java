@@ -0,0 +1,20 @@
+package gateway.legacy;
+
+import java.io.Serializable;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Event as it was serialized before entities had their own format
+ */
+class Event implements Serializable {
+    private static final long serialVersionUID = -8575362791327626710L;
+
+    UUID uuid;
+    String title;
+    Set<UUID> speakerUUIDs;
+    Set<UUID> attendeeUUIDs;
+    TimeRange timeRange;
+    UUID conversationUUID;
+    UUID roomUUID;
+}
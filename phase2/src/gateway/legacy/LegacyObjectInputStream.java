@@ -0,0 +1,39 @@
+package gateway.legacy;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamClass;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reads files written before entities had their own format, with the old classes standing in for the current ones
+ */
+class LegacyObjectInputStream extends ObjectInputStream {
+    private static final Map<String, Class<?>> LEGACY_CLASSES = new HashMap<>();
+
+    static {
+        LEGACY_CLASSES.put("user.UserManager", UserManager.class);
+        LEGACY_CLASSES.put("user.User", User.class);
+        LEGACY_CLASSES.put("messaging.ConversationManager", ConversationManager.class);
+        LEGACY_CLASSES.put("messaging.Conversation", Conversation.class);
+        LEGACY_CLASSES.put("messaging.Message", Message.class);
+        LEGACY_CLASSES.put("convention.conference.ConferenceManager", ConferenceManager.class);
+        LEGACY_CLASSES.put("convention.conference.Conference", Conference.class);
+        LEGACY_CLASSES.put("convention.event.Event", Event.class);
+        LEGACY_CLASSES.put("convention.room.Room", Room.class);
+        LEGACY_CLASSES.put("convention.calendar.Calendar", Calendar.class);
+        LEGACY_CLASSES.put("convention.calendar.TimeRange", TimeRange.class);
+    }
+
+    LegacyObjectInputStream(InputStream in) throws IOException {
+        super(in);
+    }
+
+    @Override
+    protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+        Class<?> legacyClass = LEGACY_CLASSES.get(desc.getName());
+        return legacyClass == null ? super.resolveClass(desc) : legacyClass;
+    }
+}
@@ -0,0 +1,42 @@
+package gateway.legacy;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+
+/**
+ * Reads the user, conversation and conference manager files written before entities had their own format, and
+ * rebuilds them as current managers
+ */
+public class LegacyReader {
+    private LegacyReader() {
+    }
+
+    /**
+     * Reads a manager written by an older version of the program
+     *
+     * @param fileName file to read
+     * @return the current version of the manager in the file
+     * @throws InvalidClassException  if the file wasn't written by an older version (e.g. it is already current)
+     * @throws IOException            if the file can't be read
+     * @throws ClassNotFoundException if the file refers to a class that doesn't exist anymore
+     */
+    public static Object read(String fileName) throws IOException, ClassNotFoundException {
+        Object object;
+
+        try (ObjectInputStream objectInputStream = new LegacyObjectInputStream(new FileInputStream(fileName))) {
+            object = objectInputStream.readObject();
+        }
+
+        if (object instanceof UserManager) {
+            return ((UserManager) object).migrate();
+        } else if (object instanceof ConversationManager) {
+            return ((ConversationManager) object).migrate();
+        } else if (object instanceof ConferenceManager) {
+            return ((ConferenceManager) object).migrate();
+        }
+
+        throw new InvalidClassException(object.getClass().getName(), "not written by an older version");
+    }
+}
@@ -0,0 +1,16 @@
+package gateway.legacy;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Message as it was serialized before entities had their own format
+ */
+class Message implements Serializable {
+    private static final long serialVersionUID = -7453064121014083970L;
+
+    String content;
+    LocalDateTime timestamp;
+    UUID senderUUID;
+}
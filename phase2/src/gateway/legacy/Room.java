@@ -0,0 +1,16 @@
+package gateway.legacy;
+
+import java.io.Serializable;
+import java.util.UUID;
+
+/**
+ * Room as it was serialized before entities had their own format
+ */
+class Room implements Serializable {
+    private static final long serialVersionUID = -5299936349247156441L;
+
+    UUID roomUUID;
+    int capacity;
+    Calendar calendar;
+    String roomLocation;
+}
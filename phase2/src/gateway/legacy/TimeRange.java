@@ -0,0 +1,18 @@
+package gateway.legacy;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * TimeRange as it was serialized before entities had their own format
+ */
+class TimeRange implements Serializable {
+    private static final long serialVersionUID = 3578034211148513955L;
+
+    LocalDateTime start;
+    LocalDateTime end;
+
+    convention.calendar.TimeRange migrate() {
+        return new convention.calendar.TimeRange(start, end);
+    }
+}
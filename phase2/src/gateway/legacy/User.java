@@ -0,0 +1,18 @@
+package gateway.legacy;
+
+import java.io.Serializable;
+import java.util.UUID;
+
+/**
+ * User as it was serialized before users were kept in a repository
+ */
+class User implements Serializable {
+    private static final long serialVersionUID = 8168763426448050140L;
+
+    String firstName;
+    String lastName;
+    String username;
+    String password;
+    UUID uuid;
+    boolean isGod;
+}
@@ -0,0 +1,26 @@
+package gateway.legacy;
+
+import java.io.Serializable;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * UserManager as it was serialized before users were kept in a repository
+ */
+class UserManager implements Serializable {
+    private static final long serialVersionUID = -110200571554682946L;
+
+    UUID signedInUserUUID;
+    Map<UUID, User> userMap;
+
+    user.UserManager migrate() {
+        user.UserManager userManager = new user.UserManager();
+
+        for (User user : userMap.values()) {
+            userManager.registerUser(user.uuid, user.firstName, user.lastName, user.username, user.password, user.isGod, false);
+        }
+        userManager.setSignedInUserUUID(signedInUserUUID);
+
+        return userManager;
+    }
+}
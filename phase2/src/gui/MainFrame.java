@@ -1,8 +1,10 @@
 package gui;
 
+import gui.util.enums.DialogFactoryOptions;
 import gui.util.enums.PanelFactoryOptions;
 import gui.util.factories.DialogFactory;
 import gui.util.factories.PanelFactory;
+import gui.util.interfaces.IDialog;
 import gui.util.interfaces.IDialogFactory;
 import gui.util.interfaces.IFrame;
 import gui.util.interfaces.IPanel;
@@ -13,15 +15,19 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
+import java.util.HashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * Stores the primary JFrame and the necessary tools to navigate between pages
  */
 public class MainFrame implements IFrame {
-    private ControllerBundle controllerBundle;
+    private CompletableFuture<ControllerBundle> controllerBundle;
 
     private Runnable shutdown;
     private JFrame frame;
+    private boolean exiting;
 
     private IPanelFactory panelFactory;
     private IDialogFactory dialogFactory;
@@ -36,6 +42,17 @@ public class MainFrame implements IFrame {
      * @param shutdown         runnable that is executed when JFrame is shut down
      */
     public MainFrame(ControllerBundle controllerBundle, Runnable shutdown) {
+        this(CompletableFuture.completedFuture(controllerBundle), shutdown);
+    }
+
+    /**
+     * Constructs the main UI system while the controllers are still being loaded. The login page is shown right away,
+     * and anything that needs the controllers waits for them.
+     *
+     * @param controllerBundle completes with all of the controllers that the UI needs to interact with
+     * @param shutdown         runnable that is executed when JFrame is shut down
+     */
+    public MainFrame(CompletableFuture<ControllerBundle> controllerBundle, Runnable shutdown) {
         this.controllerBundle = controllerBundle;
         this.shutdown = shutdown;
 
@@ -44,13 +61,45 @@ public class MainFrame implements IFrame {
     }
 
     /**
-     * Gets the controller bundle
+     * Gets the controller bundle, waiting for it if the controllers are still being loaded. If loading failed, the
+     * program exits after telling the user why.
      *
      * @return the controller bundle
      */
     @Override
     public ControllerBundle getControllerBundle() {
-        return controllerBundle;
+        try {
+            return controllerBundle.join();
+        } catch (CompletionException e) {
+            exitAfterStartupFailure(e.getCause());
+            throw e;
+        }
+    }
+
+    /**
+     * Tells the user that the controllers couldn't be loaded, and exits. Nothing is saved on the way out, so the files
+     * that couldn't be read are left as they are.
+     *
+     * @param cause why the controllers couldn't be loaded
+     */
+    private void exitAfterStartupFailure(Throwable cause) {
+        // The dialog keeps the UI running, so another caller could get here while it's open
+        if (exiting) {
+            return;
+        }
+        exiting = true;
+
+        IDialog startupErrorDialog = dialogFactory.createDialog(DialogFactoryOptions.dialogNames.MESSAGE, new HashMap<String, Object>() {
+            {
+                put("title", "Error");
+                put("message", String.format("Unable to start the convention system: %s", cause.getMessage()));
+                put("messageType", DialogFactoryOptions.dialogType.ERROR);
+            }
+        });
+
+        startupErrorDialog.run();
+        shutdown.run();
+        System.exit(1);
     }
 
     /**
@@ -109,6 +158,9 @@ public class MainFrame implements IFrame {
      * Runs the main UI loop
      * <p>
      * If the user is not logged in, present loginUI/register prompts. Otherwise, send them to the main menu.
+     * <p>
+     * If the controllers aren't ready yet, the login page is shown until they are, since it doesn't need them until the
+     * user submits.
      */
     public void run() {
 
@@ -130,7 +182,20 @@ public class MainFrame implements IFrame {
         frame.setMinimumSize(initialDimension);
 
         // Open panel depending on login state
-        if (controllerBundle.getUserController().getCurrentUser() != null) {
+        if (!controllerBundle.isDone()) {
+            IPanel loginPanel = panelFactory.createPanel(PanelFactoryOptions.panelNames.LOGIN);
+            setPanel(loginPanel);
+
+            // Skip the login page once loaded if the user is still logged in from last time, unless they've moved on
+            // If loading fails, the user is told right away instead of when they submit the login page
+            controllerBundle.whenComplete((bundle, e) -> SwingUtilities.invokeLater(() -> {
+                if (e != null) {
+                    exitAfterStartupFailure(e instanceof CompletionException ? e.getCause() : e);
+                } else if (frame.getContentPane() == loginPanel.getPanel() && bundle.getUserController().getCurrentUser() != null) {
+                    setPanel(panelFactory.createPanel(PanelFactoryOptions.panelNames.MAIN_MENU));
+                }
+            }));
+        } else if (getControllerBundle().getUserController().getCurrentUser() != null) {
             setPanel(panelFactory.createPanel(PanelFactoryOptions.panelNames.MAIN_MENU));
         } else {
             setPanel(panelFactory.createPanel(PanelFactoryOptions.panelNames.LOGIN));
@@ -1,6 +1,6 @@
 package gui.conference.events.details;
 
-import convention.exception.FullEventException;
+import convention.exception.AttendeeDoubleBookingException;
 import gui.conference.tabs.ConferenceTabsConstants;
 import gui.conference.util.AbstractConferencePresenter;
 import gui.util.enums.DialogFactoryOptions;
@@ -59,6 +59,8 @@ class EventsDetailsPresenter extends AbstractConferencePresenter {
 
         if (isRegistered) {
             eventsGeneralView.setRegisterButtonText("Unregister");
+        } else if (eventController.isWaitlisted(conferenceUUID, signedInUserUUID, signedInUserUUID, eventUUID)) {
+            eventsGeneralView.setRegisterButtonText("Leave Waitlist");
         }
 
         if (!isOrganizer) {
@@ -91,32 +93,43 @@ class EventsDetailsPresenter extends AbstractConferencePresenter {
                 eventController.unregisterForEvent(conferenceUUID, signedInUserUUID, signedInUserUUID, eventUUID);
                 reloadEventsPage(eventUUID);
             }
+        } else if (eventController.isWaitlisted(conferenceUUID, signedInUserUUID, signedInUserUUID, eventUUID)) {
+            eventController.leaveWaitlist(conferenceUUID, signedInUserUUID, signedInUserUUID, eventUUID);
+            reloadEventsPage(eventUUID);
         } else {
-            try {
-                eventController.registerForEvent(conferenceUUID, signedInUserUUID, signedInUserUUID, eventUUID);
+            boolean registered;
 
-                IDialog registeredDialog = dialogFactory.createDialog(DialogFactoryOptions.dialogNames.MESSAGE, new HashMap<String, Object>() {
-                    {
-                        put("message", "You have successfully registered for this event.");
-                        put("title", "Registered");
-                        put("messageType", DialogFactoryOptions.dialogType.INFORMATION);
-                    }
-                });
-
-                registeredDialog.run();
-
-                reloadEventsPage(eventUUID);
-            } catch (FullEventException e) {
-                IDialog fullCapacityDialog = dialogFactory.createDialog(DialogFactoryOptions.dialogNames.MESSAGE, new HashMap<String, Object>() {
+            try {
+                registered = eventController.registerOrJoinWaitlist(conferenceUUID, signedInUserUUID, signedInUserUUID, eventUUID);
+            } catch (AttendeeDoubleBookingException e) {
+                IDialog conflictDialog = dialogFactory.createDialog(DialogFactoryOptions.dialogNames.MESSAGE, new HashMap<String, Object>() {
                     {
-                        put("message", "Sorry, that event is already at full capacity.");
+                        put("message", "Sorry, you are already registered for another event at that time.");
                         put("title", "Error");
                         put("messageType", DialogFactoryOptions.dialogType.ERROR);
                     }
                 });
 
-                fullCapacityDialog.run();
+                conflictDialog.run();
+                return;
             }
+
+            IDialog registeredDialog = dialogFactory.createDialog(DialogFactoryOptions.dialogNames.MESSAGE, new HashMap<String, Object>() {
+                {
+                    if (registered) {
+                        put("message", "You have successfully registered for this event.");
+                        put("title", "Registered");
+                    } else {
+                        put("message", "That event is already at full capacity. You have been added to the waitlist, and will be registered and sent a message when a seat opens up.");
+                        put("title", "Waitlisted");
+                    }
+                    put("messageType", DialogFactoryOptions.dialogType.INFORMATION);
+                }
+            });
+
+            registeredDialog.run();
+
+            reloadEventsPage(eventUUID);
         }
     }
 
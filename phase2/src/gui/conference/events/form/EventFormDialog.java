@@ -21,6 +21,7 @@ public class EventFormDialog extends JDialog implements IDialog, IEventFormDialo
     private JButton buttonOk;
     private JButton speakerButton;
     private JButton roomButton;
+    private JButton suggestTimeButton;
 
     private UUID eventUUID;
     private UUID conferenceUUID;
@@ -50,6 +51,7 @@ public class EventFormDialog extends JDialog implements IDialog, IEventFormDialo
         // Adding listeners
         roomButton.addActionListener((e) -> eventFormPresenter.selectRoom());
         speakerButton.addActionListener((e) -> eventFormPresenter.selectSpeakers());
+        suggestTimeButton.addActionListener((e) -> eventFormPresenter.suggestTime());
         buttonOk.addActionListener((e) -> eventFormPresenter.submit());
         cancelButton.addActionListener((e) -> close());
 
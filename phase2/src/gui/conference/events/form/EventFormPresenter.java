@@ -8,10 +8,12 @@ import gui.util.enums.DialogFactoryOptions;
 import gui.util.interfaces.IDialog;
 import gui.util.interfaces.IFrame;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeParseException;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.UUID;
 
@@ -20,6 +22,8 @@ import java.util.UUID;
  */
 class EventFormPresenter extends AbstractConferencePresenter {
 
+    private static final Duration DEFAULT_EVENT_DURATION = Duration.ofHours(1);
+
     private boolean isExistingEvent;
     private UUID eventUUID;
 
@@ -182,6 +186,46 @@ class EventFormPresenter extends AbstractConferencePresenter {
     }
 
 
+    void suggestTime() {
+        if (selectedRoomUUID == null) {
+            displayError("Select a room first to find a time when it is free.");
+            return;
+        }
+
+        // Keep the length of the times already in the form, if there are any
+        Duration duration = DEFAULT_EVENT_DURATION;
+        try {
+            Duration enteredDuration = Duration.between(dateParser.stringToDateTime(eventFormDialog.getStart()), dateParser.stringToDateTime(eventFormDialog.getEnd()));
+
+            if (!enteredDuration.isNegative() && !enteredDuration.isZero()) {
+                duration = enteredDuration;
+            }
+        } catch (DateTimeParseException e) {
+            // Use the default length
+        }
+
+        List<TimeRange> freeTimeRanges = roomController.getFreeTimeRanges(conferenceUUID, signedInUserUUID, selectedRoomUUID, duration, 1);
+
+        if (freeTimeRanges.isEmpty()) {
+            displayError(String.format("The room is not free for %d minutes at any time during the conference.", duration.toMinutes()));
+        } else {
+            eventFormDialog.setStart(dateParser.dateTimeToString(freeTimeRanges.get(0).getStart()));
+            eventFormDialog.setEnd(dateParser.dateTimeToString(freeTimeRanges.get(0).getEnd()));
+        }
+    }
+
+    private void displayError(String message) {
+        IDialog errorDialog = dialogFactory.createDialog(DialogFactoryOptions.dialogNames.MESSAGE, new HashMap<String, Object>() {
+            {
+                put("title", "Error");
+                put("message", message);
+                put("messageType", DialogFactoryOptions.dialogType.ERROR);
+            }
+        });
+
+        errorDialog.run();
+    }
+
     void selectSpeakers() {
         // Getting all available speakerUUIDs
         Set<UUID> signedInUserUUIDs = userController.getUsers();
@@ -9,7 +9,10 @@ import gui.util.interfaces.IDialog;
 import gui.util.interfaces.IFrame;
 
 import java.util.*;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.IntConsumer;
 
 /**
  * Manages ConferenceSettingsView
@@ -196,27 +199,22 @@ class ConferenceSettingsPresenter extends AbstractConferencePresenter {
     }
 
     /**
-     * Add a user as an organizer
+     * Gives users organizer permissions. Any number of users can be picked, and they are added together.
      */
     void addOrganizer() {
         // Users that are eligible to become organizers are in the system, but are not already organizers
         Set<UUID> availableUserUUIDs = new HashSet<>(userController.getUsers());
         availableUserUUIDs.removeAll(conferenceController.getOrganizers(conferenceUUID, signedInUserUUID));
 
-        confirmSelectUser(
+        inviteUsers(
                 availableUserUUIDs,
                 "Add Organizer",
-                "Choose a user to give organizer permissions to. The user will be invited to the conference if they are not already a member.",
+                "Choose users to give organizer permissions to. Users will be invited to the conference if they are not already members.",
                 "There are no users available to add as an organizer.",
-                (uuid) -> String.format("Are you sure you want to invite %s (%s) to be an organizer? They will have full access to this conference.", userController.getUserFullName(uuid), uuid),
-                (uuid) -> String.format("%s (%s) has been successfully granted organizer permissions.", userController.getUserFullName(uuid), uuid),
-                (uuid) -> {
-                    conferenceController.addOrganizer(conferenceUUID, signedInUserUUID, uuid);
-                    return null; // There is no fail message
-                }
+                "Are you sure you want to make %d users organizers? They will have full access to this conference.",
+                "%d users have been granted organizer permissions.",
+                (userUUIDs, progress) -> conferenceController.inviteOrganizers(conferenceUUID, signedInUserUUID, userUUIDs, progress)
         );
-
-        updateConferenceUsers();
     }
 
     /**
@@ -290,25 +288,99 @@ class ConferenceSettingsPresenter extends AbstractConferencePresenter {
     }
 
     /**
-     * Invites a user as an attendee
+     * Invites users as attendees. Any number of users can be picked, and they are invited together.
      */
     void addAttendee() {
         // Users that are eligible to become attendees are in the system, but are not already attendees
         Set<UUID> availableUserUUIDs = new HashSet<>(userController.getUsers());
         availableUserUUIDs.removeAll(conferenceController.getAttendees(conferenceUUID, signedInUserUUID));
 
-        confirmSelectUser(
+        inviteUsers(
                 availableUserUUIDs,
                 "Add Attendee",
-                "Choose a user to invite as an attendee.",
+                "Choose users to invite as attendees.",
                 "There are no users available to add as an attendee.",
-                (uuid) -> String.format("Are you sure you want to invite %s (%s) to be an attendee?", userController.getUserFullName(uuid), uuid),
-                (uuid) -> String.format("%s (%s) has been invited as an attendee.", userController.getUserFullName(uuid), uuid),
-                (uuid) -> {
-                    conferenceController.addAttendee(conferenceUUID, uuid);
-                    return null; // There is no fail message
-                }
+                null,
+                "%d users have been invited as attendees.",
+                (userUUIDs, progress) -> conferenceController.inviteAttendees(conferenceUUID, signedInUserUUID, userUUIDs, progress)
         );
+    }
+
+    /**
+     * Lets the user pick any number of users, and invites them together while a progress bar is shown
+     *
+     * @param availableUserUUIDs users that can be picked
+     * @param title              title of the dialogs
+     * @param instructions       instructions shown above the users
+     * @param noUsersMessage     message shown if there are no users to pick
+     * @param confirmMessage     question asked with the number of picked users before inviting them, or null to not ask
+     * @param resultMessage      message shown with the number of users who were invited
+     * @param invite             invites the picked users, reporting the percentage of the work done, and returns the
+     *                           users who were invited
+     */
+    private void inviteUsers(Set<UUID> availableUserUUIDs, String title, String instructions, String noUsersMessage, String confirmMessage, String resultMessage, BiFunction<Set<UUID>, IntConsumer, Set<UUID>> invite) {
+        if (availableUserUUIDs.size() == 0) {
+            IDialog noUsersAvailableDialog = dialogFactory.createDialog(DialogFactoryOptions.dialogNames.MESSAGE, new HashMap<String, Object>() {
+                {
+                    put("message", noUsersMessage);
+                    put("title", title);
+                    put("messageType", DialogFactoryOptions.dialogType.ERROR);
+                }
+            });
+
+            noUsersAvailableDialog.run();
+            return;
+        }
+
+        IDialog chooseUsersDialog = dialogFactory.createDialog(DialogFactoryOptions.dialogNames.MULTI_USER_PICKER, new HashMap<String, Object>() {
+            {
+                put("instructions", instructions);
+                put("availableUserUUIDs", availableUserUUIDs);
+            }
+        });
+
+        Set<UUID> selectedUserUUIDs = (Set<UUID>) chooseUsersDialog.run();
+
+        if (selectedUserUUIDs == null || selectedUserUUIDs.isEmpty()) {
+            return;
+        }
+
+        if (confirmMessage != null) {
+            IDialog confirmSelection = dialogFactory.createDialog(DialogFactoryOptions.dialogNames.CONFIRM_BOOLEAN, new HashMap<String, Object>() {
+                {
+                    put("message", String.format(confirmMessage, selectedUserUUIDs.size()));
+                    put("title", title);
+                    put("messageType", DialogFactoryOptions.dialogType.WARNING);
+                    put("confirmationType", DialogFactoryOptions.optionType.YES_NO_OPTION);
+                }
+            });
+
+            if (!(boolean) confirmSelection.run()) {
+                return;
+            }
+        }
+
+        Set<UUID> invitedUserUUIDs = new HashSet<>();
+
+        IDialog progressDialog = dialogFactory.createDialog(DialogFactoryOptions.dialogNames.PROGRESS, new HashMap<String, Object>() {
+            {
+                put("message", String.format("Inviting %d users...", selectedUserUUIDs.size()));
+                put("title", title);
+                put("task", (Consumer<IntConsumer>) (progress) -> invitedUserUUIDs.addAll(invite.apply(selectedUserUUIDs, progress)));
+            }
+        });
+
+        Exception error = (Exception) progressDialog.run();
+
+        IDialog resultDialog = dialogFactory.createDialog(DialogFactoryOptions.dialogNames.MESSAGE, new HashMap<String, Object>() {
+            {
+                put("message", error == null ? String.format(resultMessage, invitedUserUUIDs.size()) : error.getMessage());
+                put("title", title);
+                put("messageType", error == null ? DialogFactoryOptions.dialogType.INFORMATION : DialogFactoryOptions.dialogType.ERROR);
+            }
+        });
+
+        resultDialog.run();
 
         // Reload the main menu to update page and stats
         reloadSettingsPage();
@@ -19,7 +19,8 @@ class LoginPresenter extends AbstractPresenter {
      * @param loginView view that this presenter is managing
      */
     LoginPresenter(IFrame mainFrame, ILoginView loginView) {
-        super(mainFrame);
+        // The login page is shown while the managers are still being read from disk
+        super(mainFrame, false);
         this.loginView = loginView;
     }
 
@@ -48,6 +49,8 @@ class LoginPresenter extends AbstractPresenter {
      * Login as an already registered user
      */
     void login() {
+        loadControllers();
+
         if (userController.login(loginView.getUsername(), loginView.getPassword()) != null) {
             mainFrame.setPanel(panelFactory.createPanel(PanelFactoryOptions.panelNames.MAIN_MENU));
         } else {
@@ -1,5 +1,7 @@
 package gui.messaging.menu;
 
+import javax.swing.*;
+
 /**
  * an interface for for the GUI of the messaging service
  */
@@ -12,7 +14,7 @@ public interface IMessagingView {
 
     String getTextBoxContent();
 
-    void setMessages(String[] messages);
+    void setMessages(ListModel<String> messages);
 
     void clearTextBox();
 
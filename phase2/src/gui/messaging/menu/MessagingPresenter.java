@@ -5,7 +5,9 @@ import gui.util.enums.DialogFactoryOptions;
 import gui.util.enums.PanelFactoryOptions;
 import gui.util.interfaces.IDialog;
 import gui.util.interfaces.IFrame;
+import gui.util.swing.PagedListModel;
 
+import javax.swing.*;
 import java.util.*;
 
 class MessagingPresenter extends AbstractPresenter {
@@ -16,7 +18,7 @@ class MessagingPresenter extends AbstractPresenter {
     private int currentConversationIndex = -1;
     private UUID currentConversationUUID;
 
-    private String[] messageArray;
+    private ListModel<String> messageListModel;
 
     /**
      * Constructor for presenting messages
@@ -59,7 +61,8 @@ class MessagingPresenter extends AbstractPresenter {
             updateSelection(defaultConversationIndex);
         } else {
             if (messagingView.getNumMessages() == 0) {
-                String[] firstMessage = new String[]{"Create a New Conversation to View or Send Messages"};
+                DefaultListModel<String> firstMessage = new DefaultListModel<>();
+                firstMessage.addElement("Create a New Conversation to View or Send Messages");
                 messagingView.setMessages(firstMessage);
             }
 
@@ -96,7 +99,7 @@ class MessagingPresenter extends AbstractPresenter {
             if (conversationController.checkIfSender(currentConversationUUID, signedInUserUUID, index)) {
                 IDialog deleteMessageConfirmation = dialogFactory.createDialog(DialogFactoryOptions.dialogNames.CONFIRM_BOOLEAN, new HashMap<String, Object>() {
                     {
-                        put("message", String.format("Delete this message?\n\n%s", messageArray[index]));
+                        put("message", String.format("Delete this message?\n\n%s", messageListModel.getElementAt(index)));
                         put("title", "Delete");
                         put("messageType", DialogFactoryOptions.dialogType.ERROR);
                         put("confirmationType", DialogFactoryOptions.optionType.YES_NO_OPTION);
@@ -268,22 +271,23 @@ class MessagingPresenter extends AbstractPresenter {
     }
 
     private void updateMessages() {
-        List<Map<String, String>> messagesListMap = conversationController.getMessages(signedInUserUUID, currentConversationUUID);
-
-        messageArray = new String[messagesListMap.size()];
-        int index = 0;
-
-        for (Map<String, String> messageMap : messagesListMap) {
-            UUID senderId = UUID.fromString(messageMap.get("sender"));
-            String senderName = userController.getUserFullName(senderId);
-            String timestamp = messageMap.get("timestamp");
-            String content = messageMap.get("content");
-            String messageString = String.format("[%s @ %s] %s\n", senderName, timestamp, content);
+        UUID conversationUUID = currentConversationUUID;
+
+        // Messages are only fetched when they're scrolled into view, so long conversations don't have to be loaded whole
+        messageListModel = new PagedListModel<>(conversationController.getMessageCount(conversationUUID), (start, count) -> {
+            List<String> messageStrings = new ArrayList<>();
+
+            for (Map<String, String> messageMap : conversationController.getMessages(signedInUserUUID, conversationUUID, start, count)) {
+                UUID senderId = UUID.fromString(messageMap.get("sender"));
+                String senderName = userController.getUserFullName(senderId);
+                String timestamp = messageMap.get("timestamp");
+                String content = messageMap.get("content");
+                messageStrings.add(String.format("[%s @ %s] %s\n", senderName, timestamp, content));
+            }
 
-            messageArray[index] = messageString;
-            index++;
-        }
+            return messageStrings;
+        });
 
-        messagingView.setMessages(messageArray);
+        messagingView.setMessages(messageListModel);
     }
 }
\ No newline at end of file
@@ -4,6 +4,7 @@ import gui.util.interfaces.IFrame;
 import gui.util.interfaces.IPanel;
 
 import javax.swing.*;
+import java.awt.*;
 import java.awt.event.KeyEvent;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
@@ -113,12 +114,27 @@ public class MessagingView implements IPanel, IMessagingView {
 
     /**
      * sets a list of messages
+     * <p>
+     * Every row gets the same size, so the list only asks the model for the messages that are visible. The width comes
+     * from the newest messages, which are the ones shown first.
      *
      * @param updatedMessages the messages
      */
     @Override
-    public void setMessages(String[] updatedMessages) {
-        messages.setListData(updatedMessages);
+    public void setMessages(ListModel<String> updatedMessages) {
+        ListCellRenderer<? super String> renderer = messages.getCellRenderer();
+        int width = 0;
+        int height = messages.getFontMetrics(messages.getFont()).getHeight();
+
+        for (int i = Math.max(0, updatedMessages.getSize() - 100); i < updatedMessages.getSize(); i++) {
+            Dimension size = renderer.getListCellRendererComponent(messages, updatedMessages.getElementAt(i), i, false, false).getPreferredSize();
+            width = Math.max(width, size.width);
+            height = Math.max(height, size.height);
+        }
+
+        messages.setFixedCellWidth(width);
+        messages.setFixedCellHeight(height);
+        messages.setModel(updatedMessages);
     }
 
     /**
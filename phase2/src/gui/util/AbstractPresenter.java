@@ -37,8 +37,29 @@ public abstract class AbstractPresenter {
      * @param mainFrame main GUI frame
      */
     protected AbstractPresenter(IFrame mainFrame) {
+        this(mainFrame, true);
+    }
+
+    /**
+     * @param mainFrame          main GUI frame
+     * @param waitForControllers false if the presenter can be created before the controllers are ready, in which case it
+     *                           must call loadControllers before using them
+     */
+    protected AbstractPresenter(IFrame mainFrame, boolean waitForControllers) {
         this.mainFrame = mainFrame;
 
+        dialogFactory = mainFrame.getDialogFactory();
+        panelFactory = mainFrame.getPanelFactory();
+
+        if (waitForControllers) {
+            loadControllers();
+        }
+    }
+
+    /**
+     * Gets the controllers from the main frame, waiting for them if they are still being loaded
+     */
+    protected void loadControllers() {
         ControllerBundle controllerBundle = mainFrame.getControllerBundle();
         conferenceController = controllerBundle.getConferenceController();
         userController = controllerBundle.getUserController();
@@ -48,9 +69,6 @@ public abstract class AbstractPresenter {
         contactController = controllerBundle.getContactController();
         scheduleController = controllerBundle.getScheduleController();
 
-        dialogFactory = mainFrame.getDialogFactory();
-        panelFactory = mainFrame.getPanelFactory();
-
         signedInUserUUID = userController.getCurrentUser();
     }
 }
@@ -0,0 +1,74 @@
+package gui.util.dialogs;
+
+import gui.util.interfaces.IDialog;
+import gui.util.interfaces.IFrame;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+/**
+ * Dialog with a progress bar, shown while a long operation (e.g. inviting thousands of users) runs
+ * <p>
+ * The operation runs on the event dispatch thread like every other operation of the GUI, so the bar is repainted
+ * right away each time progress is reported instead of waiting for the operation to finish.
+ */
+public class ProgressDialogView implements IDialog {
+    private IFrame mainFrame;
+    private String message;
+    private String title;
+    private Consumer<IntConsumer> task;
+
+    /**
+     * @param mainFrame main GUI frame
+     * @param message   message to display above the progress bar
+     * @param title     title of the dialog
+     * @param task      operation to run, given a callback to report the percentage of the work done
+     */
+    public ProgressDialogView(IFrame mainFrame, String message, String title, Consumer<IntConsumer> task) {
+        this.mainFrame = mainFrame;
+        this.message = message;
+        this.title = title;
+        this.task = task;
+    }
+
+    /**
+     * Display the dialog and run the operation
+     *
+     * @return the exception thrown by the operation, or null if it succeeded
+     */
+    @Override
+    public Object run() {
+        JProgressBar progressBar = new JProgressBar(0, 100);
+        progressBar.setStringPainted(true);
+
+        JPanel panel = new JPanel(new BorderLayout(0, 10));
+        panel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+        panel.add(new JLabel(message), BorderLayout.NORTH);
+        panel.add(progressBar, BorderLayout.CENTER);
+
+        JDialog dialog = new JDialog(mainFrame.getFrame(), title, false);
+        dialog.setDefaultCloseOperation(WindowConstants.DO_NOTHING_ON_CLOSE);
+        dialog.setContentPane(panel);
+        dialog.pack();
+        dialog.setLocationRelativeTo(mainFrame.getFrame());
+        dialog.setVisible(true);
+        panel.paintImmediately(panel.getBounds());
+
+        try {
+            task.accept(percentage -> {
+                if (percentage != progressBar.getValue()) {
+                    progressBar.setValue(percentage);
+                    progressBar.paintImmediately(progressBar.getBounds());
+                }
+            });
+        } catch (RuntimeException e) {
+            return e;
+        } finally {
+            dialog.dispose();
+        }
+
+        return null;
+    }
+}
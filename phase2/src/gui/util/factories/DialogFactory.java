@@ -10,6 +10,7 @@ import gui.user.multipicker.MultiUserPickerDialog;
 import gui.user.picker.UserPickerDialog;
 import gui.util.dialogs.ConfirmBooleanDialogView;
 import gui.util.dialogs.MessageDialogView;
+import gui.util.dialogs.ProgressDialogView;
 import gui.util.enums.DialogFactoryOptions;
 import gui.util.exception.NullDialogException;
 import gui.util.interfaces.IDialog;
@@ -20,6 +21,8 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
 
 /**
  * factory to make dialogue panels for the GUI
@@ -70,6 +73,8 @@ public class DialogFactory implements IDialogFactory {
                 return new UserPickerDialog(mainFrame, (Set<UUID>) arguments.get("availableUserUUIDs"), (String) arguments.get("instructions"));
             case MESSAGE:
                 return new MessageDialogView(mainFrame, (String) arguments.get("message"), (String) arguments.getOrDefault("title", "Message"), (DialogFactoryOptions.dialogType) arguments.get("messageType"));
+            case PROGRESS:
+                return new ProgressDialogView(mainFrame, (String) arguments.get("message"), (String) arguments.getOrDefault("title", "Progress"), (Consumer<IntConsumer>) arguments.get("task"));
             case ROOM_FORM:
                 return new RoomFormDialog(mainFrame, (UUID) arguments.get("conferenceUUID"), (UUID) arguments.get("roomUUID"));
             case CONFIRM_BOOLEAN:
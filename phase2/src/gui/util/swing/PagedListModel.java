@@ -0,0 +1,73 @@
+package gui.util.swing;
+
+import javax.swing.*;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * List model that loads its elements a page at a time, only when a list asks for them (i.e. when they're scrolled
+ * into view). Only a few pages are kept, so long lists don't have to fit in memory.
+ * <p>
+ * Lists only ask for the visible elements if they have a fixed cell width and height.
+ *
+ * @param <E> type of the elements
+ */
+public class PagedListModel<E> extends AbstractListModel<E> {
+    /**
+     * Loads a page of elements
+     *
+     * @param <E> type of the elements
+     */
+    public interface PageLoader<E> {
+        List<E> load(int start, int count);
+    }
+
+    private static final int PAGE_SIZE = 100;
+    private static final int MAXIMUM_PAGES = 10;
+
+    private final int size;
+    private final PageLoader<E> loader;
+
+    // Loaded pages, least recently used first
+    private final LinkedHashMap<Integer, List<E>> pages = new LinkedHashMap<Integer, List<E>>(16, .75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, List<E>> eldest) {
+            return size() > MAXIMUM_PAGES;
+        }
+    };
+
+    /**
+     * Creates a paged list model. The last page is loaded right away, since that's where lists of messages start.
+     *
+     * @param size   number of elements
+     * @param loader loads a page of elements
+     */
+    public PagedListModel(int size, PageLoader<E> loader) {
+        this.size = size;
+        this.loader = loader;
+
+        getPage(Math.max(0, size - 1) / PAGE_SIZE);
+    }
+
+    private List<E> getPage(int page) {
+        List<E> elements = pages.get(page);
+
+        if (elements == null) {
+            elements = loader.load(page * PAGE_SIZE, PAGE_SIZE);
+            pages.put(page, elements);
+        }
+
+        return elements;
+    }
+
+    @Override
+    public int getSize() {
+        return size;
+    }
+
+    @Override
+    public E getElementAt(int index) {
+        return getPage(index / PAGE_SIZE).get(index % PAGE_SIZE);
+    }
+}
@@ -1,23 +1,44 @@
 package messaging;
 
-import java.io.Serializable;
+import util.BinaryIO;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.TreeSet;
 import java.util.UUID;
 
 /**
  * Conversation object. Contains messages and metadata such as conversation name, users who have read and write access, etc.
  */
-public class Conversation implements Serializable {
+public class Conversation implements Externalizable {
+    private static final long serialVersionUID = 1L;
+    private static final int VERSION = 2;
+
     private String conversationName; // either group chat or 2 person chat
-    private final List<Message> conversationMessages;
-    private final Set<UUID> writeAccessUsers;
-    private final Set<UUID> readAccessUsers;
-    private final UUID conversationUUID;
+    // The newest messages, or all of them if they aren't kept in a segment store
+    private List<Message> conversationMessages;
+    // Number of messages ever sent, including deleted ones and ones that are only in the segment store
+    private int messageCount;
+    // Indices of the messages that were deleted, out of every message ever sent
+    private TreeSet<Integer> deletedMessages = new TreeSet<>();
+    private Set<UUID> writeAccessUsers;
+    private Set<UUID> readAccessUsers;
+    private UUID conversationUUID;
     private Set<UUID> usersHaveRead = new HashSet<>();
     private Set<UUID> userArchivedUUIDs = new HashSet<>();
 
+    /**
+     * Empty constructor, only for deserialization
+     */
+    public Conversation() {
+    }
+
     /**
      * Constructor for Conversation
      *
@@ -28,11 +49,26 @@ public class Conversation implements Serializable {
      */
     public Conversation(String name, Set<UUID> usersWriteUUIDs, Set<UUID>
             usersReadUUIDs, List<Message> messages) {
+        this(UUID.randomUUID(), name, usersWriteUUIDs, usersReadUUIDs, messages);
+    }
+
+    /**
+     * Constructor for Conversation with a known UUID (e.g. when replaying the journal)
+     *
+     * @param conversationUUID UUID of the Conversation
+     * @param name             name of the Conversation
+     * @param usersWriteUUIDs  The set of users that have write access to the chat/conversation
+     * @param usersReadUUIDs   The set of users that have read access to the chat/conversation
+     * @param messages         A list of all the messages in the Chat/conversation
+     */
+    public Conversation(UUID conversationUUID, String name, Set<UUID> usersWriteUUIDs, Set<UUID>
+            usersReadUUIDs, List<Message> messages) {
         conversationName = name;
         conversationMessages = messages;
+        messageCount = messages.size();
         writeAccessUsers = usersWriteUUIDs;
         readAccessUsers = usersReadUUIDs;
-        conversationUUID = UUID.randomUUID();
+        this.conversationUUID = conversationUUID;
     }
 
     /**
@@ -99,12 +135,85 @@ public class Conversation implements Serializable {
     }
 
     /**
-     * Returns a list of messages in this conversation
+     * Gets the number of messages ever sent to this conversation, including deleted ones
+     *
+     * @return number of messages ever sent
+     */
+    int getMessageCount() {
+        return messageCount;
+    }
+
+    /**
+     * Gets the number of messages that haven't been deleted
      *
-     * @return list of messages in this conversation
+     * @return number of messages that haven't been deleted
      */
-    public List<Message> getConversationMessages() {
-        return conversationMessages;
+    public int getVisibleMessageCount() {
+        return messageCount - deletedMessages.size();
+    }
+
+    /**
+     * Gets the index of the oldest message that is in memory. Older ones are only in the segment store.
+     *
+     * @return index of the oldest message in memory, out of every message ever sent
+     */
+    int getFirstLoadedMessage() {
+        return messageCount - conversationMessages.size();
+    }
+
+    /**
+     * Gets a message that is in memory
+     *
+     * @param index index of the message, out of every message ever sent
+     * @return the message
+     */
+    Message getLoadedMessage(int index) {
+        return conversationMessages.get(index - getFirstLoadedMessage());
+    }
+
+    /**
+     * Drops the oldest messages from memory, once they're in the segment store
+     *
+     * @param maximumLoaded number of messages to keep in memory
+     * @return true iff any messages were dropped
+     */
+    boolean unloadMessages(int maximumLoaded) {
+        if (conversationMessages.size() <= maximumLoaded) {
+            return false;
+        }
+
+        conversationMessages = new ArrayList<>(conversationMessages.subList(conversationMessages.size() - maximumLoaded, conversationMessages.size()));
+        return true;
+    }
+
+    /**
+     * Tests if a message was deleted
+     *
+     * @param index index of the message, out of every message ever sent
+     * @return true iff the message was deleted
+     */
+    boolean isDeleted(int index) {
+        return deletedMessages.contains(index);
+    }
+
+    /**
+     * Finds a message that hasn't been deleted among every message ever sent
+     *
+     * @param visibleIndex index of the message among the ones that haven't been deleted
+     * @return index of the message, out of every message ever sent
+     */
+    int getMessageIndex(int visibleIndex) {
+        int index = visibleIndex;
+
+        for (int deleted : deletedMessages) {
+            if (deleted > index) {
+                break;
+            }
+
+            index++;
+        }
+
+        return index;
     }
 
     /**
@@ -135,16 +244,21 @@ public class Conversation implements Serializable {
             System.out.println("Message has already been added");
         } else {
             conversationMessages.add(message);
+            messageCount++;
         }
     }
 
     /**
      * deletes a message
      *
-     * @param index the index of the message being deleted
+     * @param index the index of the message being deleted, among the ones that haven't been deleted
      */
     public void deleteMessage(int index) {
-        conversationMessages.remove(index);
+        if (index < 0 || index >= getVisibleMessageCount()) {
+            throw new IndexOutOfBoundsException(String.format("Index: %d, Size: %d", index, getVisibleMessageCount()));
+        }
+
+        deletedMessages.add(getMessageIndex(index));
     }
 
     /**
@@ -215,4 +329,59 @@ public class Conversation implements Serializable {
     public boolean getUserHasRead(UUID userUUID) {
         return usersHaveRead.contains(userUUID);
     }
-}
\ No newline at end of file
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        out.writeByte(VERSION);
+        BinaryIO.writeUUID(out, conversationUUID);
+        BinaryIO.writeString(out, conversationName);
+        BinaryIO.writeUUIDSet(out, writeAccessUsers);
+        BinaryIO.writeUUIDSet(out, readAccessUsers);
+        BinaryIO.writeUUIDSet(out, usersHaveRead);
+        BinaryIO.writeUUIDSet(out, userArchivedUUIDs);
+
+        out.writeInt(messageCount);
+        out.writeInt(deletedMessages.size());
+        for (int deleted : deletedMessages) {
+            out.writeInt(deleted);
+        }
+
+        out.writeInt(conversationMessages.size());
+        for (Message message : conversationMessages) {
+            message.writeExternal(out);
+        }
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException {
+        int version = BinaryIO.readVersion(in, VERSION, Conversation.class);
+        conversationUUID = BinaryIO.readUUID(in);
+        conversationName = BinaryIO.readString(in);
+        writeAccessUsers = BinaryIO.readUUIDSet(in);
+        readAccessUsers = BinaryIO.readUUIDSet(in);
+        usersHaveRead = BinaryIO.readUUIDSet(in);
+        userArchivedUUIDs = BinaryIO.readUUIDSet(in);
+
+        deletedMessages = new TreeSet<>();
+        if (version >= 2) {
+            messageCount = in.readInt();
+            int deletedCount = in.readInt();
+            for (int i = 0; i < deletedCount; i++) {
+                deletedMessages.add(in.readInt());
+            }
+        }
+
+        int loadedCount = in.readInt();
+        conversationMessages = new ArrayList<>(loadedCount);
+        for (int i = 0; i < loadedCount; i++) {
+            Message message = new Message();
+            message.readExternal(in);
+            conversationMessages.add(message);
+        }
+
+        // Version 1 kept every message in memory, and deleting a message removed it from the list
+        if (version < 2) {
+            messageCount = loadedCount;
+        }
+    }
+}
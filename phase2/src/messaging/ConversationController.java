@@ -88,6 +88,32 @@ public class ConversationController {
         return conversationManager.getMessages(executorUUID, conversationUUID, userManager.getUserIsGod(executorUUID));
     }
 
+    /**
+     * Gets some of the messages of a conversation, so long histories can be shown a page at a time. The conversation is
+     * marked as read once the newest message is fetched.
+     * <p>
+     * God users can bypass read-restrictions.
+     *
+     * @param executorUUID     The ID of the User
+     * @param conversationUUID The UUID of the Conversation for which the messages need to be seen
+     * @param start            index of the first message
+     * @param count            maximum number of messages
+     * @return returns an list of Maps. Each Map stores information about a message in the conversation.
+     */
+    public List<Map<String, String>> getMessages(UUID executorUUID, UUID conversationUUID, int start, int count) {
+        return conversationManager.getMessages(executorUUID, conversationUUID, start, count, userManager.getUserIsGod(executorUUID));
+    }
+
+    /**
+     * Gets the number of messages in a conversation
+     *
+     * @param conversationUUID The UUID of the Conversation
+     * @return number of messages
+     */
+    public int getMessageCount(UUID conversationUUID) {
+        return conversationManager.getMessageCount(conversationUUID);
+    }
+
     /**
      * Get the conversation name
      *
@@ -204,7 +230,7 @@ public class ConversationController {
      * @return true if that user is a god user or the sender of the message
      */
     public boolean checkIfSender(UUID conversationUUID, UUID userUUID, int index) {
-        return conversationManager.getConversation(conversationUUID).getConversationMessages().get(index).getSenderUUID() == userUUID
+        return conversationManager.getMessageSender(conversationUUID, index).equals(userUUID)
                 || userManager.getUserIsGod(userUUID);
     }
 
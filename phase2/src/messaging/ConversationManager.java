@@ -1,22 +1,167 @@
 package messaging;
 
+import gateway.SegmentStore;
+import gateway.SqlDatabase;
+import gateway.journal.IJournal;
+import gateway.journal.JournalOperation;
 import messaging.exception.NoReadAccessException;
 import messaging.exception.NoWriteAccessException;
 import messaging.exception.NullConversationException;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
+import java.time.LocalDateTime;
 import java.util.*;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * Manages Conversation entities
+ * <p>
+ * Once a message store is set, every message is appended to its conversation's segments as it's sent, and only the
+ * newest messages of each conversation are kept in memory (and serialized with this manager). Older messages are read
+ * back from the segments when they're needed.
  */
 public class ConversationManager implements Serializable {
+    private static final long serialVersionUID = -35184037162703974L;
+    private static final int MAXIMUM_LOADED_MESSAGES = 100;
+    private static final Logger LOGGER = Logger.getLogger(Logger.GLOBAL_LOGGER_NAME);
 
-    // Note that the userUUIDtoConversationUUIDs HashMap is only there for efficiency reasons
-    // the permissions are decided based on the read/write access to each conversation
-    // (looping thru all the conversations is O(n), but accessing the HashMap is O(1) time)
-    private final Map<UUID, Set<UUID>> userUUIDtoConversationUUIDs = new HashMap<>();
-    private final Map<UUID, Conversation> conversationUUIDsToEntity = new HashMap<>();
+    private final IConversationRepository conversations;
+
+    private transient IJournal journal;
+    private transient SegmentStore messageStore;
+    // Conversations deleted since this manager was last saved, whose messages are still in the message store
+    private transient Set<UUID> deletedConversations = new HashSet<>();
+
+    /**
+     * Creates a conversation manager that keeps every conversation in memory
+     */
+    public ConversationManager() {
+        conversations = new InMemoryConversationRepository();
+    }
+
+    /**
+     * Creates a conversation manager that stores the conversations in a database
+     *
+     * @param database database to store the conversations in
+     */
+    public ConversationManager(SqlDatabase database) {
+        conversations = new SqlConversationRepository(database);
+    }
+
+    /**
+     * Tests if the conversations are written to disk as soon as they change. If they are, journal records for them
+     * don't have to be replayed.
+     *
+     * @return true iff the conversations are stored right away
+     */
+    public boolean isDurable() {
+        return conversations.isDurable();
+    }
+
+    /**
+     * Sets the journal that mutations are recorded to
+     *
+     * @param journal journal to record to, or null to stop recording
+     */
+    public void setJournal(IJournal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Sets where messages are stored. Messages that are only in memory (e.g. ones loaded from a snapshot taken before
+     * there was a message store) are appended to it.
+     *
+     * @param messageStore store for the messages of every conversation
+     */
+    public void setMessageStore(SegmentStore messageStore) {
+        this.messageStore = messageStore;
+
+        for (UUID conversationUUID : conversations.getConversationUUIDs()) {
+            Conversation conversation = getConversation(conversationUUID);
+
+            for (int index = conversation.getFirstLoadedMessage(); index < conversation.getMessageCount(); index++) {
+                messageStore.append(conversationUUID, index, conversation.getLoadedMessage(index).toBytes());
+            }
+
+            // Conversations that already fit are left alone, so a database isn't rewritten with the same data
+            if (conversation.unloadMessages(MAXIMUM_LOADED_MESSAGES)) {
+                conversations.update(conversation);
+            }
+        }
+    }
+
+    /**
+     * Removes messages from the message store that aren't part of any conversation, i.e. ones that were stored but
+     * never made it into the journal before the program stopped. Must be called after the journal is replayed.
+     */
+    public void discardUnrecordedMessages() {
+        if (messageStore == null) {
+            return;
+        }
+
+        for (UUID conversationUUID : conversations.getConversationUUIDs()) {
+            messageStore.truncate(conversationUUID, getConversation(conversationUUID).getMessageCount());
+        }
+    }
+
+    /**
+     * Syncs the message store to disk. Must be called before this manager is saved, so it never refers to messages that
+     * aren't on disk.
+     *
+     * @return true iff every message was synced
+     */
+    public boolean syncMessages() {
+        return messageStore == null || messageStore.sync();
+    }
+
+    /**
+     * Deletes the messages of conversations that were deleted since this manager was last saved. Must only be called
+     * after this manager has been saved, otherwise a crash could leave a snapshot that refers to deleted messages.
+     * <p>
+     * Only conversations deleted through this manager are touched, so a manager rebuilt from an older snapshot never
+     * deletes the messages of conversations that were created after it.
+     */
+    public void removeDeletedMessages() {
+        if (messageStore == null) {
+            deletedConversations.clear();
+            return;
+        }
+
+        for (Iterator<UUID> iterator = deletedConversations.iterator(); iterator.hasNext(); ) {
+            UUID conversationUUID = iterator.next();
+
+            try {
+                messageStore.delete(conversationUUID);
+                iterator.remove();
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Unable to remove messages of deleted conversation " + conversationUUID, e);
+            }
+        }
+    }
+
+    private void storeMessage(Conversation conversation, int index) {
+        if (messageStore != null) {
+            messageStore.append(conversation.getConversationUUID(), index, conversation.getLoadedMessage(index).toBytes());
+            conversation.unloadMessages(MAXIMUM_LOADED_MESSAGES);
+        }
+    }
+
+    private Message getMessage(Conversation conversation, int index) {
+        if (index >= conversation.getFirstLoadedMessage()) {
+            return conversation.getLoadedMessage(index);
+        }
+
+        return Message.fromBytes(messageStore.read(conversation.getConversationUUID(), index));
+    }
+
+    private void record(JournalOperation operation, Object... arguments) {
+        if (journal != null) {
+            journal.record(operation, arguments);
+        }
+    }
 
     /**
      * Creates an instance of Conversation
@@ -29,16 +174,33 @@ public class ConversationManager implements Serializable {
      * @return A chat with the given specifications
      */
     public UUID createConversation(String conversationName, Set<UUID> usersWrite, Set<UUID> usersRead, UUID senderUUID, String messageContent) {
+        return createConversation(UUID.randomUUID(), conversationName, usersWrite, usersRead, senderUUID, messageContent, LocalDateTime.now());
+    }
+
+    /**
+     * Creates an instance of Conversation with a known UUID and timestamp (e.g. when replaying the journal)
+     *
+     * @param conversationUUID UUID of the new conversation
+     * @param conversationName name of the conversation
+     * @param usersWrite       The set of users that have writing access to this conversation
+     * @param usersRead        The set of users that have reading access to this conversation
+     * @param senderUUID       the UUID of the sender of the message
+     * @param messageContent   The content of the message to be sent
+     * @param timestamp        the time the initial message was sent
+     * @return A chat with the given specifications
+     */
+    public UUID createConversation(UUID conversationUUID, String conversationName, Set<UUID> usersWrite, Set<UUID> usersRead, UUID senderUUID, String messageContent, LocalDateTime timestamp) {
         // Create an initial message that initiates a conversation
-        Message initialMessage = new Message(senderUUID, messageContent);
+        Message initialMessage = new Message(senderUUID, messageContent, timestamp);
         // Adds the initial messages
         List<Message> messages = new ArrayList<>();
         messages.add(initialMessage);
 
         // Add conversation object to UUID -> Conversation map
-        Conversation newConversation = new Conversation(conversationName, usersWrite, usersRead, messages);
-        UUID conversationUUID = newConversation.getConversationUUID();
-        conversationUUIDsToEntity.put(conversationUUID, newConversation);
+        Conversation newConversation = new Conversation(conversationUUID, conversationName, usersWrite, usersRead, messages);
+        storeMessage(newConversation, 0);
+        conversations.add(newConversation);
+        record(JournalOperation.CONVERSATION_CREATE, conversationUUID, conversationName, usersWrite, usersRead, senderUUID, messageContent, timestamp);
 
         // This contains all the users in this conversation
         Set<UUID> conversationUsers = new HashSet<>();
@@ -60,23 +222,21 @@ public class ConversationManager implements Serializable {
      * @return the conversation in question
      */
     public Conversation getConversation(UUID conversationUUID) {
-        if (conversationUUIDsToEntity.get(conversationUUID) == null) {
+        Conversation conversation = conversations.get(conversationUUID);
+
+        if (conversation == null) {
             throw new NullConversationException(conversationUUID);
         }
 
-        return conversationUUIDsToEntity.get(conversationUUID);
+        return conversation;
     }
 
     private void addConversationToUserList(UUID userUUID, UUID conversationUUID) {
-        userUUIDtoConversationUUIDs.computeIfAbsent(userUUID, k -> new HashSet<>());
-
-        userUUIDtoConversationUUIDs.get(userUUID).add(conversationUUID);
+        conversations.addUser(userUUID, conversationUUID);
     }
 
     private void removeConversationFromUserList(UUID userUUID, UUID conversationUUID) {
-        if (userUUIDtoConversationUUIDs.get(userUUID) != null) {
-            userUUIDtoConversationUUIDs.get(userUUID).remove(conversationUUID);
-        }
+        conversations.removeUser(userUUID, conversationUUID);
     }
 
     /**
@@ -97,7 +257,9 @@ public class ConversationManager implements Serializable {
             removeConversationFromUserList(userUUID, conversationUUID);
         }
 
-        conversationUUIDsToEntity.remove(conversationUUID);
+        conversations.remove(conversationUUID);
+        deletedConversations.add(conversationUUID);
+        record(JournalOperation.CONVERSATION_DELETE, conversationUUID);
     }
 
     /**
@@ -112,9 +274,66 @@ public class ConversationManager implements Serializable {
         // Update permission within conversation
         conversation.grantWriteAccess(userUUID);
         conversation.grantReadAccess(userUUID);
+        conversations.update(conversation);
 
         // Add conversation to user's list
         addConversationToUserList(userUUID, conversationUUID);
+        record(JournalOperation.CONVERSATION_ADD_USER, userUUID, conversationUUID);
+    }
+
+    /**
+     * Adds a user to a specific chat who can read it, but not write to it
+     *
+     * @param userUUID         The userUUID of the user to be added to the Chat
+     * @param conversationUUID The UUID of the conversation/chat to which the user needs to be added
+     */
+    public void addReader(UUID userUUID, UUID conversationUUID) {
+        Conversation conversation = getConversation(conversationUUID);
+
+        conversation.grantReadAccess(userUUID);
+        conversations.update(conversation);
+
+        addConversationToUserList(userUUID, conversationUUID);
+        record(JournalOperation.CONVERSATION_ADD_READER, userUUID, conversationUUID);
+    }
+
+    /**
+     * Adds many users to a specific chat. The conversation is read and stored once for all of them, and users who are
+     * in it already are skipped.
+     *
+     * @param userUUIDs        The UUIDs of the users to be added to the Chat
+     * @param conversationUUID The UUID of the conversation/chat to which the users need to be added
+     * @return UUIDs of the users who weren't in the chat already
+     */
+    public Set<UUID> addUsers(Set<UUID> userUUIDs, UUID conversationUUID) {
+        Conversation conversation = getConversation(conversationUUID);
+        Set<UUID> readAccessUsers = conversation.getReadAccessUsers();
+        Set<UUID> newUserUUIDs = new HashSet<>();
+
+        for (UUID userUUID : userUUIDs) {
+            if (!readAccessUsers.contains(userUUID)) {
+                newUserUUIDs.add(userUUID);
+            }
+        }
+
+        if (newUserUUIDs.isEmpty()) {
+            return newUserUUIDs;
+        }
+
+        // Update permission within conversation
+        for (UUID userUUID : newUserUUIDs) {
+            conversation.grantWriteAccess(userUUID);
+            conversation.grantReadAccess(userUUID);
+        }
+        conversations.update(conversation);
+
+        // Add conversation to the users' lists
+        for (UUID userUUID : newUserUUIDs) {
+            addConversationToUserList(userUUID, conversationUUID);
+            record(JournalOperation.CONVERSATION_ADD_USER, userUUID, conversationUUID);
+        }
+
+        return newUserUUIDs;
     }
 
     /**
@@ -124,15 +343,18 @@ public class ConversationManager implements Serializable {
      * @return set of users in the conversation
      */
     public Set<UUID> getUsers(UUID conversationUUID) {
-        Set<UUID> usersInConversation = new HashSet<>();
-        Set<UUID> allUsersUUID = userUUIDtoConversationUUIDs.keySet();
-        for (UUID userUUID : allUsersUUID) {
-            if (userUUIDtoConversationUUIDs.get(userUUID).contains(conversationUUID)) {
-                usersInConversation.add(userUUID);
-            }
+        return conversations.getUsers(conversationUUID);
+    }
 
-        }
-        return usersInConversation;
+    /**
+     * Tests if a user has access to a conversation, without listing every user of the conversation
+     *
+     * @param userUUID         The userUUID of the user
+     * @param conversationUUID The UUID of a Conversation/Chat Group
+     * @return true iff the user can read the conversation
+     */
+    public boolean hasUser(UUID userUUID, UUID conversationUUID) {
+        return getConversation(conversationUUID).getReadAccessUsers().contains(userUUID);
     }
 
     /**
@@ -147,16 +369,18 @@ public class ConversationManager implements Serializable {
         // Update permission within conversation
         conversation.removeUserFromWrite(userUUID);
         conversation.removeUserFromRead(userUUID);
+        conversations.update(conversation);
 
         // Add conversation to user's list
         removeConversationFromUserList(userUUID, conversationUUID);
+        record(JournalOperation.CONVERSATION_REMOVE_USER, userUUID, conversationUUID);
     }
 
     /**
      * returns a set of all conversations in the system
      */
     Set<UUID> getConversationList() {
-        return new HashSet<>(conversationUUIDsToEntity.keySet());
+        return conversations.getConversationUUIDs();
     }
 
     /**
@@ -165,12 +389,7 @@ public class ConversationManager implements Serializable {
      * @param userUUID the UUID of the user for whom we want to know the set of Conversation lists
      */
     Set<UUID> getConversationList(UUID userUUID) {
-        if (userUUIDtoConversationUUIDs.get(userUUID) == null) {
-            return new HashSet<>();
-        } else {
-
-            return new HashSet<>(userUUIDtoConversationUUIDs.get(userUUID));
-        }
+        return conversations.getConversationUUIDs(userUUID);
     }
 
     /**
@@ -192,15 +411,31 @@ public class ConversationManager implements Serializable {
      * @param bypassRestriction whether to bypass write access restrictions
      */
     void sendMessage(UUID senderUUID, String messageContent, UUID conversationUUID, boolean bypassRestriction) {
-        Message message = new Message(senderUUID, messageContent);
+        sendMessage(senderUUID, messageContent, conversationUUID, bypassRestriction, LocalDateTime.now());
+    }
+
+    /**
+     * Sends a particular message to a specific chat with a known timestamp (e.g. when replaying the journal)
+     *
+     * @param senderUUID        the UUID of the sender of the message
+     * @param messageContent    The content of the message to be sent
+     * @param conversationUUID  the conversation UUID of the conversation to which this message has to be added
+     * @param bypassRestriction whether to bypass write access restrictions
+     * @param timestamp         the time the message was sent
+     */
+    public void sendMessage(UUID senderUUID, String messageContent, UUID conversationUUID, boolean bypassRestriction, LocalDateTime timestamp) {
+        Message message = new Message(senderUUID, messageContent, timestamp);
         Conversation conversation = getConversation(conversationUUID);
 
         UUID userUUID = message.getSenderUUID();
 
         if (conversation.getWriteAccessUsers().contains(userUUID) || bypassRestriction) {
             conversation.addMessage(message);
+            storeMessage(conversation, conversation.getMessageCount() - 1);
             conversation.resetUserArchivedUUIDs();
             conversation.resetUsersHaveRead();
+            conversations.update(conversation);
+            record(JournalOperation.CONVERSATION_SEND_MESSAGE, senderUUID, messageContent, conversationUUID, bypassRestriction, timestamp);
         } else {
             throw new NoWriteAccessException();
         }
@@ -218,26 +453,102 @@ public class ConversationManager implements Serializable {
     List<Map<String, String>> getMessages(UUID userUUID, UUID conversationUUID, boolean bypassRestriction) {
         Conversation conversation = getConversation(conversationUUID);
 
-        conversation.getUsersHaveRead().add(userUUID);
+        userReadConversation(userUUID, conversationUUID);
         if (conversation.getReadAccessUsers().contains(userUUID) || bypassRestriction) {
-            List<Map<String, String>> newList = new ArrayList<>();
+            return getMessageMaps(conversation, 0, conversation.getVisibleMessageCount());
+        } else {
+            throw new NoReadAccessException();
+        }
+    }
 
-            // Mark this conversation as read
-            conversation.readConversation(userUUID);
+    /**
+     * Gets some of the messages of a conversation a user has read access to, e.g. the ones they scrolled to. The
+     * conversation is marked as read once the newest message is fetched. Throws NoReadAccessException if the user has
+     * no read access.
+     *
+     * @param userUUID          The ID of the User
+     * @param conversationUUID  The UUID of the Conversation for which the messages need to be seen
+     * @param start             index of the first message, among the ones that haven't been deleted
+     * @param count             maximum number of messages
+     * @param bypassRestriction whether to bypass read access restrictions
+     * @return returns an List of Maps. Each Map stores information about a message in the conversation.
+     */
+    List<Map<String, String>> getMessages(UUID userUUID, UUID conversationUUID, int start, int count, boolean bypassRestriction) {
+        Conversation conversation = getConversation(conversationUUID);
+
+        if (conversation.getReadAccessUsers().contains(userUUID) || bypassRestriction) {
+            List<Map<String, String>> messages = getMessageMaps(conversation, start, count);
 
-            for (Message message : conversation.getConversationMessages()) {
-                Map<String, String> messageMap = new HashMap<>();
-                messageMap.put("sender", message.getSenderUUID().toString());
-                messageMap.put("timestamp", message.getTimestamp().toString());
-                messageMap.put("content", message.getContent());
-                newList.add(messageMap);
+            if (start + messages.size() >= conversation.getVisibleMessageCount()) {
+                userReadConversation(userUUID, conversationUUID);
             }
-            return newList;
+
+            return messages;
         } else {
             throw new NoReadAccessException();
         }
     }
 
+    private List<Map<String, String>> getMessageMaps(Conversation conversation, int start, int count) {
+        List<Map<String, String>> newList = new ArrayList<>();
+        int index = conversation.getMessageIndex(Math.max(0, start));
+
+        for (; index < conversation.getMessageCount() && newList.size() < count; index++) {
+            if (conversation.isDeleted(index)) {
+                continue;
+            }
+
+            Message message = getMessage(conversation, index);
+            Map<String, String> messageMap = new HashMap<>();
+            messageMap.put("sender", message.getSenderUUID().toString());
+            messageMap.put("timestamp", message.getTimestamp().toString());
+            messageMap.put("content", message.getContent());
+            newList.add(messageMap);
+        }
+
+        return newList;
+    }
+
+    /**
+     * Gets the number of messages in a conversation that haven't been deleted
+     *
+     * @param conversationUUID conversation in question
+     * @return number of messages
+     */
+    int getMessageCount(UUID conversationUUID) {
+        return getConversation(conversationUUID).getVisibleMessageCount();
+    }
+
+    /**
+     * Gets the sender of a message
+     *
+     * @param conversationUUID conversation in question
+     * @param index            index of the message, among the ones that haven't been deleted
+     * @return UUID of the sender
+     */
+    UUID getMessageSender(UUID conversationUUID, int index) {
+        Conversation conversation = getConversation(conversationUUID);
+
+        if (index < 0 || index >= conversation.getVisibleMessageCount()) {
+            throw new IndexOutOfBoundsException(String.format("Index: %d, Size: %d", index, conversation.getVisibleMessageCount()));
+        }
+
+        return getMessage(conversation, conversation.getMessageIndex(index)).getSenderUUID();
+    }
+
+    /**
+     * Marks a conversation as read for a specific user
+     *
+     * @param userUUID         user in question
+     * @param conversationUUID conversation in question
+     */
+    public void userReadConversation(UUID userUUID, UUID conversationUUID) {
+        Conversation conversation = getConversation(conversationUUID);
+        conversation.readConversation(userUUID);
+        conversations.update(conversation);
+        record(JournalOperation.CONVERSATION_READ, userUUID, conversationUUID);
+    }
+
     /**
      * Marks a conversation as unread for a specific user
      *
@@ -247,6 +558,8 @@ public class ConversationManager implements Serializable {
     public void userUnreadConversation(UUID userUUID, UUID conversationUUID) {
         Conversation conversation = getConversation(conversationUUID);
         conversation.unreadConversation(userUUID);
+        conversations.update(conversation);
+        record(JournalOperation.CONVERSATION_UNREAD, userUUID, conversationUUID);
     }
 
     /**
@@ -256,7 +569,10 @@ public class ConversationManager implements Serializable {
      * @param conversationUUID conversation in question
      */
     public void userArchiveConversation(UUID userUUID, UUID conversationUUID) {
-        getConversation(conversationUUID).archiveConversation(userUUID);
+        Conversation conversation = getConversation(conversationUUID);
+        conversation.archiveConversation(userUUID);
+        conversations.update(conversation);
+        record(JournalOperation.CONVERSATION_ARCHIVE, userUUID, conversationUUID);
     }
 
     /**
@@ -287,9 +603,14 @@ public class ConversationManager implements Serializable {
      * @param index            index on a message in the list of messages
      */
     public void userDeleteMessage(UUID conversationUUID, int index) {
-        getConversation(conversationUUID).deleteMessage(index);
-
+        Conversation conversation = getConversation(conversationUUID);
+        conversation.deleteMessage(index);
+        conversations.update(conversation);
+        record(JournalOperation.CONVERSATION_DELETE_MESSAGE, conversationUUID, index);
     }
 
-
-}
\ No newline at end of file
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        deletedConversations = new HashSet<>();
+    }
+}
@@ -0,0 +1,87 @@
+package messaging;
+
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Stores the conversations for a ConversationManager, along with which users each conversation is listed for
+ * <p>
+ * Conversations returned by a repository may be copies, so every change to a conversation must be followed by a call
+ * to update.
+ */
+interface IConversationRepository {
+    /**
+     * Adds a new conversation
+     *
+     * @param conversation conversation to add
+     */
+    void add(Conversation conversation);
+
+    /**
+     * Gets a conversation
+     *
+     * @param conversationUUID UUID of the conversation
+     * @return the conversation, or null if there is no conversation with this UUID
+     */
+    Conversation get(UUID conversationUUID);
+
+    /**
+     * Stores the changes made to a conversation
+     *
+     * @param conversation conversation that was changed
+     */
+    void update(Conversation conversation);
+
+    /**
+     * Removes a conversation. The users it's listed for must be removed first.
+     *
+     * @param conversationUUID UUID of the conversation
+     */
+    void remove(UUID conversationUUID);
+
+    /**
+     * Lists a conversation for a user
+     *
+     * @param userUUID         UUID of the user
+     * @param conversationUUID UUID of the conversation
+     */
+    void addUser(UUID userUUID, UUID conversationUUID);
+
+    /**
+     * Stops listing a conversation for a user
+     *
+     * @param userUUID         UUID of the user
+     * @param conversationUUID UUID of the conversation
+     */
+    void removeUser(UUID userUUID, UUID conversationUUID);
+
+    /**
+     * Gets the users a conversation is listed for
+     *
+     * @param conversationUUID UUID of the conversation
+     * @return set of user UUIDs
+     */
+    Set<UUID> getUsers(UUID conversationUUID);
+
+    /**
+     * Gets the UUIDs of every conversation
+     *
+     * @return set of conversation UUIDs
+     */
+    Set<UUID> getConversationUUIDs();
+
+    /**
+     * Gets the conversations listed for a user
+     *
+     * @param userUUID UUID of the user
+     * @return set of conversation UUIDs
+     */
+    Set<UUID> getConversationUUIDs(UUID userUUID);
+
+    /**
+     * Tests if changes are written to disk as soon as they're made, rather than with the next snapshot
+     *
+     * @return true iff changes are stored right away
+     */
+    boolean isDurable();
+}
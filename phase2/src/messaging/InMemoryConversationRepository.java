@@ -0,0 +1,103 @@
+package messaging;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Keeps every conversation in memory. The conversations are serialized with the ConversationManager.
+ */
+class InMemoryConversationRepository implements IConversationRepository, Serializable {
+    private static final long serialVersionUID = 6505011991383638882L;
+
+    // Note that the userUUIDtoConversationUUIDs HashMap is only there for efficiency reasons
+    // the permissions are decided based on the read/write access to each conversation
+    // (looping thru all the conversations is O(n), but accessing the HashMap is O(1) time)
+    private final Map<UUID, Set<UUID>> userUUIDtoConversationUUIDs = new HashMap<>();
+    private final Map<UUID, Conversation> conversationUUIDsToEntity = new HashMap<>();
+
+    // Reverse of userUUIDtoConversationUUIDs, rebuilt when the repository is deserialized
+    private transient Map<UUID, Set<UUID>> conversationUUIDtoUserUUIDs = new HashMap<>();
+
+    @Override
+    public void add(Conversation conversation) {
+        conversationUUIDsToEntity.put(conversation.getConversationUUID(), conversation);
+    }
+
+    @Override
+    public Conversation get(UUID conversationUUID) {
+        return conversationUUIDsToEntity.get(conversationUUID);
+    }
+
+    @Override
+    public void update(Conversation conversation) {
+        // The stored conversation is the one that was changed
+    }
+
+    @Override
+    public void remove(UUID conversationUUID) {
+        conversationUUIDsToEntity.remove(conversationUUID);
+    }
+
+    @Override
+    public void addUser(UUID userUUID, UUID conversationUUID) {
+        userUUIDtoConversationUUIDs.computeIfAbsent(userUUID, k -> new HashSet<>()).add(conversationUUID);
+        conversationUUIDtoUserUUIDs.computeIfAbsent(conversationUUID, k -> new HashSet<>()).add(userUUID);
+    }
+
+    @Override
+    public void removeUser(UUID userUUID, UUID conversationUUID) {
+        if (userUUIDtoConversationUUIDs.get(userUUID) != null) {
+            userUUIDtoConversationUUIDs.get(userUUID).remove(conversationUUID);
+        }
+
+        Set<UUID> userUUIDs = conversationUUIDtoUserUUIDs.get(conversationUUID);
+        if (userUUIDs != null) {
+            userUUIDs.remove(userUUID);
+
+            if (userUUIDs.isEmpty()) {
+                conversationUUIDtoUserUUIDs.remove(conversationUUID);
+            }
+        }
+    }
+
+    @Override
+    public Set<UUID> getUsers(UUID conversationUUID) {
+        return new HashSet<>(conversationUUIDtoUserUUIDs.getOrDefault(conversationUUID, new HashSet<>()));
+    }
+
+    @Override
+    public Set<UUID> getConversationUUIDs() {
+        return new HashSet<>(conversationUUIDsToEntity.keySet());
+    }
+
+    @Override
+    public Set<UUID> getConversationUUIDs(UUID userUUID) {
+        if (userUUIDtoConversationUUIDs.get(userUUID) == null) {
+            return new HashSet<>();
+        }
+
+        return new HashSet<>(userUUIDtoConversationUUIDs.get(userUUID));
+    }
+
+    @Override
+    public boolean isDurable() {
+        return false;
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+
+        conversationUUIDtoUserUUIDs = new HashMap<>();
+        userUUIDtoConversationUUIDs.forEach((userUUID, conversationUUIDs) -> {
+            for (UUID conversationUUID : conversationUUIDs) {
+                conversationUUIDtoUserUUIDs.computeIfAbsent(conversationUUID, k -> new HashSet<>()).add(userUUID);
+            }
+        });
+    }
+}
@@ -1,16 +1,33 @@
 package messaging;
 
-import java.io.Serializable;
+import util.BinaryIO;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.util.UUID;
 
 /**
  * Contains information about individual messages, such as the sender, timestamp, etc.
  */
-class Message implements Serializable {
-    private final String content;
-    private final LocalDateTime timestamp;
-    private final UUID senderUUID;
+class Message implements Externalizable {
+    private static final long serialVersionUID = 1L;
+    private static final int VERSION = 1;
+
+    private String content;
+    private LocalDateTime timestamp;
+    private UUID senderUUID;
+
+    /**
+     * Empty constructor, only for deserialization
+     */
+    public Message() {
+    }
 
     /**
      * Constructor for Message.
@@ -19,8 +36,19 @@ class Message implements Serializable {
      * @param messageContent The content of the message to be sent.
      */
     Message(UUID senderUUID, String messageContent) {
+        this(senderUUID, messageContent, LocalDateTime.now());
+    }
+
+    /**
+     * Constructor for Message with a known timestamp (e.g. when replaying the journal)
+     *
+     * @param senderUUID     The UUID of the sender of the message
+     * @param messageContent The content of the message to be sent.
+     * @param timestamp      The date and time the message was sent
+     */
+    Message(UUID senderUUID, String messageContent, LocalDateTime timestamp) {
         content = messageContent;
-        timestamp = LocalDateTime.now();
+        this.timestamp = timestamp;
         this.senderUUID = senderUUID;
     }
 
@@ -58,4 +86,55 @@ class Message implements Serializable {
     public String toString() {
         return String.format("[%s @ %s] %s\n", senderUUID, timestamp, content);
     }
+
+    /**
+     * Encodes this message as a record for a segment store
+     *
+     * @return the encoded message
+     */
+    byte[] toBytes() {
+        byte[] contentBytes = content.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocate(1 + 2 * Long.BYTES + Long.BYTES + Integer.BYTES + contentBytes.length);
+
+        buffer.put((byte) VERSION);
+        buffer.putLong(senderUUID.getMostSignificantBits()).putLong(senderUUID.getLeastSignificantBits());
+        buffer.putLong(timestamp.toEpochSecond(ZoneOffset.UTC)).putInt(timestamp.getNano());
+        buffer.put(contentBytes);
+
+        return buffer.array();
+    }
+
+    /**
+     * Decodes a message encoded by toBytes
+     *
+     * @param bytes the encoded message
+     * @return the decoded message
+     */
+    static Message fromBytes(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        buffer.get();
+
+        UUID senderUUID = new UUID(buffer.getLong(), buffer.getLong());
+        long epochSecond = buffer.getLong();
+        LocalDateTime timestamp = LocalDateTime.ofEpochSecond(epochSecond, buffer.getInt(), ZoneOffset.UTC);
+        String content = new String(bytes, buffer.position(), buffer.remaining(), StandardCharsets.UTF_8);
+
+        return new Message(senderUUID, content, timestamp);
+    }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        out.writeByte(VERSION);
+        BinaryIO.writeUUID(out, senderUUID);
+        BinaryIO.writeDateTime(out, timestamp);
+        BinaryIO.writeString(out, content);
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException {
+        BinaryIO.readVersion(in, VERSION, Message.class);
+        senderUUID = BinaryIO.readUUID(in);
+        timestamp = BinaryIO.readDateTime(in);
+        content = BinaryIO.readString(in);
+    }
 }
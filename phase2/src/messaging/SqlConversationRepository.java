@@ -0,0 +1,171 @@
+package messaging;
+
+import gateway.SqlDatabase;
+import gateway.exceptions.RepositoryException;
+
+import java.io.*;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Stores the conversations in an embedded SQL database. Each conversation is stored in its compact binary form, and the
+ * users each conversation is listed for are stored in a separate table with an index in each direction. Changes are
+ * written to the database as soon as they're made, so only the database's URL is serialized with the
+ * ConversationManager.
+ */
+class SqlConversationRepository implements IConversationRepository, Serializable {
+    private static final long serialVersionUID = -1095053535468162848L;
+
+    private final SqlDatabase database;
+
+    /**
+     * Creates a conversation repository, and its tables if they don't exist yet
+     *
+     * @param database database to store the conversations in
+     */
+    SqlConversationRepository(SqlDatabase database) {
+        this.database = database;
+
+        database.execute(
+                "CREATE TABLE IF NOT EXISTS conversations (uuid CHAR(36) PRIMARY KEY, data BLOB NOT NULL)",
+                "CREATE TABLE IF NOT EXISTS conversation_users (user_uuid CHAR(36) NOT NULL, conversation_uuid CHAR(36) NOT NULL, PRIMARY KEY (user_uuid, conversation_uuid))",
+                "CREATE INDEX IF NOT EXISTS conversation_users_conversation ON conversation_users (conversation_uuid)"
+        );
+    }
+
+    private PreparedStatement prepare(String sql) throws SQLException {
+        return database.getConnection().prepareStatement(sql);
+    }
+
+    private byte[] write(Conversation conversation) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            conversation.writeExternal(out);
+        }
+
+        return bytes.toByteArray();
+    }
+
+    private Conversation read(byte[] data) throws IOException {
+        Conversation conversation = new Conversation();
+
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(data))) {
+            conversation.readExternal(in);
+        }
+
+        return conversation;
+    }
+
+    private void updateMembership(UUID conversationUUID, String sql, UUID... parameters) {
+        try (PreparedStatement statement = prepare(sql)) {
+            for (int i = 0; i < parameters.length; i++) {
+                statement.setString(i + 1, parameters[i].toString());
+            }
+
+            statement.executeUpdate();
+        } catch (SQLException e) {
+            throw new RepositoryException("Unable to update the users of conversation " + conversationUUID, e);
+        }
+    }
+
+    private Set<UUID> queryUUIDs(String sql, UUID parameter) {
+        Set<UUID> uuids = new HashSet<>();
+
+        try (PreparedStatement statement = prepare(sql)) {
+            if (parameter != null) {
+                statement.setString(1, parameter.toString());
+            }
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    uuids.add(UUID.fromString(resultSet.getString(1)));
+                }
+            }
+        } catch (SQLException e) {
+            throw new RepositoryException("Unable to read conversations", e);
+        }
+
+        return uuids;
+    }
+
+    @Override
+    public void add(Conversation conversation) {
+        try (PreparedStatement statement = prepare("INSERT INTO conversations (uuid, data) VALUES (?, ?)")) {
+            statement.setString(1, conversation.getConversationUUID().toString());
+            statement.setBytes(2, write(conversation));
+            statement.executeUpdate();
+        } catch (SQLException | IOException e) {
+            throw new RepositoryException("Unable to add conversation " + conversation.getConversationUUID(), e);
+        }
+    }
+
+    @Override
+    public Conversation get(UUID conversationUUID) {
+        try (PreparedStatement statement = prepare("SELECT data FROM conversations WHERE uuid = ?")) {
+            statement.setString(1, conversationUUID.toString());
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() ? read(resultSet.getBytes(1)) : null;
+            }
+        } catch (SQLException | IOException e) {
+            throw new RepositoryException("Unable to read conversation " + conversationUUID, e);
+        }
+    }
+
+    @Override
+    public void update(Conversation conversation) {
+        try (PreparedStatement statement = prepare("UPDATE conversations SET data = ? WHERE uuid = ?")) {
+            statement.setBytes(1, write(conversation));
+            statement.setString(2, conversation.getConversationUUID().toString());
+            statement.executeUpdate();
+        } catch (SQLException | IOException e) {
+            throw new RepositoryException("Unable to update conversation " + conversation.getConversationUUID(), e);
+        }
+    }
+
+    @Override
+    public void remove(UUID conversationUUID) {
+        try (PreparedStatement statement = prepare("DELETE FROM conversations WHERE uuid = ?")) {
+            statement.setString(1, conversationUUID.toString());
+            statement.executeUpdate();
+        } catch (SQLException e) {
+            throw new RepositoryException("Unable to remove conversation " + conversationUUID, e);
+        }
+    }
+
+    @Override
+    public void addUser(UUID userUUID, UUID conversationUUID) {
+        updateMembership(conversationUUID, "INSERT INTO conversation_users (user_uuid, conversation_uuid) SELECT ?, ? WHERE NOT EXISTS (SELECT 1 FROM conversation_users WHERE user_uuid = ? AND conversation_uuid = ?)",
+                userUUID, conversationUUID, userUUID, conversationUUID);
+    }
+
+    @Override
+    public void removeUser(UUID userUUID, UUID conversationUUID) {
+        updateMembership(conversationUUID, "DELETE FROM conversation_users WHERE user_uuid = ? AND conversation_uuid = ?", userUUID, conversationUUID);
+    }
+
+    @Override
+    public Set<UUID> getUsers(UUID conversationUUID) {
+        return queryUUIDs("SELECT user_uuid FROM conversation_users WHERE conversation_uuid = ?", conversationUUID);
+    }
+
+    @Override
+    public Set<UUID> getConversationUUIDs() {
+        return queryUUIDs("SELECT uuid FROM conversations", null);
+    }
+
+    @Override
+    public Set<UUID> getConversationUUIDs(UUID userUUID) {
+        return queryUUIDs("SELECT conversation_uuid FROM conversation_users WHERE user_uuid = ?", userUUID);
+    }
+
+    @Override
+    public boolean isDurable() {
+        return true;
+    }
+}
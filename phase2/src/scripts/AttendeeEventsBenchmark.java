@@ -0,0 +1,89 @@
+package scripts;
+
+import convention.calendar.TimeRange;
+import convention.event.EventManager;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Measures finding the events a user is registered for (the "registered events" tab, conference stats, leaving a
+ * conference and schedules) with the registration index, against going through every event and copying its attendees
+ * like EventController.getAttendeeEvents used to. Each measurement is repeated a few times so the JIT has warmed up by
+ * the last rounds.
+ * <p>
+ * Usage: AttendeeEventsBenchmark [number of attendees] [number of events] [registrations per attendee]
+ */
+public class AttendeeEventsBenchmark {
+    public static void main(String[] args) {
+        int attendeeCount = args.length > 0 ? Integer.parseInt(args[0]) : 50_000;
+        int eventCount = args.length > 1 ? Integer.parseInt(args[1]) : 2_000;
+        int registrationCount = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+
+        LocalDateTime start = LocalDateTime.of(2030, 1, 1, 0, 0);
+        Random random = new Random(0);
+        UUID roomUUID = UUID.randomUUID();
+
+        EventManager eventManager = new EventManager(new HashMap<>());
+        List<UUID> eventUUIDs = new ArrayList<>();
+        for (int i = 0; i < eventCount; i++) {
+            LocalDateTime eventStart = start.plusHours(i);
+            eventUUIDs.add(eventManager.createEvent("Event " + i, new TimeRange(eventStart, eventStart.plusMinutes(30)), roomUUID, new HashSet<>()));
+        }
+
+        List<UUID> attendeeUUIDs = new ArrayList<>();
+        long registerStart = System.nanoTime();
+        for (int i = 0; i < attendeeCount; i++) {
+            UUID attendeeUUID = UUID.randomUUID();
+            attendeeUUIDs.add(attendeeUUID);
+
+            for (int j = 0; j < registrationCount; j++) {
+                eventManager.registerAttendee(eventUUIDs.get(random.nextInt(eventCount)), attendeeUUID);
+            }
+        }
+        long register = System.nanoTime() - registerStart;
+
+        int lookupCount = 100_000;
+        int scanCount = 200;
+
+        System.out.printf("%d attendees, %d events, %d registrations each, registering took %.1f ms\n", attendeeCount, eventCount, registrationCount, register / 1e6);
+        System.out.printf("%-8s %-10s %14s\n", "round", "lookup", "us/op");
+
+        for (int round = 1; round <= 5; round++) {
+            long found = 0;
+            long lookupStart = System.nanoTime();
+            for (int i = 0; i < lookupCount; i++) {
+                found += eventManager.getAttendeeEvents(attendeeUUIDs.get(random.nextInt(attendeeCount))).size();
+            }
+            long lookup = System.nanoTime() - lookupStart;
+
+            System.out.printf("%-8d %-10s %14.3f\n", round, "index", lookup / 1e3 / lookupCount);
+
+            long scanFound = 0;
+            long scanStart = System.nanoTime();
+            for (int i = 0; i < scanCount; i++) {
+                UUID attendeeUUID = attendeeUUIDs.get(random.nextInt(attendeeCount));
+                Set<UUID> registered = new HashSet<>();
+
+                for (UUID eventUUID : eventManager.getEvents()) {
+                    if (eventManager.getEventAttendees(eventUUID).contains(attendeeUUID)) {
+                        registered.add(eventUUID);
+                    }
+                }
+
+                scanFound += registered.size();
+                if (!registered.equals(eventManager.getAttendeeEvents(attendeeUUID))) {
+                    throw new IllegalStateException("The index and the scan disagree");
+                }
+            }
+            long scan = System.nanoTime() - scanStart;
+
+            System.out.printf("%-8d %-10s %14.3f\n", round, "scan", scan / 1e3 / scanCount);
+
+            // Keep the results alive
+            if (found + scanFound < 0) {
+                throw new IllegalStateException();
+            }
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package scripts;
+
+import convention.calendar.Calendar;
+import convention.calendar.CalendarManager;
+import convention.calendar.TimeRange;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Measures room calendar conflict checks with 10k bookings, against the linear scan over a copy of every booking that
+ * the calendar used to do. Each measurement is repeated a few times so the JIT has warmed up by the last rounds.
+ * <p>
+ * Usage: CalendarBenchmark [number of bookings] [number of conflict checks]
+ */
+public class CalendarBenchmark {
+    public static void main(String[] args) {
+        int bookingCount = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int checkCount = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+
+        LocalDateTime start = LocalDateTime.of(2030, 1, 1, 0, 0);
+        Random random = new Random(0);
+
+        // Bookings of 30 minutes every hour, in random order
+        List<Integer> hours = new ArrayList<>();
+        for (int i = 0; i < bookingCount; i++) {
+            hours.add(i);
+        }
+        Collections.shuffle(hours, random);
+
+        // Probes of 20 minutes anywhere in the booked period, about a third of them conflict
+        List<TimeRange> probes = new ArrayList<>();
+        for (int i = 0; i < checkCount; i++) {
+            LocalDateTime probeStart = start.plusMinutes(random.nextInt(bookingCount * 60));
+            probes.add(new TimeRange(probeStart, probeStart.plusMinutes(20)));
+        }
+
+        System.out.printf("%d bookings, %d conflict checks\n", bookingCount, checkCount);
+        System.out.printf("%-8s %-10s %14s %14s\n", "round", "calendar", "add all ms", "check ns/op");
+
+        for (int round = 1; round <= 5; round++) {
+            // Sorted calendar
+            CalendarManager calendarManager = new CalendarManager(new Calendar());
+            long addStart = System.nanoTime();
+            for (int hour : hours) {
+                LocalDateTime bookingStart = start.plusHours(hour);
+                calendarManager.addTimeBlock(UUID.randomUUID(), new TimeRange(bookingStart, bookingStart.plusMinutes(30)));
+            }
+            long add = System.nanoTime() - addStart;
+
+            int conflicts = 0;
+            long checkStart = System.nanoTime();
+            for (TimeRange probe : probes) {
+                if (calendarManager.timeRangeOccupied(probe)) {
+                    conflicts++;
+                }
+            }
+            long check = System.nanoTime() - checkStart;
+
+            System.out.printf("%-8d %-10s %14.1f %14.1f\n", round, "sorted", add / 1e6, (double) check / checkCount);
+
+            // Linear scan over a copy, like the old calendar, with fewer checks since each one is slow
+            Map<UUID, TimeRange> bookings = new HashMap<>();
+            addStart = System.nanoTime();
+            for (int hour : hours) {
+                LocalDateTime bookingStart = start.plusHours(hour);
+                TimeRange timeRange = new TimeRange(bookingStart, bookingStart.plusMinutes(30));
+
+                if (!linearHasConflict(bookings, timeRange)) {
+                    bookings.put(UUID.randomUUID(), timeRange);
+                }
+            }
+            add = System.nanoTime() - addStart;
+
+            int linearCheckCount = Math.max(1, checkCount / 100);
+            int linearConflicts = 0;
+            checkStart = System.nanoTime();
+            for (TimeRange probe : probes.subList(0, linearCheckCount)) {
+                if (linearHasConflict(bookings, probe)) {
+                    linearConflicts++;
+                }
+            }
+            check = System.nanoTime() - checkStart;
+
+            System.out.printf("%-8d %-10s %14.1f %14.1f\n", round, "linear", add / 1e6, (double) check / linearCheckCount);
+
+            // Keep the results alive, and make sure both calendars agree
+            int expected = 0;
+            for (TimeRange probe : probes.subList(0, linearCheckCount)) {
+                if (calendarManager.timeRangeOccupied(probe)) {
+                    expected++;
+                }
+            }
+            if (expected != linearConflicts || conflicts < expected) {
+                throw new IllegalStateException("The calendars disagree");
+            }
+        }
+    }
+
+    private static boolean linearHasConflict(Map<UUID, TimeRange> bookings, TimeRange timeRange) {
+        for (TimeRange booking : new HashSet<>(bookings.values())) {
+            if (timeRange.hasOverlap(booking)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+}
@@ -0,0 +1,62 @@
+package scripts;
+
+import gateway.Serializer;
+import gateway.exceptions.SerializerException;
+import gateway.legacy.LegacyReader;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Converts the manager files written by older versions of the program to the current format, so they can be loaded
+ * again. Run it from the directory the program is run from, with the program stopped.
+ * <p>
+ * Each file that is converted is first copied to the same name with .old at the end. Files that are already current or
+ * missing are left alone.
+ */
+public class MigrateSnapshots {
+    public static void main(String[] args) {
+        String[] fileNames = {"userManager.ser", "contactManager.ser", "conversationManager.ser", "conferenceManager.ser"};
+
+        for (String fileName : fileNames) {
+            Path path = Paths.get(fileName);
+            Path backup = Paths.get(fileName + ".old");
+
+            if (!Files.exists(path)) {
+                System.out.printf("%s does not exist, skipping.\n", fileName);
+                continue;
+            }
+
+            Serializer<Object> serializer = new Serializer<>(fileName);
+
+            try {
+                serializer.load(null);
+                System.out.printf("%s is already current.\n", fileName);
+                continue;
+            } catch (SerializerException e) {
+                // Not current, try the old format
+            }
+
+            try {
+                Object manager = LegacyReader.read(fileName);
+
+                if (Files.exists(backup)) {
+                    System.out.printf("Unable to migrate %s, %s is in the way.\n", fileName, backup);
+                    continue;
+                }
+
+                Files.copy(path, backup);
+
+                if (serializer.save(manager, 0)) {
+                    System.out.printf("Migrated %s, the original is in %s.\n", fileName, backup);
+                } else {
+                    System.out.printf("Unable to save %s, the original is in %s.\n", fileName, backup);
+                }
+            } catch (IOException | ClassNotFoundException | RuntimeException e) {
+                System.out.printf("Unable to migrate %s, it was left as it is: %s\n", fileName, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package scripts;
+
+import convention.ConferenceController;
+import convention.EventController;
+import convention.RoomController;
+import convention.calendar.TimeRange;
+import convention.conference.ConferenceManager;
+import convention.event.EventManager;
+import convention.exception.PermissionException;
+import convention.room.RoomManager;
+import gateway.SqlDatabase;
+import messaging.ConversationManager;
+import user.UserManager;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Measures the controller calls made when the details of an event are shown (see EventsDetailsPresenter): every getter
+ * tests the permissions of the signed in user first, which used to test each role of the user (and god mode) again.
+ * The same render is done through the controllers, which answer the tests from the cached roles, and through the
+ * managers with the tests written out the way they were before the cache.
+ * <p>
+ * The render is done as an attendee, an organizer and a god user who isn't part of the conference, whose tests went
+ * the furthest. Users can be stored in a database by setting -Dstorage.url, like SqlConferenceTest, which makes god
+ * mode lookups more expensive.
+ * <p>
+ * Usage: PermissionCacheBenchmark [number of renders]
+ */
+public class PermissionCacheBenchmark {
+    private static UserManager userManager;
+    private static ConferenceManager conferenceManager;
+    private static ConferenceController conferenceController;
+    private static EventController eventController;
+    private static RoomController roomController;
+
+    public static void main(String[] args) {
+        int renderCount = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        String storageUrl = System.getProperty("storage.url");
+
+        userManager = storageUrl == null ? new UserManager() : new UserManager(new SqlDatabase(storageUrl));
+        conferenceManager = new ConferenceManager();
+        ConversationManager conversationManager = new ConversationManager();
+        eventController = new EventController(conferenceManager, conversationManager, userManager);
+        roomController = new RoomController(conferenceManager, userManager, eventController);
+        conferenceController = new ConferenceController(conversationManager, eventController, conferenceManager, userManager);
+
+        UUID organizerUUID = userManager.registerUser("Organizer", "Organizerson", "organizer", "password", false, false);
+        UUID attendeeUUID = userManager.registerUser("Attendee", "Attendeeson", "attendee", "password", false, false);
+        UUID godUUID = userManager.registerUser("God", "Godson", "god", "password", true, false);
+        UUID speakerUUID = userManager.registerUser("Speaker", "Speakerson", "speaker", "password", false, false);
+
+        LocalDateTime start = LocalDateTime.of(2030, 1, 1, 9, 0);
+        UUID conferenceUUID = conferenceController.createConference("Benchmark", new TimeRange(start, start.plusDays(3)), organizerUUID);
+        conferenceController.addAttendee(conferenceUUID, attendeeUUID);
+        conferenceController.addAttendee(conferenceUUID, speakerUUID);
+
+        // Enough attendees that the role sets aren't trivially small
+        Set<UUID> crowd = new HashSet<>();
+        for (int i = 0; i < 10_000; i++) {
+            crowd.add(UUID.randomUUID());
+        }
+        conferenceManager.addAttendees(conferenceUUID, crowd);
+
+        UUID roomUUID = roomController.createRoom(conferenceUUID, organizerUUID, "Main Hall", 500);
+        UUID eventUUID = eventController.createEvent(conferenceUUID, organizerUUID, "Keynote", new TimeRange(start.plusHours(1), start.plusHours(2)), roomUUID, new HashSet<>(Collections.singleton(speakerUUID)));
+        eventController.registerForEvent(conferenceUUID, attendeeUUID, attendeeUUID, eventUUID);
+
+        System.out.printf("%d renders per user, %s users\n", renderCount, storageUrl == null ? "in memory" : storageUrl);
+        System.out.printf("%-10s %14s %14s %10s\n", "user", "cached us", "uncached us", "speedup");
+
+        for (int round = 1; round <= 3; round++) {
+            System.out.println("round " + round);
+            run("attendee", renderCount, conferenceUUID, attendeeUUID, eventUUID);
+            run("organizer", renderCount, conferenceUUID, organizerUUID, eventUUID);
+            run("god", renderCount, conferenceUUID, godUUID, eventUUID);
+        }
+    }
+
+    private static void run(String name, int renderCount, UUID conferenceUUID, UUID userUUID, UUID eventUUID) {
+        long sink = 0;
+
+        long cachedStart = System.nanoTime();
+        for (int i = 0; i < renderCount; i++) {
+            sink += renderCached(conferenceUUID, userUUID, eventUUID);
+        }
+        long cached = System.nanoTime() - cachedStart;
+
+        long uncachedStart = System.nanoTime();
+        for (int i = 0; i < renderCount; i++) {
+            sink -= renderUncached(conferenceUUID, userUUID, eventUUID);
+        }
+        long uncached = System.nanoTime() - uncachedStart;
+
+        if (sink != 0) {
+            throw new IllegalStateException("The renders disagree");
+        }
+
+        System.out.printf("%-10s %14.2f %14.2f %9.1fx\n", name, cached / 1e3 / renderCount, uncached / 1e3 / renderCount, (double) uncached / cached);
+    }
+
+    /**
+     * The calls EventsDetailsPresenter makes, through the controllers
+     */
+    private static long renderCached(UUID conferenceUUID, UUID userUUID, UUID eventUUID) {
+        long result = 0;
+
+        // updateUserData
+        if (conferenceController.isOrganizer(conferenceUUID, userUUID, userUUID)) {
+            result += eventController.getEventAttendees(conferenceUUID, userUUID, eventUUID).size();
+        }
+        result += eventController.getEventSpeakers(conferenceUUID, userUUID, eventUUID).size();
+
+        // updateGeneralData
+        result += eventController.getEventTitle(conferenceUUID, userUUID, eventUUID).length();
+        result += eventController.getEventTimeRange(conferenceUUID, userUUID, eventUUID).getStart().getHour();
+        result += eventController.getEventTimeRange(conferenceUUID, userUUID, eventUUID).getEnd().getHour();
+        result += eventController.getEventConversationUUID(conferenceUUID, userUUID, eventUUID) == null ? 0 : 1;
+        result += roomController.getRoomLocation(conferenceUUID, userUUID, eventController.getEventRoom(conferenceUUID, userUUID, eventUUID)).length();
+        result += eventController.getNumRegistered(conferenceUUID, userUUID, eventUUID);
+        result += roomController.getRoomCapacity(conferenceUUID, userUUID, eventController.getEventRoom(conferenceUUID, userUUID, eventUUID));
+        result += eventController.getEventSpeakers(conferenceUUID, userUUID, eventUUID).size();
+
+        // updateButtons
+        boolean isRegistered = eventController.isRegistered(conferenceUUID, userUUID, eventUUID);
+        boolean isOrganizer = conferenceController.isOrganizer(conferenceUUID, userUUID, userUUID);
+        boolean isSpeaker = eventController.getEventSpeakers(conferenceUUID, userUUID, eventUUID).contains(userUUID);
+        if (!isRegistered) {
+            result += eventController.isWaitlisted(conferenceUUID, userUUID, userUUID, eventUUID) ? 1 : 0;
+        }
+
+        return result + (isRegistered ? 2 : 0) + (isOrganizer ? 4 : 0) + (isSpeaker ? 8 : 0);
+    }
+
+    /**
+     * The same calls, with the permission tests written out the way the controllers did them before roles were cached.
+     * The managers are fetched for each call like the controllers do, so only the permission tests differ.
+     */
+    private static long renderUncached(UUID conferenceUUID, UUID userUUID, UUID eventUUID) {
+        long result = 0;
+
+        // updateUserData
+        testIsAttendee(conferenceUUID, userUUID);
+        if (conferenceManager.isOrganizer(conferenceUUID, userUUID, userManager)) {
+            testIsAttendee(conferenceUUID, userUUID);
+            result += events(conferenceUUID).getEventAttendees(eventUUID).size();
+        }
+        testIsAttendee(conferenceUUID, userUUID);
+        result += events(conferenceUUID).getEventSpeakers(eventUUID).size();
+
+        // updateGeneralData
+        testIsAttendee(conferenceUUID, userUUID);
+        result += events(conferenceUUID).getEventTitle(eventUUID).length();
+        testIsAttendee(conferenceUUID, userUUID);
+        result += events(conferenceUUID).getEventTimeRange(eventUUID).getStart().getHour();
+        testIsAttendee(conferenceUUID, userUUID);
+        result += events(conferenceUUID).getEventTimeRange(eventUUID).getEnd().getHour();
+        testIsAttendee(conferenceUUID, userUUID);
+        result += events(conferenceUUID).getEventConversationUUID(eventUUID) == null ? 0 : 1;
+        testIsAttendee(conferenceUUID, userUUID);
+        UUID roomUUID = events(conferenceUUID).getEventRoom(eventUUID);
+        testIsAttendee(conferenceUUID, userUUID);
+        result += rooms(conferenceUUID).getRoomLocation(roomUUID).length();
+        testIsAttendee(conferenceUUID, userUUID);
+        result += events(conferenceUUID).getEventAttendeeCount(eventUUID);
+        testIsAttendee(conferenceUUID, userUUID);
+        roomUUID = events(conferenceUUID).getEventRoom(eventUUID);
+        testIsAttendee(conferenceUUID, userUUID);
+        result += rooms(conferenceUUID).getRoomCapacity(roomUUID);
+        testIsAttendee(conferenceUUID, userUUID);
+        result += events(conferenceUUID).getEventSpeakers(eventUUID).size();
+
+        // updateButtons
+        testIsAttendee(conferenceUUID, userUUID);
+        boolean isRegistered = events(conferenceUUID).isEventAttendee(eventUUID, userUUID);
+        testIsAttendee(conferenceUUID, userUUID);
+        boolean isOrganizer = conferenceManager.isOrganizer(conferenceUUID, userUUID, userManager);
+        testIsAttendee(conferenceUUID, userUUID);
+        boolean isSpeaker = events(conferenceUUID).getEventSpeakers(eventUUID).contains(userUUID);
+        if (!isRegistered) {
+            testIsAttendee(conferenceUUID, userUUID);
+            result += events(conferenceUUID).isWaitlisted(eventUUID, userUUID) ? 1 : 0;
+        }
+
+        return result + (isRegistered ? 2 : 0) + (isOrganizer ? 4 : 0) + (isSpeaker ? 8 : 0);
+    }
+
+    private static void testIsAttendee(UUID conferenceUUID, UUID userUUID) {
+        if (!conferenceManager.isAttendee(conferenceUUID, userUUID) && !conferenceManager.isSpeaker(conferenceUUID, userUUID) && !conferenceManager.isOrganizer(conferenceUUID, userUUID, userManager)) {
+            throw new PermissionException("Access denied");
+        }
+    }
+
+    private static EventManager events(UUID conferenceUUID) {
+        return conferenceManager.getEventManager(conferenceUUID);
+    }
+
+    private static RoomManager rooms(UUID conferenceUUID) {
+        return conferenceManager.getRoomManager(conferenceUUID);
+    }
+}
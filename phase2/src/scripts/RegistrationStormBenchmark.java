@@ -0,0 +1,117 @@
+package scripts;
+
+import convention.calendar.TimeRange;
+import convention.event.EventManager;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Simulates registration opening for a popular keynote: many threads register different users for the same few
+ * events at once, far more users than there are seats. Checks that no event ends up with more attendees than seats
+ * (and that the seat counters, the attendee sets and the registration index agree), and reports registrations per
+ * second for each number of threads.
+ * <p>
+ * Usage: RegistrationStormBenchmark [number of users] [number of events] [seats per event]
+ */
+public class RegistrationStormBenchmark {
+    public static void main(String[] args) throws Exception {
+        int userCount = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int eventCount = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int capacity = args.length > 2 ? Integer.parseInt(args[2]) : 5_000;
+
+        System.out.printf("%d users, %d events with %d seats, %d processors\n", userCount, eventCount, capacity, Runtime.getRuntime().availableProcessors());
+        System.out.printf("%-8s %12s %12s %16s\n", "threads", "registered", "full", "attempts/s");
+
+        for (int threads : new int[]{1, 4, 16, 64}) {
+            run(userCount, eventCount, capacity, threads);
+        }
+    }
+
+    private static void run(int userCount, int eventCount, int capacity, int threadCount) throws Exception {
+        LocalDateTime start = LocalDateTime.of(2030, 1, 1, 0, 0);
+        UUID roomUUID = UUID.randomUUID();
+
+        EventManager eventManager = new EventManager(new HashMap<>());
+        List<UUID> eventUUIDs = new ArrayList<>();
+        for (int i = 0; i < eventCount; i++) {
+            eventUUIDs.add(eventManager.createEvent("Keynote " + i, new TimeRange(start, start.plusHours(1)), roomUUID, new HashSet<>()));
+        }
+
+        UUID[] userUUIDs = new UUID[userCount];
+        for (int i = 0; i < userCount; i++) {
+            userUUIDs[i] = UUID.randomUUID();
+        }
+
+        AtomicInteger registered = new AtomicInteger();
+        AtomicInteger full = new AtomicInteger();
+        CountDownLatch ready = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+
+        for (int t = 0; t < threadCount; t++) {
+            int first = t;
+            Thread thread = new Thread(() -> {
+                try {
+                    ready.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+
+                // Every user tries every event, starting from a different one on each thread
+                for (int i = first; i < userCount; i += threadCount) {
+                    for (int j = 0; j < eventCount; j++) {
+                        UUID eventUUID = eventUUIDs.get((i + j) % eventCount);
+
+                        if (eventManager.registerAttendee(eventUUID, userUUIDs[i], capacity)) {
+                            registered.incrementAndGet();
+                        } else {
+                            full.incrementAndGet();
+                        }
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+
+        long stormStart = System.nanoTime();
+        ready.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long storm = System.nanoTime() - stormStart;
+
+        check(eventManager, eventUUIDs, userUUIDs, capacity);
+
+        long attempts = (long) userCount * eventCount;
+        System.out.printf("%-8d %12d %12d %16.0f\n", threadCount, registered.get(), full.get(), attempts / (storm / 1e9));
+    }
+
+    private static void check(EventManager eventManager, List<UUID> eventUUIDs, UUID[] userUUIDs, int capacity) {
+        int indexed = 0;
+        for (UUID userUUID : userUUIDs) {
+            indexed += eventManager.getAttendeeEvents(userUUID).size();
+        }
+
+        int attendees = 0;
+        for (UUID eventUUID : eventUUIDs) {
+            int count = eventManager.getEventAttendeeCount(eventUUID);
+
+            if (count > capacity) {
+                throw new IllegalStateException(eventUUID + " is overbooked: " + count + " attendees for " + capacity + " seats");
+            }
+
+            if (count != eventManager.getEventTakenSeats(eventUUID)) {
+                throw new IllegalStateException(eventUUID + " has " + count + " attendees but " + eventManager.getEventTakenSeats(eventUUID) + " seats taken");
+            }
+
+            attendees += count;
+        }
+
+        if (attendees != indexed) {
+            throw new IllegalStateException(attendees + " registrations but " + indexed + " in the index");
+        }
+    }
+}
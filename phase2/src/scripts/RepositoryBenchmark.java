@@ -0,0 +1,85 @@
+package scripts;
+
+import gateway.SqlDatabase;
+import contact.ContactManager;
+import gateway.exceptions.RepositoryException;
+import messaging.ConversationController;
+import messaging.ConversationManager;
+import user.UserManager;
+
+import java.util.*;
+
+/**
+ * Compares the in-memory repositories with the embedded database ones: registering users, looking them up by username
+ * (i.e. logging in), and listing the conversations of a user.
+ * <p>
+ * The database's JDBC driver must be on the classpath, e.g. java -cp out:h2.jar scripts.RepositoryBenchmark
+ * jdbc:h2:./benchmark 100000. Without a URL only the in-memory repositories are measured.
+ * <p>
+ * Usage: RepositoryBenchmark [JDBC URL] [number of users]
+ */
+public class RepositoryBenchmark {
+    public static void main(String[] args) {
+        String url = args.length > 0 ? args[0] : null;
+        int userCount = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+
+        System.out.printf("%d users\n", userCount);
+        System.out.printf("%-10s %12s %12s %12s %14s\n", "backend", "register ms", "login ms", "all users ms", "user chats ms");
+
+        run("memory", new UserManager(), new ConversationManager(), userCount);
+
+        if (url == null) {
+            System.out.println("No JDBC URL given, skipping the database backend");
+            return;
+        }
+
+        SqlDatabase database = new SqlDatabase(url);
+
+        try {
+            run("database", new UserManager(database), new ConversationManager(database), userCount);
+        } catch (RepositoryException e) {
+            System.out.println("Unable to use " + url + ": " + e.getCause());
+        } finally {
+            database.close();
+        }
+    }
+
+    private static void run(String backend, UserManager userManager, ConversationManager conversationManager, int userCount) {
+        Random random = new Random(0);
+        ConversationController conversationController = new ConversationController(new ContactManager(), conversationManager, userManager);
+        String prefix = UUID.randomUUID().toString().substring(0, 8);
+        List<UUID> userUUIDs = new ArrayList<>();
+
+        long registerStart = System.nanoTime();
+        for (int i = 0; i < userCount; i++) {
+            userUUIDs.add(userManager.registerUser("User", "Number " + i, prefix + "-user" + i, "password", false, false));
+        }
+        long register = System.nanoTime() - registerStart;
+
+        // One chat for every 100 users, each with 100 members
+        for (int i = 0; i < userCount; i += 100) {
+            Set<UUID> members = new HashSet<>(userUUIDs.subList(i, Math.min(userCount, i + 100)));
+            conversationManager.createConversation("Chat " + i, members, members, userUUIDs.get(i), "Welcome");
+        }
+
+        int lookups = Math.min(userCount, 10_000);
+
+        long loginStart = System.nanoTime();
+        for (int i = 0; i < lookups; i++) {
+            userManager.login(prefix + "-user" + random.nextInt(userCount), "password");
+        }
+        long login = System.nanoTime() - loginStart;
+
+        long allUsersStart = System.nanoTime();
+        userManager.getAllUsers();
+        long allUsers = System.nanoTime() - allUsersStart;
+
+        long userChatsStart = System.nanoTime();
+        for (int i = 0; i < lookups; i++) {
+            conversationController.getConversationList(userUUIDs.get(random.nextInt(userCount)));
+        }
+        long userChats = System.nanoTime() - userChatsStart;
+
+        System.out.printf("%-10s %12.1f %12.1f %12.1f %14.1f\n", backend, register / 1e6, login / 1e6, allUsers / 1e6, userChats / 1e6);
+    }
+}
@@ -0,0 +1,78 @@
+package scripts;
+
+import convention.calendar.CalendarManager;
+import convention.calendar.TimeRange;
+import convention.room.RoomManager;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Measures the conference-level room availability query over hundreds of busy rooms, against asking every room's
+ * calendar one by one (what the GUI had to do before). Each measurement is repeated a few times so the JIT has warmed
+ * up by the last rounds.
+ * <p>
+ * Usage: RoomAvailabilityBenchmark [number of rooms] [bookings per room] [number of queries]
+ */
+public class RoomAvailabilityBenchmark {
+    public static void main(String[] args) {
+        int roomCount = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+        int bookingCount = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        int queryCount = args.length > 2 ? Integer.parseInt(args[2]) : 10_000;
+
+        LocalDateTime start = LocalDateTime.of(2030, 1, 1, 8, 0);
+        Random random = new Random(0);
+
+        // Rooms of 50 to 1000 seats, each with talks of 45 or 90 minutes on a quarter of the hours of a few weeks
+        RoomManager roomManager = new RoomManager(new HashMap<>());
+        List<UUID> roomUUIDs = new ArrayList<>();
+        for (int i = 0; i < roomCount; i++) {
+            UUID roomUUID = roomManager.createRoom("Room " + i, 50 + random.nextInt(951));
+            CalendarManager calendarManager = roomManager.getCalendarManager(roomUUID);
+
+            for (int j = 0; j < bookingCount; j++) {
+                LocalDateTime bookingStart = start.plusHours(j * 4L + random.nextInt(2));
+                calendarManager.addTimeBlock(UUID.randomUUID(), new TimeRange(bookingStart, bookingStart.plusMinutes(random.nextBoolean() ? 45 : 90)));
+            }
+            roomUUIDs.add(roomUUID);
+        }
+
+        // Windows of 30 to 120 minutes anywhere in the booked period
+        List<TimeRange> windows = new ArrayList<>();
+        for (int i = 0; i < queryCount; i++) {
+            LocalDateTime windowStart = start.plusMinutes(random.nextInt(bookingCount * 4 * 60));
+            windows.add(new TimeRange(windowStart, windowStart.plusMinutes(30 + random.nextInt(91))));
+        }
+
+        System.out.printf("%d rooms, %d bookings per room, %d queries\n", roomCount, bookingCount, queryCount);
+        System.out.printf("%-8s %-10s %14s %14s\n", "round", "query", "us/query", "rooms found");
+
+        for (int round = 1; round <= 5; round++) {
+            long found = 0;
+            long queryStart = System.nanoTime();
+            for (TimeRange window : windows) {
+                found += roomManager.getAvailableRooms(window, 300).size();
+            }
+            long query = System.nanoTime() - queryStart;
+
+            System.out.printf("%-8d %-10s %14.2f %14d\n", round, "index", query / 1e3 / queryCount, found);
+
+            long perRoomFound = 0;
+            queryStart = System.nanoTime();
+            for (TimeRange window : windows) {
+                for (UUID roomUUID : roomUUIDs) {
+                    if (roomManager.getRoomCapacity(roomUUID) >= 300 && !roomManager.getCalendarManager(roomUUID).timeRangeOccupied(window)) {
+                        perRoomFound++;
+                    }
+                }
+            }
+            query = System.nanoTime() - queryStart;
+
+            System.out.printf("%-8d %-10s %14.2f %14d\n", round, "per room", query / 1e3 / queryCount, perRoomFound);
+
+            if (found != perRoomFound) {
+                throw new IllegalStateException("The queries disagree");
+            }
+        }
+    }
+}
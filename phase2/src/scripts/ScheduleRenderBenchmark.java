@@ -0,0 +1,120 @@
+package scripts;
+
+import convention.EventController;
+import convention.ScheduleController;
+import convention.calendar.TimeRange;
+import convention.conference.ConferenceManager;
+import convention.event.EventManager;
+import convention.schedule.ScheduleConstants;
+import gateway.DocumentPrinter;
+import gateway.IDocumentPrinter;
+import messaging.ConversationManager;
+import user.UserManager;
+import util.TableTools;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Compares rendering a schedule by building the whole table as a string before writing it, against writing the rows
+ * straight to the file as the events are visited. Run it with a small heap (e.g. -Xmx64m) to see that only the streamed
+ * render works in constant memory.
+ * <p>
+ * Must be run from the directory with header.html and footer.html, like the application.
+ * <p>
+ * Usage: ScheduleRenderBenchmark [largest number of events]
+ */
+public class ScheduleRenderBenchmark {
+    public static void main(String[] args) throws Exception {
+        int largest = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+
+        System.out.printf("%10s %-10s %12s %12s\n", "events", "render", "ms", "file KB");
+
+        for (int events = 1_000; events <= largest; events *= 10) {
+            run(events);
+        }
+    }
+
+    private static void run(int eventCount) throws Exception {
+        UserManager userManager = new UserManager();
+        ConferenceManager conferenceManager = new ConferenceManager();
+        EventController eventController = new EventController(conferenceManager, new ConversationManager(), userManager);
+
+        UUID organizerUUID = userManager.registerUser("Organizer", "Organizerson", "organizer", "password", false, false);
+        UUID speakerUUID = userManager.registerUser("Speaker", "Speakerson", "speaker", "password", false, false);
+        LocalDateTime start = LocalDateTime.of(2030, 1, 1, 0, 0);
+        UUID conferenceUUID = conferenceManager.createConference("Benchmark", new TimeRange(start, start.plusYears(100)), organizerUUID);
+        conferenceManager.addSpeaker(conferenceUUID, speakerUUID);
+        UUID roomUUID = conferenceManager.getRoomManager(conferenceUUID).createRoom("Room", 100);
+        EventManager eventManager = conferenceManager.getEventManager(conferenceUUID);
+
+        for (int i = 0; i < eventCount; i++) {
+            LocalDateTime eventStart = start.plusHours(i);
+            eventManager.createEvent("Event " + i, new TimeRange(eventStart, eventStart.plusMinutes(30)), roomUUID, new HashSet<>(Collections.singleton(speakerUUID)));
+        }
+
+        File directory = Files.createTempDirectory("schedule-benchmark").toFile();
+        DocumentPrinter documentPrinter = new DocumentPrinter();
+
+        // Builds the table as one string first, like schedules used to be rendered
+        measure(eventCount, "string", new File(directory, "string"), () -> {
+            List<List<String>> table = new ArrayList<>();
+
+            for (UUID eventUUID : eventManager.getEvents()) {
+                List<String> speakerNames = new ArrayList<>();
+                for (UUID eventSpeakerUUID : eventManager.getEventSpeakers(eventUUID)) {
+                    speakerNames.add(userManager.getUserUsername(eventSpeakerUUID));
+                }
+
+                table.add(Arrays.asList("Benchmark", eventManager.getEventTitle(eventUUID), String.join(",", speakerNames), "Room"));
+            }
+
+            String document = new TableTools(table).stringifyTable("Schedule");
+            documentPrinter.write(out -> out.write(document), new File(directory, "string").getPath());
+        });
+
+        // Streams the rows through the schedule controller, with a printer that only writes the file
+        IDocumentPrinter writeOnlyPrinter = new IDocumentPrinter() {
+            @Override
+            public void print(String document, String fileName) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public void print(Body body, String fileName) throws java.io.IOException {
+                documentPrinter.write(body, new File(directory, fileName).getPath());
+            }
+        };
+        ScheduleController scheduleController = new ScheduleController(writeOnlyPrinter, userManager, conferenceManager, eventController);
+        Map<String, Object> arguments = new HashMap<>();
+        arguments.put("speakerUUID", speakerUUID);
+
+        measure(eventCount, "streamed", new File(directory, "schedule"), () -> scheduleController.printSchedule(ScheduleConstants.sortByMethods.SPEAKER, arguments));
+
+        for (File file : Objects.requireNonNull(directory.listFiles())) {
+            file.delete();
+        }
+        directory.delete();
+    }
+
+    private interface Render {
+        void run() throws Exception;
+    }
+
+    private static void measure(int eventCount, String name, File file, Render render) throws Exception {
+        try {
+            // Warm up
+            render.run();
+
+            long renderStart = System.nanoTime();
+            render.run();
+            long elapsed = System.nanoTime() - renderStart;
+
+            System.out.printf("%10d %-10s %12.1f %12d\n", eventCount, name, elapsed / 1e6, new File(file.getPath() + ".html").length() / 1024);
+        } catch (OutOfMemoryError e) {
+            System.out.printf("%10d %-10s %12s %12s\n", eventCount, name, "out of memory", "");
+        }
+    }
+}
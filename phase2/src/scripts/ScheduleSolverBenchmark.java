@@ -0,0 +1,95 @@
+package scripts;
+
+import convention.calendar.TimeRange;
+import convention.schedule.ScheduleSolution;
+import convention.schedule.ScheduleSolver;
+import convention.schedule.UnplacedEvent;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Places a generated program of talks (800 by default) in 20 rooms over two days, with one thread and with one thread
+ * per processor, for a few time budgets. Every solution is checked for double bookings and capacity.
+ * <p>
+ * Usage: ScheduleSolverBenchmark [number of talks] [number of rooms]
+ */
+public class ScheduleSolverBenchmark {
+    public static void main(String[] args) {
+        int talkCount = args.length > 0 ? Integer.parseInt(args[0]) : 800;
+        int roomCount = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+        LocalDateTime start = LocalDateTime.of(2030, 1, 1, 0, 0);
+        TimeRange window = new TimeRange(start, start.plusDays(2));
+        Random random = new Random(0);
+
+        Map<UUID, Integer> capacities = new HashMap<>();
+        for (int i = 0; i < roomCount; i++) {
+            capacities.put(UUID.randomUUID(), i % 4 == 0 ? 500 : 50 + random.nextInt(150));
+        }
+
+        // Speakers give one to four talks, some talks have two speakers
+        List<UUID> speakers = new ArrayList<>();
+        for (int i = 0; i < talkCount / 2; i++) {
+            speakers.add(UUID.randomUUID());
+        }
+
+        List<UnplacedEvent> talks = new ArrayList<>();
+        for (int i = 0; i < talkCount; i++) {
+            Set<UUID> talkSpeakers = new HashSet<>();
+            talkSpeakers.add(speakers.get(random.nextInt(speakers.size())));
+            if (random.nextInt(5) == 0) {
+                talkSpeakers.add(speakers.get(random.nextInt(speakers.size())));
+            }
+
+            int audience = random.nextInt(10) == 0 ? 200 + random.nextInt(300) : 20 + random.nextInt(150);
+            talks.add(new UnplacedEvent("Talk " + i, Duration.ofMinutes(30 + 15 * random.nextInt(4)), talkSpeakers, audience));
+        }
+
+        System.out.printf("%d talks, %d rooms, %d processors\n", talkCount, roomCount, Runtime.getRuntime().availableProcessors());
+        System.out.printf("%-10s %-10s %10s %10s %22s\n", "budget ms", "threads", "placed", "unplaced", "last end");
+
+        for (int budget : new int[]{100, 1_000, 5_000}) {
+            for (int threads : new int[]{1, Runtime.getRuntime().availableProcessors()}) {
+                ScheduleSolver solver = new ScheduleSolver(window);
+                for (Map.Entry<UUID, Integer> room : capacities.entrySet()) {
+                    solver.addRoom(room.getKey(), room.getValue());
+                }
+
+                ScheduleSolution solution = solver.solve(talks, Duration.ofMillis(budget), threads);
+                check(solution, capacities);
+
+                LocalDateTime lastEnd = start;
+                for (ScheduleSolution.Placement placement : solution.getPlacements()) {
+                    if (placement.getTimeRange().getEnd().isAfter(lastEnd)) {
+                        lastEnd = placement.getTimeRange().getEnd();
+                    }
+                }
+
+                System.out.printf("%-10d %-10d %10d %10d %22s\n", budget, threads, solution.getPlacements().size(), solution.getUnplacedEvents().size(), lastEnd);
+            }
+        }
+    }
+
+    private static void check(ScheduleSolution solution, Map<UUID, Integer> capacities) {
+        List<ScheduleSolution.Placement> placements = solution.getPlacements();
+
+        for (int i = 0; i < placements.size(); i++) {
+            ScheduleSolution.Placement placement = placements.get(i);
+
+            if (capacities.get(placement.getRoomUUID()) < placement.getEvent().getAudience()) {
+                throw new IllegalStateException(placement.getEvent() + " doesn't fit in its room");
+            }
+
+            for (int j = i + 1; j < placements.size(); j++) {
+                ScheduleSolution.Placement other = placements.get(j);
+                boolean sharesSomething = placement.getRoomUUID().equals(other.getRoomUUID()) || !Collections.disjoint(placement.getEvent().getSpeakerUUIDs(), other.getEvent().getSpeakerUUIDs());
+
+                if (sharesSomething && placement.getTimeRange().hasOverlap(other.getTimeRange())) {
+                    throw new IllegalStateException(placement.getEvent() + " and " + other.getEvent() + " are double booked");
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package scripts;
+
+import convention.event.SeatHoldManager;
+
+import java.util.*;
+
+/**
+ * Measures tracking seat holds during a rush: holding 100k seats (by default) with expiry times spread over five
+ * minutes, confirming a third of them, and then letting the clock run one second at a time until the rest have expired.
+ * The timer wheel only looks at the holds that expire in each tick; for comparison, the same clock runs over a plain
+ * map of holds that has to be scanned every tick to find the expired ones.
+ * <p>
+ * Usage: SeatHoldBenchmark [number of holds]
+ */
+public class SeatHoldBenchmark {
+    public static void main(String[] args) {
+        int holdCount = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        long holdMillis = 5 * 60 * 1000;
+
+        for (int round = 1; round <= 3; round++) {
+            Random random = new Random(round);
+            long start = 1_000_000_000L;
+
+            long[] expiries = new long[holdCount];
+            for (int i = 0; i < holdCount; i++) {
+                expiries[i] = start + random.nextInt((int) holdMillis);
+            }
+
+            // Timer wheel
+            SeatHoldManager seatHoldManager = new SeatHoldManager(start);
+            UUID conferenceUUID = UUID.randomUUID();
+            UUID eventUUID = UUID.randomUUID();
+            List<UUID> holdUUIDs = new ArrayList<>();
+
+            long addStart = System.nanoTime();
+            for (int i = 0; i < holdCount; i++) {
+                holdUUIDs.add(seatHoldManager.addHold(conferenceUUID, eventUUID, UUID.randomUUID(), expiries[i]).getHoldUUID());
+            }
+            long add = System.nanoTime() - addStart;
+
+            long confirmStart = System.nanoTime();
+            for (int i = 0; i < holdCount; i += 3) {
+                seatHoldManager.removeHold(holdUUIDs.get(i));
+            }
+            long confirm = System.nanoTime() - confirmStart;
+
+            int wheelExpired = 0;
+            long wheelTickStart = System.nanoTime();
+            for (long now = start; now <= start + holdMillis + 1000; now += 1000) {
+                wheelExpired += seatHoldManager.removeExpiredHolds(now).size();
+            }
+            long wheelTicks = System.nanoTime() - wheelTickStart;
+
+            // Scanning every hold each tick
+            Map<UUID, Long> scanHolds = new HashMap<>();
+            for (int i = 0; i < holdCount; i++) {
+                if (i % 3 != 0) {
+                    scanHolds.put(holdUUIDs.get(i), expiries[i]);
+                }
+            }
+
+            int scanExpired = 0;
+            long scanTickStart = System.nanoTime();
+            for (long now = start; now <= start + holdMillis + 1000; now += 1000) {
+                Iterator<Long> iterator = scanHolds.values().iterator();
+
+                while (iterator.hasNext()) {
+                    if (iterator.next() <= now) {
+                        iterator.remove();
+                        scanExpired++;
+                    }
+                }
+            }
+            long scanTicks = System.nanoTime() - scanTickStart;
+
+            if (wheelExpired != scanExpired || seatHoldManager.getHoldCount() != 0) {
+                throw new IllegalStateException(wheelExpired + " holds expired on the wheel but " + scanExpired + " with the scan");
+            }
+
+            int ticks = (int) (holdMillis / 1000) + 2;
+            System.out.printf("round %d: %d holds, add %.0f ns/hold, confirm %.0f ns/hold, %d expired\n", round, holdCount, (double) add / holdCount, (double) confirm / (holdCount / 3.0), wheelExpired);
+            System.out.printf("  per one second tick: wheel %8.1f us, scan %8.1f us\n", wheelTicks / 1e3 / ticks, scanTicks / 1e3 / ticks);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package scripts;
+
+import convention.calendar.TimeRange;
+import convention.conference.ConferenceManager;
+import convention.event.EventManager;
+import convention.room.RoomManager;
+import gateway.Serializer;
+import messaging.ConversationManager;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Compares file size and save/load time of the compact entity format against default Java serialization.
+ * <p>
+ * The entities no longer use default serialization, so the baseline serializes the same data as plain JDK objects laid
+ * out the way the old entity fields were (boxed UUIDs, LocalDateTimes and HashSets), which is what the old files
+ * contained. Every reference gets its own UUID object, like entities created separately would have.
+ * <p>
+ * Usage: SerializationBenchmark [number of events] [number of messages]
+ */
+public class SerializationBenchmark {
+    public static void main(String[] args) throws Exception {
+        int eventCount = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int messageCount = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+        int conversationCount = Math.max(1, eventCount / 10);
+
+        Random random = new Random(0);
+        UUID organizerUUID = UUID.randomUUID();
+        List<UUID> users = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            users.add(UUID.randomUUID());
+        }
+
+        LocalDateTime start = LocalDateTime.of(2030, 1, 1, 0, 0);
+
+        // Compact format
+        ConferenceManager conferenceManager = new ConferenceManager();
+        UUID conferenceUUID = conferenceManager.createConference("Benchmark", new TimeRange(start, start.plusYears(10)), organizerUUID);
+        RoomManager roomManager = conferenceManager.getRoomManager(conferenceUUID);
+        UUID roomUUID = roomManager.createRoom("Room", 100);
+        EventManager eventManager = conferenceManager.getEventManager(conferenceUUID);
+
+        // Default serialization baseline, with the same data
+        Map<UUID, Object[]> baselineEvents = new HashMap<>();
+
+        for (int i = 0; i < eventCount; i++) {
+            LocalDateTime eventStart = start.plusHours(i);
+            TimeRange timeRange = new TimeRange(eventStart, eventStart.plusMinutes(30));
+            Set<UUID> speakers = new HashSet<>(Collections.singleton(users.get(random.nextInt(users.size()))));
+            Set<UUID> attendees = new HashSet<>(users.subList(0, 10));
+
+            UUID eventUUID = eventManager.createEvent("Event " + i, timeRange, roomUUID, new HashSet<>(speakers));
+            roomManager.getCalendarManager(roomUUID).addTimeBlock(eventUUID, timeRange);
+            for (UUID attendee : attendees) {
+                eventManager.registerAttendee(eventUUID, attendee);
+            }
+
+            baselineEvents.put(eventUUID, new Object[]{copy(eventUUID), "Event " + i, copy(speakers), copy(attendees), new LocalDateTime[]{eventStart, eventStart.plusMinutes(30)}, null, copy(roomUUID)});
+        }
+
+        ConversationManager conversationManager = new ConversationManager();
+        Map<UUID, List<Object[]>> baselineConversations = new HashMap<>();
+        List<UUID> conversationUUIDs = new ArrayList<>();
+
+        for (int i = 0; i < conversationCount; i++) {
+            Set<UUID> members = new HashSet<>(users);
+            UUID conversationUUID = conversationManager.createConversation("Chat " + i, members, new HashSet<>(members), organizerUUID, "Welcome");
+            conversationUUIDs.add(conversationUUID);
+
+            List<Object[]> messages = new ArrayList<>();
+            messages.add(new Object[]{"Welcome", start, copy(organizerUUID)});
+            baselineConversations.put(conversationUUID, messages);
+        }
+
+        for (int i = conversationCount; i < messageCount; i++) {
+            UUID conversationUUID = conversationUUIDs.get(i % conversationCount);
+            UUID senderUUID = users.get(random.nextInt(users.size()));
+            LocalDateTime timestamp = start.plusSeconds(i);
+            String content = "Message number " + i;
+
+            conversationManager.sendMessage(senderUUID, content, conversationUUID, true, timestamp);
+            baselineConversations.get(conversationUUID).add(new Object[]{content, timestamp, copy(senderUUID)});
+        }
+
+        File directory = Files.createTempDirectory("serialization-benchmark").toFile();
+
+        System.out.printf("%d events, %d messages\n", eventCount, messageCount);
+        System.out.printf("%-14s %-10s %12s %12s %12s\n", "data", "format", "size KB", "save ms", "load ms");
+
+        run(directory, "conferences", "compact", conferenceManager, new ConferenceManager());
+        run(directory, "conferences", "default", baselineEvents, new HashMap<>());
+        run(directory, "conversations", "compact", conversationManager, new ConversationManager());
+        run(directory, "conversations", "default", baselineConversations, new HashMap<>());
+
+        for (File file : Objects.requireNonNull(directory.listFiles())) {
+            file.delete();
+        }
+        directory.delete();
+    }
+
+    private static UUID copy(UUID uuid) {
+        return new UUID(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+    }
+
+    private static Set<UUID> copy(Set<UUID> uuids) {
+        Set<UUID> copies = new HashSet<>();
+        for (UUID uuid : uuids) {
+            copies.add(copy(uuid));
+        }
+        return copies;
+    }
+
+    private static <T> void run(File directory, String data, String format, T object, T fallback) {
+        File file = new File(directory, data + "-" + format + ".ser");
+        Serializer<T> serializer = new Serializer<>(file.getPath());
+
+        // Warm up
+        serializer.save(object);
+        serializer.load(fallback);
+
+        long saveStart = System.nanoTime();
+        serializer.save(object);
+        long save = System.nanoTime() - saveStart;
+
+        long loadStart = System.nanoTime();
+        serializer.load(fallback);
+        long load = System.nanoTime() - loadStart;
+
+        System.out.printf("%-14s %-10s %12d %12.1f %12.1f\n", data, format, file.length() / 1024, save / 1e6, load / 1e6);
+    }
+}
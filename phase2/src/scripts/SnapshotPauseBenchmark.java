@@ -0,0 +1,130 @@
+package scripts;
+
+import contact.ContactManager;
+import convention.calendar.TimeRange;
+import convention.conference.ConferenceManager;
+import convention.event.EventManager;
+import gateway.Serializer;
+import gateway.ShardStore;
+import gateway.journal.FileJournal;
+import gateway.journal.Snapshotter;
+import messaging.ConversationManager;
+import user.UserManager;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Future;
+
+/**
+ * Compares how long the calling (i.e. GUI) thread is blocked when the managers are written to disk, using a blocking
+ * save of the whole object graph versus a background snapshot, as the amount of data grows.
+ * <p>
+ * Usage: SnapshotPauseBenchmark [largest number of events]
+ */
+public class SnapshotPauseBenchmark {
+    public static void main(String[] args) throws Exception {
+        int largest = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+
+        System.out.printf("%10s %18s %18s %18s\n", "events", "blocking save ms", "snapshot pause ms", "background ms");
+
+        for (int events = 1_000; events <= largest; events *= 10) {
+            run(events);
+        }
+    }
+
+    private static void run(int eventCount) throws Exception {
+        File directory = Files.createTempDirectory("snapshot-benchmark").toFile();
+
+        Serializer<UserManager> userManagerSerializer = new Serializer<>(new File(directory, "userManager.ser").getPath());
+        Serializer<ContactManager> contactManagerSerializer = new Serializer<>(new File(directory, "contactManager.ser").getPath());
+        Serializer<ConversationManager> conversationManagerSerializer = new Serializer<>(new File(directory, "conversationManager.ser").getPath());
+        Serializer<ConferenceManager> conferenceManagerSerializer = new Serializer<>(new File(directory, "conferenceManager.ser").getPath());
+
+        UserManager userManager = new UserManager();
+        ContactManager contactManager = new ContactManager();
+        ConversationManager conversationManager = new ConversationManager();
+        ConferenceManager conferenceManager = new ConferenceManager();
+        ShardStore conferenceShardStore = new ShardStore(new File(directory, "conferences").getPath());
+        conferenceManager.setShardStore(conferenceShardStore);
+
+        FileJournal journal = new FileJournal(new File(directory, "journal.log").getPath(), 64, 200);
+        journal.open(0);
+        userManager.setJournal(journal);
+        contactManager.setJournal(journal);
+        conversationManager.setJournal(journal);
+        conferenceManager.setJournal(journal);
+
+        // Fill the managers
+        UUID organizerUUID = userManager.registerUser("Organizer", "Organizerson", "organizer", "password", false, false);
+        LocalDateTime start = LocalDateTime.of(2030, 1, 1, 0, 0);
+        UUID conferenceUUID = conferenceManager.createConference("Benchmark", new TimeRange(start, start.plusYears(10)), organizerUUID);
+        UUID roomUUID = conferenceManager.getRoomManager(conferenceUUID).createRoom("Room", 100);
+        EventManager eventManager = conferenceManager.getEventManager(conferenceUUID);
+
+        Set<UUID> users = new HashSet<>();
+        users.add(organizerUUID);
+
+        for (int i = 0; i < eventCount; i++) {
+            LocalDateTime eventStart = start.plusHours(i);
+            eventManager.createEvent("Event " + i, new TimeRange(eventStart, eventStart.plusMinutes(30)), roomUUID, new HashSet<>());
+            conversationManager.createConversation("Chat " + i, users, users, organizerUUID, "Welcome to event " + i);
+        }
+
+        // Blocking save, what the GUI thread would have to wait for
+        long blockingStart = System.nanoTime();
+        userManagerSerializer.save(userManager, journal.getSequence());
+        contactManagerSerializer.save(contactManager, journal.getSequence());
+        conversationManagerSerializer.save(conversationManager, journal.getSequence());
+        conferenceManager.saveShards(journal.getSequence());
+        conferenceManagerSerializer.save(conferenceManager, journal.getSequence());
+        long blocking = System.nanoTime() - blockingStart;
+
+        // Reload so the snapshotter has a previous snapshot to build on, then record a batch of new changes
+        userManagerSerializer.load(new UserManager());
+        contactManagerSerializer.load(new ContactManager());
+        conversationManagerSerializer.load(new ConversationManager());
+        conferenceManagerSerializer.load(new ConferenceManager());
+        Snapshotter snapshotter = new Snapshotter(journal, userManagerSerializer, contactManagerSerializer, conversationManagerSerializer, conferenceManagerSerializer, conferenceShardStore);
+
+        for (int i = 0; i < 1_000; i++) {
+            conferenceManager.setConferenceName(conferenceUUID, "Benchmark " + i);
+        }
+
+        // Background snapshot, the GUI thread only waits for the capture
+        long pauseStart = System.nanoTime();
+        Future<Long> snapshot = snapshotter.snapshot();
+        long pause = System.nanoTime() - pauseStart;
+
+        // Writes keep flowing while the snapshot is being written
+        for (int i = 0; i < 1_000; i++) {
+            conferenceManager.setConferenceName(conferenceUUID, "Benchmark again " + i);
+        }
+
+        snapshot.get();
+        long background = System.nanoTime() - pauseStart;
+
+        snapshotter.close();
+        journal.close();
+
+        System.out.printf("%10d %18.3f %18.3f %18.3f\n", eventCount, blocking / 1e6, pause / 1e6, background / 1e6);
+
+        delete(directory);
+    }
+
+    private static void delete(File file) throws IOException {
+        File[] children = file.listFiles();
+
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+
+        Files.deleteIfExists(file.toPath());
+    }
+}
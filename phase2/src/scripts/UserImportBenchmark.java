@@ -0,0 +1,98 @@
+package scripts;
+
+import gateway.CSVReader;
+import gateway.SqlDatabase;
+import gateway.journal.FileJournal;
+import user.UserManager;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Compares importing attendee accounts from a CSV one user at a time (reading the whole file, then registering each
+ * row) against the streaming batched import, with the journal recording every change like it does in the application.
+ * <p>
+ * Usage: UserImportBenchmark [number of users] [storage URL]
+ */
+public class UserImportBenchmark {
+    public static void main(String[] args) throws Exception {
+        int userCount = args.length > 0 ? Integer.parseInt(args[0]) : 500_000;
+        String url = args.length > 1 ? args[1] : null;
+
+        File directory = Files.createTempDirectory("import-benchmark").toFile();
+        File csv = new File(directory, "users.csv");
+
+        try (BufferedWriter writer = Files.newBufferedWriter(csv.toPath(), StandardCharsets.UTF_8)) {
+            for (int i = 0; i < userCount; i++) {
+                writer.write("Attendee,\"Number " + i + ", Esq.\",attendee" + i + ",password\r\n");
+            }
+        }
+
+        System.out.printf("%d users, %d KB\n", userCount, csv.length() / 1024);
+        System.out.printf("%-12s %12s %12s\n", "import", "users", "ms");
+
+        // The per-row path writes a journal record per user and syncs every 64 of them, so it only gets a slice of the file
+        int perRowCount = Math.min(userCount, 20_000);
+        run(directory, url, "per row", userManager -> {
+            List<String[]> rows = new CSVReader(csv.getPath()).read();
+            int added = 0;
+
+            for (String[] row : rows.subList(0, perRowCount)) {
+                if (userManager.registerUser(row[0], row[1], row[2], row[3], false, false) != null) {
+                    added++;
+                }
+            }
+
+            return added;
+        });
+
+        run(directory, url, "batched", userManager -> {
+            Set<UUID> added = userManager.importUsers(new CSVReader(csv.getPath()), false);
+            return added.size();
+        });
+
+        delete(directory);
+    }
+
+    private interface Import {
+        int run(UserManager userManager) throws Exception;
+    }
+
+    private static void run(File directory, String url, String name, Import importer) throws Exception {
+        SqlDatabase database = url == null ? null : new SqlDatabase(url);
+        UserManager userManager = database == null ? new UserManager() : new UserManager(database);
+
+        FileJournal journal = new FileJournal(new File(directory, name.replace(' ', '-') + ".log").getPath(), 64, 200);
+        journal.open(0);
+        userManager.setJournal(journal);
+
+        long start = System.nanoTime();
+        int added = importer.run(userManager);
+        long elapsed = System.nanoTime() - start;
+
+        journal.close();
+        if (database != null) {
+            database.execute("DROP TABLE users");
+            database.close();
+        }
+
+        System.out.printf("%-12s %12d %12.1f\n", name, added, elapsed / 1e6);
+    }
+
+    private static void delete(File file) throws Exception {
+        File[] children = file.listFiles();
+
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+
+        Files.deleteIfExists(file.toPath());
+    }
+}
@@ -0,0 +1,80 @@
+package user;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Stores the users for a UserManager
+ * <p>
+ * Users returned by a repository may be copies, so every change to a user must be followed by a call to update.
+ */
+interface IUserRepository {
+    /**
+     * Adds a new user
+     *
+     * @param user user to add
+     */
+    void add(User user);
+
+    /**
+     * Adds a batch of new users at once (e.g. when importing them from a file)
+     *
+     * @param newUsers users to add, which must not have usernames that are already taken
+     */
+    void addAll(List<User> newUsers);
+
+    /**
+     * Gets a user
+     *
+     * @param userUUID UUID of the user
+     * @return the user, or null if there is no user with this UUID
+     */
+    User get(UUID userUUID);
+
+    /**
+     * Gets a user by their username
+     *
+     * @param username username of the user
+     * @return the user, or null if no user has this username
+     */
+    User getByUsername(String username);
+
+    /**
+     * Finds which of a batch of usernames are already taken
+     *
+     * @param usernames usernames to look up
+     * @return the usernames that belong to a user
+     */
+    Set<String> getExistingUsernames(Collection<String> usernames);
+
+    /**
+     * Stores the changes made to a user
+     *
+     * @param user user that was changed
+     */
+    void update(User user);
+
+    /**
+     * Tests if a user exists
+     *
+     * @param userUUID UUID of the user
+     * @return true iff there is a user with this UUID
+     */
+    boolean contains(UUID userUUID);
+
+    /**
+     * Gets the UUIDs of every user
+     *
+     * @return set of the UUIDs of every user
+     */
+    Set<UUID> getAllUUIDs();
+
+    /**
+     * Tests if changes are written to disk as soon as they're made, rather than with the next snapshot
+     *
+     * @return true iff changes are stored right away
+     */
+    boolean isDurable();
+}
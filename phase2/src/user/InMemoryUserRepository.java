@@ -0,0 +1,104 @@
+package user;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Keeps every user in memory. The users are serialized with the UserManager.
+ */
+class InMemoryUserRepository implements IUserRepository, Serializable {
+    private static final long serialVersionUID = -6417990919130417393L;
+
+    private final Map<UUID, User> userMap = new HashMap<>();
+
+    // Username index, rebuilt when the repository is deserialized
+    private transient Map<String, User> usernameMap = new HashMap<>();
+    private transient Map<UUID, String> indexedUsernames = new HashMap<>();
+
+    @Override
+    public void add(User user) {
+        userMap.put(user.getUuid(), user);
+        index(user);
+    }
+
+    @Override
+    public void addAll(List<User> newUsers) {
+        for (User user : newUsers) {
+            add(user);
+        }
+    }
+
+    @Override
+    public User get(UUID userUUID) {
+        return userMap.get(userUUID);
+    }
+
+    @Override
+    public User getByUsername(String username) {
+        return usernameMap.get(username);
+    }
+
+    @Override
+    public Set<String> getExistingUsernames(Collection<String> usernames) {
+        Set<String> existing = new HashSet<>();
+
+        for (String username : usernames) {
+            if (usernameMap.containsKey(username)) {
+                existing.add(username);
+            }
+        }
+
+        return existing;
+    }
+
+    @Override
+    public void update(User user) {
+        String previousUsername = indexedUsernames.get(user.getUuid());
+
+        if (!user.getUsername().equals(previousUsername)) {
+            if (usernameMap.get(previousUsername) == user) {
+                usernameMap.remove(previousUsername);
+            }
+
+            index(user);
+        }
+    }
+
+    private void index(User user) {
+        usernameMap.putIfAbsent(user.getUsername(), user);
+        indexedUsernames.put(user.getUuid(), user.getUsername());
+    }
+
+    @Override
+    public boolean contains(UUID userUUID) {
+        return userMap.get(userUUID) != null;
+    }
+
+    @Override
+    public Set<UUID> getAllUUIDs() {
+        return new HashSet<>(userMap.keySet());
+    }
+
+    @Override
+    public boolean isDurable() {
+        return false;
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+
+        usernameMap = new HashMap<>();
+        indexedUsernames = new HashMap<>();
+        for (User user : userMap.values()) {
+            index(user);
+        }
+    }
+}
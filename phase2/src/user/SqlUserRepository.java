@@ -0,0 +1,202 @@
+package user;
+
+import gateway.SqlDatabase;
+import gateway.exceptions.RepositoryException;
+
+import java.io.Serializable;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Stores the users in an embedded SQL database, with an index on their usernames. Changes are written to the database
+ * as soon as they're made, so only the database's URL is serialized with the UserManager.
+ */
+class SqlUserRepository implements IUserRepository, Serializable {
+    private static final long serialVersionUID = 8791758721726685255L;
+    private static final String COLUMNS = "uuid, first_name, last_name, username, password, is_god";
+
+    // Number of usernames looked up with a single query
+    private static final int LOOKUP_BATCH_SIZE = 500;
+
+    private final SqlDatabase database;
+
+    /**
+     * Creates a user repository, and its table if it doesn't exist yet
+     *
+     * @param database database to store the users in
+     */
+    SqlUserRepository(SqlDatabase database) {
+        this.database = database;
+
+        database.execute(
+                "CREATE TABLE IF NOT EXISTS users (uuid CHAR(36) PRIMARY KEY, first_name VARCHAR(255), last_name VARCHAR(255), username VARCHAR(255) NOT NULL, password VARCHAR(255), is_god BOOLEAN NOT NULL)",
+                "CREATE INDEX IF NOT EXISTS users_username ON users (username)"
+        );
+    }
+
+    private PreparedStatement prepare(String sql) throws SQLException {
+        return database.getConnection().prepareStatement(sql);
+    }
+
+    private User read(ResultSet resultSet) throws SQLException {
+        return new User(UUID.fromString(resultSet.getString(1)), resultSet.getString(2), resultSet.getString(3), resultSet.getString(4), resultSet.getString(5), resultSet.getBoolean(6));
+    }
+
+    private User queryUser(String sql, String parameter) {
+        try (PreparedStatement statement = prepare(sql)) {
+            statement.setString(1, parameter);
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() ? read(resultSet) : null;
+            }
+        } catch (SQLException e) {
+            throw new RepositoryException("Unable to read user " + parameter, e);
+        }
+    }
+
+    private void setUser(PreparedStatement statement, User user) throws SQLException {
+        statement.setString(1, user.getUuid().toString());
+        statement.setString(2, user.getFirstName());
+        statement.setString(3, user.getLastName());
+        statement.setString(4, user.getUsername());
+        statement.setString(5, user.getPassword());
+        statement.setBoolean(6, user.getIsGod());
+    }
+
+    @Override
+    public void add(User user) {
+        try (PreparedStatement statement = prepare("INSERT INTO users (" + COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?)")) {
+            setUser(statement, user);
+            statement.executeUpdate();
+        } catch (SQLException e) {
+            throw new RepositoryException("Unable to add user " + user.getUuid(), e);
+        }
+    }
+
+    /**
+     * Adds the users in a single transaction, so either all of them are added or none are
+     */
+    @Override
+    public void addAll(List<User> newUsers) {
+        if (newUsers.isEmpty()) {
+            return;
+        }
+
+        Connection connection = database.getConnection();
+
+        try {
+            connection.setAutoCommit(false);
+
+            try (PreparedStatement statement = prepare("INSERT INTO users (" + COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?)")) {
+                for (User user : newUsers) {
+                    setUser(statement, user);
+                    statement.addBatch();
+                }
+
+                statement.executeBatch();
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw new RepositoryException("Unable to add " + newUsers.size() + " users", e);
+        }
+    }
+
+    @Override
+    public User get(UUID userUUID) {
+        return queryUser("SELECT " + COLUMNS + " FROM users WHERE uuid = ?", userUUID.toString());
+    }
+
+    @Override
+    public User getByUsername(String username) {
+        return queryUser("SELECT " + COLUMNS + " FROM users WHERE username = ?", username);
+    }
+
+    @Override
+    public Set<String> getExistingUsernames(Collection<String> usernames) {
+        Set<String> existing = new HashSet<>();
+        List<String> remaining = new ArrayList<>(usernames);
+
+        for (int start = 0; start < remaining.size(); start += LOOKUP_BATCH_SIZE) {
+            List<String> batch = remaining.subList(start, Math.min(start + LOOKUP_BATCH_SIZE, remaining.size()));
+            String placeholders = String.join(", ", Collections.nCopies(batch.size(), "?"));
+
+            try (PreparedStatement statement = prepare("SELECT username FROM users WHERE username IN (" + placeholders + ")")) {
+                for (int i = 0; i < batch.size(); i++) {
+                    statement.setString(i + 1, batch.get(i));
+                }
+
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        existing.add(resultSet.getString(1));
+                    }
+                }
+            } catch (SQLException e) {
+                throw new RepositoryException("Unable to look up usernames", e);
+            }
+        }
+
+        return existing;
+    }
+
+    @Override
+    public void update(User user) {
+        try (PreparedStatement statement = prepare("UPDATE users SET first_name = ?, last_name = ?, username = ?, password = ?, is_god = ? WHERE uuid = ?")) {
+            statement.setString(1, user.getFirstName());
+            statement.setString(2, user.getLastName());
+            statement.setString(3, user.getUsername());
+            statement.setString(4, user.getPassword());
+            statement.setBoolean(5, user.getIsGod());
+            statement.setString(6, user.getUuid().toString());
+            statement.executeUpdate();
+        } catch (SQLException e) {
+            throw new RepositoryException("Unable to update user " + user.getUuid(), e);
+        }
+    }
+
+    @Override
+    public boolean contains(UUID userUUID) {
+        try (PreparedStatement statement = prepare("SELECT 1 FROM users WHERE uuid = ?")) {
+            statement.setString(1, userUUID.toString());
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next();
+            }
+        } catch (SQLException e) {
+            throw new RepositoryException("Unable to read user " + userUUID, e);
+        }
+    }
+
+    @Override
+    public Set<UUID> getAllUUIDs() {
+        Set<UUID> userUUIDs = new HashSet<>();
+
+        try (PreparedStatement statement = prepare("SELECT uuid FROM users"); ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                userUUIDs.add(UUID.fromString(resultSet.getString(1)));
+            }
+        } catch (SQLException e) {
+            throw new RepositoryException("Unable to read users", e);
+        }
+
+        return userUUIDs;
+    }
+
+    @Override
+    public boolean isDurable() {
+        return true;
+    }
+}
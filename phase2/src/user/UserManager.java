@@ -1,11 +1,21 @@
 package user;
 
+import gateway.IMatrixReader;
+import gateway.SqlDatabase;
+import gateway.journal.IJournal;
+import gateway.journal.JournalOperation;
 import user.exception.NullUserException;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 public class UserManager implements Serializable {
+    private static final long serialVersionUID = -3324139602909413472L;
 
     /**
      * Responsibilities:
@@ -15,8 +25,58 @@ public class UserManager implements Serializable {
      * - Method to logout the user
      */
 
+    private static final Logger LOGGER = Logger.getLogger(Logger.GLOBAL_LOGGER_NAME);
+
+    // Number of imported users that are added (and journaled) together
+    private static final int IMPORT_BATCH_SIZE = 1000;
+
     private UUID signedInUserUUID;
-    private Map<UUID, User> userMap = new HashMap<>();
+    private final IUserRepository users;
+
+    private transient IJournal journal;
+    // Bumped whenever a god user is added, so permissions cached from god mode can be told apart from current ones
+    private transient AtomicLong godVersion = new AtomicLong();
+
+    /**
+     * Creates a user manager that keeps every user in memory
+     */
+    public UserManager() {
+        users = new InMemoryUserRepository();
+    }
+
+    /**
+     * Creates a user manager that stores the users in a database
+     *
+     * @param database database to store the users in
+     */
+    public UserManager(SqlDatabase database) {
+        users = new SqlUserRepository(database);
+    }
+
+    /**
+     * Tests if the users are written to disk as soon as they change. If they are, journal records for them don't have
+     * to be replayed.
+     *
+     * @return true iff the users are stored right away
+     */
+    public boolean isDurable() {
+        return users.isDurable();
+    }
+
+    /**
+     * Sets the journal that mutations are recorded to
+     *
+     * @param journal journal to record to, or null to stop recording
+     */
+    public void setJournal(IJournal journal) {
+        this.journal = journal;
+    }
+
+    private void record(JournalOperation operation, Object... arguments) {
+        if (journal != null) {
+            journal.record(operation, arguments);
+        }
+    }
 
     /**
      * Returns the full name
@@ -35,7 +95,10 @@ public class UserManager implements Serializable {
      * @param firstName user's first name
      */
     public void setUserFirstName(UUID userUUID, String firstName) {
-        getUser(userUUID).setFirstName(firstName);
+        User user = getUser(userUUID);
+        user.setFirstName(firstName);
+        users.update(user);
+        record(JournalOperation.USER_SET_FIRST_NAME, userUUID, firstName);
     }
 
     /**
@@ -55,7 +118,10 @@ public class UserManager implements Serializable {
      * @param lastName user's last name
      */
     public void setUserLastName(UUID userUUID, String lastName) {
-        getUser(userUUID).setLastName(lastName);
+        User user = getUser(userUUID);
+        user.setLastName(lastName);
+        users.update(user);
+        record(JournalOperation.USER_SET_LAST_NAME, userUUID, lastName);
     }
 
     /**
@@ -75,7 +141,10 @@ public class UserManager implements Serializable {
      * @param username user's username
      */
     public void setUserUsername(UUID userUUID, String username) {
-        getUser(userUUID).setUsername(username);
+        User user = getUser(userUUID);
+        user.setUsername(username);
+        users.update(user);
+        record(JournalOperation.USER_SET_USERNAME, userUUID, username);
     }
 
     /**
@@ -98,6 +167,16 @@ public class UserManager implements Serializable {
         return getUser(userUUID).getIsGod();
     }
 
+    /**
+     * Gets the version of god mode. Users only get god mode when they are registered, so it changes whenever a god
+     * user is added, and permissions looked up at one version can be reused until it changes.
+     *
+     * @return version of god mode
+     */
+    public long getGodVersion() {
+        return godVersion.get();
+    }
+
     /**
      * Setter for user's password
      *
@@ -105,7 +184,10 @@ public class UserManager implements Serializable {
      * @param password password of the user
      */
     public void setUserPassword(UUID userUUID, String password) {
-        getUser(userUUID).setPassword(password);
+        User user = getUser(userUUID);
+        user.setPassword(password);
+        users.update(user);
+        record(JournalOperation.USER_SET_PASSWORD, userUUID, password);
     }
 
     /**
@@ -115,7 +197,7 @@ public class UserManager implements Serializable {
      * @return true iff the UUID corresponds to a valid user
      */
     public boolean isUser(UUID userUUID) {
-        return userMap.get(userUUID) != null;
+        return users.contains(userUUID);
     }
 
     /**
@@ -125,10 +207,12 @@ public class UserManager implements Serializable {
      * @return the User based on their unique id
      */
     private User getUser(UUID uuid) {
-        if (userMap.get(uuid) == null) {
+        User user = users.get(uuid);
+
+        if (user == null) {
             throw new NullUserException(uuid);
         }
-        return userMap.get(uuid);
+        return user;
     }
 
     /**
@@ -138,13 +222,18 @@ public class UserManager implements Serializable {
      * @return the user given their username
      */
     private User getUserByUsername(String username) {
-        for (User user : userMap.values()) {
-            if (user.getUsername().equals(username)) {
-                return user;
-            }
-        }
+        return users.getByUsername(username);
+    }
 
-        return null;
+    /**
+     * Looks up a user by their username
+     *
+     * @param username username of the user
+     * @return UUID of the user, or null if no user has this username
+     */
+    public UUID getUserUUIDByUsername(String username) {
+        User user = getUserByUsername(username);
+        return user == null ? null : user.getUuid();
     }
 
     /**
@@ -159,14 +248,35 @@ public class UserManager implements Serializable {
      * @return the unique user id of the registered user
      */
     public UUID registerUser(String firstName, String lastName, String username, String password, boolean isGod, boolean autoLogin) {
+        return registerUser(UUID.randomUUID(), firstName, lastName, username, password, isGod, autoLogin);
+    }
+
+    /**
+     * Method for registering a new user with a known UUID (e.g. when replaying the journal)
+     *
+     * @param userUUID  UUID of the new user
+     * @param firstName first name of the user
+     * @param lastName  last name of the user
+     * @param username  user name of the user
+     * @param password  password of the user
+     * @param isGod     whether this user has god mode
+     * @param autoLogin whether to automatically login as this new user
+     * @return the unique user id of the registered user
+     */
+    public UUID registerUser(UUID userUUID, String firstName, String lastName, String username, String password, boolean isGod, boolean autoLogin) {
         if (getUserByUsername(username) == null) {
-            User newUser = new User(firstName, lastName, username, password, isGod);
+            User newUser = new User(userUUID, firstName, lastName, username, password, isGod);
             UUID newUserUUID = newUser.getUuid();
 
-            userMap.put(newUserUUID, newUser);
+            users.add(newUser);
+            record(JournalOperation.USER_REGISTER, newUserUUID, firstName, lastName, username, password, isGod);
+
+            if (isGod) {
+                godVersion.incrementAndGet();
+            }
 
             if (autoLogin) {
-                signedInUserUUID = newUserUUID;
+                setSignedInUserUUID(newUserUUID);
             }
 
             return newUserUUID;
@@ -197,18 +307,108 @@ public class UserManager implements Serializable {
      */
     public Set<UUID> loadGodUsers(List<String[]> entries) {
         Set<UUID> newGodUserUUIDs = new HashSet<>();
+        List<String[]> batch = new ArrayList<>();
 
-        // Columns are in this order: First Name, Last Name, Username, Password
         for (String[] entry : entries) {
+            addToImportBatch(batch, entry, true, newGodUserUUIDs);
+        }
+        newGodUserUUIDs.addAll(importBatch(batch, true));
+
+        return newGodUserUUIDs;
+    }
+
+    /**
+     * Imports users from a document (e.g. a CSV of attendee accounts) without loading the whole document into memory.
+     * Rows are added in batches, and only user names which are not already registered are added.
+     * <p>
+     * Columns are in this order: First Name, Last Name, Username, Password. Rows with fewer columns are skipped.
+     *
+     * @param reader reader of the document
+     * @param isGod  whether the new users have god mode
+     * @return set of the UUIDs of the new users
+     * @throws IOException if the document can't be read
+     */
+    public Set<UUID> importUsers(IMatrixReader reader, boolean isGod) throws IOException {
+        Set<UUID> newUserUUIDs = new HashSet<>();
+        List<String[]> batch = new ArrayList<>();
+
+        reader.readRows(entry -> addToImportBatch(batch, entry, isGod, newUserUUIDs));
+        newUserUUIDs.addAll(importBatch(batch, isGod));
 
-            // Test if the god user was created successfully
-            UUID newUUID;
-            if ((newUUID = registerUser(entry[0], entry[1], entry[2], entry[3], true, false)) != null) {
-                newGodUserUUIDs.add(newUUID);
+        return newUserUUIDs;
+    }
+
+    private void addToImportBatch(List<String[]> batch, String[] entry, boolean isGod, Set<UUID> newUserUUIDs) {
+        if (entry.length < 4) {
+            LOGGER.log(Level.WARNING, "Skipping user with missing columns: " + String.join(",", entry));
+            return;
+        }
+
+        batch.add(entry);
+
+        if (batch.size() >= IMPORT_BATCH_SIZE) {
+            newUserUUIDs.addAll(importBatch(batch, isGod));
+            batch.clear();
+        }
+    }
+
+    private Set<UUID> importBatch(List<String[]> batch, boolean isGod) {
+        List<UUID> userUUIDs = new ArrayList<>(batch.size());
+
+        for (int i = 0; i < batch.size(); i++) {
+            userUUIDs.add(UUID.randomUUID());
+        }
+
+        return registerUsers(userUUIDs, batch, isGod);
+    }
+
+    /**
+     * Registers a batch of users with known UUIDs at once (e.g. when importing them, or replaying the journal). Users
+     * whose user name is already registered, or appears earlier in the batch, are skipped. The new users are added to
+     * the repository together and recorded in a single journal record.
+     *
+     * @param userUUIDs UUIDs of the new users
+     * @param entries   first name, last name, user name and password of each new user, in the same order as the UUIDs
+     * @param isGod     whether the new users have god mode
+     * @return set of the UUIDs of the users that were registered
+     */
+    public Set<UUID> registerUsers(List<UUID> userUUIDs, List<String[]> entries, boolean isGod) {
+        List<String> usernames = new ArrayList<>(entries.size());
+        for (String[] entry : entries) {
+            usernames.add(entry[2]);
+        }
+
+        Set<String> takenUsernames = users.getExistingUsernames(usernames);
+        List<User> newUsers = new ArrayList<>();
+        List<Object> arguments = new ArrayList<>();
+        arguments.add(isGod);
+
+        for (int i = 0; i < entries.size(); i++) {
+            String[] entry = entries.get(i);
+
+            if (takenUsernames.add(entry[2])) {
+                User newUser = new User(userUUIDs.get(i), entry[0], entry[1], entry[2], entry[3], isGod);
+                newUsers.add(newUser);
+                Collections.addAll(arguments, newUser.getUuid(), entry[0], entry[1], entry[2], entry[3]);
             }
         }
 
-        return newGodUserUUIDs;
+        Set<UUID> newUserUUIDs = new HashSet<>();
+
+        if (!newUsers.isEmpty()) {
+            users.addAll(newUsers);
+            record(JournalOperation.USER_IMPORT, arguments.toArray());
+
+            if (isGod) {
+                godVersion.incrementAndGet();
+            }
+
+            for (User newUser : newUsers) {
+                newUserUUIDs.add(newUser.getUuid());
+            }
+        }
+
+        return newUserUUIDs;
     }
 
     /**
@@ -222,7 +422,7 @@ public class UserManager implements Serializable {
         User user = getUserByUsername(username);
 
         if (user != null && user.getPassword().equals(password)) {
-            signedInUserUUID = user.getUuid();
+            setSignedInUserUUID(user.getUuid());
             return user.getUuid();
         }
 
@@ -233,7 +433,17 @@ public class UserManager implements Serializable {
      * Sets the current user to null when logged out
      */
     public void clearCurrentUser() {
-        signedInUserUUID = null;
+        setSignedInUserUUID(null);
+    }
+
+    /**
+     * Sets the signed in user
+     *
+     * @param userUUID UUID of the signed in user, or null if nobody is signed in
+     */
+    public void setSignedInUserUUID(UUID userUUID) {
+        signedInUserUUID = userUUID;
+        record(JournalOperation.USER_SET_SIGNED_IN, userUUID);
     }
 
     /**
@@ -251,8 +461,11 @@ public class UserManager implements Serializable {
      * @return a set of all users registered
      */
     public Set<UUID> getAllUsers() {
-        return new HashSet<>(userMap.keySet());
+        return users.getAllUUIDs();
     }
 
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        godVersion = new AtomicLong();
+    }
 }
-
@@ -0,0 +1,190 @@
+package util;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Helpers for writing entities in a compact binary form (see the writeExternal and readExternal methods of the
+ * entities). UUIDs are written as two longs, times as an epoch second and a nanosecond, and collections are prefixed
+ * with their length.
+ */
+public class BinaryIO {
+    private BinaryIO() {
+    }
+
+    /**
+     * Writes a UUID, which may be null
+     *
+     * @param out  stream to write to
+     * @param uuid UUID to write
+     * @throws IOException if the stream can't be written to
+     */
+    public static void writeUUID(ObjectOutput out, UUID uuid) throws IOException {
+        out.writeBoolean(uuid != null);
+
+        if (uuid != null) {
+            out.writeLong(uuid.getMostSignificantBits());
+            out.writeLong(uuid.getLeastSignificantBits());
+        }
+    }
+
+    /**
+     * Reads a UUID written by writeUUID
+     *
+     * @param in stream to read from
+     * @return UUID that was read, or null
+     * @throws IOException if the stream can't be read from
+     */
+    public static UUID readUUID(ObjectInput in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+
+        long mostSignificantBits = in.readLong();
+        return new UUID(mostSignificantBits, in.readLong());
+    }
+
+    /**
+     * Writes a set of UUIDs
+     *
+     * @param out   stream to write to
+     * @param uuids set of UUIDs to write
+     * @throws IOException if the stream can't be written to
+     */
+    public static void writeUUIDSet(ObjectOutput out, Set<UUID> uuids) throws IOException {
+        out.writeInt(uuids.size());
+
+        for (UUID uuid : uuids) {
+            out.writeLong(uuid.getMostSignificantBits());
+            out.writeLong(uuid.getLeastSignificantBits());
+        }
+    }
+
+    /**
+     * Reads a set of UUIDs written by writeUUIDSet
+     *
+     * @param in stream to read from
+     * @return set of UUIDs that was read
+     * @throws IOException if the stream can't be read from
+     */
+    public static Set<UUID> readUUIDSet(ObjectInput in) throws IOException {
+        int size = in.readInt();
+        Set<UUID> uuids = new HashSet<>(Math.max(16, (int) (size / .75f) + 1));
+
+        for (int i = 0; i < size; i++) {
+            long mostSignificantBits = in.readLong();
+            uuids.add(new UUID(mostSignificantBits, in.readLong()));
+        }
+
+        return uuids;
+    }
+
+    /**
+     * Reads a set of UUIDs written by writeUUIDSet, keeping the order they were written in
+     *
+     * @param in stream to read from
+     * @return ordered set of UUIDs that was read
+     * @throws IOException if the stream can't be read from
+     */
+    public static LinkedHashSet<UUID> readOrderedUUIDSet(ObjectInput in) throws IOException {
+        int size = in.readInt();
+        LinkedHashSet<UUID> uuids = new LinkedHashSet<>(Math.max(16, (int) (size / .75f) + 1));
+
+        for (int i = 0; i < size; i++) {
+            long mostSignificantBits = in.readLong();
+            uuids.add(new UUID(mostSignificantBits, in.readLong()));
+        }
+
+        return uuids;
+    }
+
+    /**
+     * Writes a date and time
+     *
+     * @param out      stream to write to
+     * @param dateTime date and time to write
+     * @throws IOException if the stream can't be written to
+     */
+    public static void writeDateTime(ObjectOutput out, LocalDateTime dateTime) throws IOException {
+        out.writeLong(dateTime.toEpochSecond(ZoneOffset.UTC));
+        out.writeInt(dateTime.getNano());
+    }
+
+    /**
+     * Reads a date and time written by writeDateTime
+     *
+     * @param in stream to read from
+     * @return date and time that was read
+     * @throws IOException if the stream can't be read from
+     */
+    public static LocalDateTime readDateTime(ObjectInput in) throws IOException {
+        long epochSecond = in.readLong();
+        return LocalDateTime.ofEpochSecond(epochSecond, in.readInt(), ZoneOffset.UTC);
+    }
+
+    /**
+     * Writes a string of any length, which may be null
+     *
+     * @param out    stream to write to
+     * @param string string to write
+     * @throws IOException if the stream can't be written to
+     */
+    public static void writeString(ObjectOutput out, String string) throws IOException {
+        if (string == null) {
+            out.writeInt(-1);
+            return;
+        }
+
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Reads a string written by writeString
+     *
+     * @param in stream to read from
+     * @return string that was read, or null
+     * @throws IOException if the stream can't be read from
+     */
+    public static String readString(ObjectInput in) throws IOException {
+        int length = in.readInt();
+
+        if (length < 0) {
+            return null;
+        }
+
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads the format version at the start of an entity. Every version up to the one this code writes can be read, so
+     * entities written by older versions of the program are still understood.
+     *
+     * @param in      stream to read from
+     * @param current version this code writes
+     * @param type    class being read, for the error message
+     * @return version the entity was written with
+     * @throws IOException if the stream can't be read from, or the entity was written by a newer version
+     */
+    public static int readVersion(ObjectInput in, int current, Class<?> type) throws IOException {
+        int version = in.readUnsignedByte();
+
+        if (version < 1 || version > current) {
+            throw new InvalidObjectException(String.format("Unsupported %s format version %d", type.getSimpleName(), version));
+        }
+
+        return version;
+    }
+}
@@ -3,6 +3,7 @@ package util;
 import contact.ContactController;
 import convention.ConferenceController;
 import convention.EventController;
+import convention.ImportController;
 import convention.RoomController;
 import convention.ScheduleController;
 import messaging.ConversationController;
@@ -24,11 +25,12 @@ public class ControllerBundle {
     private EventController eventController;
     private ConferenceController conferenceController;
     private ScheduleController scheduleController;
+    private ImportController importController;
 
     /**
      * Constructs controller bundle
      */
-    public ControllerBundle(UserController userController, ContactController contactController, ConversationController conversationController, RoomController roomController, EventController eventController, ConferenceController conferenceController, ScheduleController scheduleController) {
+    public ControllerBundle(UserController userController, ContactController contactController, ConversationController conversationController, RoomController roomController, EventController eventController, ConferenceController conferenceController, ScheduleController scheduleController, ImportController importController) {
         this.userController = userController;
         this.contactController = contactController;
         this.conversationController = conversationController;
@@ -36,6 +38,7 @@ public class ControllerBundle {
         this.eventController = eventController;
         this.conferenceController = conferenceController;
         this.scheduleController = scheduleController;
+        this.importController = importController;
     }
 
     /**
@@ -95,4 +98,13 @@ public class ControllerBundle {
     public ScheduleController getScheduleController() {
         return scheduleController;
     }
+
+    /**
+     * Gets ImportController
+     *
+     * @return
+     */
+    public ImportController getImportController() {
+        return importController;
+    }
 }
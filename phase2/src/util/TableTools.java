@@ -1,6 +1,7 @@
 package util;
 
-import java.util.ArrayList;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
 
 /**
@@ -23,66 +24,21 @@ public class TableTools {
         if (this.table.isEmpty()) {
             return "";
         }
-        List<Integer> colWidths = new ArrayList<>();
-        for (String s : this.table.get(0)) {
-            colWidths.add(Math.floorDiv(70, this.table.get(0).size()));
-        }
-        int width = 0;
-        for (int i : colWidths) {
-            width = width + i;
-        }
-        width = width + this.table.get(0).size() - 1;
-        StringBuilder table = new StringBuilder();
-        StringBuilder topLine = new StringBuilder();
-        StringBuilder bottomLine = new StringBuilder();
-        topLine.append("╔");
-        bottomLine.append("╚");
-        for (int i = 0; i < width; i++) {
-            topLine.append("═");
-            bottomLine.append("═");
-        }
-        topLine.append("╗\r\n<br />");
-        bottomLine.append("╝");
-        table.append(topLine);
-
-        StringBuilder titleLine = new StringBuilder();
-        titleLine.append("║");
-        titleLine.append(title);
-        while (titleLine.length() < width + 1) {
-            titleLine.append(" ");
-        }
-        titleLine.append("║\r\n<br />");
-        table.append(titleLine);
 
-        StringBuilder hLine = new StringBuilder();
-        hLine.append("╠");
-        while (hLine.length() < width + 1) {
-            hLine.append("-");
-        }
-        hLine.append("╣\r\n<br />");
-        table.append(hLine);
-
-        for (List<String> sub : this.table) {
-            StringBuilder row = new StringBuilder();
-            row.append("║");
-            for (int i = 0; i < colWidths.size(); i++) {
-                StringBuilder cell = new StringBuilder();
+        StringBuilder table = new StringBuilder();
+        TableWriter tableWriter = new TableWriter(table, this.table.get(0).size());
 
-                cell.append(sub.get(i));
-                while (cell.length() <= colWidths.get(i) - 1) {
-                    cell.append(" ");
-                }
-                cell.append("│");
-                row.append(cell);
+        try {
+            tableWriter.writeTitle(title);
+            for (List<String> row : this.table) {
+                tableWriter.writeRow(row);
             }
-            row.deleteCharAt(row.length() - 1);
-            table.append(row);
-
-            table.append("║\r\n<br />");
+            tableWriter.writeBottom();
+        } catch (IOException e) {
+            // StringBuilder never throws
+            throw new UncheckedIOException(e);
         }
 
-        table.append(bottomLine);
         return table.toString();
     }
 }
-
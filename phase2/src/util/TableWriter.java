@@ -0,0 +1,100 @@
+package util;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Writes a table one row at a time, in the same format as TableTools.stringifyTable, so a table of any size can be
+ * written without building it in memory first
+ */
+public class TableWriter {
+    private static final int TABLE_WIDTH = 70;
+    private static final String LINE_BREAK = "\r\n<br />";
+
+    private final Appendable out;
+    private final int columnWidth;
+    private final int width;
+
+    // Borders and padding are built once, so rows are written in a few large appends instead of one per character
+    private final String topLine;
+    private final String separatorLine;
+    private final String bottomLine;
+    private final String spaces;
+
+    /**
+     * Creates a table writer
+     *
+     * @param out         where the table is written to
+     * @param columnCount number of columns of every row
+     */
+    public TableWriter(Appendable out, int columnCount) {
+        this.out = out;
+        this.columnWidth = Math.floorDiv(TABLE_WIDTH, columnCount);
+        this.width = columnWidth * columnCount + columnCount - 1;
+
+        this.topLine = "╔" + repeat('═', width) + "╗" + LINE_BREAK;
+        this.separatorLine = "╠" + repeat('-', width) + "╣" + LINE_BREAK;
+        this.bottomLine = "╚" + repeat('═', width) + "╝";
+        this.spaces = repeat(' ', width);
+    }
+
+    private static String repeat(char c, int count) {
+        char[] chars = new char[count];
+        Arrays.fill(chars, c);
+        return new String(chars);
+    }
+
+    private void pad(int count) throws IOException {
+        if (count > 0) {
+            out.append(spaces, 0, count);
+        }
+    }
+
+    /**
+     * Writes the top border and the title of the table
+     *
+     * @param title title for the table
+     * @throws IOException if the table can't be written
+     */
+    public void writeTitle(String title) throws IOException {
+        out.append(topLine);
+
+        out.append('║').append(title);
+        pad(width - title.length());
+        out.append("║" + LINE_BREAK);
+
+        out.append(separatorLine);
+    }
+
+    /**
+     * Writes a row of the table. Cells are padded to the width of their column.
+     *
+     * @param row cells of the row
+     * @throws IOException if the table can't be written
+     */
+    public void writeRow(List<String> row) throws IOException {
+        out.append('║');
+
+        for (int i = 0; i < row.size(); i++) {
+            String cell = row.get(i);
+
+            if (i > 0) {
+                out.append('│');
+            }
+            out.append(cell);
+            pad(columnWidth - cell.length());
+        }
+
+        out.append("║" + LINE_BREAK);
+    }
+
+    /**
+     * Writes the bottom border of the table
+     *
+     * @throws IOException if the table can't be written
+     */
+    public void writeBottom() throws IOException {
+        out.append(bottomLine);
+    }
+}
@@ -0,0 +1,166 @@
+package util;
+
+import java.util.function.Consumer;
+
+/**
+ * Hashed timer wheel. Timeouts are put in the bucket of the tick they expire on (modulo the size of the wheel), so
+ * scheduling and cancelling are constant time, and advancing the clock only looks at the buckets of the ticks that
+ * passed. Timeouts more than one turn of the wheel away stay in their bucket until their tick comes around.
+ * <p>
+ * Timeouts expire at most one tick late. Not thread safe, callers must synchronize.
+ *
+ * @param <T> type of the items that time out
+ */
+public class TimerWheel<T> {
+    /**
+     * A scheduled item, used to cancel it
+     *
+     * @param <T> type of the item
+     */
+    public static class Timeout<T> {
+        private final T item;
+        private final long deadlineTick;
+
+        // Neighbours in the bucket, the bucket is a doubly linked list so cancelling is constant time
+        private Timeout<T> previous;
+        private Timeout<T> next;
+        private boolean scheduled = true;
+
+        private Timeout(T item, long deadlineTick) {
+            this.item = item;
+            this.deadlineTick = deadlineTick;
+        }
+
+        public T getItem() {
+            return item;
+        }
+
+        /**
+         * @return true iff the timeout has neither expired nor been cancelled
+         */
+        public boolean isScheduled() {
+            return scheduled;
+        }
+    }
+
+    private final long tickMillis;
+    private final Timeout<T>[] buckets;
+    private final int mask;
+
+    // Last tick that was processed
+    private long currentTick;
+    private int size;
+
+    /**
+     * Creates an empty timer wheel
+     *
+     * @param tickMillis  length of a tick in milliseconds
+     * @param wheelSize   number of buckets, rounded up to a power of two
+     * @param startMillis current time in milliseconds
+     */
+    @SuppressWarnings("unchecked")
+    public TimerWheel(long tickMillis, int wheelSize, long startMillis) {
+        if (tickMillis <= 0 || wheelSize <= 0) {
+            throw new IllegalArgumentException("The tick and wheel size must be positive");
+        }
+
+        int buckets = Integer.highestOneBit(Math.max(1, wheelSize - 1)) << 1;
+
+        this.tickMillis = tickMillis;
+        this.buckets = (Timeout<T>[]) new Timeout<?>[buckets];
+        this.mask = buckets - 1;
+        this.currentTick = startMillis / tickMillis;
+    }
+
+    /**
+     * Schedules an item to expire at a time. Times that already passed expire on the next advance.
+     *
+     * @param item           item that times out
+     * @param deadlineMillis time to expire at in milliseconds
+     * @return the timeout, used to cancel it
+     */
+    public Timeout<T> schedule(T item, long deadlineMillis) {
+        // Round up, so items never expire early
+        long deadlineTick = Math.max(currentTick + 1, (deadlineMillis + tickMillis - 1) / tickMillis);
+        Timeout<T> timeout = new Timeout<>(item, deadlineTick);
+
+        int bucket = (int) (deadlineTick & mask);
+        timeout.next = buckets[bucket];
+        if (timeout.next != null) {
+            timeout.next.previous = timeout;
+        }
+        buckets[bucket] = timeout;
+
+        size++;
+        return timeout;
+    }
+
+    /**
+     * Cancels a timeout, so it never expires
+     *
+     * @param timeout timeout to cancel
+     * @return true iff it was still scheduled
+     */
+    public boolean cancel(Timeout<T> timeout) {
+        if (!timeout.scheduled) {
+            return false;
+        }
+
+        unlink(timeout);
+        return true;
+    }
+
+    /**
+     * Expires every item whose deadline is at or before a time
+     *
+     * @param nowMillis current time in milliseconds
+     * @param expired   called with each expired item, it must not cancel other timeouts
+     */
+    public void advance(long nowMillis, Consumer<T> expired) {
+        long nowTick = nowMillis / tickMillis;
+
+        // After a whole turn every bucket has been looked at, the ones after that would only be visited again
+        long lastTick = Math.min(nowTick, currentTick + buckets.length);
+
+        for (long tick = currentTick + 1; tick <= lastTick; tick++) {
+            Timeout<T> timeout = buckets[(int) (tick & mask)];
+
+            while (timeout != null) {
+                Timeout<T> next = timeout.next;
+
+                if (timeout.deadlineTick <= nowTick) {
+                    unlink(timeout);
+                    expired.accept(timeout.item);
+                }
+
+                timeout = next;
+            }
+        }
+
+        currentTick = Math.max(currentTick, nowTick);
+    }
+
+    /**
+     * @return number of scheduled timeouts
+     */
+    public int size() {
+        return size;
+    }
+
+    private void unlink(Timeout<T> timeout) {
+        if (timeout.previous != null) {
+            timeout.previous.next = timeout.next;
+        } else {
+            buckets[(int) (timeout.deadlineTick & mask)] = timeout.next;
+        }
+
+        if (timeout.next != null) {
+            timeout.next.previous = timeout.previous;
+        }
+
+        timeout.previous = null;
+        timeout.next = null;
+        timeout.scheduled = false;
+        size--;
+    }
+}
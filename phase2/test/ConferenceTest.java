@@ -1,21 +1,31 @@
 import contact.ContactManager;
 import convention.ConferenceController;
 import convention.EventController;
+import convention.ImportController;
 import convention.RoomController;
+import convention.calendar.Calendar;
+import convention.calendar.CalendarManager;
 import convention.calendar.TimeRange;
 import convention.conference.ConferenceManager;
+import convention.event.EventManager;
 import convention.exception.*;
+import convention.schedule.ScheduleSolution;
+import convention.schedule.UnplacedEvent;
+import gateway.CSVReader;
+import gateway.SqlDatabase;
 import messaging.ConversationController;
 import messaging.ConversationManager;
+import messaging.exception.NoWriteAccessException;
 import org.junit.Before;
 import org.junit.Test;
 import user.UserManager;
 
+import java.io.File;
+import java.nio.file.Files;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.Month;
-import java.util.HashSet;
-import java.util.Set;
-import java.util.UUID;
+import java.util.*;
 
 import static org.junit.Assert.*;
 
@@ -72,20 +82,36 @@ public class ConferenceTest {
     EventController eventController;
     ConferenceController conferenceController;
     ConversationController conversationController;
+    ImportController importController;
+    UserManager userManager;
+    ConversationManager conversationManager;
+    ConferenceManager conferenceManager;
 
 
+    /**
+     * Database the user and conversation repositories are stored in, overridden by SqlConferenceTest to run every test
+     * against the database backed repositories
+     *
+     * @return the database, or null to keep users and conversations in memory
+     */
+    SqlDatabase createDatabase() {
+        return null;
+    }
+
     @Before
     public void init() {
-        UserManager userManager = new UserManager();
-        ConversationManager conversationManager = new ConversationManager();
-        ConferenceManager conferenceManager = new ConferenceManager();
+        SqlDatabase database = createDatabase();
+        userManager = database == null ? new UserManager() : new UserManager(database);
+        conversationManager = database == null ? new ConversationManager() : new ConversationManager(database);
+        conferenceManager = new ConferenceManager();
         ContactManager contactManager = new ContactManager();
 
         // Convention controllers
         conversationController = new ConversationController(contactManager, conversationManager, userManager);
-        roomController = new RoomController(conferenceManager, userManager);
         eventController = new EventController(conferenceManager, conversationManager, userManager);
+        roomController = new RoomController(conferenceManager, userManager, eventController);
         conferenceController = new ConferenceController(conversationManager, eventController, conferenceManager, userManager);
+        importController = new ImportController(conferenceManager, userManager, eventController);
 
         someAttendee = userManager.registerUser("A", "A", "A", "A");
     }
@@ -607,6 +633,419 @@ public class ConferenceTest {
         assertEquals(eventController.getAttendeeEvents(conferenceUUID, myUser).size(), 0);
     }
 
+    @Test(timeout = 500)
+    public void testDeletedEventsAreNotRegistered() {
+        UUID conferenceUUID = conferenceController.createConference(conferenceNameA, timeRangeD, myUser);
+        UUID roomUUID = roomController.createRoom(conferenceUUID, myUser, roomA, 2);
+        UUID eventUUID = eventController.createEvent(conferenceUUID, myUser, eventNameA, timeRangeA, roomUUID, new HashSet<>());
+        UUID event2UUID = eventController.createEvent(conferenceUUID, myUser, eventNameB, timeRangeC, roomUUID, new HashSet<>());
+
+        eventController.registerForEvent(conferenceUUID, myUser, myUser, eventUUID);
+        eventController.registerForEvent(conferenceUUID, myUser, myUser, event2UUID);
+        eventController.deleteEvent(conferenceUUID, myUser, eventUUID);
+
+        assertEquals(Collections.singleton(event2UUID), eventController.getAttendeeEvents(conferenceUUID, myUser));
+        assertTrue(eventController.isRegistered(conferenceUUID, myUser, event2UUID));
+        assertEquals(1, eventController.getNumRegistered(conferenceUUID, myUser, event2UUID));
+    }
+
+    @Test(timeout = 5000)
+    public void testConcurrentRegistrationsDoNotOverbook() throws InterruptedException {
+        UUID conferenceUUID = conferenceController.createConference(conferenceNameA, timeRangeD, myUser);
+        UUID roomUUID = roomController.createRoom(conferenceUUID, myUser, roomA, 100);
+        UUID eventUUID = eventController.createEvent(conferenceUUID, myUser, eventNameA, timeRangeA, roomUUID, new HashSet<>());
+
+        // Only the EventManager is shared between threads, the ConferenceManager and controllers are not thread-safe
+        EventManager eventManager = conferenceManager.getEventManager(conferenceUUID);
+
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 16; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 100; i++) {
+                    eventManager.registerAttendee(eventUUID, UUID.randomUUID(), 100);
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(100, eventManager.getEventAttendeeCount(eventUUID));
+        assertEquals(100, eventManager.getEventTakenSeats(eventUUID));
+
+        UUID attendeeUUID = eventManager.getEventAttendees(eventUUID).iterator().next();
+        eventManager.unregisterAttendee(eventUUID, attendeeUUID);
+        assertEquals(99, eventManager.getEventTakenSeats(eventUUID));
+        assertTrue(eventManager.registerAttendee(eventUUID, attendeeUUID, 100));
+        assertFalse(eventManager.registerAttendee(eventUUID, UUID.randomUUID(), 100));
+    }
+
+    @Test(timeout = 500)
+    public void testWaitlistPromotion() {
+        UUID conferenceUUID = conferenceController.createConference(conferenceNameA, timeRangeD, myUser);
+        UUID roomUUID = roomController.createRoom(conferenceUUID, myUser, roomA, 1);
+        UUID eventUUID = eventController.createEvent(conferenceUUID, myUser, eventNameA, timeRangeA, roomUUID, new HashSet<>());
+
+        UUID waitingUser = userManager.registerUser("B", "B", "B", "B");
+        conferenceController.addAttendee(conferenceUUID, someAttendee);
+        conferenceController.addAttendee(conferenceUUID, waitingUser);
+        conferenceController.addAttendee(conferenceUUID, randomUser);
+
+        assertTrue(eventController.registerOrJoinWaitlist(conferenceUUID, randomUser, randomUser, eventUUID));
+        assertFalse(eventController.registerOrJoinWaitlist(conferenceUUID, someAttendee, someAttendee, eventUUID));
+        assertFalse(eventController.registerOrJoinWaitlist(conferenceUUID, waitingUser, waitingUser, eventUUID));
+        assertEquals(Arrays.asList(someAttendee, waitingUser), eventController.getEventWaitlist(conferenceUUID, myUser, eventUUID));
+
+        // The first user in line gets the seat that was given back, and a message about it
+        eventController.unregisterForEvent(conferenceUUID, randomUser, randomUser, eventUUID);
+        assertEquals(Collections.singleton(someAttendee), eventController.getEventAttendees(conferenceUUID, myUser, eventUUID));
+        assertEquals(1, conversationController.getConversationList(someAttendee).size());
+        assertTrue(eventController.isWaitlisted(conferenceUUID, waitingUser, waitingUser, eventUUID));
+
+        // A bigger room lets the rest in
+        roomController.setRoomCapacity(conferenceUUID, myUser, roomUUID, 2);
+        assertTrue(eventController.isRegistered(conferenceUUID, waitingUser, eventUUID));
+        assertEquals(0, eventController.getEventWaitlist(conferenceUUID, myUser, eventUUID).size());
+        assertEquals(1, conversationController.getConversationList(waitingUser).size());
+
+        // Both were told in the same conversation, which they can read but not reply to
+        UUID conversationUUID = conversationController.getConversationList(waitingUser).iterator().next();
+        assertEquals(conversationController.getConversationList(someAttendee), Collections.singleton(conversationUUID));
+        assertEquals(2, conversationController.getMessages(waitingUser, conversationUUID).size());
+
+        try {
+            conversationController.sendMessage(waitingUser, "Thanks", conversationUUID);
+            fail();
+        } catch (NoWriteAccessException e) {
+            // Expected
+        }
+    }
+
+    @Test(timeout = 500)
+    public void testWaitlistPromotionSkipsDoubleBookedUsers() {
+        UUID conferenceUUID = conferenceController.createConference(conferenceNameA, timeRangeD, myUser);
+        UUID roomUUID = roomController.createRoom(conferenceUUID, myUser, roomA, 1);
+        UUID roomBUUID = roomController.createRoom(conferenceUUID, myUser, "Room B", 1);
+        UUID eventUUID = eventController.createEvent(conferenceUUID, myUser, eventNameA, timeRangeA, roomUUID, new HashSet<>());
+        UUID overlappingUUID = eventController.createEvent(conferenceUUID, myUser, eventNameB, new TimeRange(dateA.plusYears(1), dateB.plusYears(1)), roomBUUID, new HashSet<>());
+        conferenceController.setPreventingScheduleConflicts(conferenceUUID, myUser, true);
+
+        UUID waitingUser = userManager.registerUser("B", "B", "B", "B");
+        conferenceController.addAttendee(conferenceUUID, someAttendee);
+        conferenceController.addAttendee(conferenceUUID, waitingUser);
+        conferenceController.addAttendee(conferenceUUID, randomUser);
+
+        assertTrue(eventController.registerOrJoinWaitlist(conferenceUUID, randomUser, randomUser, eventUUID));
+        assertFalse(eventController.registerOrJoinWaitlist(conferenceUUID, someAttendee, someAttendee, eventUUID));
+        assertFalse(eventController.registerOrJoinWaitlist(conferenceUUID, waitingUser, waitingUser, eventUUID));
+
+        // The first user in line registers for an overlapping event while waiting
+        eventController.registerForEvent(conferenceUUID, someAttendee, someAttendee, overlappingUUID);
+
+        // The seat goes to the next user in line, and the double booked user keeps their place
+        eventController.unregisterForEvent(conferenceUUID, randomUser, randomUser, eventUUID);
+        assertEquals(Collections.singleton(waitingUser), eventController.getEventAttendees(conferenceUUID, myUser, eventUUID));
+        assertFalse(eventController.isRegistered(conferenceUUID, someAttendee, eventUUID));
+        assertEquals(Collections.singletonList(someAttendee), eventController.getEventWaitlist(conferenceUUID, myUser, eventUUID));
+
+        // Nobody else can take the next seat, so it stays free
+        eventController.unregisterForEvent(conferenceUUID, waitingUser, waitingUser, eventUUID);
+        assertTrue(eventController.getEventAttendees(conferenceUUID, myUser, eventUUID).isEmpty());
+        assertEquals(0, conferenceManager.getEventManager(conferenceUUID).getEventTakenSeats(eventUUID));
+    }
+
+    @Test(timeout = 500)
+    public void testSeatHolds() {
+        UUID conferenceUUID = conferenceController.createConference(conferenceNameA, timeRangeD, myUser);
+        UUID roomUUID = roomController.createRoom(conferenceUUID, myUser, roomA, 1);
+        UUID eventUUID = eventController.createEvent(conferenceUUID, myUser, eventNameA, timeRangeA, roomUUID, new HashSet<>());
+
+        conferenceController.addAttendee(conferenceUUID, someAttendee);
+        conferenceController.addAttendee(conferenceUUID, randomUser);
+
+        // A held seat counts against the capacity until it expires
+        UUID holdUUID = eventController.holdSeat(conferenceUUID, randomUser, randomUser, eventUUID, Duration.ofMinutes(5));
+        assertFalse(eventController.registerOrJoinWaitlist(conferenceUUID, someAttendee, someAttendee, eventUUID));
+
+        eventController.expireSeatHolds(System.currentTimeMillis() + Duration.ofMinutes(1).toMillis());
+        assertFalse(eventController.isRegistered(conferenceUUID, someAttendee, eventUUID));
+
+        // The seat goes to the waitlist once the hold expires
+        eventController.expireSeatHolds(System.currentTimeMillis() + Duration.ofMinutes(6).toMillis());
+        assertTrue(eventController.isRegistered(conferenceUUID, someAttendee, eventUUID));
+
+        try {
+            eventController.confirmSeatHold(conferenceUUID, randomUser, holdUUID);
+            fail("An expired hold was confirmed");
+        } catch (NullSeatHoldException e) {
+            // Expected
+        }
+
+        // Confirming registers the user in the held seat
+        eventController.unregisterForEvent(conferenceUUID, someAttendee, someAttendee, eventUUID);
+        holdUUID = eventController.holdSeat(conferenceUUID, randomUser, randomUser, eventUUID, Duration.ofMinutes(5));
+        eventController.confirmSeatHold(conferenceUUID, randomUser, holdUUID);
+        assertEquals(Collections.singleton(randomUser), eventController.getEventAttendees(conferenceUUID, myUser, eventUUID));
+        assertEquals(1, conferenceManager.getEventManager(conferenceUUID).getEventTakenSeats(eventUUID));
+    }
+
+    @Test(timeout = 500)
+    public void testDuplicateSeatHolds() {
+        UUID conferenceUUID = conferenceController.createConference(conferenceNameA, timeRangeD, myUser);
+        UUID roomUUID = roomController.createRoom(conferenceUUID, myUser, roomA, 3);
+        UUID eventUUID = eventController.createEvent(conferenceUUID, myUser, eventNameA, timeRangeA, roomUUID, new HashSet<>());
+
+        conferenceController.addAttendee(conferenceUUID, someAttendee);
+        conferenceController.addAttendee(conferenceUUID, randomUser);
+
+        UUID holdUUID = eventController.holdSeat(conferenceUUID, randomUser, randomUser, eventUUID, Duration.ofMinutes(5));
+
+        try {
+            eventController.holdSeat(conferenceUUID, randomUser, randomUser, eventUUID, Duration.ofMinutes(5));
+            fail("A user held two seats");
+        } catch (DuplicateSeatHoldException e) {
+            // Expected
+        }
+
+        // The rejected hold took no seat, so other users can still hold one
+        assertEquals(1, conferenceManager.getEventManager(conferenceUUID).getEventHeldSeats(eventUUID));
+        eventController.holdSeat(conferenceUUID, someAttendee, someAttendee, eventUUID, Duration.ofMinutes(5));
+
+        eventController.confirmSeatHold(conferenceUUID, randomUser, holdUUID);
+
+        try {
+            eventController.holdSeat(conferenceUUID, randomUser, randomUser, eventUUID, Duration.ofMinutes(5));
+            fail("A registered user held a seat");
+        } catch (DuplicateSeatHoldException e) {
+            // Expected
+        }
+
+        assertEquals(2, conferenceManager.getEventManager(conferenceUUID).getEventTakenSeats(eventUUID));
+    }
+
+    @Test(timeout = 500)
+    public void testAttendeeScheduleConflicts() {
+        UUID conferenceUUID = conferenceController.createConference(conferenceNameA, timeRangeD, myUser);
+        UUID roomUUID = roomController.createRoom(conferenceUUID, myUser, roomA, 2);
+        UUID roomBUUID = roomController.createRoom(conferenceUUID, myUser, "Room B", 2);
+        TimeRange overlappingA = new TimeRange(dateA.plusYears(1), dateB.plusYears(1));
+
+        UUID eventUUID = eventController.createEvent(conferenceUUID, myUser, eventNameA, timeRangeA, roomUUID, new HashSet<>());
+        UUID overlappingUUID = eventController.createEvent(conferenceUUID, myUser, eventNameB, overlappingA, roomBUUID, new HashSet<>());
+        UUID roomCUUID = roomController.createRoom(conferenceUUID, myUser, "Room C", 2);
+        UUID laterUUID = eventController.createEvent(conferenceUUID, myUser, "Event C", timeRangeC, roomCUUID, new HashSet<>());
+
+        conferenceController.addAttendee(conferenceUUID, someAttendee);
+        conferenceController.addAttendee(conferenceUUID, someAttendeeB);
+
+        // Conflicts are allowed until the organizers turn the check on
+        eventController.registerForEvent(conferenceUUID, someAttendeeB, someAttendeeB, eventUUID);
+        eventController.registerForEvent(conferenceUUID, someAttendeeB, someAttendeeB, overlappingUUID);
+        conferenceController.setPreventingScheduleConflicts(conferenceUUID, myUser, true);
+
+        eventController.registerForEvent(conferenceUUID, someAttendee, someAttendee, eventUUID);
+        eventController.registerForEvent(conferenceUUID, someAttendee, someAttendee, laterUUID);
+
+        try {
+            eventController.registerForEvent(conferenceUUID, someAttendee, someAttendee, overlappingUUID);
+            fail("An attendee was double booked");
+        } catch (AttendeeDoubleBookingException e) {
+            // Expected
+        }
+
+        assertEquals(new HashSet<>(Arrays.asList(someAttendeeB)), eventController.getDoubleBookedAttendees(conferenceUUID, myUser, eventUUID));
+
+        // Moving an event can double book attendees, who are then listed
+        Set<UUID> doubleBooked = eventController.setEventTimeRange(conferenceUUID, myUser, laterUUID, overlappingA);
+        assertEquals(Collections.singleton(someAttendee), doubleBooked);
+
+        // Once the events no longer overlap, registering works again
+        eventController.unregisterForEvent(conferenceUUID, someAttendee, someAttendee, eventUUID);
+        eventController.unregisterForEvent(conferenceUUID, someAttendee, someAttendee, laterUUID);
+        eventController.registerForEvent(conferenceUUID, someAttendee, someAttendee, overlappingUUID);
+        assertTrue(eventController.isRegistered(conferenceUUID, someAttendee, overlappingUUID));
+    }
+
+    @Test(timeout = 1000)
+    public void testBatchRegistration() {
+        UUID conferenceUUID = conferenceController.createConference(conferenceNameA, timeRangeD, myUser);
+        UUID roomUUID = roomController.createRoom(conferenceUUID, myUser, roomA, 2);
+        UUID roomBUUID = roomController.createRoom(conferenceUUID, myUser, "Room B", 2);
+        UUID roomCUUID = roomController.createRoom(conferenceUUID, myUser, "Room C", 1);
+        TimeRange overlappingA = new TimeRange(dateA.plusYears(1), dateB.plusYears(1));
+
+        UUID eventUUID = eventController.createEvent(conferenceUUID, myUser, eventNameA, timeRangeA, roomUUID, new HashSet<>());
+        UUID overlappingUUID = eventController.createEvent(conferenceUUID, myUser, eventNameB, overlappingA, roomBUUID, new HashSet<>());
+        UUID laterUUID = eventController.createEvent(conferenceUUID, myUser, "Event C", timeRangeC, roomCUUID, new HashSet<>());
+        UUID conversationUUID = eventController.createEventConversation(conferenceUUID, myUser, eventUUID);
+
+        conferenceController.addAttendee(conferenceUUID, someAttendee);
+        conferenceController.addAttendee(conferenceUUID, someAttendeeB);
+        conferenceController.addAttendee(conferenceUUID, someAttendeeC);
+
+        // Three users don't fit in two seats, so nobody is registered
+        try {
+            eventController.registerMany(conferenceUUID, myUser, eventUUID, new HashSet<>(Arrays.asList(someAttendee, someAttendeeB, someAttendeeC)));
+            fail("An event was overbooked");
+        } catch (FullEventException e) {
+            // Expected
+        }
+
+        assertEquals(0, eventController.getNumRegistered(conferenceUUID, myUser, eventUUID));
+
+        eventController.registerMany(conferenceUUID, myUser, eventUUID, new HashSet<>(Arrays.asList(someAttendee, someAttendeeB)));
+        assertEquals(2, eventController.getNumRegistered(conferenceUUID, myUser, eventUUID));
+        assertTrue(conversationManager.hasUser(someAttendee, conversationUUID));
+        assertTrue(conversationManager.hasUser(someAttendeeB, conversationUUID));
+
+        // Only organizers can register other users
+        try {
+            eventController.registerMany(conferenceUUID, someAttendee, laterUUID, new HashSet<>(Arrays.asList(someAttendee, someAttendeeC)));
+            fail("An attendee registered someone else");
+        } catch (PermissionException e) {
+            // Expected
+        }
+
+        conferenceController.setPreventingScheduleConflicts(conferenceUUID, myUser, true);
+
+        // The events clash with each other
+        try {
+            eventController.registerForEvents(conferenceUUID, someAttendeeC, someAttendeeC, new HashSet<>(Arrays.asList(eventUUID, overlappingUUID)));
+            fail("An attendee was double booked");
+        } catch (AttendeeDoubleBookingException e) {
+            // Expected
+        }
+
+        // One of the events clashes with a registration
+        try {
+            eventController.registerForEvents(conferenceUUID, someAttendeeB, someAttendeeB, new HashSet<>(Arrays.asList(overlappingUUID, laterUUID)));
+            fail("An attendee was double booked");
+        } catch (AttendeeDoubleBookingException e) {
+            // Expected
+        }
+
+        // One of the events is full
+        conferenceController.setPreventingScheduleConflicts(conferenceUUID, myUser, false);
+
+        try {
+            eventController.registerForEvents(conferenceUUID, someAttendeeC, someAttendeeC, new HashSet<>(Arrays.asList(eventUUID, laterUUID)));
+            fail("An event was overbooked");
+        } catch (FullEventException e) {
+            // Expected
+        }
+
+        assertEquals(0, eventController.getNumRegistered(conferenceUUID, myUser, laterUUID));
+        assertEquals(0, eventController.getNumRegistered(conferenceUUID, myUser, overlappingUUID));
+
+        eventController.registerForEvents(conferenceUUID, someAttendeeC, someAttendeeC, new HashSet<>(Arrays.asList(overlappingUUID, laterUUID)));
+        assertEquals(new HashSet<>(Arrays.asList(overlappingUUID, laterUUID)), eventController.getAttendeeEvents(conferenceUUID, someAttendeeC));
+    }
+
+    @Test(timeout = 2000)
+    public void testInviteUsers() {
+        UUID conferenceUUID = conferenceController.createConference(conferenceNameA, timeRangeA, myUser);
+        UUID roomUUID = roomController.createRoom(conferenceUUID, myUser, roomA, 2);
+        UUID eventUUID = eventController.createEvent(conferenceUUID, myUser, eventNameA, timeRangeA, roomUUID, new HashSet<>());
+        UUID conversationUUID = eventController.createEventConversation(conferenceUUID, myUser, eventUUID);
+
+        Set<UUID> userUUIDs = new HashSet<>();
+        for (int i = 0; i < 2500; i++) {
+            userUUIDs.add(userManager.registerUser("First", "Last", "invited" + i, "password"));
+        }
+
+        List<Integer> progress = new ArrayList<>();
+        Set<UUID> invited = conferenceController.inviteAttendees(conferenceUUID, myUser, userUUIDs, progress::add);
+
+        assertEquals(userUUIDs, invited);
+        assertEquals(userUUIDs, conferenceController.getAttendees(conferenceUUID, myUser));
+        assertEquals(100, (int) progress.get(progress.size() - 1));
+
+        for (int i = 1; i < progress.size(); i++) {
+            assertTrue(progress.get(i) >= progress.get(i - 1));
+        }
+
+        // Inviting again only adds the users who aren't attendees yet
+        userUUIDs.add(someAttendee);
+        assertEquals(Collections.singleton(someAttendee), conferenceController.inviteAttendees(conferenceUUID, myUser, userUUIDs, percentage -> {
+        }));
+
+        Set<UUID> organizerUUIDs = new HashSet<>(Arrays.asList(someAttendee, userUUIDs.iterator().next()));
+        conferenceController.inviteOrganizers(conferenceUUID, myUser, organizerUUIDs, percentage -> {
+        });
+
+        for (UUID organizerUUID : organizerUUIDs) {
+            assertTrue(conferenceController.isOrganizer(conferenceUUID, myUser, organizerUUID));
+            assertTrue(conversationManager.hasUser(organizerUUID, conversationUUID));
+        }
+
+        // Nobody is invited if one of the users doesn't exist
+        UUID lateUser = userManager.registerUser("Late", "User", "late", "password");
+
+        try {
+            conferenceController.inviteAttendees(conferenceUUID, myUser, new HashSet<>(Arrays.asList(lateUser, randomUser)), percentage -> {
+            });
+            fail("A user that doesn't exist was invited");
+        } catch (NullUserException e) {
+            // Expected
+        }
+
+        assertFalse(conferenceController.isAttendee(conferenceUUID, myUser, lateUser));
+    }
+
+    @Test(timeout = 500)
+    public void testCachedPermissionsFollowRoleChanges() {
+        UUID conferenceUUID = conferenceController.createConference(conferenceNameA, timeRangeA, myUser);
+
+        try {
+            eventController.getEvents(conferenceUUID, someAttendee);
+            fail("A user outside the conference got its events");
+        } catch (PermissionException e) {
+            // Expected
+        }
+
+        conferenceController.addAttendee(conferenceUUID, someAttendee);
+        eventController.getEvents(conferenceUUID, someAttendee);
+
+        conferenceController.leaveConference(conferenceUUID, someAttendee, someAttendee);
+
+        try {
+            eventController.getEvents(conferenceUUID, someAttendee);
+            fail("A user who left the conference got its events");
+        } catch (PermissionException e) {
+            // Expected
+        }
+
+        conferenceController.addOrganizer(conferenceUUID, myUser, someOrganizer);
+        conferenceController.setConferenceName(conferenceUUID, someOrganizer, conferenceNameB);
+        conferenceController.removeOrganizer(conferenceUUID, myUser, someOrganizer);
+
+        try {
+            conferenceController.setConferenceName(conferenceUUID, someOrganizer, conferenceNameA);
+            fail("A removed organizer renamed the conference");
+        } catch (PermissionException e) {
+            // Expected
+        }
+
+        // Users who get god mode are organizers everywhere
+        UUID godUUID = UUID.randomUUID();
+        assertFalse(conferenceController.isOrganizer(conferenceUUID, myUser, godUUID));
+
+        userManager.registerUser(godUUID, "God", "Mode", "god", "password", true, false);
+        assertTrue(conferenceController.isOrganizer(conferenceUUID, myUser, godUUID));
+
+        conferenceController.deleteConference(conferenceUUID, myUser);
+
+        try {
+            eventController.getEvents(conferenceUUID, godUUID);
+            fail("A deleted conference was used");
+        } catch (NullConferenceException e) {
+            // Expected
+        }
+    }
+
     @Test(timeout = 500, expected = PermissionException.class)
     public void testUnregisterForEventInsufficientPermission() {
         UUID conferenceUUID = conferenceController.createConference(conferenceNameA, timeRangeA, myUser);
@@ -757,6 +1196,62 @@ public class ConferenceTest {
         });
     }
 
+    @Test(timeout = 500)
+    public void testSpeakerConflictsFollowChanges() {
+        UUID conferenceUUID = conferenceController.createConference(conferenceNameA, timeRangeD, myUser);
+        UUID roomUUID = roomController.createRoom(conferenceUUID, myUser, roomA, 2);
+        UUID room2UUID = roomController.createRoom(conferenceUUID, myUser, roomA, 2);
+        UUID eventUUID = eventController.createEvent(conferenceUUID, myUser, eventNameA, timeRangeA, roomUUID, new HashSet<>(Collections.singleton(someSpeaker)));
+
+        // Moved events free their old time
+        eventController.setEventTimeRange(conferenceUUID, myUser, eventUUID, timeRangeC);
+        UUID event2UUID = eventController.createEvent(conferenceUUID, myUser, eventNameB, timeRangeA, room2UUID, new HashSet<>(Collections.singleton(someSpeaker)));
+
+        eventController.addEventSpeaker(conferenceUUID, myUser, eventUUID, someSpeakerB);
+
+        try {
+            eventController.createEvent(conferenceUUID, myUser, "Event C", timeRangeC, room2UUID, new HashSet<>(Collections.singleton(someSpeakerB)));
+            fail();
+        } catch (SpeakerDoubleBookingException e) {
+            // Expected, someSpeakerB now speaks at Event A
+        }
+
+        try {
+            eventController.setEventTimeRange(conferenceUUID, myUser, event2UUID, timeRangeC);
+            fail();
+        } catch (SpeakerDoubleBookingException e) {
+            // Expected, someSpeaker speaks at Event A at its new time
+        }
+
+        // Removed speakers and deleted events free the speaker
+        eventController.removeEventSpeaker(conferenceUUID, myUser, eventUUID, someSpeakerB);
+        eventController.createEvent(conferenceUUID, myUser, "Event C", timeRangeC, room2UUID, new HashSet<>(Collections.singleton(someSpeakerB)));
+        eventController.deleteEvent(conferenceUUID, myUser, event2UUID);
+        eventController.createEvent(conferenceUUID, myUser, "Event D", timeRangeA, room2UUID, new HashSet<>(Collections.singleton(someSpeaker)));
+    }
+
+    @Test(timeout = 500)
+    public void testSpeakerRoleFollowsEvents() {
+        UUID conferenceUUID = conferenceController.createConference(conferenceNameA, timeRangeD, myUser);
+        UUID roomUUID = roomController.createRoom(conferenceUUID, myUser, roomA, 2);
+        UUID eventUUID = eventController.createEvent(conferenceUUID, myUser, eventNameA, timeRangeA, roomUUID, new HashSet<>(Collections.singleton(someSpeaker)));
+        UUID event2UUID = eventController.createEvent(conferenceUUID, myUser, eventNameB, timeRangeC, roomUUID, new HashSet<>());
+
+        eventController.addEventSpeaker(conferenceUUID, myUser, event2UUID, someSpeaker);
+        eventController.addEventSpeaker(conferenceUUID, myUser, event2UUID, someSpeakerB);
+        assertEquals(new HashSet<>(Arrays.asList(someSpeaker, someSpeakerB)), conferenceController.getSpeakers(conferenceUUID, myUser));
+
+        // Speakers keep their role until their last events is gone
+        eventController.deleteEvent(conferenceUUID, myUser, eventUUID);
+        assertTrue(conferenceController.getSpeakers(conferenceUUID, myUser).contains(someSpeaker));
+
+        eventController.removeEventSpeaker(conferenceUUID, myUser, event2UUID, someSpeaker);
+        assertEquals(Collections.singleton(someSpeakerB), conferenceController.getSpeakers(conferenceUUID, myUser));
+
+        eventController.deleteEvent(conferenceUUID, myUser, event2UUID);
+        assertTrue(conferenceController.getSpeakers(conferenceUUID, myUser).isEmpty());
+    }
+
     @Test(timeout = 500)
     public void testGetSpeakerEvents() {
         UUID conferenceUUID = conferenceController.createConference(conferenceNameA, timeRangeD, myUser);
@@ -871,6 +1366,45 @@ public class ConferenceTest {
         assertEquals(conversationController.getMessages(someAttendee, eventConversationUUID).size(), 1);
     }
 
+    @Test(timeout = 500)
+    public void testEventConversationMembersFollowChanges() {
+        UUID conferenceUUID = conferenceController.createConference(conferenceNameA, timeRangeA, myUser);
+        UUID roomUUID = roomController.createRoom(conferenceUUID, myUser, roomA, 2);
+
+        conferenceController.addAttendee(conferenceUUID, someAttendee);
+        conferenceController.addAttendee(conferenceUUID, someSpeaker);
+
+        UUID eventUUID = eventController.createEvent(conferenceUUID, myUser, eventNameA, timeRangeA, roomUUID, new HashSet<>(Collections.singleton(someSpeaker)));
+        UUID conversationUUID = eventController.createEventConversation(conferenceUUID, someSpeaker, eventUUID);
+
+        eventController.registerForEvent(conferenceUUID, someAttendee, someAttendee, eventUUID);
+        assertTrue(conversationManager.hasUser(someAttendee, conversationUUID));
+
+        eventController.unregisterForEvent(conferenceUUID, someAttendee, someAttendee, eventUUID);
+        assertFalse(conversationManager.hasUser(someAttendee, conversationUUID));
+
+        // Speakers stay in the conversation after unregistering as attendees
+        eventController.registerForEvent(conferenceUUID, someSpeaker, someSpeaker, eventUUID);
+        eventController.unregisterForEvent(conferenceUUID, someSpeaker, someSpeaker, eventUUID);
+        assertTrue(conversationManager.hasUser(someSpeaker, conversationUUID));
+
+        eventController.removeEventSpeaker(conferenceUUID, myUser, eventUUID, someSpeaker);
+        assertFalse(conversationManager.hasUser(someSpeaker, conversationUUID));
+
+        conferenceController.addOrganizer(conferenceUUID, myUser, someOrganizer);
+        assertTrue(conversationManager.hasUser(someOrganizer, conversationUUID));
+
+        conferenceController.removeOrganizer(conferenceUUID, myUser, someOrganizer);
+        assertFalse(conversationManager.hasUser(someOrganizer, conversationUUID));
+
+        // Members changed by hand are put back by a full reconciliation
+        conversationManager.removeUser(myUser, conversationUUID);
+        conversationManager.addUser(randomUser, conversationUUID);
+        eventController.reconcileEventConversationMembers(conferenceUUID, myUser, eventUUID);
+
+        assertEquals(Collections.singleton(myUser), conversationManager.getUsers(conversationUUID));
+    }
+
     @Test(timeout = 500, expected = PermissionException.class)
     public void testListEventConversationInsufficientPermission() {
         UUID conferenceUUID = conferenceController.createConference(conferenceNameA, timeRangeA, myUser);
@@ -887,4 +1421,159 @@ public class ConferenceTest {
 
         UUID eventConversationUUID = eventController.createEventConversation(conferenceUUID, randomUser, eventUUID);
     }
+
+    CSVReader writeProgram(String program) throws Exception {
+        File file = File.createTempFile("program", ".csv");
+        file.deleteOnExit();
+        Files.write(file.toPath(), program.getBytes());
+        return new CSVReader(file.getPath());
+    }
+
+    @Test(timeout = 2000)
+    public void testImportProgram() throws Exception {
+        UUID conferenceUUID = conferenceController.createConference(conferenceNameA, timeRangeA, myUser);
+        UUID speakerUUID = userManager.registerUser("Speaker", "Speakerson", "speaker", "password", false, false);
+        roomController.createRoom(conferenceUUID, myUser, roomA, 2);
+
+        Set<UUID> eventUUIDs = importController.importProgram(conferenceUUID, myUser, writeProgram(
+                "event,Talk A,2016-01-01T09:00,2016-01-01T10:00,Room B,speaker\n" +
+                        "event,\"Talk, B\",2016-01-01T10:30,2016-01-01T11:00,Room A,speaker\n" +
+                        "room,Room B,30\n"
+        ));
+
+        assertEquals(2, eventUUIDs.size());
+        assertEquals(eventUUIDs, eventController.getEvents(conferenceUUID, myUser));
+        assertEquals(2, roomController.getRooms(conferenceUUID, myUser).size());
+        assertTrue(conferenceController.getSpeakers(conferenceUUID, myUser).contains(speakerUUID));
+    }
+
+    @Test(timeout = 2000)
+    public void testImportProgramReportsEveryConflict() throws Exception {
+        UUID conferenceUUID = conferenceController.createConference(conferenceNameA, timeRangeA, myUser);
+        userManager.registerUser("Speaker", "Speakerson", "speaker", "password", false, false);
+        UUID roomUUID = roomController.createRoom(conferenceUUID, myUser, roomA, 2);
+        eventController.createEvent(conferenceUUID, myUser, eventNameA, new TimeRange(dateA.plusDays(1), dateA.plusDays(2)), roomUUID, new HashSet<>());
+
+        try {
+            importController.importProgram(conferenceUUID, myUser, writeProgram(
+                    "room,Room B,0\n" +
+                            "event,Talk A,2015-07-30T20:00,2015-07-30T21:00,Room A\n" +
+                            "event,Talk B,2016-01-01T09:00,2016-01-01T10:00,Room C,speaker\n" +
+                            "event,Talk C,2016-01-01T09:30,2016-01-01T10:30,Room A,speaker\n" +
+                            "event,Talk D,2016-01-01T10:00,2016-01-01T11:00,Room A,nobody\n"
+            ));
+            fail();
+        } catch (ProgramImportException e) {
+            // Bad capacity, unknown room, unknown speaker, and a double booking of Room A
+            assertEquals(4, e.getProblems().size());
+        }
+
+        // Nothing is imported if there are problems
+        assertEquals(1, eventController.getEvents(conferenceUUID, myUser).size());
+        assertEquals(1, roomController.getRooms(conferenceUUID, myUser).size());
+    }
+
+    @Test(timeout = 500)
+    public void testCalendarConflicts() {
+        CalendarManager calendarManager = new CalendarManager(new Calendar());
+        UUID eventA = UUID.randomUUID();
+        calendarManager.addTimeBlock(eventA, new TimeRange(dateC, dateD));
+        calendarManager.addTimeBlock(UUID.randomUUID(), timeRangeA);
+
+        assertTrue(calendarManager.timeRangeOccupied(new TimeRange(dateB.plusDays(1), dateC.plusDays(1))));
+        assertTrue(calendarManager.timeRangeOccupied(new TimeRange(dateC.plusDays(1), dateD.minusDays(1))));
+        assertTrue(calendarManager.timeRangeOccupied(new TimeRange(dateB, dateC)));
+        assertFalse(calendarManager.timeRangeOccupied(new TimeRange(dateB.plusDays(1), dateC.minusDays(1))));
+        assertFalse(calendarManager.timeRangeOccupied(timeRangeC));
+
+        // Cancelled bookings free up their time
+        calendarManager.removeTimeBlock(eventA);
+        assertFalse(calendarManager.timeRangeOccupied(new TimeRange(dateC, dateD)));
+    }
+
+    @Test(timeout = 500)
+    public void testFindFreeSlots() {
+        LocalDateTime nine = LocalDateTime.of(2016, Month.MARCH, 1, 9, 0);
+        UUID conferenceUUID = conferenceController.createConference(conferenceNameA, timeRangeA, myUser);
+        UUID roomUUID = roomController.createRoom(conferenceUUID, myUser, roomA, 2);
+        eventController.createEvent(conferenceUUID, myUser, eventNameA, new TimeRange(dateA, nine), roomUUID, new HashSet<>());
+        eventController.createEvent(conferenceUUID, myUser, eventNameB, new TimeRange(nine.plusMinutes(90), nine.plusHours(2)), roomUUID, new HashSet<>());
+
+        List<TimeRange> freeTimeRanges = roomController.getFreeTimeRanges(conferenceUUID, myUser, roomUUID, java.time.Duration.ofHours(1), 3);
+
+        // One slot per gap, starting on the minute after the previous event since touching events overlap
+        assertEquals(2, freeTimeRanges.size());
+        assertEquals(new TimeRange(nine.plusMinutes(1), nine.plusMinutes(61)), freeTimeRanges.get(0));
+        assertEquals(new TimeRange(nine.plusMinutes(121), nine.plusMinutes(181)), freeTimeRanges.get(1));
+
+        assertEquals(1, roomController.getFreeTimeRanges(conferenceUUID, myUser, roomUUID, java.time.Duration.ofHours(1), 1).size());
+        assertTrue(roomController.getFreeTimeRanges(conferenceUUID, myUser, roomUUID, java.time.Duration.ofDays(5000), 1).isEmpty());
+    }
+
+    @Test(timeout = 500)
+    public void testAvailableRooms() {
+        LocalDateTime two = LocalDateTime.of(2016, Month.MARCH, 1, 14, 0);
+        TimeRange window = new TimeRange(two, two.plusMinutes(90));
+        UUID conferenceUUID = conferenceController.createConference(conferenceNameA, timeRangeA, myUser);
+        UUID small = roomController.createRoom(conferenceUUID, myUser, "Small", 10);
+        UUID busy = roomController.createRoom(conferenceUUID, myUser, "Busy", 300);
+        UUID free = roomController.createRoom(conferenceUUID, myUser, "Free", 400);
+
+        eventController.createEvent(conferenceUUID, myUser, eventNameA, new TimeRange(two.plusMinutes(80), two.plusHours(3)), busy, new HashSet<>());
+        // Shares a slot with the window, but ends before it
+        eventController.createEvent(conferenceUUID, myUser, eventNameB, new TimeRange(two.minusHours(1), two.minusMinutes(5)), free, new HashSet<>());
+        UUID late = eventController.createEvent(conferenceUUID, myUser, "Event C", new TimeRange(two.minusMinutes(3), two.minusMinutes(1)), busy, new HashSet<>());
+
+        assertEquals(new HashSet<>(java.util.Arrays.asList(free)), roomController.getAvailableRooms(conferenceUUID, myUser, window, 300));
+        assertEquals(new HashSet<>(java.util.Arrays.asList(small, free)), roomController.getAvailableRooms(conferenceUUID, myUser, window, 1));
+
+        // Removing a booking keeps the slot it shared with another booking marked
+        eventController.createEvent(conferenceUUID, myUser, "Event D", new TimeRange(two.minusMinutes(8), two.minusMinutes(6)), busy, new HashSet<>());
+        eventController.deleteEvent(conferenceUUID, myUser, late);
+        assertFalse(roomController.getAvailableRooms(conferenceUUID, myUser, new TimeRange(two.minusMinutes(7), two.minusMinutes(4)), 1).contains(busy));
+        assertTrue(roomController.getAvailableRooms(conferenceUUID, myUser, new TimeRange(two.minusMinutes(5), two.minusMinutes(1)), 1).contains(busy));
+    }
+
+    @Test(timeout = 5000)
+    public void testSolveProgram() {
+        LocalDateTime nine = LocalDateTime.of(2016, Month.MARCH, 1, 9, 0);
+        UUID conferenceUUID = conferenceController.createConference(conferenceNameA, new TimeRange(nine, nine.plusHours(4)), myUser);
+        UUID speakerA = userManager.registerUser("Speaker", "A", "speakerA", "password", false, false);
+        UUID speakerB = userManager.registerUser("Speaker", "B", "speakerB", "password", false, false);
+        UUID big = roomController.createRoom(conferenceUUID, myUser, "Big", 100);
+        roomController.createRoom(conferenceUUID, myUser, "Small", 20);
+        eventController.createEvent(conferenceUUID, myUser, eventNameA, new TimeRange(nine, nine.plusMinutes(45)), big, new HashSet<>(Collections.singleton(speakerA)));
+
+        List<UnplacedEvent> program = Arrays.asList(
+                new UnplacedEvent("Keynote", Duration.ofMinutes(60), Collections.singleton(speakerA), 80),
+                new UnplacedEvent("Talk 1", Duration.ofMinutes(45), Collections.singleton(speakerA), 10),
+                new UnplacedEvent("Talk 2", Duration.ofMinutes(45), new HashSet<>(Arrays.asList(speakerA, speakerB)), 10),
+                new UnplacedEvent("Talk 3", Duration.ofMinutes(45), Collections.singleton(speakerB), 50),
+                new UnplacedEvent("Too big", Duration.ofMinutes(30), new HashSet<>(), 500)
+        );
+
+        ScheduleSolution solution = importController.solveProgram(conferenceUUID, myUser, program, Duration.ofMillis(200));
+
+        assertEquals(4, solution.getPlacements().size());
+        assertEquals(Collections.singletonList(program.get(4)), solution.getUnplacedEvents());
+
+        for (ScheduleSolution.Placement placement : solution.getPlacements()) {
+            assertTrue(roomController.getRoomCapacity(conferenceUUID, myUser, placement.getRoomUUID()) >= placement.getEvent().getAudience());
+            assertEquals(placement.getEvent().getDuration(), Duration.between(placement.getTimeRange().getStart(), placement.getTimeRange().getEnd()));
+        }
+
+        // Committing goes through the usual checks, which would reject any double booking
+        Set<UUID> eventUUIDs = importController.commitProgram(conferenceUUID, myUser, solution);
+        assertEquals(4, eventUUIDs.size());
+        assertEquals(5, eventController.getEvents(conferenceUUID, myUser).size());
+        assertTrue(conferenceController.getSpeakers(conferenceUUID, myUser).contains(speakerB));
+
+        // The rooms are taken now, so committing again creates nothing
+        try {
+            importController.commitProgram(conferenceUUID, myUser, solution);
+            fail();
+        } catch (CalendarDoubleBookingException | SpeakerDoubleBookingException e) {
+            assertEquals(5, eventController.getEvents(conferenceUUID, myUser).size());
+        }
+    }
 }
@@ -0,0 +1,428 @@
+import contact.ContactManager;
+import convention.calendar.TimeRange;
+import convention.conference.ConferenceManager;
+import convention.event.EventManager;
+import convention.room.RoomManager;
+import gateway.Serializer;
+import gateway.ShardStore;
+import gateway.journal.FileJournal;
+import gateway.journal.JournalOperation;
+import gateway.journal.JournalRecord;
+import gateway.journal.JournalReplayer;
+import messaging.Conversation;
+import messaging.ConversationController;
+import messaging.ConversationManager;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import user.UserManager;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class JournalTest {
+    File directory;
+    File journalFile;
+    FileJournal journal;
+
+    UserManager userManager;
+    ContactManager contactManager;
+    ConversationManager conversationManager;
+    ConferenceManager conferenceManager;
+
+    UUID organizer;
+    UUID speaker;
+    UUID attendee;
+    UUID god;
+
+    LocalDateTime dateA = LocalDateTime.of(2015, Month.JULY, 29, 19, 30, 40);
+    LocalDateTime dateB = LocalDateTime.of(2015, Month.JULY, 29, 20, 30, 40);
+    LocalDateTime dateC = LocalDateTime.of(2015, Month.JULY, 29, 21, 30, 40, 123456789);
+    LocalDateTime dateD = LocalDateTime.of(2058, Month.JULY, 29, 19, 30, 40);
+
+    TimeRange timeRangeA = new TimeRange(dateA, dateB);
+    TimeRange timeRangeB = new TimeRange(dateB.plusMinutes(1), dateC);
+    TimeRange timeRangeC = new TimeRange(dateA, dateD);
+
+    @Before
+    public void init() throws IOException {
+        directory = Files.createTempDirectory("journal").toFile();
+        journalFile = new File(directory, "journal.log");
+
+        journal = new FileJournal(journalFile.getPath(), 64, 200);
+        journal.open(0);
+
+        userManager = new UserManager();
+        contactManager = new ContactManager();
+        conversationManager = new ConversationManager();
+        conferenceManager = new ConferenceManager();
+        userManager.setJournal(journal);
+        contactManager.setJournal(journal);
+        conversationManager.setJournal(journal);
+        conferenceManager.setJournal(journal);
+
+        organizer = userManager.registerUser("Organizer", "Organizerson", "organizer", "password", false, false);
+        speaker = userManager.registerUser("Speaker", "Speakerson", "speaker", "password", false, false);
+        attendee = userManager.registerUser("Attendee", "Attendeeson", "attendee", "password", false, false);
+        god = userManager.registerUser("God", "Godson", "god", "password", true, false);
+    }
+
+    @After
+    public void cleanup() throws IOException {
+        journal.close();
+
+        List<File> files = new ArrayList<>();
+        Files.walk(directory.toPath()).forEach(path -> files.add(path.toFile()));
+        Collections.reverse(files);
+        files.forEach(File::delete);
+    }
+
+    /**
+     * Closes the journal and opens it again, like a restart would
+     */
+    void reopen() {
+        journal.close();
+        journal = new FileJournal(journalFile.getPath(), 64, 200);
+        journal.open(0);
+    }
+
+    List<Long> getSequences() {
+        List<Long> sequences = new ArrayList<>();
+        journal.forEach(record -> sequences.add(record.getSequence()));
+        return sequences;
+    }
+
+    /**
+     * Checks that two sets of managers hold the same users, contacts, conversations and conferences. The managers need
+     * a god user, who can see every conversation.
+     */
+    static void assertSameState(UserManager userManager, ContactManager contactManager, ConversationManager conversationManager, ConferenceManager conferenceManager,
+                                UserManager userManagerCopy, ContactManager contactManagerCopy, ConversationManager conversationManagerCopy, ConferenceManager conferenceManagerCopy) {
+        // Users
+        assertEquals(userManager.getAllUsers(), userManagerCopy.getAllUsers());
+        assertEquals(userManager.getSignedInUserUUID(), userManagerCopy.getSignedInUserUUID());
+
+        UUID godUUID = null;
+        for (UUID userUUID : userManager.getAllUsers()) {
+            assertEquals(userManager.getUserFirstName(userUUID), userManagerCopy.getUserFirstName(userUUID));
+            assertEquals(userManager.getUserLastName(userUUID), userManagerCopy.getUserLastName(userUUID));
+            assertEquals(userManager.getUserUsername(userUUID), userManagerCopy.getUserUsername(userUUID));
+            assertEquals(userManager.getUserIsGod(userUUID), userManagerCopy.getUserIsGod(userUUID));
+
+            // Contacts
+            assertEquals(contactManager.getContacts(userUUID), contactManagerCopy.getContacts(userUUID));
+            assertEquals(contactManager.getRequests(userUUID), contactManagerCopy.getRequests(userUUID));
+            assertEquals(contactManager.getSentRequests(userUUID), contactManagerCopy.getSentRequests(userUUID));
+
+            if (userManager.getUserIsGod(userUUID)) {
+                godUUID = userUUID;
+            }
+        }
+
+        // Conversations
+        assertNotNull(godUUID);
+        ConversationController controller = new ConversationController(contactManager, conversationManager, userManager);
+        ConversationController controllerCopy = new ConversationController(contactManagerCopy, conversationManagerCopy, userManagerCopy);
+        assertEquals(controller.getConversationList(godUUID), controllerCopy.getConversationList(godUUID));
+
+        for (UUID conversationUUID : controller.getConversationList(godUUID)) {
+            Conversation conversation = conversationManager.getConversation(conversationUUID);
+            Conversation conversationCopy = conversationManagerCopy.getConversation(conversationUUID);
+
+            assertEquals(conversation.getConversationName(), conversationCopy.getConversationName());
+            assertEquals(conversation.getWriteAccessUsers(), conversationCopy.getWriteAccessUsers());
+            assertEquals(conversation.getReadAccessUsers(), conversationCopy.getReadAccessUsers());
+            assertEquals(conversation.getUsersHaveRead(), conversationCopy.getUsersHaveRead());
+            assertEquals(conversation.getUserArchivedUUIDs(), conversationCopy.getUserArchivedUUIDs());
+
+            // Reading every message marks the conversation as read, so this comes after the read flags
+            assertEquals(controller.getMessages(godUUID, conversationUUID, 0, Integer.MAX_VALUE), controllerCopy.getMessages(godUUID, conversationUUID, 0, Integer.MAX_VALUE));
+        }
+
+        // Conferences
+        assertEquals(conferenceManager.getConferences(), conferenceManagerCopy.getConferences());
+
+        for (UUID conferenceUUID : conferenceManager.getConferences()) {
+            assertEquals(conferenceManager.getConferenceName(conferenceUUID), conferenceManagerCopy.getConferenceName(conferenceUUID));
+            assertEquals(conferenceManager.getTimeRange(conferenceUUID), conferenceManagerCopy.getTimeRange(conferenceUUID));
+            assertEquals(conferenceManager.isPreventingScheduleConflicts(conferenceUUID), conferenceManagerCopy.isPreventingScheduleConflicts(conferenceUUID));
+            assertEquals(conferenceManager.getOrganizers(conferenceUUID), conferenceManagerCopy.getOrganizers(conferenceUUID));
+            assertEquals(conferenceManager.getSpeakers(conferenceUUID), conferenceManagerCopy.getSpeakers(conferenceUUID));
+            assertEquals(conferenceManager.getAttendees(conferenceUUID), conferenceManagerCopy.getAttendees(conferenceUUID));
+
+            RoomManager roomManager = conferenceManager.getRoomManager(conferenceUUID);
+            RoomManager roomManagerCopy = conferenceManagerCopy.getRoomManager(conferenceUUID);
+            assertEquals(roomManager.getRooms(), roomManagerCopy.getRooms());
+
+            for (UUID roomUUID : roomManager.getRooms()) {
+                assertEquals(roomManager.getRoomLocation(roomUUID), roomManagerCopy.getRoomLocation(roomUUID));
+                assertEquals(roomManager.getRoomCapacity(roomUUID), roomManagerCopy.getRoomCapacity(roomUUID));
+                assertEquals(roomManager.getCalendarManager(roomUUID).getUUIDtoTimeRanges(), roomManagerCopy.getCalendarManager(roomUUID).getUUIDtoTimeRanges());
+            }
+
+            EventManager eventManager = conferenceManager.getEventManager(conferenceUUID);
+            EventManager eventManagerCopy = conferenceManagerCopy.getEventManager(conferenceUUID);
+            assertEquals(eventManager.getEvents(), eventManagerCopy.getEvents());
+
+            for (UUID eventUUID : eventManager.getEvents()) {
+                assertEquals(eventManager.getEventTitle(eventUUID), eventManagerCopy.getEventTitle(eventUUID));
+                assertEquals(eventManager.getEventTimeRange(eventUUID), eventManagerCopy.getEventTimeRange(eventUUID));
+                assertEquals(eventManager.getEventRoom(eventUUID), eventManagerCopy.getEventRoom(eventUUID));
+                assertEquals(eventManager.getEventConversationUUID(eventUUID), eventManagerCopy.getEventConversationUUID(eventUUID));
+                assertEquals(eventManager.getEventWaitlistConversationUUID(eventUUID), eventManagerCopy.getEventWaitlistConversationUUID(eventUUID));
+                assertEquals(eventManager.getEventSpeakers(eventUUID), eventManagerCopy.getEventSpeakers(eventUUID));
+                assertEquals(eventManager.getEventAttendees(eventUUID), eventManagerCopy.getEventAttendees(eventUUID));
+                assertEquals(eventManager.getEventWaitlist(eventUUID), eventManagerCopy.getEventWaitlist(eventUUID));
+            }
+        }
+    }
+
+    @Test(timeout = 5000)
+    public void testReplayEveryOperation() {
+        // UserManager
+        List<UUID> importedUUIDs = Arrays.asList(UUID.randomUUID(), UUID.randomUUID());
+        userManager.registerUsers(importedUUIDs, Arrays.asList(new String[]{"Imported", "One", "imported1", "password"}, new String[]{"Imported", "Two", "imported2", "password"}), false);
+        userManager.setUserFirstName(attendee, "Renamed");
+        userManager.setUserLastName(attendee, "Renamedson");
+        userManager.setUserUsername(attendee, "renamed");
+        userManager.setUserPassword(attendee, "secret");
+        userManager.setSignedInUserUUID(organizer);
+
+        // ContactManager
+        contactManager.setContacts(organizer, new HashSet<>(Collections.singleton(attendee)));
+        contactManager.setRequests(speaker, new HashSet<>(Collections.singleton(organizer)));
+        contactManager.setSentRequests(organizer, new HashSet<>(Collections.singleton(speaker)));
+
+        // ConversationManager
+        Set<UUID> users = new HashSet<>(Arrays.asList(organizer, attendee));
+        UUID conversationUUID = conversationManager.createConversation("Chat", users, new HashSet<>(users), organizer, "First");
+        conversationManager.sendMessage(attendee, "Second → with unicode", conversationUUID, false, dateC);
+        conversationManager.sendMessage(organizer, "Third", conversationUUID, false, dateD);
+        conversationManager.userDeleteMessage(conversationUUID, 1);
+        conversationManager.addUser(speaker, conversationUUID);
+        conversationManager.removeUser(speaker, conversationUUID);
+        conversationManager.addReader(speaker, conversationUUID);
+        conversationManager.userReadConversation(attendee, conversationUUID);
+        conversationManager.userUnreadConversation(attendee, conversationUUID);
+        conversationManager.userReadConversation(organizer, conversationUUID);
+        conversationManager.userArchiveConversation(organizer, conversationUUID);
+        UUID deletedConversationUUID = conversationManager.createConversation("Deleted", users, new HashSet<>(users), attendee, "Gone");
+        conversationManager.deleteConversation(deletedConversationUUID);
+
+        // ConferenceManager
+        UUID conferenceUUID = conferenceManager.createConference("Conference A", timeRangeA, organizer);
+        conferenceManager.setConferenceName(conferenceUUID, "Conference B");
+        conferenceManager.setTimeRange(conferenceUUID, timeRangeC);
+        conferenceManager.setPreventingScheduleConflicts(conferenceUUID, true);
+        conferenceManager.addOrganizer(conferenceUUID, speaker);
+        conferenceManager.removeOrganizer(conferenceUUID, speaker);
+        conferenceManager.addAttendee(conferenceUUID, speaker);
+        conferenceManager.removeAttendee(conferenceUUID, speaker);
+        conferenceManager.addSpeaker(conferenceUUID, attendee);
+        conferenceManager.removeSpeaker(conferenceUUID, attendee);
+        conferenceManager.setSpeakers(conferenceUUID, new HashSet<>(Collections.singleton(speaker)));
+        conferenceManager.addAttendees(conferenceUUID, new HashSet<>(importedUUIDs));
+        conferenceManager.addOrganizers(conferenceUUID, new HashSet<>(Collections.singleton(god)));
+        UUID deletedConferenceUUID = conferenceManager.createConference("Deleted", timeRangeA, organizer);
+        conferenceManager.deleteConference(deletedConferenceUUID);
+
+        // RoomManager
+        RoomManager roomManager = conferenceManager.getRoomManager(conferenceUUID);
+        UUID roomUUID = roomManager.createRoom("Room A", 10);
+        UUID deletedRoomUUID = roomManager.createRoom("Room B", 5);
+        roomManager.setRoomLocation(roomUUID, "Room C");
+        roomManager.setRoomCapacity(roomUUID, 2);
+        roomManager.deleteRoom(deletedRoomUUID);
+
+        // EventManager
+        EventManager eventManager = conferenceManager.getEventManager(conferenceUUID);
+        UUID eventA = eventManager.createEvent("Event A", timeRangeA, roomUUID, new HashSet<>(Collections.singleton(speaker)));
+        UUID eventB = eventManager.createEvent("Event B", timeRangeA, roomUUID, new HashSet<>());
+        UUID deletedEventUUID = eventManager.createEvent("Deleted", timeRangeA, roomUUID, new HashSet<>());
+        eventManager.setEventTitle(eventA, "Keynote");
+        eventManager.setEventRoom(eventB, roomUUID);
+        eventManager.setEventTimeRange(eventB, timeRangeB);
+        eventManager.setEventConversationUUID(eventA, conversationUUID);
+        eventManager.setEventWaitlistConversationUUID(eventA, conversationUUID);
+        eventManager.addEventSpeaker(eventB, attendee);
+        eventManager.removeEventSpeaker(eventB, attendee);
+        eventManager.registerAttendee(eventA, importedUUIDs.get(0));
+        eventManager.registerAttendee(eventB, importedUUIDs.get(1));
+        eventManager.unregisterAttendee(eventB, importedUUIDs.get(1));
+        eventManager.joinWaitlist(eventA, importedUUIDs.get(1));
+        eventManager.joinWaitlist(eventA, god);
+        eventManager.leaveWaitlist(eventA, importedUUIDs.get(1));
+        eventManager.deleteEvent(deletedEventUUID);
+
+        // CalendarManager
+        roomManager.getCalendarManager(roomUUID).addTimeBlock(eventA, timeRangeA);
+        roomManager.getCalendarManager(roomUUID).addTimeBlock(eventB, timeRangeB);
+        roomManager.getCalendarManager(roomUUID).removeTimeBlock(eventB);
+
+        // Every operation survives being written to and read back from disk
+        reopen();
+        Set<JournalOperation> recorded = EnumSet.noneOf(JournalOperation.class);
+        journal.forEach(record -> recorded.add(record.getOperation()));
+        assertEquals(EnumSet.allOf(JournalOperation.class), recorded);
+
+        UserManager userManagerCopy = new UserManager();
+        ContactManager contactManagerCopy = new ContactManager();
+        ConversationManager conversationManagerCopy = new ConversationManager();
+        ConferenceManager conferenceManagerCopy = new ConferenceManager();
+        JournalReplayer journalReplayer = new JournalReplayer(userManagerCopy, contactManagerCopy, conversationManagerCopy, conferenceManagerCopy);
+        assertEquals(getSequences().size(), journalReplayer.replay(journal));
+
+        userManager.setJournal(journal);
+        contactManager.setJournal(journal);
+        conversationManager.setJournal(journal);
+        conferenceManager.setJournal(journal);
+        assertSameState(userManager, contactManager, conversationManager, conferenceManager, userManagerCopy, contactManagerCopy, conversationManagerCopy, conferenceManagerCopy);
+
+        // Passwords can only be checked by logging in
+        assertEquals(attendee, userManagerCopy.login("renamed", "secret"));
+    }
+
+    @Test(timeout = 5000)
+    public void testTornRecordIsDropped() throws IOException {
+        for (int i = 0; i < 5; i++) {
+            conferenceManager.createConference("Conference " + i, timeRangeA, organizer);
+        }
+        journal.close();
+
+        // Cut the last record off part way through, as if the program died while writing it
+        try (RandomAccessFile file = new RandomAccessFile(journalFile, "rw")) {
+            file.setLength(file.length() - 3);
+        }
+
+        journal = new FileJournal(journalFile.getPath(), 64, 200);
+        journal.open(0);
+        assertEquals(Arrays.asList(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L), getSequences());
+        assertEquals(8, journal.getSequence());
+
+        // New records go where the torn one was
+        conferenceManager.setJournal(journal);
+        conferenceManager.createConference("Conference 5", timeRangeA, organizer);
+        reopen();
+        assertEquals(Arrays.asList(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L), getSequences());
+    }
+
+    @Test(timeout = 5000)
+    public void testCorruptRecordIsDropped() throws IOException {
+        for (int i = 0; i < 5; i++) {
+            conferenceManager.createConference("Conference " + i, timeRangeA, organizer);
+        }
+        journal.close();
+
+        // Flip a byte of the last record's payload, just before its checksum
+        try (RandomAccessFile file = new RandomAccessFile(journalFile, "rw")) {
+            file.seek(file.length() - 5);
+            byte value = file.readByte();
+            file.seek(file.length() - 5);
+            file.writeByte(value ^ 0x01);
+        }
+
+        journal = new FileJournal(journalFile.getPath(), 64, 200);
+        journal.open(0);
+        assertEquals(Arrays.asList(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L), getSequences());
+
+        // The corrupt record is gone from the file too, so it can't hide records written after it
+        conferenceManager.setJournal(journal);
+        conferenceManager.createConference("Conference 5", timeRangeA, organizer);
+        reopen();
+        assertEquals(Arrays.asList(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L), getSequences());
+    }
+
+    @Test(timeout = 5000)
+    public void testTruncateKeepsLaterRecords() {
+        for (int i = 0; i < 6; i++) {
+            conferenceManager.createConference("Conference " + i, timeRangeA, organizer);
+        }
+        assertEquals(10, journal.getSequence());
+
+        journal.truncate(7);
+        assertEquals(Arrays.asList(8L, 9L, 10L), getSequences());
+        assertEquals(7, journal.getSnapshotSequence());
+
+        // Sequence numbers keep going, and the kept records are still there after a restart
+        conferenceManager.createConference("Conference 6", timeRangeA, organizer);
+        reopen();
+        assertEquals(Arrays.asList(8L, 9L, 10L, 11L), getSequences());
+        assertEquals(11, journal.getSequence());
+
+        // Truncating everything leaves an empty journal that still continues the sequence
+        journal.truncate(11);
+        assertTrue(getSequences().isEmpty());
+        journal.close();
+        journal = new FileJournal(journalFile.getPath(), 64, 200);
+        journal.open(11);
+        assertEquals(11, journal.getSequence());
+    }
+
+    @Test(timeout = 5000)
+    public void testReplaySkipsSnapshottedRecords() {
+        UserManager userManagerCopy = new UserManager();
+        ContactManager contactManagerCopy = new ContactManager();
+        ConversationManager conversationManagerCopy = new ConversationManager();
+        ConferenceManager conferenceManagerCopy = new ConferenceManager();
+        JournalReplayer journalReplayer = new JournalReplayer(userManagerCopy, contactManagerCopy, conversationManagerCopy, conferenceManagerCopy);
+        journalReplayer.setSnapshotSequence(JournalOperation.Target.USER, 5);
+        journalReplayer.setSnapshotSequence(JournalOperation.Target.CONTACT, 3);
+
+        UUID userA = UUID.randomUUID();
+        UUID userB = UUID.randomUUID();
+
+        // Records up to and including a manager's snapshot are already part of it
+        assertFalse(journalReplayer.apply(new JournalRecord(5, JournalOperation.USER_REGISTER, Arrays.asList(userA, "A", "A", "a", "password", false))));
+        assertTrue(journalReplayer.apply(new JournalRecord(6, JournalOperation.USER_REGISTER, Arrays.asList(userB, "B", "B", "b", "password", false))));
+        assertFalse(userManagerCopy.isUser(userA));
+        assertTrue(userManagerCopy.isUser(userB));
+
+        // Each manager has its own snapshot sequence
+        assertFalse(journalReplayer.apply(new JournalRecord(3, JournalOperation.CONTACT_SET_CONTACTS, Arrays.asList(userB, Collections.singleton(userA)))));
+        assertTrue(journalReplayer.apply(new JournalRecord(4, JournalOperation.CONTACT_SET_REQUESTS, Arrays.asList(userB, Collections.singleton(userA)))));
+        assertTrue(contactManagerCopy.getContacts(userB).isEmpty());
+        assertEquals(Collections.singleton(userA), contactManagerCopy.getRequests(userB));
+
+        assertEquals(5, journalReplayer.getNewestSnapshotSequence());
+        assertEquals(0, journalReplayer.getOldestSnapshotSequence());
+    }
+
+    @Test(timeout = 5000)
+    public void testReplaySkipsRecordsInShards() throws IOException {
+        ShardStore shardStore = new ShardStore(new File(directory, "conferences").getPath());
+        Serializer<ConferenceManager> conferenceManagerSerializer = new Serializer<>(new File(directory, "conferenceManager.ser").getPath());
+
+        ConferenceManager shardedManager = new ConferenceManager();
+        shardedManager.setShardStore(shardStore);
+        UUID conferenceUUID = shardedManager.createConference("Conference A", timeRangeC, organizer);
+        UUID roomUUID = shardedManager.getRoomManager(conferenceUUID).createRoom("Room A", 10);
+
+        // The shard is newer than the conference manager's snapshot
+        assertTrue(shardedManager.saveShards(10));
+        assertTrue(conferenceManagerSerializer.save(shardedManager, 5));
+
+        ConferenceManager conferenceManagerCopy = conferenceManagerSerializer.load(new ConferenceManager());
+        conferenceManagerCopy.setShardStore(shardStore);
+        JournalReplayer journalReplayer = new JournalReplayer(new UserManager(), new ContactManager(), new ConversationManager(), conferenceManagerCopy);
+        journalReplayer.setSnapshotSequence(JournalOperation.Target.CONFERENCE, conferenceManagerSerializer.getSequence());
+        assertEquals(10, conferenceManagerCopy.getShardSequence(conferenceUUID));
+
+        // Contents records are checked against the shard, everything else against the snapshot
+        assertFalse(journalReplayer.apply(new JournalRecord(10, JournalOperation.ROOM_SET_LOCATION, Arrays.asList(conferenceUUID, roomUUID, "Room B"))));
+        assertTrue(journalReplayer.apply(new JournalRecord(11, JournalOperation.ROOM_SET_CAPACITY, Arrays.asList(conferenceUUID, roomUUID, 20))));
+        assertFalse(journalReplayer.apply(new JournalRecord(5, JournalOperation.CONFERENCE_SET_NAME, Arrays.asList(conferenceUUID, "Conference B"))));
+        assertTrue(journalReplayer.apply(new JournalRecord(6, JournalOperation.CONFERENCE_SET_NAME, Arrays.asList(conferenceUUID, "Conference C"))));
+
+        RoomManager roomManagerCopy = conferenceManagerCopy.getRoomManager(conferenceUUID);
+        assertEquals("Room A", roomManagerCopy.getRoomLocation(roomUUID));
+        assertEquals(20, roomManagerCopy.getRoomCapacity(roomUUID));
+        assertEquals("Conference C", conferenceManagerCopy.getConferenceName(conferenceUUID));
+    }
+}
@@ -0,0 +1,362 @@
+import contact.ContactManager;
+import convention.calendar.TimeRange;
+import convention.conference.ConferenceManager;
+import convention.event.Event;
+import convention.event.EventManager;
+import convention.room.RoomManager;
+import gateway.SegmentStore;
+import gateway.Serializer;
+import gateway.ShardStore;
+import gateway.exceptions.SerializerException;
+import messaging.Conversation;
+import messaging.ConversationController;
+import messaging.ConversationManager;
+import org.junit.Before;
+import org.junit.Test;
+import user.UserManager;
+import util.BinaryIO;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class SerializationTest {
+    UserManager userManager;
+    ConferenceManager conferenceManager;
+    ConversationManager conversationManager;
+
+    UUID organizer;
+    UUID speaker;
+    UUID attendee;
+
+    LocalDateTime dateA = LocalDateTime.of(2015, Month.JULY, 29, 19, 30, 40);
+    LocalDateTime dateB = LocalDateTime.of(2015, Month.JULY, 29, 20, 30, 40);
+    LocalDateTime dateC = LocalDateTime.of(2015, Month.JULY, 29, 21, 30, 40, 123456789);
+    LocalDateTime dateD = LocalDateTime.of(2058, Month.JULY, 29, 19, 30, 40);
+
+    TimeRange timeRangeA = new TimeRange(dateA, dateB);
+    TimeRange timeRangeB = new TimeRange(dateB.plusMinutes(1), dateC);
+    TimeRange timeRangeC = new TimeRange(dateA, dateD);
+
+    @Before
+    public void init() {
+        userManager = new UserManager();
+        conferenceManager = new ConferenceManager();
+        conversationManager = new ConversationManager();
+
+        organizer = userManager.registerUser("Organizer", "Organizerson", "organizer", "password", false, false);
+        speaker = userManager.registerUser("Speaker", "Speakerson", "speaker", "password", false, false);
+        attendee = userManager.registerUser("Attendee", "Attendeeson", "attendee", "password", false, false);
+    }
+
+    @SuppressWarnings("unchecked")
+    <T> T roundTrip(T object) throws IOException, ClassNotFoundException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(object);
+        }
+
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            return (T) in.readObject();
+        }
+    }
+
+    @Test(timeout = 1000)
+    public void testTimeRangeRoundTrip() throws Exception {
+        TimeRange copy = roundTrip(timeRangeB);
+
+        assertEquals(timeRangeB, copy);
+        assertEquals(dateC.getNano(), copy.getEnd().getNano());
+    }
+
+    @Test(timeout = 1000)
+    public void testConferenceRoundTrip() throws Exception {
+        UUID conferenceUUID = conferenceManager.createConference("Conference A", timeRangeC, organizer);
+        conferenceManager.addSpeaker(conferenceUUID, speaker);
+        conferenceManager.addAttendee(conferenceUUID, attendee);
+        conferenceManager.setPreventingScheduleConflicts(conferenceUUID, true);
+
+        RoomManager roomManager = conferenceManager.getRoomManager(conferenceUUID);
+        UUID roomUUID = roomManager.createRoom("Room A", 42);
+
+        EventManager eventManager = conferenceManager.getEventManager(conferenceUUID);
+        UUID eventA = eventManager.createEvent("Event A", timeRangeA, roomUUID, new HashSet<>(Collections.singleton(speaker)));
+        UUID eventB = eventManager.createEvent("Event B", timeRangeB, roomUUID, new HashSet<>());
+        eventManager.registerAttendee(eventA, attendee);
+        eventManager.joinWaitlist(eventB, speaker);
+        eventManager.joinWaitlist(eventB, attendee);
+        eventManager.setEventConversationUUID(eventA, UUID.randomUUID());
+        roomManager.getCalendarManager(roomUUID).addTimeBlock(eventA, timeRangeA);
+        roomManager.getCalendarManager(roomUUID).addTimeBlock(eventB, timeRangeB);
+
+        ConferenceManager copy = roundTrip(conferenceManager);
+
+        assertEquals(conferenceManager.getConferences(), copy.getConferences());
+        assertEquals("Conference A", copy.getConferenceName(conferenceUUID));
+        assertEquals(timeRangeC, copy.getTimeRange(conferenceUUID));
+        assertEquals(conferenceManager.getOrganizers(conferenceUUID), copy.getOrganizers(conferenceUUID));
+        assertEquals(conferenceManager.getSpeakers(conferenceUUID), copy.getSpeakers(conferenceUUID));
+        assertEquals(conferenceManager.getAttendees(conferenceUUID), copy.getAttendees(conferenceUUID));
+        assertTrue(copy.isPreventingScheduleConflicts(conferenceUUID));
+
+        RoomManager roomManagerCopy = copy.getRoomManager(conferenceUUID);
+        assertEquals(roomManager.getRooms(), roomManagerCopy.getRooms());
+        assertEquals("Room A", roomManagerCopy.getRoomLocation(roomUUID));
+        assertEquals(42, roomManagerCopy.getRoomCapacity(roomUUID));
+        assertEquals(roomManager.getCalendarManager(roomUUID).getUUIDtoTimeRanges(), roomManagerCopy.getCalendarManager(roomUUID).getUUIDtoTimeRanges());
+
+        EventManager eventManagerCopy = copy.getEventManager(conferenceUUID);
+        assertEquals(eventManager.getEvents(), eventManagerCopy.getEvents());
+
+        for (UUID eventUUID : eventManager.getEvents()) {
+            assertEquals(eventManager.getEventTitle(eventUUID), eventManagerCopy.getEventTitle(eventUUID));
+            assertEquals(eventManager.getEventTimeRange(eventUUID), eventManagerCopy.getEventTimeRange(eventUUID));
+            assertEquals(eventManager.getEventRoom(eventUUID), eventManagerCopy.getEventRoom(eventUUID));
+            assertEquals(eventManager.getEventConversationUUID(eventUUID), eventManagerCopy.getEventConversationUUID(eventUUID));
+            assertEquals(eventManager.getEventSpeakers(eventUUID), eventManagerCopy.getEventSpeakers(eventUUID));
+            assertEquals(eventManager.getEventAttendees(eventUUID), eventManagerCopy.getEventAttendees(eventUUID));
+            assertEquals(eventManager.getEventWaitlist(eventUUID), eventManagerCopy.getEventWaitlist(eventUUID));
+        }
+
+        // The indexes are rebuilt from the events
+        assertTrue(eventManagerCopy.isSpeakerOccupied(speaker, timeRangeA));
+        assertFalse(eventManagerCopy.isSpeakerOccupied(speaker, timeRangeB));
+        assertEquals(Collections.singleton(eventA), eventManagerCopy.getAttendeeEvents(attendee));
+
+        // Deserialized entities must still be mutable
+        eventManagerCopy.addEventSpeaker(eventB, speaker);
+        assertTrue(eventManagerCopy.getEventSpeakers(eventB).contains(speaker));
+        assertTrue(eventManagerCopy.isSpeakerOccupied(speaker, timeRangeB));
+    }
+
+    @Test(timeout = 1000)
+    public void testConversationRoundTrip() throws Exception {
+        Set<UUID> users = new HashSet<>(Arrays.asList(organizer, attendee));
+        UUID conversationUUID = conversationManager.createConversation("Chat", users, new HashSet<>(users), organizer, "First");
+        conversationManager.sendMessage(attendee, "Second → with unicode", conversationUUID, false, dateC);
+        conversationManager.userArchiveConversation(attendee, conversationUUID);
+
+        ConversationManager copy = roundTrip(conversationManager);
+
+        ConversationController controller = new ConversationController(new ContactManager(), conversationManager, userManager);
+        ConversationController controllerCopy = new ConversationController(new ContactManager(), copy, userManager);
+
+        assertEquals(controller.getConversationName(conversationUUID), controllerCopy.getConversationName(conversationUUID));
+        assertEquals(controller.getUsersInConversation(conversationUUID), controllerCopy.getUsersInConversation(conversationUUID));
+        assertEquals(conversationManager.getUserArchiveConversation(conversationUUID), copy.getUserArchiveConversation(conversationUUID));
+        assertEquals(controller.getMessages(organizer, conversationUUID), controllerCopy.getMessages(organizer, conversationUUID));
+
+        // Deserialized conversations must still accept messages
+        controllerCopy.sendMessage(organizer, "Third", conversationUUID);
+        assertEquals(3, controllerCopy.getMessages(organizer, conversationUUID).size());
+    }
+
+    @Test(timeout = 5000)
+    public void testConferenceShards() throws Exception {
+        File directory = Files.createTempDirectory("shards").toFile();
+        ShardStore shardStore = new ShardStore(directory.getPath());
+        conferenceManager.setShardStore(shardStore);
+        conferenceManager.setMaximumLoadedConferences(1);
+
+        List<UUID> conferenceUUIDs = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            UUID conferenceUUID = conferenceManager.createConference("Conference " + i, timeRangeC, organizer);
+            UUID roomUUID = conferenceManager.getRoomManager(conferenceUUID).createRoom("Room " + i, i + 1);
+            conferenceManager.getEventManager(conferenceUUID).createEvent("Event " + i, timeRangeA, roomUUID, new HashSet<>());
+            conferenceUUIDs.add(conferenceUUID);
+        }
+
+        // Nothing is on disk yet, so nothing can be unloaded
+        assertEquals(3, conferenceManager.getLoadedConferenceCount());
+
+        assertTrue(conferenceManager.saveShards(1));
+        assertEquals(1, conferenceManager.getLoadedConferenceCount());
+
+        // Unloaded conferences are read back from their shards
+        for (int i = 0; i < 3; i++) {
+            UUID conferenceUUID = conferenceUUIDs.get(i);
+            EventManager eventManager = conferenceManager.getEventManager(conferenceUUID);
+
+            assertEquals("Conference " + i, conferenceManager.getConferenceName(conferenceUUID));
+            assertEquals(1, eventManager.getEvents().size());
+            assertEquals("Event " + i, eventManager.getEventTitle(eventManager.getEvents().iterator().next()));
+            assertEquals(1, conferenceManager.getShardSequence(conferenceUUID));
+            assertEquals(1, conferenceManager.getLoadedConferenceCount());
+        }
+
+        // The index only has the metadata, the contents come from the shards
+        conferenceManager.deleteConference(conferenceUUIDs.get(2));
+        ConferenceManager copy = roundTrip(conferenceManager);
+        copy.setShardStore(shardStore);
+        conferenceManager.removeDeletedShards();
+
+        assertEquals(conferenceManager.getConferences(), copy.getConferences());
+        assertEquals(1, copy.getRoomManager(conferenceUUIDs.get(0)).getRooms().size());
+        assertFalse(shardStore.exists(conferenceUUIDs.get(2)));
+
+        for (File file : Objects.requireNonNull(directory.listFiles())) {
+            file.delete();
+        }
+        directory.delete();
+    }
+
+    @Test(timeout = 5000)
+    public void testConversationMessageStore() throws Exception {
+        File directory = Files.createTempDirectory("messages").toFile();
+        SegmentStore messageStore = new SegmentStore(directory.getPath(), 8);
+        conversationManager.setMessageStore(messageStore);
+
+        ConversationController controller = new ConversationController(new ContactManager(), conversationManager, userManager);
+        Set<UUID> users = new HashSet<>(Arrays.asList(organizer, attendee));
+        UUID conversationUUID = conversationManager.createConversation("Chat", users, new HashSet<>(users), organizer, "Message 0");
+
+        for (int i = 1; i < 250; i++) {
+            controller.sendMessage(i % 2 == 0 ? organizer : attendee, "Message " + i, conversationUUID);
+        }
+        controller.deleteMessage(conversationUUID, organizer, 10);
+        controller.deleteMessage(conversationUUID, attendee, 10);
+
+        // Older messages come from the segments, the newest ones from memory
+        List<Map<String, String>> messages = controller.getMessages(organizer, conversationUUID);
+        assertEquals(248, messages.size());
+        assertEquals(248, controller.getMessageCount(conversationUUID));
+        assertEquals("Message 9", messages.get(9).get("content"));
+        assertEquals("Message 12", messages.get(10).get("content"));
+        assertEquals("Message 249", messages.get(247).get("content"));
+        assertEquals(messages.subList(100, 150), controller.getMessages(organizer, conversationUUID, 100, 50));
+
+        // Only the newest messages are part of the snapshot
+        ConversationManager copy = roundTrip(conversationManager);
+        controller.sendMessage(organizer, "Never recorded", conversationUUID);
+
+        messageStore.close();
+        messageStore = new SegmentStore(directory.getPath(), 8);
+        copy.setMessageStore(messageStore);
+        copy.discardUnrecordedMessages();
+
+        ConversationController controllerCopy = new ConversationController(new ContactManager(), copy, userManager);
+        assertEquals(messages, controllerCopy.getMessages(organizer, conversationUUID));
+        assertEquals(250, messageStore.count(conversationUUID));
+
+        controllerCopy.sendMessage(attendee, "Message 250", conversationUUID);
+        assertEquals("Message 250", controllerCopy.getMessages(organizer, conversationUUID, 248, 10).get(0).get("content"));
+
+        copy.deleteConversation(conversationUUID);
+        copy.removeDeletedMessages();
+        assertEquals(0, messageStore.count(conversationUUID));
+        messageStore.close();
+
+        directory.delete();
+    }
+
+    @Test(timeout = 1000)
+    public void testMissingFileFallsBack() throws Exception {
+        File directory = Files.createTempDirectory("serializer").toFile();
+        Serializer<UserManager> serializer = new Serializer<>(new File(directory, "userManager.ser").getPath());
+
+        UserManager fallback = new UserManager();
+        assertSame(fallback, serializer.load(fallback));
+        assertEquals(0, serializer.getSequence());
+
+        directory.delete();
+    }
+
+    @Test(timeout = 1000)
+    public void testUnreadableFileIsLeftAlone() throws Exception {
+        File file = File.createTempFile("userManager", ".ser");
+        byte[] contents = "Not a serialized user manager".getBytes();
+        Files.write(file.toPath(), contents);
+
+        try {
+            new Serializer<UserManager>(file.getPath()).load(new UserManager());
+            fail();
+        } catch (SerializerException e) {
+            // Expected
+        }
+
+        assertArrayEquals(contents, Files.readAllBytes(file.toPath()));
+        file.delete();
+    }
+
+    @Test(timeout = 1000)
+    public void testReadEventVersion1() throws Exception {
+        UUID eventUUID = UUID.randomUUID();
+        UUID roomUUID = UUID.randomUUID();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        // Version 1 had no waitlist
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeByte(1);
+            BinaryIO.writeUUID(out, eventUUID);
+            BinaryIO.writeString(out, "Event");
+            BinaryIO.writeUUIDSet(out, Collections.singleton(speaker));
+            BinaryIO.writeUUIDSet(out, Collections.singleton(attendee));
+            timeRangeA.writeExternal(out);
+            BinaryIO.writeUUID(out, null);
+            BinaryIO.writeUUID(out, roomUUID);
+        }
+
+        Event event = new Event();
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            event.readExternal(in);
+        }
+
+        assertEquals(eventUUID, event.getUUID());
+        assertEquals("Event", event.getTitle());
+        assertEquals(Collections.singleton(speaker), event.getSpeakers());
+        assertEquals(Collections.singleton(attendee), event.getAttendeeUUIDs());
+        assertEquals(timeRangeA, event.getTimeRange());
+        assertNull(event.getConversationUUID());
+        assertEquals(roomUUID, event.getRoomUUID());
+        assertEquals(1, event.getTakenSeats());
+        assertTrue(event.getWaitlist().isEmpty());
+        assertNull(event.getWaitlistConversationUUID());
+    }
+
+    @Test(timeout = 1000)
+    public void testReadConversationVersion1() throws Exception {
+        UUID conversationUUID = UUID.randomUUID();
+        Set<UUID> users = new HashSet<>(Arrays.asList(organizer, attendee));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        // Version 1 had no message count or deleted messages, every message was written
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeByte(1);
+            BinaryIO.writeUUID(out, conversationUUID);
+            BinaryIO.writeString(out, "Chat");
+            BinaryIO.writeUUIDSet(out, users);
+            BinaryIO.writeUUIDSet(out, users);
+            BinaryIO.writeUUIDSet(out, Collections.singleton(organizer));
+            BinaryIO.writeUUIDSet(out, Collections.singleton(attendee));
+
+            out.writeInt(2);
+            for (int i = 0; i < 2; i++) {
+                out.writeByte(1);
+                BinaryIO.writeUUID(out, organizer);
+                BinaryIO.writeDateTime(out, dateA);
+                BinaryIO.writeString(out, "Message " + i);
+            }
+        }
+
+        Conversation conversation = new Conversation();
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            conversation.readExternal(in);
+        }
+
+        assertEquals(conversationUUID, conversation.getConversationUUID());
+        assertEquals("Chat", conversation.getConversationName());
+        assertEquals(users, conversation.getWriteAccessUsers());
+        assertEquals(Collections.singleton(organizer), conversation.getUsersHaveRead());
+        assertEquals(Collections.singleton(attendee), conversation.getUserArchivedUUIDs());
+        assertEquals(2, conversation.getVisibleMessageCount());
+
+        // It is written back in the current version
+        Conversation copy = roundTrip(conversation);
+        assertEquals(2, copy.getVisibleMessageCount());
+    }
+}
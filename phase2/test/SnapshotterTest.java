@@ -0,0 +1,237 @@
+import contact.ContactManager;
+import convention.conference.ConferenceManager;
+import convention.calendar.TimeRange;
+import convention.event.EventManager;
+import convention.room.RoomManager;
+import gateway.SegmentStore;
+import gateway.Serializer;
+import gateway.ShardStore;
+import gateway.journal.FileJournal;
+import gateway.journal.JournalOperation;
+import gateway.journal.JournalReplayer;
+import gateway.journal.Snapshotter;
+import messaging.ConversationController;
+import messaging.ConversationManager;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import user.UserManager;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.util.*;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+public class SnapshotterTest {
+    File directory;
+
+    Serializer<UserManager> userManagerSerializer;
+    Serializer<ContactManager> contactManagerSerializer;
+    Serializer<ConversationManager> conversationManagerSerializer;
+    Serializer<ConferenceManager> conferenceManagerSerializer;
+    ShardStore shardStore;
+    SegmentStore messageStore;
+    FileJournal journal;
+    Snapshotter snapshotter;
+
+    UserManager userManager;
+    ContactManager contactManager;
+    ConversationManager conversationManager;
+    ConferenceManager conferenceManager;
+
+    UserManager userManagerCopy;
+    ContactManager contactManagerCopy;
+    ConversationManager conversationManagerCopy;
+    ConferenceManager conferenceManagerCopy;
+    SegmentStore messageStoreCopy;
+
+    UUID organizer;
+    UUID attendee;
+    UUID god;
+
+    TimeRange timeRangeA = new TimeRange(LocalDateTime.of(2015, Month.JULY, 29, 19, 30, 40), LocalDateTime.of(2015, Month.JULY, 29, 20, 30, 40));
+    TimeRange timeRangeC = new TimeRange(LocalDateTime.of(2015, Month.JULY, 29, 19, 30, 40), LocalDateTime.of(2058, Month.JULY, 29, 19, 30, 40));
+
+    @Before
+    public void init() throws IOException {
+        directory = Files.createTempDirectory("snapshots").toFile();
+
+        userManagerSerializer = new Serializer<>(new File(directory, "userManager.ser").getPath());
+        contactManagerSerializer = new Serializer<>(new File(directory, "contactManager.ser").getPath());
+        conversationManagerSerializer = new Serializer<>(new File(directory, "conversationManager.ser").getPath());
+        conferenceManagerSerializer = new Serializer<>(new File(directory, "conferenceManager.ser").getPath());
+        shardStore = new ShardStore(new File(directory, "conferences").getPath());
+        messageStore = new SegmentStore(new File(directory, "messages").getPath(), 8);
+
+        userManager = new UserManager();
+        contactManager = new ContactManager();
+        conversationManager = new ConversationManager();
+        conferenceManager = new ConferenceManager();
+        conferenceManager.setShardStore(shardStore);
+        conversationManager.setMessageStore(messageStore);
+
+        journal = new FileJournal(new File(directory, "journal.log").getPath(), 64, 200);
+        journal.open(0);
+        userManager.setJournal(journal);
+        contactManager.setJournal(journal);
+        conversationManager.setJournal(journal);
+        conferenceManager.setJournal(journal);
+
+        snapshotter = new Snapshotter(journal, userManagerSerializer, contactManagerSerializer, conversationManagerSerializer, conferenceManagerSerializer, shardStore);
+        snapshotter.setMessageStore(messageStore);
+
+        organizer = userManager.registerUser("Organizer", "Organizerson", "organizer", "password", false, false);
+        attendee = userManager.registerUser("Attendee", "Attendeeson", "attendee", "password", false, false);
+        god = userManager.registerUser("God", "Godson", "god", "password", true, false);
+    }
+
+    @After
+    public void cleanup() throws IOException {
+        snapshotter.close();
+        journal.close();
+        messageStore.close();
+
+        if (messageStoreCopy != null) {
+            messageStoreCopy.close();
+        }
+
+        List<File> files = new ArrayList<>();
+        Files.walk(directory.toPath()).forEach(path -> files.add(path.toFile()));
+        Collections.reverse(files);
+        files.forEach(File::delete);
+    }
+
+    /**
+     * Loads the managers from the snapshots and replays the journal on top of them, like a restart after a crash would
+     */
+    void restart() {
+        journal.sync();
+        messageStore.sync();
+
+        Serializer<UserManager> userManagerSerializer = new Serializer<>(new File(directory, "userManager.ser").getPath());
+        Serializer<ContactManager> contactManagerSerializer = new Serializer<>(new File(directory, "contactManager.ser").getPath());
+        Serializer<ConversationManager> conversationManagerSerializer = new Serializer<>(new File(directory, "conversationManager.ser").getPath());
+        Serializer<ConferenceManager> conferenceManagerSerializer = new Serializer<>(new File(directory, "conferenceManager.ser").getPath());
+
+        userManagerCopy = userManagerSerializer.load(new UserManager());
+        contactManagerCopy = contactManagerSerializer.load(new ContactManager());
+        conversationManagerCopy = conversationManagerSerializer.load(new ConversationManager());
+        conferenceManagerCopy = conferenceManagerSerializer.load(new ConferenceManager());
+        conferenceManagerCopy.setShardStore(new ShardStore(new File(directory, "conferences").getPath()));
+        conferenceManagerCopy.setMaximumLoadedConferences(1);
+        messageStoreCopy = new SegmentStore(new File(directory, "messages").getPath(), 8);
+        conversationManagerCopy.setMessageStore(messageStoreCopy);
+
+        JournalReplayer journalReplayer = new JournalReplayer(userManagerCopy, contactManagerCopy, conversationManagerCopy, conferenceManagerCopy);
+        journalReplayer.setSnapshotSequence(JournalOperation.Target.USER, userManagerSerializer.getSequence());
+        journalReplayer.setSnapshotSequence(JournalOperation.Target.CONTACT, contactManagerSerializer.getSequence());
+        journalReplayer.setSnapshotSequence(JournalOperation.Target.CONVERSATION, conversationManagerSerializer.getSequence());
+        journalReplayer.setSnapshotSequence(JournalOperation.Target.CONFERENCE, conferenceManagerSerializer.getSequence());
+        journalReplayer.replay(new FileJournal(new File(directory, "journal.log").getPath(), 64, 200));
+        conversationManagerCopy.discardUnrecordedMessages();
+    }
+
+    @Test(timeout = 10000)
+    public void testRestartFromSnapshotAndJournal() throws Exception {
+        ConversationController controller = new ConversationController(contactManager, conversationManager, userManager);
+        Set<UUID> users = new HashSet<>(Arrays.asList(organizer, attendee));
+        UUID conversationUUID = conversationManager.createConversation("Chat", users, new HashSet<>(users), organizer, "Message 0");
+
+        for (int i = 1; i < 150; i++) {
+            controller.sendMessage(i % 2 == 0 ? organizer : attendee, "Message " + i, conversationUUID);
+        }
+
+        List<UUID> conferenceUUIDs = new ArrayList<>();
+        List<UUID> roomUUIDs = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            UUID conferenceUUID = conferenceManager.createConference("Conference " + i, timeRangeC, organizer);
+            UUID roomUUID = conferenceManager.getRoomManager(conferenceUUID).createRoom("Room " + i, i + 1);
+            UUID eventUUID = conferenceManager.getEventManager(conferenceUUID).createEvent("Event " + i, timeRangeA, roomUUID, new HashSet<>());
+            conferenceManager.getEventManager(conferenceUUID).registerAttendee(eventUUID, attendee);
+            conferenceUUIDs.add(conferenceUUID);
+            roomUUIDs.add(roomUUID);
+        }
+        contactManager.setContacts(organizer, new HashSet<>(Collections.singleton(attendee)));
+
+        long sequence = snapshotter.snapshot().get();
+        assertEquals(sequence, journal.getSnapshotSequence());
+
+        // Conferences in the snapshot can be unloaded, and are read back from their shards
+        conferenceManager.setMaximumLoadedConferences(1);
+        assertEquals(1, conferenceManager.getLoadedConferenceCount());
+
+        // Everything from here on is only in the journal
+        for (int i = 150; i < 180; i++) {
+            controller.sendMessage(i % 2 == 0 ? organizer : attendee, "Message " + i, conversationUUID);
+        }
+        conversationManager.userDeleteMessage(conversationUUID, 3);
+        conversationManager.userDeleteMessage(conversationUUID, 160);
+
+        RoomManager roomManager = conferenceManager.getRoomManager(conferenceUUIDs.get(0));
+        roomManager.setRoomCapacity(roomUUIDs.get(0), 10);
+        EventManager eventManager = conferenceManager.getEventManager(conferenceUUIDs.get(1));
+        eventManager.createEvent("Event 3", timeRangeA, roomUUIDs.get(1), new HashSet<>(Collections.singleton(organizer)));
+        conferenceManager.setConferenceName(conferenceUUIDs.get(2), "Renamed");
+        conferenceManager.deleteConference(conferenceUUIDs.get(2));
+        conferenceManager.createConference("Conference 3", timeRangeC, organizer);
+
+        userManager.setUserFirstName(attendee, "Renamed");
+        contactManager.setRequests(attendee, new HashSet<>(Collections.singleton(organizer)));
+        assertTrue(journal.getSequence() > sequence);
+
+        restart();
+        JournalTest.assertSameState(userManager, contactManager, conversationManager, conferenceManager, userManagerCopy, contactManagerCopy, conversationManagerCopy, conferenceManagerCopy);
+        assertEquals(180, messageStoreCopy.count(conversationUUID));
+        assertEquals(178, new ConversationController(contactManagerCopy, conversationManagerCopy, userManagerCopy).getMessageCount(conversationUUID));
+
+        // A second snapshot picks up where the first left off
+        sequence = snapshotter.snapshot().get();
+        assertEquals(sequence, journal.getSequence());
+        messageStoreCopy.close();
+
+        restart();
+        JournalTest.assertSameState(userManager, contactManager, conversationManager, conferenceManager, userManagerCopy, contactManagerCopy, conversationManagerCopy, conferenceManagerCopy);
+    }
+
+    @Test(timeout = 10000)
+    public void testConversationsCreatedDuringSnapshotKeepTheirMessages() throws Exception {
+        ConversationController controller = new ConversationController(contactManager, conversationManager, userManager);
+        Set<UUID> users = new HashSet<>(Arrays.asList(organizer, attendee));
+        UUID previousUUID = conversationManager.createConversation("Before", users, new HashSet<>(users), organizer, "Message 0");
+        snapshotter.snapshot().get();
+        controller.sendMessage(attendee, "Message 1", previousUUID);
+
+        Future<Long> snapshot;
+        UUID conversationUUID;
+
+        // The snapshot appends the messages of "Before" to the store before it replays the journal, so holding the
+        // store makes sure the conversation below is created after the sequence number the snapshot is taken at
+        synchronized (messageStore) {
+            snapshot = snapshotter.snapshot();
+            conversationUUID = conversationManager.createConversation("After", users, new HashSet<>(users), organizer, "Message 0");
+
+            for (int i = 1; i < 20; i++) {
+                controller.sendMessage(attendee, "Message " + i, conversationUUID);
+            }
+        }
+
+        long sequence = snapshot.get();
+        assertTrue(journal.getSequence() > sequence);
+
+        List<Map<String, String>> messages = controller.getMessages(organizer, conversationUUID);
+        assertEquals(20, messages.size());
+        assertEquals(20, messageStore.count(conversationUUID));
+        assertEquals("Message 0", messages.get(0).get("content"));
+        assertEquals("Message 19", messages.get(19).get("content"));
+
+        // Deleting it afterwards still removes its messages once a snapshot includes the deletion
+        conversationManager.deleteConversation(conversationUUID);
+        snapshotter.snapshot().get();
+        assertEquals(0, messageStore.count(conversationUUID));
+    }
+}
@@ -0,0 +1,26 @@
+import gateway.SqlDatabase;
+import org.junit.Assume;
+
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.UUID;
+
+/**
+ * Runs every test of ConferenceTest with the users and conversations stored in an embedded database. Each test gets a
+ * new in-memory H2 database by default; another one can be given with -Dstorage.url=jdbc:... . The tests are skipped
+ * if the JDBC driver of the database isn't on the classpath.
+ */
+public class SqlConferenceTest extends ConferenceTest {
+    @Override
+    SqlDatabase createDatabase() {
+        String storageUrl = System.getProperty("storage.url", "jdbc:h2:mem:" + UUID.randomUUID());
+
+        try {
+            DriverManager.getDriver(storageUrl);
+        } catch (SQLException e) {
+            Assume.assumeTrue("No JDBC driver for " + storageUrl, false);
+        }
+
+        return new SqlDatabase(storageUrl);
+    }
+}
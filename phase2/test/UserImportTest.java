@@ -0,0 +1,60 @@
+import gateway.CSVReader;
+import org.junit.Before;
+import org.junit.Test;
+import user.UserManager;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class UserImportTest {
+    UserManager userManager;
+
+    @Before
+    public void init() {
+        userManager = new UserManager();
+    }
+
+    File write(String contents) throws Exception {
+        File file = File.createTempFile("users", ".csv");
+        file.deleteOnExit();
+        Files.write(file.toPath(), contents.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    @Test(timeout = 1000)
+    public void testQuotedFields() throws Exception {
+        File file = write("﻿a,\"b,c\",\"say \"\"hi\"\"\"\r\n\r\n\"multi\nline\",,é\nlast,row");
+        List<String[]> rows = new CSVReader(file.getPath()).read();
+
+        assertEquals(3, rows.size());
+        assertArrayEquals(new String[]{"a", "b,c", "say \"hi\""}, rows.get(0));
+        assertArrayEquals(new String[]{"multi\nline", "", "é"}, rows.get(1));
+        assertArrayEquals(new String[]{"last", "row"}, rows.get(2));
+    }
+
+    @Test(timeout = 5000)
+    public void testImportUsers() throws Exception {
+        UUID existing = userManager.registerUser("Existing", "User", "user1", "password", false, false);
+
+        StringBuilder contents = new StringBuilder();
+        for (int i = 0; i < 2500; i++) {
+            contents.append("First,\"Last, Jr.\",user").append(i).append(",password\n");
+        }
+        contents.append("Duplicate,In File,user2,password\n");
+        contents.append("Missing,Columns\n");
+
+        Set<UUID> imported = userManager.importUsers(new CSVReader(write(contents.toString()).getPath()), false);
+
+        assertEquals(2499, imported.size());
+        assertEquals(2500, userManager.getAllUsers().size());
+        assertEquals("Existing", userManager.getUserFirstName(existing));
+        assertNotNull(userManager.login("user2", "password"));
+        assertEquals("First", userManager.getUserFirstName(userManager.getSignedInUserUUID()));
+        assertEquals("Last, Jr.", userManager.getUserLastName(userManager.getSignedInUserUUID()));
+        assertFalse(userManager.getUserIsGod(userManager.getSignedInUserUUID()));
+    }
+}